@@ -16,6 +16,7 @@
 
 package com.github.pedrovgs.lynx;
 
+import com.github.pedrovgs.lynx.export.ExportFormat;
 import com.github.pedrovgs.lynx.model.TraceLevel;
 import java.io.Serializable;
 
@@ -25,10 +26,28 @@ import java.io.Serializable;
  * for:
  *
  * - Max number of traces to show in LynxView.
+ * - Max estimated memory in bytes used by the traces shown in LynxView. Zero disables it.
  * - Filter used to get a list of traces to show.
  * - Text size in DP used to render a trace.
  * - Sampling rate used to read from the Logcat output.
+ * - Max number of pending traces needed to notify new traces before the sampling rate expires.
+ * - Adaptive sampling rate calculated from the number of traces received and the cost of
+ * rendering them. If enabled, the configured sampling rate is used as the max value.
+ * - Min trace level notified immediately without waiting for the sampling rate.
+ * - RecyclerView used to render traces in LynxView instead of a ListView.
+ * - Custom view drawing the visible traces directly into the canvas used instead of a ListView or
+ * RecyclerView.
+ * - Traces shared as a gzip compressed archive with a header describing the device, the
+ * configuration and the time range of the traces instead of a plain text file.
+ * - Format used to share the traces: plain text, JSON Lines or a compact binary format.
+ * - Max number of traces with a TraceLevel equal or higher than the retained trace level kept after
+ * discarding them from LynxView. Retained traces are shown before the rest. Zero disables it. Not
+ * used if the disk history is enabled, the history keeps every trace discarded.
+ * - Max disk space in bytes used to store the traces discarded from LynxView. Zero disables it.
  *
+ * The sampling rate and the batch size don't bound the number of traces read from Logcat pending
+ * to be notified. Lynx keeps up to 4096 of them, if LynxView is not able to process the traces fast
+ * enough the newest ones are discarded and counted by Lynx.getNumberOfDroppedTraces.
  * @author Pedro Vicente Gomez Sanchez.
  */
 public class LynxConfig implements Serializable, Cloneable {
@@ -41,10 +60,24 @@ public class LynxConfig implements Serializable, Cloneable {
   private TraceLevel filterTraceLevel;
   private Float textSizeInPx;
   private int samplingRate = 150;
+  private int batchSize = 500;
+  private boolean adaptiveSamplingRate;
+  private TraceLevel priorityTraceLevel;
+  private boolean recyclerView;
+  private boolean canvasView;
+  private boolean gzipExport;
+  private ExportFormat exportFormat;
+  private long maxDiskHistorySizeInBytes;
+  private long maxBufferSizeInBytes;
+  private TraceLevel retainedTraceLevel;
+  private int maxNumberOfRetainedTraces;
 
   public LynxConfig() {
     filter = "";
     filterTraceLevel = TraceLevel.VERBOSE;
+    priorityTraceLevel = TraceLevel.ERROR;
+    retainedTraceLevel = TraceLevel.WARNING;
+    exportFormat = ExportFormat.PLAIN_TEXT;
   }
 
   public LynxConfig setMaxNumberOfTracesToShow(int maxNumberOfTracesToShow) {
@@ -83,6 +116,87 @@ public class LynxConfig implements Serializable, Cloneable {
     return this;
   }
 
+  public LynxConfig setBatchSize(int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("You can't use a batch size equals or lower than zero.");
+    }
+
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  public LynxConfig setAdaptiveSamplingRate(boolean adaptiveSamplingRate) {
+    this.adaptiveSamplingRate = adaptiveSamplingRate;
+    return this;
+  }
+
+  public LynxConfig setRecyclerView(boolean recyclerView) {
+    this.recyclerView = recyclerView;
+    return this;
+  }
+
+  public LynxConfig setCanvasView(boolean canvasView) {
+    this.canvasView = canvasView;
+    return this;
+  }
+
+  public LynxConfig setGzipExport(boolean gzipExport) {
+    this.gzipExport = gzipExport;
+    return this;
+  }
+
+  public LynxConfig setExportFormat(ExportFormat exportFormat) {
+    if (exportFormat == null) {
+      throw new IllegalArgumentException("exportFormat can't be null");
+    }
+    this.exportFormat = exportFormat;
+    return this;
+  }
+
+  public LynxConfig setMaxDiskHistorySizeInBytes(long maxDiskHistorySizeInBytes) {
+    if (maxDiskHistorySizeInBytes < 0) {
+      throw new IllegalArgumentException("You can't use a negative max disk history size.");
+    }
+
+    this.maxDiskHistorySizeInBytes = maxDiskHistorySizeInBytes;
+    return this;
+  }
+
+  public LynxConfig setMaxBufferSizeInBytes(long maxBufferSizeInBytes) {
+    if (maxBufferSizeInBytes < 0) {
+      throw new IllegalArgumentException("You can't use a negative max buffer size.");
+    }
+
+    this.maxBufferSizeInBytes = maxBufferSizeInBytes;
+    return this;
+  }
+
+  public LynxConfig setRetainedTraceLevel(TraceLevel retainedTraceLevel) {
+    if (retainedTraceLevel == null) {
+      throw new IllegalArgumentException("retainedTraceLevel can't be null");
+    }
+    this.retainedTraceLevel = retainedTraceLevel;
+    return this;
+  }
+
+  public LynxConfig setMaxNumberOfRetainedTraces(int maxNumberOfRetainedTraces) {
+    if (maxNumberOfRetainedTraces < 0) {
+      throw new IllegalArgumentException(
+          "You can't use a negative max number of retained traces.");
+    }
+
+    this.maxNumberOfRetainedTraces = maxNumberOfRetainedTraces;
+    return this;
+  }
+
+  public LynxConfig setPriorityTraceLevel(TraceLevel priorityTraceLevel) {
+    if (priorityTraceLevel == null) {
+      throw new IllegalArgumentException("priorityTraceLevel can't be null");
+    }
+    this.priorityTraceLevel = priorityTraceLevel;
+    return this;
+  }
+
   public int getMaxNumberOfTracesToShow() {
     return maxNumberOfTracesToShow;
   }
@@ -111,6 +225,58 @@ public class LynxConfig implements Serializable, Cloneable {
     return samplingRate;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public boolean isAdaptiveSamplingRateEnabled() {
+    return adaptiveSamplingRate;
+  }
+
+  public TraceLevel getPriorityTraceLevel() {
+    return priorityTraceLevel;
+  }
+
+  public boolean isRecyclerViewEnabled() {
+    return recyclerView;
+  }
+
+  public boolean isCanvasViewEnabled() {
+    return canvasView;
+  }
+
+  public boolean isGzipExportEnabled() {
+    return gzipExport;
+  }
+
+  public ExportFormat getExportFormat() {
+    return exportFormat;
+  }
+
+  public long getMaxDiskHistorySizeInBytes() {
+    return maxDiskHistorySizeInBytes;
+  }
+
+  public boolean isDiskHistoryEnabled() {
+    return maxDiskHistorySizeInBytes > 0;
+  }
+
+  public long getMaxBufferSizeInBytes() {
+    return maxBufferSizeInBytes;
+  }
+
+  public boolean hasMaxBufferSizeInBytes() {
+    return maxBufferSizeInBytes > 0;
+  }
+
+  public TraceLevel getRetainedTraceLevel() {
+    return retainedTraceLevel;
+  }
+
+  public int getMaxNumberOfRetainedTraces() {
+    return maxNumberOfRetainedTraces;
+  }
+
   @Override public boolean equals(Object o) {
     if (this == o) return true;
     if (!(o instanceof LynxConfig)) return false;
@@ -119,12 +285,23 @@ public class LynxConfig implements Serializable, Cloneable {
 
     if (maxNumberOfTracesToShow != that.maxNumberOfTracesToShow) return false;
     if (samplingRate != that.samplingRate) return false;
+    if (batchSize != that.batchSize) return false;
+    if (adaptiveSamplingRate != that.adaptiveSamplingRate) return false;
+    if (recyclerView != that.recyclerView) return false;
+    if (canvasView != that.canvasView) return false;
+    if (gzipExport != that.gzipExport) return false;
+    if (exportFormat != that.exportFormat) return false;
+    if (maxDiskHistorySizeInBytes != that.maxDiskHistorySizeInBytes) return false;
+    if (maxBufferSizeInBytes != that.maxBufferSizeInBytes) return false;
+    if (maxNumberOfRetainedTraces != that.maxNumberOfRetainedTraces) return false;
+    if (retainedTraceLevel != that.retainedTraceLevel) return false;
     if (filter != null ? !filter.equals(that.filter) : that.filter != null) return false;
     if (textSizeInPx != null ? !textSizeInPx.equals(that.textSizeInPx)
         : that.textSizeInPx != null) {
       return false;
     }
     if (filterTraceLevel != that.filterTraceLevel) return false;
+    if (priorityTraceLevel != that.priorityTraceLevel) return false;
     return true;
   }
 
@@ -133,6 +310,17 @@ public class LynxConfig implements Serializable, Cloneable {
     result = 31 * result + (filter != null ? filter.hashCode() : 0);
     result = 31 * result + (textSizeInPx != null ? textSizeInPx.hashCode() : 0);
     result = 31 * result + samplingRate;
+    result = 31 * result + batchSize;
+    result = 31 * result + (adaptiveSamplingRate ? 1 : 0);
+    result = 31 * result + (priorityTraceLevel != null ? priorityTraceLevel.hashCode() : 0);
+    result = 31 * result + (recyclerView ? 1 : 0);
+    result = 31 * result + (canvasView ? 1 : 0);
+    result = 31 * result + (gzipExport ? 1 : 0);
+    result = 31 * result + exportFormat.hashCode();
+    result = 31 * result + (int) (maxDiskHistorySizeInBytes ^ (maxDiskHistorySizeInBytes >>> 32));
+    result = 31 * result + (int) (maxBufferSizeInBytes ^ (maxBufferSizeInBytes >>> 32));
+    result = 31 * result + (retainedTraceLevel != null ? retainedTraceLevel.hashCode() : 0);
+    result = 31 * result + maxNumberOfRetainedTraces;
     return result;
   }
 
@@ -140,7 +328,18 @@ public class LynxConfig implements Serializable, Cloneable {
     return new LynxConfig().setMaxNumberOfTracesToShow(getMaxNumberOfTracesToShow())
         .setFilter(filter)
         .setFilterTraceLevel(filterTraceLevel)
-        .setSamplingRate(getSamplingRate());
+        .setSamplingRate(getSamplingRate())
+        .setBatchSize(getBatchSize())
+        .setAdaptiveSamplingRate(isAdaptiveSamplingRateEnabled())
+        .setPriorityTraceLevel(getPriorityTraceLevel())
+        .setRecyclerView(isRecyclerViewEnabled())
+        .setCanvasView(isCanvasViewEnabled())
+        .setGzipExport(isGzipExportEnabled())
+        .setExportFormat(getExportFormat())
+        .setMaxDiskHistorySizeInBytes(getMaxDiskHistorySizeInBytes())
+        .setMaxBufferSizeInBytes(getMaxBufferSizeInBytes())
+        .setRetainedTraceLevel(getRetainedTraceLevel())
+        .setMaxNumberOfRetainedTraces(getMaxNumberOfRetainedTraces());
   }
 
   @Override public String toString() {
@@ -154,6 +353,28 @@ public class LynxConfig implements Serializable, Cloneable {
         + textSizeInPx
         + ", samplingRate="
         + samplingRate
+        + ", batchSize="
+        + batchSize
+        + ", adaptiveSamplingRate="
+        + adaptiveSamplingRate
+        + ", priorityTraceLevel="
+        + priorityTraceLevel
+        + ", recyclerView="
+        + recyclerView
+        + ", canvasView="
+        + canvasView
+        + ", gzipExport="
+        + gzipExport
+        + ", exportFormat="
+        + exportFormat
+        + ", maxDiskHistorySizeInBytes="
+        + maxDiskHistorySizeInBytes
+        + ", maxBufferSizeInBytes="
+        + maxBufferSizeInBytes
+        + ", retainedTraceLevel="
+        + retainedTraceLevel
+        + ", maxNumberOfRetainedTraces="
+        + maxNumberOfRetainedTraces
         + '}';
   }
 }
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx;
+
+import android.support.v4.content.FileProvider;
+
+/**
+ * FileProvider used to share the files containing the traces exported by LynxView. This class
+ * exists just to declare a provider with a different name than the FileProvider the application
+ * could declare in its own manifest, two providers with the same name can't be merged.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public class LynxFileProvider extends FileProvider {
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.Build;
+import com.github.pedrovgs.lynx.presenter.LynxPresenter;
+
+/**
+ * Reduces the memory used by the traces shown in LynxView when the system notifies memory
+ * pressure. The more critical the memory level is, the more traces are discarded. The size kept
+ * is a fraction of the size the traces had when the pressure began, so repeated notifications of
+ * the same level don't discard more traces. LynxView restores the max size configured once its
+ * window is visible again. This class uses ComponentCallbacks2, so it has to be instantiated just
+ * from API 14.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+@TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+class LynxTrimMemoryCallbacks implements ComponentCallbacks2 {
+
+  private static final float FRACTION_TO_KEEP_ON_LOW_MEMORY = 0.5f;
+  private static final float FRACTION_TO_KEEP_ON_CRITICAL_MEMORY = 0.25f;
+
+  private final LynxPresenter presenter;
+
+  LynxTrimMemoryCallbacks(LynxPresenter presenter) {
+    this.presenter = presenter;
+  }
+
+  @Override public void onTrimMemory(int level) {
+    if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+      presenter.trimMemory(FRACTION_TO_KEEP_ON_CRITICAL_MEMORY);
+    } else if (level == TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+      presenter.trimMemory(FRACTION_TO_KEEP_ON_LOW_MEMORY);
+    }
+  }
+
+  @Override public void onLowMemory() {
+    presenter.trimMemory(FRACTION_TO_KEEP_ON_CRITICAL_MEMORY);
+  }
+
+  @Override public void onConfigurationChanged(Configuration newConfig) {
+    //Empty
+  }
+}
@@ -16,15 +16,29 @@
 
 package com.github.pedrovgs.lynx;
 
+import android.annotation.TargetApi;
+import android.app.AlertDialog;
+import android.content.ClipData;
+import android.content.ComponentCallbacks;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
 import android.content.res.TypedArray;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Process;
 import android.support.annotation.CheckResult;
+import android.support.v4.content.FileProvider;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.text.Editable;
 import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.AbsListView;
@@ -33,24 +47,34 @@ import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.ListView;
+import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
+import android.widget.SectionIndexer;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.github.pedrovgs.lynx.export.ExportFormat;
+import com.github.pedrovgs.lynx.export.TraceExporter;
 import com.github.pedrovgs.lynx.model.AndroidMainThread;
-import com.github.pedrovgs.lynx.model.Logcat;
 import com.github.pedrovgs.lynx.model.Lynx;
+import com.github.pedrovgs.lynx.model.SharedLogcat;
 import com.github.pedrovgs.lynx.model.TimeProvider;
 import com.github.pedrovgs.lynx.model.Trace;
 import com.github.pedrovgs.lynx.model.TraceLevel;
 import com.github.pedrovgs.lynx.presenter.LynxPresenter;
+import com.github.pedrovgs.lynx.renderer.TraceLayoutCache;
 import com.github.pedrovgs.lynx.renderer.TraceRendererBuilder;
 import com.pedrogomez.renderers.RendererAdapter;
+import com.pedrogomez.renderers.RVRendererAdapter;
 import com.pedrogomez.renderers.RendererBuilder;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Main library view. Custom view based on a RelativeLayout used to show all the information
@@ -62,20 +86,39 @@ import java.util.List;
 public class LynxView extends RelativeLayout implements LynxPresenter.View {
 
   private static final String LOGTAG = "LynxView";
-  private static final String SHARE_INTENT_TYPE = "text/plain";
   private static final CharSequence SHARE_INTENT_TITLE = "Application Logcat";
   private static final int DEFAULT_POSITION = 0;
+  private static final int NO_POSITION = -1;
+  private static final long NO_ANCHOR = Long.MIN_VALUE;
+  private static final int RECYCLED_VIEWS_PER_TRACE_LEVEL = 30;
+  private static final String HISTORY_DIRECTORY_PREFIX = "lynx_history_";
+  private static final String EXPORT_DIRECTORY = "lynx_exports";
+  private static final String FILE_PROVIDER_AUTHORITY_SUFFIX = ".lynx.fileprovider";
+  private static final AtomicInteger DIRECTORY_COUNTER = new AtomicInteger();
+  private static final AtomicBoolean HAS_DELETED_STALE_DIRECTORIES = new AtomicBoolean();
 
   private LynxPresenter presenter;
   private LynxConfig lynxConfig;
 
   private ListView lv_traces;
+  private RecyclerView rv_traces;
+  private TraceCanvasView cv_traces;
+  private LinearLayoutManager layoutManager;
   private EditText et_filter;
   private ImageButton ib_share;
+  private ImageButton ib_jump_to_time;
   private Spinner sp_filter;
+  private ProgressBar pb_export;
 
   private RendererAdapter<Trace> adapter;
-  private int lastScrollPosition;
+  private TraceAdapteeCollection tracesShown;
+  private RVRendererAdapter<Trace> recyclerViewAdapter;
+  private TraceLayoutCache layoutCache;
+  private Trace[] previousTraces = new Trace[0];
+  private long[] previousTraceIds = new long[0];
+  private boolean isAutoScrollEnabled = true;
+  private boolean isUserScrollingListView;
+  private ComponentCallbacks trimMemoryCallbacks;
 
   public LynxView(Context context) {
     this(context, null);
@@ -93,21 +136,28 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
   }
 
   /**
-   * Initializes LynxPresenter if LynxView is visible when is attached to the window.
+   * Initializes LynxPresenter if LynxView is visible when is attached to the window and starts
+   * listening memory pressure notifications to discard traces if needed.
    */
   @Override protected void onAttachedToWindow() {
     super.onAttachedToWindow();
+    registerTrimMemoryCallbacks();
     if (isVisible()) {
       resumePresenter();
     }
   }
 
   /**
-   * Stops LynxPresenter when LynxView is detached from the window.
+   * Stops LynxPresenter when LynxView is detached from the window and releases the disk history,
+   * the files exported and the thread precomputing the trace layouts. They are created again if
+   * the view is attached again.
    */
   @Override protected void onDetachedFromWindow() {
     super.onDetachedFromWindow();
+    unregisterTrimMemoryCallbacks();
     pausePresenter();
+    closePresenter();
+    releaseLayoutCache();
   }
 
   /**
@@ -128,6 +178,18 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
     }
   }
 
+  /**
+   * Restores the memory trimmed by LynxTrimMemoryCallbacks once the window is visible again. The
+   * system notifies memory pressure, mostly while the application is in background, but it doesn't
+   * notify when the pressure ends.
+   */
+  @Override protected void onWindowVisibilityChanged(int visibility) {
+    super.onWindowVisibilityChanged(visibility);
+    if (visibility == View.VISIBLE && isPresenterReady()) {
+      presenter.restoreMemory();
+    }
+  }
+
   /**
    * Given a valid LynxConfig object update all the dependencies to apply this new configuration.
    *
@@ -137,9 +199,10 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
     validateLynxConfig(lynxConfig);
     boolean hasChangedLynxConfig = !this.lynxConfig.equals(lynxConfig);
     if (hasChangedLynxConfig) {
+      LynxConfig previousLynxConfig = this.lynxConfig;
       this.lynxConfig = (LynxConfig) lynxConfig.clone();
       updateFilterText();
-      updateAdapter();
+      updateAdapter(previousLynxConfig);
       updateSpinner();
       presenter.setLynxConfig(lynxConfig);
     }
@@ -160,47 +223,301 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
   }
 
   /**
-   * Given a {@code List<Trace>} updates the ListView adapter with this information and keeps the
-   * scroll position if needed.
+   * Given a {@code List<Trace>} replaces the traces rendered in the ListView, RecyclerView or
+   * TraceCanvasView with this information. If the auto scroll is disabled the first trace visible
+   * before replacing the traces, or the next one if it's not shown anymore, is kept at the top.
+   * The RecyclerView is notified just about the ranges of traces removed, inserted or changed.
    */
-  @Override public void showTraces(List<Trace> traces, int removedTraces) {
-    if (lastScrollPosition == 0) {
-      lastScrollPosition = lv_traces.getFirstVisiblePosition();
+  @Override public void showTraces(List<Trace> traces) {
+    if (isCanvasViewEnabled()) {
+      cv_traces.showTraces(traces);
+      return;
     }
-    adapter.clear();
-    adapter.addAll(traces);
-    adapter.notifyDataSetChanged();
-    updateScrollPosition(removedTraces);
+    long anchorTraceId = getFirstVisibleTraceId();
+    int anchorTop = getFirstVisibleTraceTop();
+    int numberOfPreviousTraces = isRecyclerViewEnabled() ? savePreviousTraces() : 0;
+    tracesShown.clear();
+    tracesShown.addAll(traces);
+    layoutCache.precompute(traces);
+    if (isRecyclerViewEnabled()) {
+      notifyRecyclerViewChanges(numberOfPreviousTraces);
+      scrollRecyclerViewToTheLastTraceIfNeeded();
+    } else {
+      adapter.notifyDataSetChanged();
+    }
+    restoreScrollAnchor(anchorTraceId, anchorTop, NO_POSITION);
   }
 
   /**
-   * Removes all the traces rendered in the ListView.
+   * Removes the traces discarded from the beginning of the list, appends the new traces at the end
+   * and keeps the scroll position if the auto scroll is disabled. The layouts of the new traces
+   * are computed in background before their rows are bound.
+   */
+  @Override public void appendTraces(List<Trace> newTraces, int removedTraces) {
+    if (isCanvasViewEnabled()) {
+      cv_traces.appendTraces(newTraces, removedTraces);
+      return;
+    }
+    layoutCache.precompute(newTraces);
+    if (isRecyclerViewEnabled()) {
+      appendTracesToRecyclerView(newTraces, removedTraces);
+    } else {
+      appendTracesToListView(newTraces, removedTraces);
+    }
+  }
+
+  /**
+   * Removes the traces discarded from the end of the list and inserts the older traces at the
+   * beginning keeping the trace shown at the top of the list.
+   */
+  @Override public void prependTraces(List<Trace> olderTraces, int removedTraces) {
+    if (isCanvasViewEnabled()) {
+      cv_traces.prependTraces(olderTraces, removedTraces);
+    } else if (isRecyclerViewEnabled()) {
+      prependTracesToRecyclerView(olderTraces, removedTraces);
+    } else {
+      prependTracesToListView(olderTraces, removedTraces);
+    }
+  }
+
+  /**
+   * Removes all the traces rendered in the ListView, RecyclerView or TraceCanvasView.
    */
   @Override public void clear() {
-    adapter.clear();
+    if (isCanvasViewEnabled()) {
+      cv_traces.clear();
+    } else if (isRecyclerViewEnabled()) {
+      int numberOfTraces = tracesShown.size();
+      tracesShown.clear();
+      if (numberOfTraces > 0) {
+        recyclerViewAdapter.notifyItemRangeRemoved(0, numberOfTraces);
+      }
+    } else {
+      tracesShown.clear();
+      adapter.notifyDataSetChanged();
+    }
+  }
+
+  /**
+   * ListView doesn't keep the first visible trace after removing traces from the beginning of the
+   * list, so the trace anchored at the top is restored once the new traces are appended. The
+   * traces discarded are removed in a single range operation and the adapter is notified once.
+   */
+  private void appendTracesToListView(List<Trace> newTraces, int removedTraces) {
+    int firstVisiblePosition = lv_traces.getFirstVisiblePosition();
+    long anchorTraceId = getFirstVisibleTraceId();
+    int anchorTop = getFirstVisibleTraceTop();
+    tracesShown.removeFirst(removedTraces);
+    tracesShown.addAll(newTraces);
+    adapter.notifyDataSetChanged();
+    if (removedTraces > 0) {
+      restoreScrollAnchor(anchorTraceId, anchorTop, firstVisiblePosition - removedTraces);
+    }
+  }
+
+  private void prependTracesToListView(List<Trace> olderTraces, int removedTraces) {
+    int firstVisiblePosition = lv_traces.getFirstVisiblePosition();
+    long anchorTraceId = getFirstVisibleTraceId();
+    int anchorTop = getFirstVisibleTraceTop();
+    tracesShown.removeLast(removedTraces);
+    tracesShown.addAllFirst(olderTraces);
     adapter.notifyDataSetChanged();
+    int expectedPosition = firstVisiblePosition + olderTraces.size();
+    if (isAutoScrollEnabled) {
+      lv_traces.setSelectionFromTop(expectedPosition, anchorTop);
+    } else {
+      restoreScrollAnchor(anchorTraceId, anchorTop, expectedPosition);
+    }
+  }
+
+  private void prependTracesToRecyclerView(List<Trace> olderTraces, int removedTraces) {
+    int numberOfTracesRemoved = tracesShown.removeLast(removedTraces);
+    if (numberOfTracesRemoved > 0) {
+      recyclerViewAdapter.notifyItemRangeRemoved(tracesShown.size(), numberOfTracesRemoved);
+    }
+    tracesShown.addAllFirst(olderTraces);
+    recyclerViewAdapter.notifyItemRangeInserted(0, olderTraces.size());
+  }
+
+  /**
+   * RecyclerView keeps the first visible trace after removing traces from the beginning of the
+   * list, so just the rows removed and inserted are notified and rebound.
+   */
+  private void appendTracesToRecyclerView(List<Trace> newTraces, int removedTraces) {
+    int numberOfTracesRemoved = tracesShown.removeFirst(removedTraces);
+    if (numberOfTracesRemoved > 0) {
+      recyclerViewAdapter.notifyItemRangeRemoved(0, numberOfTracesRemoved);
+    }
+    int firstNewTracePosition = tracesShown.size();
+    tracesShown.addAll(newTraces);
+    recyclerViewAdapter.notifyItemRangeInserted(firstNewTracePosition, newTraces.size());
+    scrollRecyclerViewToTheLastTraceIfNeeded();
+  }
+
+  /**
+   * Copies the traces shown and their ids before replacing them and returns the number of traces
+   * copied. The arrays are reused while the number of traces shown doesn't grow.
+   */
+  private int savePreviousTraces() {
+    int numberOfTraces = tracesShown.size();
+    if (previousTraces.length < numberOfTraces) {
+      previousTraces = new Trace[numberOfTraces];
+      previousTraceIds = new long[numberOfTraces];
+    }
+    for (int i = 0; i < numberOfTraces; i++) {
+      Trace trace = tracesShown.get(i);
+      previousTraces[i] = trace;
+      previousTraceIds[i] = getTraceId(trace);
+    }
+    return numberOfTraces;
   }
 
   /**
-   * Uses an intent to share content and given one String with all the information related to the
-   * List of traces shares this information with other applications.
+   * Notifies the RecyclerView about the ranges of traces removed, inserted or changed comparing
+   * the traces saved with the ones shown now. The ids of both lists are increasing, so they are
+   * merged in linear time without DiffUtil. Traces with the same id are notified as changed just
+   * if the instance is not the same one.
    */
-  @CheckResult @Override public boolean shareTraces(String fullTraces) {
+  private void notifyRecyclerViewChanges(int numberOfPreviousTraces) {
+    int numberOfTraces = tracesShown.size();
+    int previousPosition = 0;
+    int position = 0;
+    while (previousPosition < numberOfPreviousTraces || position < numberOfTraces) {
+      long traceId = position < numberOfTraces
+          ? getTraceId(tracesShown.get(position)) : Long.MAX_VALUE;
+      long previousTraceId = previousPosition < numberOfPreviousTraces
+          ? previousTraceIds[previousPosition] : Long.MAX_VALUE;
+      if (previousTraceId < traceId) {
+        int firstRemovedTrace = previousPosition;
+        while (previousPosition < numberOfPreviousTraces
+            && previousTraceIds[previousPosition] < traceId) {
+          previousPosition++;
+        }
+        recyclerViewAdapter.notifyItemRangeRemoved(position, previousPosition - firstRemovedTrace);
+      } else if (traceId < previousTraceId) {
+        int firstInsertedTrace = position;
+        while (position < numberOfTraces
+            && getTraceId(tracesShown.get(position)) < previousTraceId) {
+          position++;
+        }
+        recyclerViewAdapter.notifyItemRangeInserted(firstInsertedTrace,
+            position - firstInsertedTrace);
+      } else {
+        if (previousTraces[previousPosition] != tracesShown.get(position)) {
+          recyclerViewAdapter.notifyItemChanged(position);
+        }
+        previousPosition++;
+        position++;
+      }
+    }
+    Arrays.fill(previousTraces, 0, numberOfPreviousTraces, null);
+  }
+
+  /**
+   * Returns the id of the first trace visible or NO_ANCHOR if there are no traces shown.
+   */
+  private long getFirstVisibleTraceId() {
+    int position = isRecyclerViewEnabled() ? layoutManager.findFirstVisibleItemPosition()
+        : lv_traces.getFirstVisiblePosition();
+    if (position < 0 || position >= getNumberOfTracesShown()) {
+      return NO_ANCHOR;
+    }
+    return getTraceId(getTraceShown(position));
+  }
+
+  private int getFirstVisibleTraceTop() {
+    View firstVisibleView;
+    if (isRecyclerViewEnabled()) {
+      firstVisibleView =
+          layoutManager.findViewByPosition(layoutManager.findFirstVisibleItemPosition());
+    } else {
+      firstVisibleView = lv_traces.getChildAt(0);
+    }
+    return firstVisibleView == null ? 0 : firstVisibleView.getTop();
+  }
+
+  /**
+   * Shows the trace with the id passed as argument, or the next one if it's not shown anymore, at
+   * the top of the list if the auto scroll is disabled. Nothing is done if there was no anchor.
+   */
+  private void restoreScrollAnchor(long anchorTraceId, int anchorTop, int expectedPosition) {
+    if (isAutoScrollEnabled || anchorTraceId == NO_ANCHOR) {
+      return;
+    }
+    int position = findTracePosition(anchorTraceId, expectedPosition);
+    if (position == NO_POSITION) {
+      return;
+    }
+    if (isRecyclerViewEnabled()) {
+      layoutManager.scrollToPositionWithOffset(position, anchorTop);
+    } else {
+      lv_traces.setSelectionFromTop(position, anchorTop);
+    }
+  }
+
+  /**
+   * Returns the position of the first trace with an id equal or greater than the id passed as
+   * argument. While traces are appended or prepended the position expected is checked first, so
+   * the trace is found in constant time. Otherwise, like after filtering the traces again, the
+   * position is binary searched because the ids of the traces shown are increasing.
+   */
+  private int findTracePosition(long traceId, int expectedPosition) {
+    int numberOfTraces = getNumberOfTracesShown();
+    if (numberOfTraces == 0) {
+      return NO_POSITION;
+    }
+    if (expectedPosition >= 0 && expectedPosition < numberOfTraces
+        && getTraceId(getTraceShown(expectedPosition)) == traceId) {
+      return expectedPosition;
+    }
+    int low = 0;
+    int high = numberOfTraces - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (getTraceId(getTraceShown(middle)) < traceId) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the stable id of the trace passed as argument, the id assigned when the trace was read
+   * from Logcat. Traces keep this id even if they are filtered again or read from the history.
+   */
+  private long getTraceId(Trace trace) {
+    return trace.getId();
+  }
+
+  private Trace getTraceShown(int position) {
+    return tracesShown.get(position);
+  }
+
+  private int getNumberOfTracesShown() {
+    return tracesShown.size();
+  }
+
+  private void scrollRecyclerViewToTheLastTraceIfNeeded() {
+    int numberOfTraces = tracesShown.size();
+    if (isAutoScrollEnabled && numberOfTraces > 0) {
+      rv_traces.scrollToPosition(numberOfTraces - 1);
+    }
+  }
+
+  /**
+   * Uses an intent to share the file containing the traces exported with other applications. The
+   * file is shared using a content URI provided by LynxFileProvider, so the traces are not copied
+   * into the intent and there is no limit in the number of traces shared.
+   */
+  @CheckResult @Override public boolean shareTraces(File tracesFile) {
     try {
-      shareTracesInternal(fullTraces);
+      shareTracesInternal(tracesFile);
       return true;
-    } catch (RuntimeException exception1) { // Likely cause is a TransactionTooLargeException on API levels 15+.
-      try {
-        /*
-         * Limit trace size to between 100kB and 400kB, since Unicode characters can be 1-4 bytes each.
-         */
-        int fullTracesLength = fullTraces.length();
-        String truncatedTraces = fullTraces.substring(Math.max(0, fullTracesLength - 100000), fullTracesLength);
-        shareTracesInternal(truncatedTraces);
-        return true;
-      } catch (RuntimeException exception2) { // Likely cause is a TransactionTooLargeException on API levels 15+.
-        return false;
-      }
+    } catch (RuntimeException exception) { // The file provider is not configured or can't share.
+      Log.e(LOGTAG, "Error sharing the traces file.", exception);
+      return false;
     }
   }
 
@@ -208,12 +525,57 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
     Toast.makeText(getContext(), "Share failed", Toast.LENGTH_SHORT).show();
   }
 
+  @Override public void showExportProgress(int percentage) {
+    pb_export.setProgress(percentage);
+    pb_export.setVisibility(View.VISIBLE);
+  }
+
+  @Override public void hideExportProgress() {
+    pb_export.setVisibility(View.GONE);
+  }
+
+  /**
+   * Scrolls to the first trace printed at or after the time passed as argument. The time can be a
+   * Logcat date like "02-07 17:45:33.014" or a time like "17:45", "17:45:33" or "17:45:33.014".
+   * Traces discarded and stored in the disk history are shown again if needed.
+   *
+   * @param time the time to jump to
+   * @return false if the time has an invalid format or there are no traces
+   */
+  public boolean jumpToTime(String time) {
+    return presenter.onJumpToTime(time);
+  }
+
+  /**
+   * Scrolls to the trace with the id passed as argument. The position of the trace is binary
+   * searched, nothing is done if the trace is not shown.
+   */
+  @Override public void scrollToTrace(long traceId) {
+    if (isCanvasViewEnabled()) {
+      cv_traces.scrollToTrace(traceId);
+      return;
+    }
+    int position = findTracePosition(traceId, NO_POSITION);
+    if (position == NO_POSITION || getTraceId(getTraceShown(position)) != traceId) {
+      return;
+    }
+    if (isRecyclerViewEnabled()) {
+      layoutManager.scrollToPositionWithOffset(position, 0);
+    } else {
+      lv_traces.setSelection(position);
+    }
+  }
+
   @Override public void disableAutoScroll() {
+    isAutoScrollEnabled = false;
     lv_traces.setTranscriptMode(AbsListView.TRANSCRIPT_MODE_DISABLED);
+    cv_traces.setAutoScroll(false);
   }
 
   @Override public void enableAutoScroll() {
+    isAutoScrollEnabled = true;
     lv_traces.setTranscriptMode(AbsListView.TRANSCRIPT_MODE_ALWAYS_SCROLL);
+    cv_traces.setAutoScroll(true);
   }
 
   private boolean isPresenterReady() {
@@ -223,17 +585,55 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
   private void resumePresenter() {
     if (isPresenterReady()) {
       presenter.resume();
-      int lastPosition = adapter.getCount() - 1;
-      lv_traces.setSelection(lastPosition);
+      if (isCanvasViewEnabled()) {
+        return;
+      }
+      if (isRecyclerViewEnabled()) {
+        scrollRecyclerViewToTheLastTraceIfNeeded();
+      } else {
+        int lastPosition = adapter.getCount() - 1;
+        lv_traces.setSelection(lastPosition);
+      }
     }
   }
 
+  private boolean isRecyclerViewEnabled() {
+    return lynxConfig.isRecyclerViewEnabled();
+  }
+
+  private boolean isCanvasViewEnabled() {
+    return lynxConfig.isCanvasViewEnabled();
+  }
+
   private void pausePresenter() {
     if (isPresenterReady()) {
       presenter.pause();
     }
   }
 
+  private void closePresenter() {
+    if (isPresenterReady()) {
+      presenter.close();
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+  private void registerTrimMemoryCallbacks() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH
+        && trimMemoryCallbacks == null) {
+      trimMemoryCallbacks = new LynxTrimMemoryCallbacks(presenter);
+      getContext().registerComponentCallbacks(trimMemoryCallbacks);
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+  private void unregisterTrimMemoryCallbacks() {
+    if (trimMemoryCallbacks != null) {
+      getContext().unregisterComponentCallbacks(trimMemoryCallbacks);
+      trimMemoryCallbacks = null;
+    }
+  }
+
   private boolean isVisible() {
     return getVisibility() == View.VISIBLE;
   }
@@ -253,10 +653,36 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
       }
       int samplingRate =
           attributes.getInteger(R.styleable.lynx_sampling_rate, lynxConfig.getSamplingRate());
+      int batchSize = attributes.getInteger(R.styleable.lynx_batch_size, lynxConfig.getBatchSize());
+      boolean adaptiveSamplingRate = attributes.getBoolean(R.styleable.lynx_adaptive_sampling_rate,
+          lynxConfig.isAdaptiveSamplingRateEnabled());
+      boolean recyclerView = attributes.getBoolean(R.styleable.lynx_recycler_view,
+          lynxConfig.isRecyclerViewEnabled());
+      boolean canvasView = attributes.getBoolean(R.styleable.lynx_canvas_view,
+          lynxConfig.isCanvasViewEnabled());
+      boolean gzipExport = attributes.getBoolean(R.styleable.lynx_gzip_export,
+          lynxConfig.isGzipExportEnabled());
+      int exportFormat = attributes.getInt(R.styleable.lynx_export_format,
+          lynxConfig.getExportFormat().ordinal());
+      int maxRetainedTraces = attributes.getInteger(R.styleable.lynx_max_retained_traces,
+          lynxConfig.getMaxNumberOfRetainedTraces());
+      int maxBufferSizeInKb = attributes.getInteger(R.styleable.lynx_max_buffer_size,
+          (int) (lynxConfig.getMaxBufferSizeInBytes() / 1024));
+      int maxDiskHistorySizeInKb = attributes.getInteger(R.styleable.lynx_max_disk_history_size,
+          (int) (lynxConfig.getMaxDiskHistorySizeInBytes() / 1024));
 
       lynxConfig.setMaxNumberOfTracesToShow(maxTracesToShow)
           .setFilter(TextUtils.isEmpty(filter) ? "" : filter)
-          .setSamplingRate(samplingRate);
+          .setSamplingRate(samplingRate)
+          .setBatchSize(batchSize)
+          .setAdaptiveSamplingRate(adaptiveSamplingRate)
+          .setRecyclerView(recyclerView)
+          .setCanvasView(canvasView)
+          .setGzipExport(gzipExport)
+          .setExportFormat(ExportFormat.values()[exportFormat])
+          .setMaxDiskHistorySizeInBytes(maxDiskHistorySizeInKb * 1024L)
+          .setMaxBufferSizeInBytes(maxBufferSizeInKb * 1024L)
+          .setMaxNumberOfRetainedTraces(maxRetainedTraces);
       attributes.recycle();
     }
   }
@@ -273,9 +699,14 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
   private void mapGui() {
     lv_traces = (ListView) findViewById(R.id.lv_traces);
     lv_traces.setTranscriptMode(AbsListView.TRANSCRIPT_MODE_ALWAYS_SCROLL);
+    rv_traces = (RecyclerView) findViewById(R.id.rv_traces);
+    configureRecyclerView();
+    cv_traces = (TraceCanvasView) findViewById(R.id.cv_traces);
     et_filter = (EditText) findViewById(R.id.et_filter);
     ib_share = (ImageButton) findViewById(R.id.ib_share);
+    ib_jump_to_time = (ImageButton) findViewById(R.id.ib_jump_to_time);
     sp_filter = (Spinner) findViewById(R.id.sp_filter);
+    pb_export = (ProgressBar) findViewById(R.id.pb_export);
 
     configureCursorColor();
     updateFilterText();
@@ -295,31 +726,125 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
     }
   }
 
+  /**
+   * Traces are appended at the end of the RecyclerView, so item animations are disabled and the
+   * pool of recycled views keeps enough rows of every TraceLevel to fill the screen without
+   * inflating new views.
+   */
+  private void configureRecyclerView() {
+    layoutManager = new LinearLayoutManager(getContext());
+    layoutManager.setStackFromEnd(true);
+    rv_traces.setLayoutManager(layoutManager);
+    rv_traces.setHasFixedSize(true);
+    rv_traces.setItemAnimator(null);
+    RecyclerView.RecycledViewPool recycledViewPool = rv_traces.getRecycledViewPool();
+    for (int viewType = 0; viewType < TraceLevel.values().length; viewType++) {
+      recycledViewPool.setMaxRecycledViews(viewType, RECYCLED_VIEWS_PER_TRACE_LEVEL);
+    }
+  }
+
   private void initializeRenderers() {
-    RendererBuilder<Trace> tracesRendererBuilder = new TraceRendererBuilder(lynxConfig);
-    adapter = new RendererAdapter<>(tracesRendererBuilder);
-    adapter.addAll(presenter.getCurrentTraces());
-    if (adapter.getCount() > 0) {
+    if (isCanvasViewEnabled()) {
+      initializeCanvasView();
+    } else if (isRecyclerViewEnabled()) {
+      initializeRecyclerViewRenderers();
+    } else {
+      initializeListViewRenderers();
+    }
+  }
+
+  private void initializeListViewRenderers() {
+    RendererBuilder<Trace> tracesRendererBuilder = createTraceRendererBuilder();
+    tracesShown = new TraceAdapteeCollection();
+    adapter = new TraceListAdapter(tracesRendererBuilder, tracesShown);
+    tracesShown.addAll(presenter.getCurrentTraces());
+    if (tracesShown.size() > 0) {
       adapter.notifyDataSetChanged();
     }
     lv_traces.setAdapter(adapter);
+    lv_traces.setVisibility(View.VISIBLE);
+    rv_traces.setVisibility(View.GONE);
+    cv_traces.setVisibility(View.GONE);
+  }
+
+  private void initializeRecyclerViewRenderers() {
+    RendererBuilder<Trace> tracesRendererBuilder = createTraceRendererBuilder();
+    tracesShown = new TraceAdapteeCollection();
+    recyclerViewAdapter = new RVRendererAdapter<Trace>(tracesRendererBuilder, tracesShown) {
+      @Override public long getItemId(int position) {
+        return getTraceId(getItem(position));
+      }
+    };
+    recyclerViewAdapter.setHasStableIds(true);
+    tracesShown.addAll(presenter.getCurrentTraces());
+    rv_traces.setAdapter(recyclerViewAdapter);
+    rv_traces.setVisibility(View.VISIBLE);
+    lv_traces.setVisibility(View.GONE);
+    cv_traces.setVisibility(View.GONE);
+    scrollRecyclerViewToTheLastTraceIfNeeded();
+  }
+
+  /**
+   * Renderers created for a new text size or a new list use a new TraceLayoutCache, the layouts
+   * computed for the previous one are discarded.
+   */
+  private RendererBuilder<Trace> createTraceRendererBuilder() {
+    releaseLayoutCache();
+    layoutCache = new TraceLayoutCache(getTraceTextSizeInPx());
+    return new TraceRendererBuilder(layoutCache);
+  }
+
+  private void releaseLayoutCache() {
+    if (layoutCache != null) {
+      layoutCache.release();
+    }
+  }
+
+  /**
+   * TraceCanvasView doesn't use renderers, the traces are drawn directly into the canvas with the
+   * text size configured.
+   */
+  private void initializeCanvasView() {
+    releaseLayoutCache();
+    cv_traces.setTextSize(getTraceTextSizeInPx());
+    cv_traces.setAutoScroll(isAutoScrollEnabled);
+    cv_traces.showTraces(presenter.getCurrentTraces());
+    cv_traces.setVisibility(View.VISIBLE);
+    lv_traces.setVisibility(View.GONE);
+    rv_traces.setVisibility(View.GONE);
   }
 
   private void hookListeners() {
     lv_traces.setOnScrollListener(new AbsListView.OnScrollListener() {
       @Override public void onScrollStateChanged(AbsListView view, int scrollState) {
-        //Empty
+        isUserScrollingListView = scrollState != SCROLL_STATE_IDLE;
       }
 
       @Override public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
           int totalItemCount) {
-        //Hack to avoid problems with the scroll position when auto scroll is disabled. This hack
-        // is needed because Android notify a firstVisibleItem one position before it should be.
-        if (lastScrollPosition - firstVisibleItem != 1) {
-          lastScrollPosition = firstVisibleItem;
-        }
         int lastVisiblePositionInTheList = firstVisibleItem + visibleItemCount;
         presenter.onScrollToPosition(lastVisiblePositionInTheList);
+        if (isUserScrollingListView && firstVisibleItem == 0) {
+          presenter.onScrollToTop();
+        }
+      }
+    });
+    rv_traces.addOnScrollListener(new RecyclerView.OnScrollListener() {
+      @Override public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        int lastVisiblePositionInTheList = layoutManager.findLastVisibleItemPosition() + 1;
+        presenter.onScrollToPosition(lastVisiblePositionInTheList);
+        if (dy < 0 && layoutManager.findFirstVisibleItemPosition() == 0) {
+          presenter.onScrollToTop();
+        }
+      }
+    });
+    cv_traces.setListener(new TraceCanvasView.Listener() {
+      @Override public void onScrollToPosition(int lastVisiblePositionInTheList) {
+        presenter.onScrollToPosition(lastVisiblePositionInTheList);
+      }
+
+      @Override public void onScrollToTop() {
+        presenter.onScrollToTop();
       }
     });
     et_filter.addTextChangedListener(new TextWatcher() {
@@ -341,6 +866,11 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
         presenter.onShareButtonClicked();
       }
     });
+    ib_jump_to_time.setOnClickListener(new OnClickListener() {
+      @Override public void onClick(View v) {
+        showJumpToTimeDialog();
+      }
+    });
     ArrayAdapter<TraceLevel> adapter =
         new ArrayAdapter<>(getContext(), R.layout.single_line_spinner_item, TraceLevel.values());
     sp_filter.setAdapter(adapter);
@@ -358,10 +888,95 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
     });
   }
 
+  /**
+   * Shows a dialog to type the time to jump to and scrolls to the first trace printed at or after
+   * that time once the dialog is accepted.
+   */
+  private void showJumpToTimeDialog() {
+    final EditText et_time = new EditText(getContext());
+    et_time.setSingleLine(true);
+    et_time.setHint(R.string.et_jump_to_time_hint_text);
+    new AlertDialog.Builder(getContext()).setTitle(R.string.jump_to_time_dialog_title)
+        .setView(et_time)
+        .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+          @Override public void onClick(DialogInterface dialog, int which) {
+            if (!jumpToTime(et_time.getText().toString())) {
+              Toast.makeText(getContext(), R.string.jump_to_time_error, Toast.LENGTH_SHORT)
+                  .show();
+            }
+          }
+        })
+        .setNegativeButton(android.R.string.cancel, null)
+        .show();
+  }
+
   private void initializePresenter() {
-    Lynx lynx = new Lynx(new Logcat(), new AndroidMainThread(), new TimeProvider());
+    AndroidMainThread mainThread = new AndroidMainThread();
+    Lynx lynx = new Lynx(SharedLogcat.getInstance(), mainThread, new TimeProvider());
     lynx.setConfig(lynxConfig);
-    presenter = new LynxPresenter(lynx, this, lynxConfig.getMaxNumberOfTracesToShow());
+    deleteStaleDirectoriesIfNeeded();
+    String directoryName = getDirectoryPrefix() + DIRECTORY_COUNTER.getAndIncrement();
+    File cacheDirectory = getContext().getCacheDir();
+    File historyDirectory = new File(cacheDirectory, HISTORY_DIRECTORY_PREFIX + directoryName);
+    File exportDirectory = new File(new File(cacheDirectory, EXPORT_DIRECTORY), directoryName);
+    String deviceDescription = Build.MANUFACTURER + " " + Build.MODEL + ", Android "
+        + Build.VERSION.RELEASE + " (API " + Build.VERSION.SDK_INT + ")";
+    TraceExporter traceExporter =
+        new TraceExporter(exportDirectory, deviceDescription, mainThread);
+    presenter = new LynxPresenter(lynx, this, lynxConfig.getMaxNumberOfTracesToShow(),
+        historyDirectory, traceExporter);
+    presenter.setMaxDiskHistorySize(lynxConfig.getMaxDiskHistorySizeInBytes());
+  }
+
+  /**
+   * Every LynxView instance uses its own history and export directories, because the history and
+   * the files exported before the last one are deleted. Directory names contain the pid of the
+   * process, so the directories written by previous processes are not confused with the ones used
+   * by other LynxView instances.
+   */
+  private static String getDirectoryPrefix() {
+    return Process.myPid() + "_";
+  }
+
+  /**
+   * History directories are deleted when LynxView is detached from the window, but the process
+   * can be killed before. Export directories keep the last file exported because the application
+   * receiving it could still be reading it. The directories written by previous processes are
+   * deleted just once per process from a background thread.
+   */
+  private void deleteStaleDirectoriesIfNeeded() {
+    if (HAS_DELETED_STALE_DIRECTORIES.getAndSet(true)) {
+      return;
+    }
+    final File cacheDirectory = getContext().getCacheDir();
+    Thread thread = new Thread(new Runnable() {
+      @Override public void run() {
+        deleteStaleDirectories(cacheDirectory, HISTORY_DIRECTORY_PREFIX);
+        deleteStaleDirectories(new File(cacheDirectory, EXPORT_DIRECTORY), "");
+      }
+    }, "Lynx cache cleaner");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static void deleteStaleDirectories(File parentDirectory, String prefix) {
+    File[] directories = parentDirectory.listFiles();
+    if (directories == null) {
+      return;
+    }
+    String currentPrefix = prefix + getDirectoryPrefix();
+    for (File directory : directories) {
+      String name = directory.getName();
+      if (name.startsWith(prefix) && !name.startsWith(currentPrefix)) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+          for (File file : files) {
+            file.delete();
+          }
+        }
+        directory.delete();
+      }
+    }
   }
 
   private void validateLynxConfig(LynxConfig lynxConfig) {
@@ -377,32 +992,62 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
     }
   }
 
-  private void updateAdapter() {
-    if (lynxConfig.hasTextSizeInPx()
-        && this.lynxConfig.getTextSizeInPx() != lynxConfig.getTextSizeInPx()) {
+  private void updateAdapter(LynxConfig previousLynxConfig) {
+    boolean hasChangedTextSize = lynxConfig.hasTextSizeInPx()
+        && previousLynxConfig.getTextSizeInPx() != lynxConfig.getTextSizeInPx();
+    boolean hasChangedList =
+        previousLynxConfig.isRecyclerViewEnabled() != lynxConfig.isRecyclerViewEnabled()
+            || previousLynxConfig.isCanvasViewEnabled() != lynxConfig.isCanvasViewEnabled();
+    if (hasChangedTextSize || hasChangedList) {
       initializeRenderers();
     }
   }
 
+  private float getTraceTextSizeInPx() {
+    float textSizeInPx = getResources().getDimension(R.dimen.trace_font_size);
+    if (lynxConfig.hasTextSizeInPx()) {
+      textSizeInPx = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+          lynxConfig.getTextSizeInPx(), getResources().getDisplayMetrics());
+    }
+    return textSizeInPx;
+  }
+
   private float pixelsToSp(float px) {
     float scaledDensity = getContext().getResources().getDisplayMetrics().scaledDensity;
     return px / scaledDensity;
   }
 
-  private void updateScrollPosition(int removedTraces) {
-    boolean shouldUpdateScrollPosition = removedTraces > 0;
-    if (shouldUpdateScrollPosition) {
-      int newScrollPosition = lastScrollPosition - removedTraces;
-      lastScrollPosition = newScrollPosition;
-      lv_traces.setSelectionFromTop(newScrollPosition, 0);
-    }
+  private void shareTracesInternal(File tracesFile) {
+    Context context = getContext();
+    String authority = context.getPackageName() + FILE_PROVIDER_AUTHORITY_SUFFIX;
+    Uri tracesUri = FileProvider.getUriForFile(context, authority, tracesFile);
+    Intent sharingIntent = new Intent(android.content.Intent.ACTION_SEND);
+    sharingIntent.setType(TraceExporter.getMimeType(tracesFile));
+    sharingIntent.putExtra(Intent.EXTRA_STREAM, tracesUri);
+    sharingIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+    grantReadUriPermission(sharingIntent, tracesUri);
+    context.startActivity(Intent.createChooser(sharingIntent, SHARE_INTENT_TITLE));
   }
 
-  private void shareTracesInternal(final String plainTraces) {
-    Intent sharingIntent = new Intent(android.content.Intent.ACTION_SEND);
-    sharingIntent.setType(SHARE_INTENT_TYPE);
-    sharingIntent.putExtra(Intent.EXTRA_TEXT, plainTraces);
-    getContext().startActivity(Intent.createChooser(sharingIntent, SHARE_INTENT_TITLE));
+  /**
+   * The read permission of the intent is not propagated through the chooser to the application
+   * selected if the URI is not part of the intent clip data, something done by the framework just
+   * from Lollipop. Before Jelly Bean there is no clip data and the permission is granted to every
+   * application able to receive the intent.
+   */
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private void grantReadUriPermission(Intent sharingIntent, Uri tracesUri) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      sharingIntent.setClipData(ClipData.newRawUri(null, tracesUri));
+      return;
+    }
+    Context context = getContext();
+    List<ResolveInfo> activities = context.getPackageManager()
+        .queryIntentActivities(sharingIntent, PackageManager.MATCH_DEFAULT_ONLY);
+    for (ResolveInfo activity : activities) {
+      context.grantUriPermission(activity.activityInfo.packageName, tracesUri,
+          Intent.FLAG_GRANT_READ_URI_PERMISSION);
+    }
   }
 
   /**
@@ -412,4 +1057,38 @@ public class LynxView extends RelativeLayout implements LynxPresenter.View {
   void setPresenter(LynxPresenter presenter) {
     this.presenter = presenter;
   }
+
+  /**
+   * ListView adapter using the trace ids as stable ids. The ListView fast scroll shows the date of
+   * the traces next to the thumb using the sections provided by a TraceSectionIndexer.
+   */
+  private class TraceListAdapter extends RendererAdapter<Trace> implements SectionIndexer {
+
+    private final TraceSectionIndexer sectionIndexer;
+
+    TraceListAdapter(RendererBuilder<Trace> rendererBuilder, TraceAdapteeCollection traces) {
+      super(rendererBuilder, traces);
+      this.sectionIndexer = new TraceSectionIndexer(traces);
+    }
+
+    @Override public long getItemId(int position) {
+      return getTraceId(getItem(position));
+    }
+
+    @Override public boolean hasStableIds() {
+      return true;
+    }
+
+    @Override public Object[] getSections() {
+      return sectionIndexer.getSections();
+    }
+
+    @Override public int getPositionForSection(int section) {
+      return sectionIndexer.getPositionForSection(section);
+    }
+
+    @Override public int getSectionForPosition(int position) {
+      return sectionIndexer.getSectionForPosition(position);
+    }
+  }
 }
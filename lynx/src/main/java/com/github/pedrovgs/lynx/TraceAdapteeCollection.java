@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.pedrogomez.renderers.AdapteeCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * AdapteeCollection used by LynxView adapters. Traces are stored in an ArrayList, so they are
+ * accessed by position in constant time, and traces discarded from the beginning or the end of
+ * the list are removed in a single range operation instead of one by one.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TraceAdapteeCollection implements AdapteeCollection<Trace> {
+
+  private final List<Trace> traces = new ArrayList<Trace>();
+
+  @Override public int size() {
+    return traces.size();
+  }
+
+  @Override public Trace get(int index) {
+    return traces.get(index);
+  }
+
+  @Override public boolean add(Trace trace) {
+    return traces.add(trace);
+  }
+
+  @Override public boolean remove(Object trace) {
+    return traces.remove(trace);
+  }
+
+  @Override public boolean addAll(Collection<? extends Trace> traces) {
+    return this.traces.addAll(traces);
+  }
+
+  @Override public boolean removeAll(Collection<?> traces) {
+    return this.traces.removeAll(traces);
+  }
+
+  @Override public void clear() {
+    traces.clear();
+  }
+
+  /**
+   * Inserts the traces passed as argument at the beginning of the collection.
+   */
+  void addAllFirst(Collection<? extends Trace> traces) {
+    this.traces.addAll(0, traces);
+  }
+
+  /**
+   * Removes up to numberOfTraces traces from the beginning of the collection and returns the
+   * number of traces removed.
+   */
+  int removeFirst(int numberOfTraces) {
+    int tracesToRemove = Math.max(0, Math.min(numberOfTraces, traces.size()));
+    traces.subList(0, tracesToRemove).clear();
+    return tracesToRemove;
+  }
+
+  /**
+   * Removes up to numberOfTraces traces from the end of the collection and returns the number of
+   * traces removed.
+   */
+  int removeLast(int numberOfTraces) {
+    int tracesToRemove = Math.max(0, Math.min(numberOfTraces, traces.size()));
+    traces.subList(traces.size() - tracesToRemove, traces.size()).clear();
+    return tracesToRemove;
+  }
+}
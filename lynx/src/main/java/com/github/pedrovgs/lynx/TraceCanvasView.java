@@ -0,0 +1,654 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.support.v4.view.ViewCompat;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.OverScroller;
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * View used by LynxView to draw the traces directly into the canvas without creating a view for
+ * every trace. Traces are drawn using a monospace typeface, so every character has the same width
+ * and every trace is wrapped every N characters, where N is the number of characters fitting in
+ * the view width. With a fixed line height, the position of every trace is calculated from the
+ * number of lines of the previous traces without measuring any text.
+ *
+ * The first line of every trace is stored in an array updated when traces are appended, prepended
+ * or removed, so the traces visible are found with a binary search and just the visible lines are
+ * drawn. Traces removed from one end leave free positions that are reused moving the traces left
+ * to the beginning of the array before growing it. Scroll, fling and fast scroll dragging the
+ * right edge of the view are handled by this view. While the user drags the fast scroll thumb, the
+ * date of the first trace visible is shown next to the thumb.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public class TraceCanvasView extends View {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int LEVEL_LABEL_LENGTH = 4;
+  private static final int LEVEL_BADGE_LENGTH = 3;
+  private static final int MIN_COLUMNS = LEVEL_LABEL_LENGTH + 1;
+  private static final int PADDING_IN_DP = 4;
+  private static final int FAST_SCROLL_WIDTH_IN_DP = 24;
+  private static final int THUMB_WIDTH_IN_DP = 4;
+  private static final int MIN_THUMB_HEIGHT_IN_DP = 32;
+  private static final String[] LEVEL_LABELS = new String[TraceLevel.values().length];
+  private static final int[] LEVEL_COLORS = new int[TraceLevel.values().length];
+
+  static {
+    for (TraceLevel traceLevel : TraceLevel.values()) {
+      LEVEL_LABELS[traceLevel.ordinal()] = " " + traceLevel.getValue() + "  ";
+    }
+    // Same colors used by the TraceRenderer implementations.
+    LEVEL_COLORS[TraceLevel.VERBOSE.ordinal()] = Color.GRAY;
+    LEVEL_COLORS[TraceLevel.DEBUG.ordinal()] = Color.BLUE;
+    LEVEL_COLORS[TraceLevel.ASSERT.ordinal()] = Color.BLUE;
+    LEVEL_COLORS[TraceLevel.INFO.ordinal()] = Color.rgb(255, 215, 0);
+    LEVEL_COLORS[TraceLevel.WARNING.ordinal()] = Color.rgb(255, 165, 0);
+    LEVEL_COLORS[TraceLevel.ERROR.ordinal()] = Color.RED;
+    LEVEL_COLORS[TraceLevel.WTF.ordinal()] = Color.RED;
+  }
+
+  private final TextPaint textPaint;
+  private final Paint levelPaint;
+  private final Paint thumbPaint;
+  private final OverScroller scroller;
+  private final int touchSlop;
+  private final int minFlingVelocity;
+  private final int maxFlingVelocity;
+  private final int padding;
+  private final int fastScrollWidth;
+  private final int thumbWidth;
+  private final int minThumbHeight;
+
+  private Trace[] traces;
+  private long[] firstLines;
+  private int head;
+  private int tail;
+  private long nextLine;
+  private int columns = MIN_COLUMNS;
+  private float charWidth;
+  private int lineHeight;
+  private int baseline;
+  private int scrollOffset;
+  private boolean isAutoScrollEnabled = true;
+  private VelocityTracker velocityTracker;
+  private float lastTouchY;
+  private boolean isDragging;
+  private boolean isFastScrolling;
+  private Listener listener;
+
+  public TraceCanvasView(Context context) {
+    this(context, null);
+  }
+
+  public TraceCanvasView(Context context, AttributeSet attrs) {
+    this(context, attrs, 0);
+  }
+
+  public TraceCanvasView(Context context, AttributeSet attrs, int defStyleAttr) {
+    super(context, attrs, defStyleAttr);
+    float density = getResources().getDisplayMetrics().density;
+    this.padding = (int) (PADDING_IN_DP * density);
+    this.fastScrollWidth = (int) (FAST_SCROLL_WIDTH_IN_DP * density);
+    this.thumbWidth = (int) (THUMB_WIDTH_IN_DP * density);
+    this.minThumbHeight = (int) (MIN_THUMB_HEIGHT_IN_DP * density);
+    this.textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    this.textPaint.setTypeface(Typeface.MONOSPACE);
+    this.textPaint.setColor(Color.WHITE);
+    this.levelPaint = new Paint();
+    this.thumbPaint = new Paint();
+    this.thumbPaint.setColor(Color.GRAY);
+    this.scroller = new OverScroller(context);
+    ViewConfiguration viewConfiguration = ViewConfiguration.get(context);
+    this.touchSlop = viewConfiguration.getScaledTouchSlop();
+    this.minFlingVelocity = viewConfiguration.getScaledMinimumFlingVelocity();
+    this.maxFlingVelocity = viewConfiguration.getScaledMaximumFlingVelocity();
+    this.traces = new Trace[INITIAL_CAPACITY];
+    this.firstLines = new long[INITIAL_CAPACITY];
+    setTextSize(getResources().getDimension(R.dimen.trace_font_size));
+  }
+
+  /**
+   * Configures the listener notified when the user scrolls the traces.
+   */
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Configures the text size in pixels used to draw the traces.
+   */
+  public void setTextSize(float textSizeInPx) {
+    textPaint.setTextSize(textSizeInPx);
+    Paint.FontMetricsInt fontMetrics = textPaint.getFontMetricsInt();
+    setTextMetrics(textPaint.measureText("M"), fontMetrics.bottom - fontMetrics.top,
+        -fontMetrics.top);
+  }
+
+  /**
+   * Configures the width of every character, the height of every line and the distance from the
+   * top of a line to the text baseline, in pixels, used to wrap and draw the traces.
+   */
+  void setTextMetrics(float charWidth, int lineHeight, int baseline) {
+    this.charWidth = charWidth;
+    this.lineHeight = lineHeight;
+    this.baseline = baseline;
+    updateColumns(getWidth());
+    scrollToTheLastTraceIfNeeded();
+    invalidate();
+  }
+
+  /**
+   * Enables or disables scrolling to the last trace when new traces are appended.
+   */
+  public void setAutoScroll(boolean isAutoScrollEnabled) {
+    this.isAutoScrollEnabled = isAutoScrollEnabled;
+  }
+
+  public int getNumberOfTraces() {
+    return tail - head;
+  }
+
+  Trace getTrace(int position) {
+    return traces[head + position];
+  }
+
+  /**
+   * Returns the line where the trace in the position passed as argument starts, relative to the
+   * first line of the first trace.
+   */
+  long getFirstLine(int position) {
+    return firstLines[head + position] - firstLines[head];
+  }
+
+  int getScrollOffset() {
+    return scrollOffset;
+  }
+
+  /**
+   * Returns the number of traces the arrays used to store the traces and their first lines can
+   * keep without growing them.
+   */
+  int getCapacity() {
+    return traces.length;
+  }
+
+  /**
+   * Replaces the traces shown with the list passed as argument. If the auto scroll is disabled the
+   * first trace visible, or the next one if it's not shown anymore, is kept at the top of the view
+   * using the trace ids.
+   */
+  public void showTraces(List<Trace> traces) {
+    Trace anchorTrace = null;
+    int anchorOffset = 0;
+    if (!isAutoScrollEnabled && head != tail && lineHeight != 0) {
+      int firstVisibleIndex = findTraceIndex(firstLines[head] + scrollOffset / lineHeight);
+      anchorTrace = this.traces[firstVisibleIndex];
+      anchorOffset = (int) (scrollOffset - (firstLines[firstVisibleIndex] - firstLines[head])
+          * lineHeight);
+    }
+    clearTraces();
+    addLast(traces);
+    if (anchorTrace != null && anchorTrace.hasId() && head != tail) {
+      int index = findTraceIndexById(anchorTrace.getId());
+      long line = firstLines[index] - firstLines[head];
+      scrollOffset = (int) Math.min(getMaxScrollOffset(), line * lineHeight + anchorOffset);
+    }
+    scrollToTheLastTraceIfNeeded();
+    invalidate();
+  }
+
+  /**
+   * Removes the number of traces passed as argument from the beginning of the traces shown and
+   * appends the new traces at the end, keeping the trace shown at the top of the view if the auto
+   * scroll is disabled.
+   */
+  public void appendTraces(List<Trace> newTraces, int removedTraces) {
+    long removedLines = removeFirst(removedTraces);
+    addLast(newTraces);
+    scrollOffset = (int) Math.max(0, scrollOffset - removedLines * lineHeight);
+    scrollToTheLastTraceIfNeeded();
+    invalidate();
+  }
+
+  /**
+   * Removes the number of traces passed as argument from the end of the traces shown and inserts
+   * the older traces at the beginning, keeping the trace shown at the top of the view.
+   */
+  public void prependTraces(List<Trace> olderTraces, int removedTraces) {
+    removeLast(removedTraces);
+    long addedLines = addFirst(olderTraces);
+    scrollOffset = (int) Math.min(getMaxScrollOffset(), scrollOffset + addedLines * lineHeight);
+    invalidate();
+  }
+
+  public void clear() {
+    clearTraces();
+    invalidate();
+  }
+
+  /**
+   * Scrolls to show the trace in the position passed as argument at the top of the view.
+   */
+  public void scrollToPosition(int position) {
+    if (position < 0 || position >= tail - head) {
+      return;
+    }
+    scroller.forceFinished(true);
+    long line = firstLines[head + position] - firstLines[head];
+    scrollTo((int) Math.min(Integer.MAX_VALUE, line * lineHeight));
+  }
+
+  /**
+   * Scrolls to show the trace with the id passed as argument at the top of the view. Nothing is
+   * done if there is no trace shown with this id.
+   */
+  public void scrollToTrace(long traceId) {
+    if (head == tail) {
+      return;
+    }
+    int index = findTraceIndexById(traceId);
+    if (traces[index].getId() == traceId) {
+      scrollToPosition(index - head);
+    }
+  }
+
+  @Override protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+    super.onSizeChanged(w, h, oldw, oldh);
+    updateColumns(w);
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    super.onDraw(canvas);
+    if (head == tail || lineHeight == 0) {
+      return;
+    }
+    long line = firstLines[head] + scrollOffset / lineHeight;
+    int index = findTraceIndex(line);
+    int y = -(scrollOffset % lineHeight);
+    int height = getHeight();
+    Trace firstVisibleTrace = traces[index];
+    while (y < height && index < tail) {
+      drawLine(canvas, traces[index], (int) (line - firstLines[index]), y);
+      y += lineHeight;
+      line++;
+      if (line >= getNextFirstLine(index)) {
+        index++;
+      }
+    }
+    drawThumb(canvas, firstVisibleTrace);
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent event) {
+    if (velocityTracker == null) {
+      velocityTracker = VelocityTracker.obtain();
+    }
+    velocityTracker.addMovement(event);
+    float y = event.getY();
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        scroller.forceFinished(true);
+        lastTouchY = y;
+        isDragging = false;
+        isFastScrolling = event.getX() >= getWidth() - fastScrollWidth && getMaxScrollOffset() > 0;
+        if (isFastScrolling) {
+          fastScrollTo(y);
+        }
+        return true;
+      case MotionEvent.ACTION_MOVE:
+        if (isFastScrolling) {
+          fastScrollTo(y);
+          return true;
+        }
+        float distance = lastTouchY - y;
+        if (!isDragging && Math.abs(distance) > touchSlop) {
+          isDragging = true;
+          getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        if (isDragging) {
+          scrollTo(scrollOffset + (int) distance);
+          lastTouchY = y;
+        }
+        return true;
+      case MotionEvent.ACTION_UP:
+        if (isDragging) {
+          velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+          int velocity = (int) velocityTracker.getYVelocity();
+          if (Math.abs(velocity) > minFlingVelocity) {
+            fling(-velocity);
+          }
+        }
+        resetTouch();
+        return true;
+      case MotionEvent.ACTION_CANCEL:
+        resetTouch();
+        return true;
+      default:
+        return super.onTouchEvent(event);
+    }
+  }
+
+  @Override public void computeScroll() {
+    if (scroller.computeScrollOffset()) {
+      scrollTo(scroller.getCurrY());
+      ViewCompat.postInvalidateOnAnimation(this);
+    }
+  }
+
+  private void drawLine(Canvas canvas, Trace trace, int lineInTrace, int y) {
+    String message = trace.getMessage();
+    int textY = y + baseline;
+    if (lineInTrace == 0) {
+      int level = trace.getLevel().ordinal();
+      levelPaint.setColor(LEVEL_COLORS[level]);
+      canvas.drawRect(padding, y, padding + LEVEL_BADGE_LENGTH * charWidth, y + lineHeight,
+          levelPaint);
+      canvas.drawText(LEVEL_LABELS[level], padding, textY, textPaint);
+      int end = Math.min(message.length(), columns - LEVEL_LABEL_LENGTH);
+      canvas.drawText(message, 0, end, padding + LEVEL_LABEL_LENGTH * charWidth, textY, textPaint);
+    } else {
+      int start = lineInTrace * columns - LEVEL_LABEL_LENGTH;
+      int end = Math.min(message.length(), start + columns);
+      canvas.drawText(message, start, end, padding, textY, textPaint);
+    }
+  }
+
+  private void drawThumb(Canvas canvas, Trace firstVisibleTrace) {
+    int maxScrollOffset = getMaxScrollOffset();
+    if (maxScrollOffset <= 0) {
+      return;
+    }
+    int height = getHeight();
+    long contentHeight = (long) height + maxScrollOffset;
+    int thumbHeight = (int) Math.max(minThumbHeight, (long) height * height / contentHeight);
+    int thumbTop = (int) ((long) (height - thumbHeight) * scrollOffset / maxScrollOffset);
+    int right = getWidth();
+    canvas.drawRect(right - thumbWidth, thumbTop, right, thumbTop + thumbHeight, thumbPaint);
+    if (isFastScrolling && firstVisibleTrace.hasTimestamp()) {
+      drawTimestampLabel(canvas, firstVisibleTrace, thumbTop + thumbHeight / 2);
+    }
+  }
+
+  /**
+   * Draws the date of the trace passed as argument, the first characters of the trace message,
+   * next to the fast scroll thumb.
+   */
+  private void drawTimestampLabel(Canvas canvas, Trace trace, int centerY) {
+    float labelWidth = (Trace.TIMESTAMP_LENGTH + 2) * charWidth;
+    int labelHeight = 2 * lineHeight;
+    float right = getWidth() - fastScrollWidth;
+    int top = Math.max(0, Math.min(getHeight() - labelHeight, centerY - lineHeight));
+    canvas.drawRect(right - labelWidth, top, right, top + labelHeight, thumbPaint);
+    canvas.drawText(trace.getMessage(), 0, Trace.TIMESTAMP_LENGTH, right - labelWidth + charWidth,
+        top + lineHeight / 2 + baseline, textPaint);
+  }
+
+  private void fastScrollTo(float y) {
+    int height = getHeight();
+    long contentHeight = (long) height + getMaxScrollOffset();
+    int thumbHeight = (int) Math.max(minThumbHeight, (long) height * height / contentHeight);
+    float fraction = (y - thumbHeight / 2f) / Math.max(1, height - thumbHeight);
+    fraction = Math.max(0, Math.min(1, fraction));
+    scrollTo((int) (fraction * getMaxScrollOffset()));
+  }
+
+  private void fling(int velocity) {
+    scroller.fling(0, scrollOffset, 0, velocity, 0, 0, 0, getMaxScrollOffset());
+    ViewCompat.postInvalidateOnAnimation(this);
+  }
+
+  private void resetTouch() {
+    isDragging = false;
+    isFastScrolling = false;
+    if (velocityTracker != null) {
+      velocityTracker.recycle();
+      velocityTracker = null;
+    }
+  }
+
+  /**
+   * Scrolls to the offset passed as argument notifying the listener with the last trace visible.
+   */
+  private void scrollTo(int offset) {
+    int newScrollOffset = Math.max(0, Math.min(getMaxScrollOffset(), offset));
+    int distance = newScrollOffset - scrollOffset;
+    if (distance == 0) {
+      return;
+    }
+    scrollOffset = newScrollOffset;
+    invalidate();
+    notifyScroll(distance);
+  }
+
+  private void notifyScroll(int distance) {
+    if (listener == null || head == tail) {
+      return;
+    }
+    long firstLine = firstLines[head];
+    int firstVisiblePosition = findTraceIndex(firstLine + scrollOffset / lineHeight) - head;
+    long lastVisibleLine = firstLine + (scrollOffset + getHeight() - 1) / lineHeight;
+    int lastVisiblePosition = findTraceIndex(lastVisibleLine) - head;
+    listener.onScrollToPosition(lastVisiblePosition + 1);
+    if (distance < 0 && firstVisiblePosition == 0) {
+      listener.onScrollToTop();
+    }
+  }
+
+  private void scrollToTheLastTraceIfNeeded() {
+    if (isAutoScrollEnabled) {
+      scroller.forceFinished(true);
+      scrollOffset = getMaxScrollOffset();
+    } else {
+      scrollOffset = Math.min(scrollOffset, getMaxScrollOffset());
+    }
+  }
+
+  private int getMaxScrollOffset() {
+    long contentHeight = getNumberOfLines() * lineHeight;
+    return (int) Math.max(0, Math.min(Integer.MAX_VALUE, contentHeight - getHeight()));
+  }
+
+  long getNumberOfLines() {
+    return head == tail ? 0 : nextLine - firstLines[head];
+  }
+
+  /**
+   * Returns the index of the trace containing the absolute line passed as argument.
+   */
+  private int findTraceIndex(long line) {
+    int low = head;
+    int high = tail - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (firstLines[middle] <= line) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first trace with an id equal or greater than the id passed as
+   * argument, the ids of the traces shown are increasing.
+   */
+  private int findTraceIndexById(long id) {
+    int low = head;
+    int high = tail - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (traces[middle].getId() < id) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private long getNextFirstLine(int index) {
+    return index + 1 < tail ? firstLines[index + 1] : nextLine;
+  }
+
+  private int getNumberOfLines(Trace trace) {
+    int length = LEVEL_LABEL_LENGTH + trace.getMessage().length();
+    return (length + columns - 1) / columns;
+  }
+
+  private void addLast(List<Trace> newTraces) {
+    ensureCapacityAtTheEnd(newTraces.size());
+    for (Trace trace : newTraces) {
+      traces[tail] = trace;
+      firstLines[tail] = nextLine;
+      nextLine += getNumberOfLines(trace);
+      tail++;
+    }
+  }
+
+  private long addFirst(List<Trace> olderTraces) {
+    ensureCapacityAtTheBeginning(olderTraces.size());
+    long firstLine = head == tail ? nextLine : firstLines[head];
+    long previousFirstLine = firstLine;
+    for (int i = olderTraces.size() - 1; i >= 0; i--) {
+      Trace trace = olderTraces.get(i);
+      firstLine -= getNumberOfLines(trace);
+      head--;
+      traces[head] = trace;
+      firstLines[head] = firstLine;
+    }
+    return previousFirstLine - firstLine;
+  }
+
+  private long removeFirst(int tracesToRemove) {
+    tracesToRemove = Math.min(tracesToRemove, tail - head);
+    if (tracesToRemove <= 0) {
+      return 0;
+    }
+    long removedLines = getNextFirstLine(head + tracesToRemove - 1) - firstLines[head];
+    Arrays.fill(traces, head, head + tracesToRemove, null);
+    head += tracesToRemove;
+    return removedLines;
+  }
+
+  private void removeLast(int tracesToRemove) {
+    tracesToRemove = Math.min(tracesToRemove, tail - head);
+    if (tracesToRemove <= 0) {
+      return;
+    }
+    tail -= tracesToRemove;
+    nextLine = firstLines[tail];
+    Arrays.fill(traces, tail, tail + tracesToRemove, null);
+  }
+
+  private void clearTraces() {
+    Arrays.fill(traces, head, tail, null);
+    head = 0;
+    tail = 0;
+    nextLine = 0;
+    scrollOffset = 0;
+  }
+
+  /**
+   * Traces removed from the beginning leave free positions that are reused moving the traces to
+   * the beginning of the arrays before growing them.
+   */
+  private void ensureCapacityAtTheEnd(int numberOfTraces) {
+    if (tail + numberOfTraces <= traces.length) {
+      return;
+    }
+    int size = tail - head;
+    int capacity = traces.length;
+    while (size + numberOfTraces > capacity / 2) {
+      capacity <<= 1;
+    }
+    reallocate(capacity, 0);
+  }
+
+  private void ensureCapacityAtTheBeginning(int numberOfTraces) {
+    if (head >= numberOfTraces) {
+      return;
+    }
+    int size = tail - head;
+    int capacity = traces.length;
+    while (size + numberOfTraces > capacity / 2) {
+      capacity <<= 1;
+    }
+    reallocate(capacity, numberOfTraces);
+  }
+
+  private void reallocate(int capacity, int newHead) {
+    int size = tail - head;
+    Trace[] reallocatedTraces = new Trace[capacity];
+    long[] reallocatedFirstLines = new long[capacity];
+    System.arraycopy(traces, head, reallocatedTraces, newHead, size);
+    System.arraycopy(firstLines, head, reallocatedFirstLines, newHead, size);
+    traces = reallocatedTraces;
+    firstLines = reallocatedFirstLines;
+    head = newHead;
+    tail = newHead + size;
+  }
+
+  /**
+   * Calculates the number of characters fitting in a line and the first line of every trace
+   * again, keeping the trace shown at the top of the view.
+   */
+  private void updateColumns(int width) {
+    int textWidth = width - 2 * padding - thumbWidth;
+    int newColumns = Math.max(MIN_COLUMNS, (int) (textWidth / charWidth));
+    if (newColumns == columns || head == tail) {
+      columns = newColumns;
+      return;
+    }
+    int firstVisibleIndex = lineHeight == 0 ? head
+        : findTraceIndex(firstLines[head] + scrollOffset / lineHeight);
+    columns = newColumns;
+    nextLine = 0;
+    for (int i = head; i < tail; i++) {
+      firstLines[i] = nextLine;
+      nextLine += getNumberOfLines(traces[i]);
+    }
+    scrollOffset = (int) Math.min(getMaxScrollOffset(), firstLines[firstVisibleIndex] * lineHeight);
+    scrollToTheLastTraceIfNeeded();
+    invalidate();
+  }
+
+  /**
+   * Listener notified when the traces shown are scrolled by the user.
+   */
+  public interface Listener {
+
+    void onScrollToPosition(int lastVisiblePositionInTheList);
+
+    void onScrollToTop();
+  }
+}
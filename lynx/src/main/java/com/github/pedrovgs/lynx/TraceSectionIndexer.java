@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx;
+
+import android.widget.SectionIndexer;
+import com.github.pedrovgs.lynx.model.Trace;
+
+/**
+ * SectionIndexer used by the LynxView ListView adapter to show the date of the traces next to the
+ * fast scroll thumb. The traces shown are split into a fixed number of sections of the same size,
+ * so the sections don't need to be created again when traces are added or removed, and the label
+ * of every section is the date of the first trace of the section at the moment it's shown.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TraceSectionIndexer implements SectionIndexer {
+
+  static final int NUMBER_OF_SECTIONS = 100;
+
+  private final TraceAdapteeCollection traces;
+  private final Object[] sections;
+
+  TraceSectionIndexer(TraceAdapteeCollection traces) {
+    this.traces = traces;
+    this.sections = new Object[NUMBER_OF_SECTIONS];
+    for (int i = 0; i < NUMBER_OF_SECTIONS; i++) {
+      sections[i] = new TimestampSection(i);
+    }
+  }
+
+  @Override public Object[] getSections() {
+    return sections;
+  }
+
+  /**
+   * Returns the position of the first trace of the section passed as argument, the number of
+   * traces shown if the section has no traces.
+   */
+  @Override public int getPositionForSection(int section) {
+    int sectionIndex = Math.max(0, Math.min(NUMBER_OF_SECTIONS - 1, section));
+    long size = traces.size();
+    return (int) ((sectionIndex * size + NUMBER_OF_SECTIONS - 1) / NUMBER_OF_SECTIONS);
+  }
+
+  @Override public int getSectionForPosition(int position) {
+    int size = traces.size();
+    if (size == 0) {
+      return 0;
+    }
+    long tracePosition = Math.max(0, Math.min(size - 1, position));
+    return (int) (tracePosition * NUMBER_OF_SECTIONS / size);
+  }
+
+  private class TimestampSection {
+
+    private final int index;
+
+    TimestampSection(int index) {
+      this.index = index;
+    }
+
+    @Override public String toString() {
+      int position = getPositionForSection(index);
+      if (position >= traces.size()) {
+        return "";
+      }
+      Trace trace = traces.get(position);
+      return trace.hasTimestamp() ? trace.getMessage().substring(0, Trace.TIMESTAMP_LENGTH) : "";
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * Reads the traces written by TraceExporter using the ExportFormat.BINARY format, so exported
+ * traces can be replayed. Header records and records with an unknown type are skipped. Gzip
+ * compressed archives have to be decompressed wrapping the InputStream with a GZIPInputStream.
+ *
+ * The message of the traces read is built again as Logcat prints it, the date of the timestamp
+ * stored in the time zone of the device that exported the traces followed by "Tag( pid): " and
+ * the message body if the trace has a tag, so the traces read have the same timestamp, tag and
+ * pid as the traces exported.
+ *
+ * This class is not thread safe and has to be used from just one thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public class BinaryTraceReader implements Closeable {
+
+  private static final int PID_LENGTH = 5;
+
+  private final DataInputStream input;
+  private final StringBuilder message;
+  private boolean hasReadFileHeader;
+  private LogcatDateConverter dateConverter;
+
+  public BinaryTraceReader(InputStream inputStream) {
+    if (inputStream == null) {
+      throw new IllegalArgumentException("You can't read traces from a null InputStream.");
+    }
+    this.input = new DataInputStream(new BufferedInputStream(inputStream));
+    this.message = new StringBuilder();
+  }
+
+  /**
+   * Returns the next trace written or null if there are no more traces.
+   *
+   * @throws IOException if the stream can't be read or it doesn't contain traces written with a
+   * supported version of the binary format
+   */
+  public Trace read() throws IOException {
+    if (!hasReadFileHeader) {
+      readFileHeader();
+    }
+    while (true) {
+      int recordLength;
+      try {
+        recordLength = input.readInt();
+      } catch (EOFException e) {
+        return null;
+      }
+      if (recordLength < 1) {
+        throw new IOException("Invalid record length " + recordLength + ".");
+      }
+      byte recordType = input.readByte();
+      if (recordType == BinaryTraceWriter.TRACE_RECORD) {
+        return readTrace();
+      }
+      skip(recordLength - 1);
+    }
+  }
+
+  @Override public void close() throws IOException {
+    input.close();
+  }
+
+  private void readFileHeader() throws IOException {
+    byte[] magic = new byte[BinaryTraceWriter.MAGIC.length];
+    input.readFully(magic);
+    if (!Arrays.equals(magic, BinaryTraceWriter.MAGIC)) {
+      throw new IOException("The stream doesn't contain Lynx traces.");
+    }
+    int version = input.readUnsignedByte();
+    if (version != BinaryTraceWriter.VERSION) {
+      throw new IOException("Unsupported Lynx traces version " + version + ".");
+    }
+    String timeZoneId = readString();
+    if (timeZoneId == null) {
+      throw new IOException("Invalid traces without time zone.");
+    }
+    dateConverter =
+        new LogcatDateConverter(TimeZone.getTimeZone(timeZoneId), System.currentTimeMillis());
+    hasReadFileHeader = true;
+  }
+
+  private Trace readTrace() throws IOException {
+    long epochTime = input.readLong();
+    TraceLevel level = TraceLevel.getTraceLevel((char) input.readUnsignedByte());
+    int pid = input.readInt();
+    String tag = readString();
+    String messageBody = readString();
+    if (messageBody == null) {
+      throw new IOException("Invalid trace without message.");
+    }
+    message.setLength(0);
+    if (epochTime != Trace.NO_TIMESTAMP) {
+      message.append(dateConverter.toLogcatDate(epochTime)).append(' ');
+    }
+    if (tag != null) {
+      message.append(tag).append('(');
+      String pidText = String.valueOf(pid);
+      for (int i = pidText.length(); i < PID_LENGTH; i++) {
+        message.append(' ');
+      }
+      message.append(pidText).append("): ");
+    }
+    message.append(messageBody);
+    return new Trace(level, message.toString(), tag, pid);
+  }
+
+  private String readString() throws IOException {
+    int length = input.readInt();
+    if (length == BinaryTraceWriter.NULL_STRING_LENGTH) {
+      return null;
+    }
+    if (length < 0) {
+      throw new IOException("Invalid string length " + length + ".");
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, BinaryTraceWriter.UTF_8);
+  }
+
+  private void skip(int numberOfBytes) throws IOException {
+    int skipped = 0;
+    while (skipped < numberOfBytes) {
+      int bytesSkipped = input.skipBytes(numberOfBytes - skipped);
+      if (bytesSkipped <= 0) {
+        throw new EOFException();
+      }
+      skipped += bytesSkipped;
+    }
+  }
+}
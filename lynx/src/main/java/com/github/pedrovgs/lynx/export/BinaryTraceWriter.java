@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * TraceWriter writing the compact binary format read by BinaryTraceReader. Files start with the
+ * "LYNX" magic bytes followed by the format version, the id of the time zone the dates of the
+ * traces were printed in and a list of records. Every record starts with the length of the rest
+ * of the record as an int followed by the record type and the fields of the record:
+ *
+ * - Trace records: timestamp (long, milliseconds since the epoch or -1 for traces without date),
+ * level (the TraceLevel value as a byte), pid (int), tag and the message returned by
+ * Trace.getMessageBody.
+ * - Header records: device, config, number of traces (int), from and to.
+ *
+ * Strings are written as the length of the UTF-8 encoded string as an int, -1 for null strings,
+ * followed by the encoded bytes. Readers skip the records with an unknown type, so new record
+ * types can be added without changing the format version.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class BinaryTraceWriter implements TraceWriter {
+
+  static final byte[] MAGIC = new byte[] { 'L', 'Y', 'N', 'X' };
+  static final int VERSION = 2;
+  static final byte HEADER_RECORD = 'H';
+  static final byte TRACE_RECORD = 'T';
+  static final int NULL_STRING_LENGTH = -1;
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final DataOutputStream output;
+  private final ByteArrayOutputStream recordBytes;
+  private final DataOutputStream record;
+  private final LogcatDateConverter dateConverter;
+
+  BinaryTraceWriter(OutputStream outputStream, int bufferSize, LogcatDateConverter dateConverter)
+      throws IOException {
+    this.output = new DataOutputStream(new BufferedOutputStream(outputStream, bufferSize));
+    this.recordBytes = new ByteArrayOutputStream();
+    this.record = new DataOutputStream(recordBytes);
+    this.dateConverter = dateConverter;
+    output.write(MAGIC);
+    output.writeByte(VERSION);
+    writeString(output, dateConverter.getTimeZone().getID());
+  }
+
+  @Override public void writeHeader(ExportHeader header) throws IOException {
+    record.writeByte(HEADER_RECORD);
+    writeString(record, header.getDevice());
+    writeString(record, header.getConfig());
+    record.writeInt(header.getNumberOfTraces());
+    writeString(record, header.getFrom());
+    writeString(record, header.getTo());
+    flushRecord();
+  }
+
+  @Override public void writeTrace(Trace trace) throws IOException {
+    record.writeByte(TRACE_RECORD);
+    record.writeLong(dateConverter.toEpochTime(trace.getTimestamp()));
+    record.writeByte(trace.getLevel().getValue().charAt(0));
+    record.writeInt(trace.getPid());
+    writeString(record, trace.getTag());
+    writeString(record, trace.getMessageBody());
+    flushRecord();
+  }
+
+  @Override public void close() throws IOException {
+    output.close();
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    if (value == null) {
+      output.writeInt(NULL_STRING_LENGTH);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Writes the record built prefixed with its length and resets the record buffer, which is reused
+   * for the next record.
+   */
+  private void flushRecord() throws IOException {
+    output.writeInt(recordBytes.size());
+    recordBytes.writeTo(output);
+    recordBytes.reset();
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pedrovgs.lynx.export;
+
+/**
+ * Formats used to export traces. Every format has the extension of the files written and the MIME
+ * type used to share them:
+ *
+ * - PLAIN_TEXT: every trace written as the TraceLevel value followed by "/ " and the message.
+ * - JSON_LINES: every trace written as a JSON object in its own line with the timestamp, as
+ * milliseconds since the epoch, level, pid, tag and message body fields.
+ * - BINARY: compact format with length prefixed records, readable with BinaryTraceReader.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public enum ExportFormat {
+  PLAIN_TEXT(".txt", "text/plain"),
+  JSON_LINES(".jsonl", "application/x-ndjson"),
+  BINARY(".lynx", "application/octet-stream");
+
+  private final String fileExtension;
+  private final String mimeType;
+
+  ExportFormat(String fileExtension, String mimeType) {
+    this.fileExtension = fileExtension;
+    this.mimeType = mimeType;
+  }
+
+  public String getFileExtension() {
+    return fileExtension;
+  }
+
+  public String getMimeType() {
+    return mimeType;
+  }
+}
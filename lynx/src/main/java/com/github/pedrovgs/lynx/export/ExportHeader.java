@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pedrovgs.lynx.export;
+
+/**
+ * Metadata written at the beginning of the compressed archives: the device, the configuration,
+ * the number of traces exported and the dates of the first and last traces with a date. Dates
+ * are null if no trace has a date.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class ExportHeader {
+
+  private final String device;
+  private final String config;
+  private final int numberOfTraces;
+  private final String from;
+  private final String to;
+
+  ExportHeader(String device, String config, int numberOfTraces, String from, String to) {
+    this.device = device;
+    this.config = config;
+    this.numberOfTraces = numberOfTraces;
+    this.from = from;
+    this.to = to;
+  }
+
+  String getDevice() {
+    return device;
+  }
+
+  String getConfig() {
+    return config;
+  }
+
+  int getNumberOfTraces() {
+    return numberOfTraces;
+  }
+
+  String getFrom() {
+    return from;
+  }
+
+  String getTo() {
+    return to;
+  }
+
+  boolean hasTimeRange() {
+    return from != null && to != null;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * TraceWriter writing every trace as a JSON object in its own line encoded in UTF-8, like:
+ *
+ * {"timestamp":1486485933014,"level":"D","pid":1234,"tag":"Lynx","message":"Any debug trace"}
+ *
+ * The timestamp is the date printed by Logcat as milliseconds since the epoch, see
+ * LogcatDateConverter, and the message is the text returned by Trace.getMessageBody, so the date,
+ * the tag and the pid are not repeated. Fields without value, like the timestamp of traces without
+ * date or the tag and pid of traces without them, are null. The header is written as the first
+ * line with a single "header" field containing the header fields.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class JsonLinesTraceWriter implements TraceWriter {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String HEXADECIMAL_DIGITS = "0123456789abcdef";
+
+  private final Writer writer;
+  private final LogcatDateConverter dateConverter;
+
+  JsonLinesTraceWriter(OutputStream outputStream, int bufferSize,
+      LogcatDateConverter dateConverter) {
+    this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8), bufferSize);
+    this.dateConverter = dateConverter;
+  }
+
+  @Override public void writeHeader(ExportHeader header) throws IOException {
+    writer.write("{\"header\":{\"device\":");
+    writeString(header.getDevice());
+    writer.write(",\"config\":");
+    writeString(header.getConfig());
+    writer.write(",\"traces\":");
+    writer.write(String.valueOf(header.getNumberOfTraces()));
+    writer.write(",\"from\":");
+    writeString(header.getFrom());
+    writer.write(",\"to\":");
+    writeString(header.getTo());
+    writer.write("}}\n");
+  }
+
+  @Override public void writeTrace(Trace trace) throws IOException {
+    writer.write("{\"timestamp\":");
+    writer.write(trace.hasTimestamp()
+        ? String.valueOf(dateConverter.toEpochTime(trace.getTimestamp())) : "null");
+    writer.write(",\"level\":");
+    writeString(trace.getLevel().getValue());
+    writer.write(",\"pid\":");
+    writer.write(trace.getPid() == Trace.NO_PID ? "null" : String.valueOf(trace.getPid()));
+    writer.write(",\"tag\":");
+    writeString(trace.getTag());
+    writer.write(",\"message\":");
+    writeString(trace.getMessageBody());
+    writer.write("}\n");
+  }
+
+  @Override public void close() throws IOException {
+    writer.close();
+  }
+
+  /**
+   * Writes the string passed as argument as a JSON string escaping the quotes, the backslashes
+   * and the control characters, or null if there is no string.
+   */
+  private void writeString(String value) throws IOException {
+    if (value == null) {
+      writer.write("null");
+      return;
+    }
+    writer.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char character = value.charAt(i);
+      switch (character) {
+        case '"':
+          writer.write("\\\"");
+          break;
+        case '\\':
+          writer.write("\\\\");
+          break;
+        case '\n':
+          writer.write("\\n");
+          break;
+        case '\r':
+          writer.write("\\r");
+          break;
+        case '\t':
+          writer.write("\\t");
+          break;
+        default:
+          if (character < 0x20) {
+            writer.write("\\u00");
+            writer.write(HEXADECIMAL_DIGITS.charAt(character >> 4));
+            writer.write(HEXADECIMAL_DIGITS.charAt(character & 0xF));
+          } else {
+            writer.write(character);
+          }
+      }
+    }
+    writer.write('"');
+  }
+}
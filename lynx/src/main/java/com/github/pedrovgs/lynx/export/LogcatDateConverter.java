@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Converts the timestamps of the traces, parsed from the "MM-dd HH:mm:ss.SSS" date printed by
+ * Logcat in the device time zone, to milliseconds since the epoch and back. Logcat doesn't print
+ * the year, so the year of the reference time passed as argument is used, or the previous one for
+ * dates of a later month than the reference time, like traces printed in December and exported in
+ * January.
+ *
+ * The start of the hour is computed with a Calendar just once for all the consecutive traces
+ * printed in the same hour. This class is not thread safe and has to be used from just one thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class LogcatDateConverter {
+
+  private static final long MILLIS_PER_HOUR = 60 * 60 * 1000;
+
+  private final TimeZone timeZone;
+  private final Calendar calendar;
+  private final int referenceYear;
+  private final int referenceMonth;
+  private long cachedHour = Trace.NO_TIMESTAMP;
+  private long cachedHourEpochTime;
+
+  LogcatDateConverter(TimeZone timeZone, long referenceTime) {
+    this.timeZone = timeZone;
+    this.calendar = Calendar.getInstance(timeZone);
+    calendar.setTimeInMillis(referenceTime);
+    this.referenceYear = calendar.get(Calendar.YEAR);
+    this.referenceMonth = calendar.get(Calendar.MONTH) + 1;
+  }
+
+  TimeZone getTimeZone() {
+    return timeZone;
+  }
+
+  /**
+   * Returns the milliseconds since the epoch of the trace timestamp passed as argument or
+   * Trace.NO_TIMESTAMP if the trace has no timestamp.
+   */
+  long toEpochTime(long timestamp) {
+    if (timestamp == Trace.NO_TIMESTAMP) {
+      return Trace.NO_TIMESTAMP;
+    }
+    long hour = timestamp / MILLIS_PER_HOUR;
+    if (hour != cachedHour) {
+      long days = timestamp / Trace.MILLIS_PER_DAY;
+      int month = (int) (days / Trace.DAYS_PER_MONTH) + 1;
+      int day = (int) (days % Trace.DAYS_PER_MONTH) + 1;
+      int year = month > referenceMonth ? referenceYear - 1 : referenceYear;
+      calendar.clear();
+      calendar.set(year, month - 1, day, (int) (hour % 24), 0, 0);
+      cachedHour = hour;
+      cachedHourEpochTime = calendar.getTimeInMillis();
+    }
+    return cachedHourEpochTime + timestamp % MILLIS_PER_HOUR;
+  }
+
+  /**
+   * Returns the date printed by Logcat, something like "02-07 17:45:33.014", for the milliseconds
+   * since the epoch passed as argument.
+   */
+  String toLogcatDate(long epochTime) {
+    calendar.setTimeInMillis(epochTime);
+    StringBuilder date = new StringBuilder(Trace.TIMESTAMP_LENGTH);
+    appendNumber(date, calendar.get(Calendar.MONTH) + 1, 2).append('-');
+    appendNumber(date, calendar.get(Calendar.DAY_OF_MONTH), 2).append(' ');
+    appendNumber(date, calendar.get(Calendar.HOUR_OF_DAY), 2).append(':');
+    appendNumber(date, calendar.get(Calendar.MINUTE), 2).append(':');
+    appendNumber(date, calendar.get(Calendar.SECOND), 2).append('.');
+    return appendNumber(date, calendar.get(Calendar.MILLISECOND), 3).toString();
+  }
+
+  private static StringBuilder appendNumber(StringBuilder text, int number, int digits) {
+    for (int divisor = (int) Math.pow(10, digits - 1); divisor > 0; divisor /= 10) {
+      text.append((char) ('0' + number / divisor % 10));
+    }
+    return text;
+  }
+}
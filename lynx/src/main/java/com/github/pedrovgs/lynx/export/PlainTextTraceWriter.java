@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * TraceWriter writing every trace as the TraceLevel value followed by "/ " and the trace message
+ * encoded in UTF-8. Header lines start with "# ".
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class PlainTextTraceWriter implements TraceWriter {
+
+  static final String HEADER_PREFIX = "# ";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final Writer writer;
+
+  PlainTextTraceWriter(OutputStream outputStream, int bufferSize) {
+    this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8), bufferSize);
+  }
+
+  @Override public void writeHeader(ExportHeader header) throws IOException {
+    writeHeaderLine("Lynx traces");
+    writeHeaderLine("Device: " + header.getDevice());
+    writeHeaderLine("Config: " + header.getConfig());
+    writeHeaderLine("Traces: " + header.getNumberOfTraces());
+    if (header.hasTimeRange()) {
+      writeHeaderLine("From: " + header.getFrom());
+      writeHeaderLine("To: " + header.getTo());
+    }
+  }
+
+  @Override public void writeTrace(Trace trace) throws IOException {
+    writer.write(trace.getLevel().getValue());
+    writer.write("/ ");
+    writer.write(trace.getMessage());
+    writer.write('\n');
+  }
+
+  @Override public void close() throws IOException {
+    writer.close();
+  }
+
+  private void writeHeaderLine(String line) throws IOException {
+    writer.write(HEADER_PREFIX);
+    writer.write(line);
+    writer.write('\n');
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.export;
+
+import android.util.Log;
+import com.github.pedrovgs.lynx.LynxConfig;
+import com.github.pedrovgs.lynx.model.BackgroundExecutors;
+import com.github.pedrovgs.lynx.model.MainThread;
+import com.github.pedrovgs.lynx.model.Trace;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a list of traces to a file in a background thread so the traces can be shared with other
+ * applications. Traces are streamed to the file through a fixed size buffer, so the memory used
+ * doesn't depend on the number of traces exported and the main thread is never blocked. Traces
+ * are written using the ExportFormat configured in the LynxConfig passed as argument.
+ *
+ * If gzip export is enabled in the LynxConfig passed as argument, the file is a gzip compressed
+ * archive compressed while the traces are written. Archives start with a header describing the
+ * device, the configuration and the time range of the traces.
+ *
+ * Every export creates a new file inside the export directory. Files exported before the last one
+ * are deleted once a new export starts, the last one is kept because the application receiving it
+ * could still be reading it. The export directory can't be shared with other exporters, the files
+ * exported by them would be deleted too. The listener is notified from the main thread with the
+ * progress of the export and the file once it has been written. Exports can be cancelled from the
+ * main thread, the file is deleted and the listener is not notified anymore.
+ *
+ * Files are written from the Executor passed as argument, it has to execute just one task at the
+ * same time.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public class TraceExporter {
+
+  static final int BUFFER_SIZE = 8 * 1024;
+
+  private static final String LOGTAG = "Lynx";
+  private static final String FILE_NAME_PREFIX = "lynx_traces_";
+  private static final String GZIP_FILE_EXTENSION = ".gz";
+  private static final String GZIP_MIME_TYPE = "application/gzip";
+  private static final int MAX_PROGRESS = 100;
+
+  private final File directory;
+  private final String deviceDescription;
+  private final Executor executor;
+  private final MainThread mainThread;
+  private File lastExportedFile;
+
+  public TraceExporter(File directory, String deviceDescription, MainThread mainThread) {
+    this(directory, deviceDescription, BackgroundExecutors.newSingleThreadExecutor(), mainThread);
+  }
+
+  public TraceExporter(File directory, String deviceDescription, Executor executor,
+      MainThread mainThread) {
+    if (directory == null) {
+      throw new IllegalArgumentException("You can't use a null directory to export traces.");
+    }
+    this.directory = directory;
+    this.deviceDescription = deviceDescription;
+    this.executor = executor;
+    this.mainThread = mainThread;
+  }
+
+  /**
+   * Writes the traces passed as argument to a new file in a background thread. The list is read
+   * from the background thread, so it has to be an immutable list like the snapshots returned by
+   * LynxPresenter.
+   *
+   * @param traces the traces to export
+   * @param lynxConfig the configuration used to know the format of the file and if it has to be
+   * compressed, described in the header of compressed archives
+   * @param listener the listener notified with the progress of the export
+   * @return the export started, used to cancel it
+   */
+  public Export export(final List<Trace> traces, final LynxConfig lynxConfig,
+      final Listener listener) {
+    final Export export = new Export();
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        final File file = exportInternal(traces, lynxConfig, export, listener);
+        mainThread.post(new Runnable() {
+          @Override public void run() {
+            if (export.isCancelled()) {
+              return;
+            }
+            if (file == null) {
+              listener.onExportFailed();
+            } else {
+              listener.onTracesExported(file);
+            }
+          }
+        });
+      }
+    });
+    return export;
+  }
+
+  private File exportInternal(List<Trace> traces, LynxConfig lynxConfig, Export export,
+      Listener listener) {
+    if (export.isCancelled()) {
+      return null;
+    }
+    File file = null;
+    try {
+      deletePreviousExports();
+      ExportFormat format = lynxConfig.getExportFormat();
+      boolean isCompressed = lynxConfig.isGzipExportEnabled();
+      String fileExtension = format.getFileExtension() + (isCompressed ? GZIP_FILE_EXTENSION : "");
+      file = File.createTempFile(FILE_NAME_PREFIX, fileExtension, directory);
+      OutputStream outputStream = new FileOutputStream(file);
+      if (isCompressed) {
+        outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+      }
+      TraceWriter traceWriter;
+      try {
+        traceWriter = createTraceWriter(format, outputStream);
+      } catch (IOException e) {
+        outputStream.close();
+        throw e;
+      }
+      try {
+        if (isCompressed) {
+          traceWriter.writeHeader(createHeader(traces, lynxConfig));
+        }
+        writeTraces(traceWriter, traces, export, listener);
+      } finally {
+        traceWriter.close();
+      }
+      if (export.isCancelled()) {
+        file.delete();
+        return null;
+      }
+      lastExportedFile = file;
+      return file;
+    } catch (IOException e) {
+      Log.e(LOGTAG, "IOException exporting traces.", e);
+      if (file != null) {
+        file.delete();
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Deletes from the background thread every file exported before the last one. The last file is
+   * kept because the application receiving it could still be reading it. The exporter can still
+   * be used after closing it.
+   */
+  public void close() {
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        if (!directory.isDirectory()) {
+          return;
+        }
+        try {
+          deletePreviousExports();
+        } catch (IOException e) {
+          Log.e(LOGTAG, "IOException deleting previous exports.", e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the MIME type of a file exported, used to share it with other applications.
+   */
+  public static String getMimeType(File file) {
+    String fileName = file.getName();
+    if (fileName.endsWith(GZIP_FILE_EXTENSION)) {
+      return GZIP_MIME_TYPE;
+    }
+    for (ExportFormat format : ExportFormat.values()) {
+      if (fileName.endsWith(format.getFileExtension())) {
+        return format.getMimeType();
+      }
+    }
+    return ExportFormat.PLAIN_TEXT.getMimeType();
+  }
+
+  /**
+   * Creates the TraceWriter of the format passed as argument. Dates printed by Logcat are written
+   * by the JSON Lines and binary formats as milliseconds since the epoch, using the device time
+   * zone and the current year to fill the fields Logcat doesn't print.
+   */
+  private TraceWriter createTraceWriter(ExportFormat format, OutputStream outputStream)
+      throws IOException {
+    LogcatDateConverter dateConverter =
+        new LogcatDateConverter(TimeZone.getDefault(), System.currentTimeMillis());
+    switch (format) {
+      case JSON_LINES:
+        return new JsonLinesTraceWriter(outputStream, BUFFER_SIZE, dateConverter);
+      case BINARY:
+        return new BinaryTraceWriter(outputStream, BUFFER_SIZE, dateConverter);
+      default:
+        return new PlainTextTraceWriter(outputStream, BUFFER_SIZE);
+    }
+  }
+
+  private ExportHeader createHeader(List<Trace> traces, LynxConfig lynxConfig) {
+    Trace firstTrace = findFirstTraceWithTimestamp(traces);
+    Trace lastTrace = findLastTraceWithTimestamp(traces);
+    String from = firstTrace != null ? getDate(firstTrace) : null;
+    String to = lastTrace != null ? getDate(lastTrace) : null;
+    return new ExportHeader(deviceDescription, lynxConfig.toString(), traces.size(), from, to);
+  }
+
+  /**
+   * Writes every trace notifying the progress just when the percentage of traces written changes,
+   * so the main thread receives at most one notification per percentage point.
+   */
+  private void writeTraces(TraceWriter traceWriter, List<Trace> traces, final Export export,
+      final Listener listener) throws IOException {
+    int numberOfTraces = traces.size();
+    int tracesWritten = 0;
+    int lastProgress = 0;
+    for (Trace trace : traces) {
+      if (export.isCancelled()) {
+        return;
+      }
+      traceWriter.writeTrace(trace);
+      tracesWritten++;
+      final int progress = (int) ((long) tracesWritten * MAX_PROGRESS / numberOfTraces);
+      if (progress != lastProgress) {
+        lastProgress = progress;
+        mainThread.post(new Runnable() {
+          @Override public void run() {
+            if (!export.isCancelled()) {
+              listener.onExportProgress(progress);
+            }
+          }
+        });
+      }
+    }
+  }
+
+  private Trace findFirstTraceWithTimestamp(List<Trace> traces) {
+    for (int i = 0; i < traces.size(); i++) {
+      if (traces.get(i).hasTimestamp()) {
+        return traces.get(i);
+      }
+    }
+    return null;
+  }
+
+  private Trace findLastTraceWithTimestamp(List<Trace> traces) {
+    for (int i = traces.size() - 1; i >= 0; i--) {
+      if (traces.get(i).hasTimestamp()) {
+        return traces.get(i);
+      }
+    }
+    return null;
+  }
+
+  private String getDate(Trace trace) {
+    return trace.getMessage().substring(0, Trace.TIMESTAMP_LENGTH);
+  }
+
+  private void deletePreviousExports() throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("The export directory " + directory + " can't be created.");
+    }
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.getName().startsWith(FILE_NAME_PREFIX) && !file.equals(lastExportedFile)) {
+        file.delete();
+      }
+    }
+  }
+
+  /**
+   * Export started by a TraceExporter. Cancel it from the main thread to stop writing the traces,
+   * the listener is not notified after cancelling the export.
+   */
+  public static class Export {
+
+    private volatile boolean isCancelled;
+
+    public void cancel() {
+      isCancelled = true;
+    }
+
+    public boolean isCancelled() {
+      return isCancelled;
+    }
+  }
+
+  /**
+   * Listener notified from the main thread with the progress of an export.
+   */
+  public interface Listener {
+
+    /**
+     * Notifies the percentage of traces already written, from 1 to 100.
+     */
+    void onExportProgress(int percentage);
+
+    void onTracesExported(File file);
+
+    void onExportFailed();
+  }
+}
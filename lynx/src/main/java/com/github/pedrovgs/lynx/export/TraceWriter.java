@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes traces to an OutputStream using one of the export formats. Implementations buffer what
+ * they write, so the stream is written in chunks, and close the stream once they are closed.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+interface TraceWriter extends Closeable {
+
+  void writeHeader(ExportHeader header) throws IOException;
+
+  void writeTrace(Trace trace) throws IOException;
+}
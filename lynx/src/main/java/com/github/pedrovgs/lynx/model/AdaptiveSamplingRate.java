@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+/**
+ * Sampling rate calculated from the number of traces received per millisecond and the time needed
+ * by Lynx listeners to process the last notifications. When traces arrive slowly the sampling rate
+ * drops to zero and traces are notified almost immediately. When more than one trace per frame is
+ * received notifications are grouped at least by frame, and if listeners are expensive the
+ * sampling rate grows to keep the main thread usage under a fixed percentage. The sampling rate
+ * configured in LynxConfig is used as the max value.
+ *
+ * Notifications have to be registered from just one thread, the current sampling rate can be read
+ * from any thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class AdaptiveSamplingRate {
+
+  static final long FRAME_DURATION_IN_MILLIS = 16;
+
+  private static final int MAX_MAIN_THREAD_USAGE_PERCENTAGE = 25;
+  private static final double SMOOTHING_FACTOR = 0.5;
+  private static final double NANOS_PER_MILLI = 1000000d;
+
+  private double tracesPerMillisecond;
+  private double notificationCostInMillis;
+  private volatile long samplingRate;
+
+  /**
+   * Updates the sampling rate with the information of a notification already delivered.
+   *
+   * @param numberOfTraces number of traces notified
+   * @param timeFromLastNotification time elapsed since the previous notification in milliseconds
+   * @param notificationCostInNanos time listeners needed to process the notification
+   * @param maxSamplingRate the max sampling rate that can be used
+   */
+  void onNotification(int numberOfTraces, long timeFromLastNotification,
+      long notificationCostInNanos, int maxSamplingRate) {
+    double lastTracesPerMillisecond =
+        numberOfTraces / (double) Math.max(1, timeFromLastNotification);
+    tracesPerMillisecond = smooth(tracesPerMillisecond, lastTracesPerMillisecond);
+    double lastCostInMillis = notificationCostInNanos / NANOS_PER_MILLI;
+    notificationCostInMillis = smooth(notificationCostInMillis, lastCostInMillis);
+    samplingRate = calculateSamplingRate(maxSamplingRate);
+  }
+
+  /**
+   * Returns the sampling rate in milliseconds to use based on the last notifications registered.
+   */
+  long getSamplingRate() {
+    return samplingRate;
+  }
+
+  /**
+   * Forgets the information obtained from previous notifications.
+   */
+  void reset() {
+    tracesPerMillisecond = 0;
+    notificationCostInMillis = 0;
+    samplingRate = 0;
+  }
+
+  private long calculateSamplingRate(int maxSamplingRate) {
+    long frameBudgetSamplingRate =
+        (long) (notificationCostInMillis * 100 / MAX_MAIN_THREAD_USAGE_PERCENTAGE);
+    boolean receivesMoreThanOneTracePerFrame =
+        tracesPerMillisecond * FRAME_DURATION_IN_MILLIS > 1;
+    long loadSamplingRate = receivesMoreThanOneTracePerFrame ? FRAME_DURATION_IN_MILLIS : 0;
+    return Math.min(maxSamplingRate, Math.max(frameBudgetSamplingRate, loadSamplingRate));
+  }
+
+  private double smooth(double previousValue, double newValue) {
+    return previousValue + SMOOTHING_FACTOR * (newValue - previousValue);
+  }
+}
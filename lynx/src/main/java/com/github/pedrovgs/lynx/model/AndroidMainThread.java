@@ -16,16 +16,22 @@
 
 package com.github.pedrovgs.lynx.model;
 
+import android.annotation.TargetApi;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.view.Choreographer;
 
 /**
- * MainThread implementation based on Android Handler and Looper classes. This class is used to
- * post Runnable objects over the UI.
+ * ScheduledMainThread implementation based on Android Handler and Looper classes. This class is
+ * used to post Runnable objects over the UI.
+ *
+ * Runnable objects posted on the next frame use a Choreographer frame callback from Jelly Bean.
+ * On older versions they are delayed the duration of a frame.
  *
  * @author Pedro Vicente Gomez Sanchez.
  */
-public class AndroidMainThread implements MainThread {
+public class AndroidMainThread implements ScheduledMainThread {
 
   private final Handler handler;
 
@@ -36,4 +42,37 @@ public class AndroidMainThread implements MainThread {
   public void post(Runnable runnable) {
     handler.post(runnable);
   }
+
+  public void postDelayed(Runnable runnable, long delayInMillis) {
+    handler.postDelayed(runnable, delayInMillis);
+  }
+
+  public void postOnNextFrame(Runnable runnable) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      postFrameCallback(runnable);
+    } else {
+      handler.postDelayed(runnable, AdaptiveSamplingRate.FRAME_DURATION_IN_MILLIS);
+    }
+  }
+
+  /**
+   * Choreographer instances are bound to the thread obtaining them, so frame callbacks requested
+   * from a background thread are posted to the main thread first.
+   */
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private void postFrameCallback(final Runnable runnable) {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      handler.post(new Runnable() {
+        @Override public void run() {
+          postFrameCallback(runnable);
+        }
+      });
+      return;
+    }
+    Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+      @Override public void doFrame(long frameTimeNanos) {
+        runnable.run();
+      }
+    });
+  }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory of the executors used by Lynx to work outside the main thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public final class BackgroundExecutors {
+
+  private static final long THREAD_KEEP_ALIVE_IN_SECONDS = 30;
+
+  private BackgroundExecutors() {
+    //Empty
+  }
+
+  /**
+   * Returns an executor running the tasks in order in a single background thread. Lynx works in
+   * background just in bursts, like parsing the history on start, sealing history segments or
+   * exporting traces, so the thread is created on demand and stopped once it has been idle for 30
+   * seconds. This way idle Lynx instances don't keep a thread alive, even if they are never closed.
+   */
+  public static ExecutorService newSingleThreadExecutor() {
+    return new ThreadPoolExecutor(0, 1, THREAD_KEEP_ALIVE_IN_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>());
+  }
+}
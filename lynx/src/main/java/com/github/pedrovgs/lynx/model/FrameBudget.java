@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+/**
+ * Number of traces Lynx listeners can process inside the time budget of a frame, calculated from
+ * the cost per trace of the last slices of traces delivered. Big batches of traces, like the traces
+ * already read by the SharedLogcat notified on start, are split into slices delivered in
+ * consecutive frames to keep the main thread drawing frames while the traces are processed.
+ *
+ * Until the first slice is measured the slice size is limited to a fixed number of traces. If
+ * listeners process traces without a measurable cost traces are not split.
+ *
+ * This class is not thread safe and has to be used from the main thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class FrameBudget {
+
+  static final int INITIAL_SLICE_SIZE = 1000;
+  static final int MIN_SLICE_SIZE = 50;
+  static final long FRAME_BUDGET_IN_NANOS = 8000000;
+
+  private static final double SMOOTHING_FACTOR = 0.5;
+
+  private double costPerTraceInNanos = -1;
+
+  /**
+   * Updates the cost per trace with the information of a slice already delivered.
+   *
+   * @param numberOfTraces number of traces delivered
+   * @param costInNanos time listeners needed to process the slice
+   */
+  void onSliceDelivered(int numberOfTraces, long costInNanos) {
+    if (numberOfTraces <= 0) {
+      return;
+    }
+    double lastCostPerTraceInNanos = Math.max(0, costInNanos) / (double) numberOfTraces;
+    if (costPerTraceInNanos < 0) {
+      costPerTraceInNanos = lastCostPerTraceInNanos;
+    } else {
+      costPerTraceInNanos +=
+          SMOOTHING_FACTOR * (lastCostPerTraceInNanos - costPerTraceInNanos);
+    }
+  }
+
+  /**
+   * Returns the max number of traces to deliver in the next frame.
+   */
+  int getSliceSize() {
+    if (costPerTraceInNanos < 0) {
+      return INITIAL_SLICE_SIZE;
+    }
+    if (costPerTraceInNanos == 0) {
+      return Integer.MAX_VALUE;
+    }
+    double sliceSize = FRAME_BUDGET_IN_NANOS / costPerTraceInNanos;
+    return (int) Math.max(MIN_SLICE_SIZE, Math.min(Integer.MAX_VALUE, sliceSize));
+  }
+}
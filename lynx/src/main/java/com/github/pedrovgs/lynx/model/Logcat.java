@@ -37,11 +37,13 @@ import java.io.InputStreamReader;
  */
 public class Logcat extends Thread implements Cloneable {
   private static final String LOGTAG = "Logcat";
+  private static final long THROTTLING_INTERVAL_IN_MILLIS = 250;
 
   private Process process;
   private BufferedReader bufferReader;
   private Listener listener;
-  private boolean continueReading = true;
+  private volatile boolean continueReading = true;
+  private volatile boolean isThrottled;
 
   /**
    * Configures a listener to be notified with new traces read from the application logcat.
@@ -81,12 +83,24 @@ public class Logcat extends Thread implements Cloneable {
     continueReading = false;
   }
 
+  /**
+   * Enables or disables the throttling mode. While throttled, once all the available traces have
+   * been read this thread sleeps for a short interval instead of waking up for every new trace, so
+   * traces are read in bursts.
+   *
+   * @param isThrottled true to enable the throttling mode
+   */
+  public void setThrottled(boolean isThrottled) {
+    this.isThrottled = isThrottled;
+  }
+
   private void readLogcat() {
     BufferedReader bufferedReader = getBufferReader();
     try {
       String trace = bufferedReader.readLine();
       while (trace != null && continueReading) {
         notifyListener(trace);
+        waitIfThrottled(bufferedReader);
         trace = bufferedReader.readLine();
       }
     } catch (IOException e) {
@@ -94,6 +108,16 @@ public class Logcat extends Thread implements Cloneable {
     }
   }
 
+  private void waitIfThrottled(BufferedReader bufferedReader) throws IOException {
+    if (isThrottled && !bufferedReader.ready()) {
+      try {
+        Thread.sleep(THROTTLING_INTERVAL_IN_MILLIS);
+      } catch (InterruptedException e) {
+        interrupt();
+      }
+    }
+  }
+
   private void notifyListener(String trace) {
     if (listener != null) {
       listener.onTraceRead(trace);
@@ -17,14 +17,13 @@
 package com.github.pedrovgs.lynx.model;
 
 import com.github.pedrovgs.lynx.LynxConfig;
-import com.github.pedrovgs.lynx.exception.IllegalTraceException;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
-
-import android.util.Log;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Main business logic class for this project. Lynx responsibility is related to listen Logcat
@@ -36,41 +35,149 @@ import android.util.Log;
  * previously configured. Filtering will remove traces that contains given string or that match a
  * regular expression specified as filter.
  *
+ * Logcat traces are read from a SharedLogcat instance. Lynx instances sharing the same SharedLogcat
+ * share a single Logcat process, but every Lynx instance has its own filter and its own queue of
+ * traces to notify. The lines SharedLogcat read before subscribing or restarting are parsed from a
+ * background thread, new traces are not notified until the previous ones are ready.
+ *
+ * Threads reading from Logcat never take a lock or wait for the UI thread. Traces are published
+ * into a preallocated lock free queue drained in batches from the main thread and the
+ * configuration is read from an immutable snapshot replaced every time a new LynxConfig is set.
+ * The queue holds up to 4096 traces pending to be notified. If the main thread is not able to drain
+ * it fast enough the newest traces are discarded, the number of traces discarded is returned by
+ * getNumberOfDroppedTraces.
+ *
+ * If a trace arrives inside the sampling rate window a delayed flush is scheduled to notify it
+ * once the window expires, and if the number of pending traces reaches the configured batch size
+ * listeners are notified immediately. Delayed flushes need a ScheduledMainThread, if the
+ * MainThread passed as argument can't schedule Runnable objects the traces received inside the
+ * window are notified with the next trace read from Logcat once the window expires.
+ *
+ * If the adaptive sampling rate is enabled the sampling rate used is calculated from the number of
+ * traces received per millisecond and the time listeners need to process them, using the
+ * configured sampling rate as the max value.
+ *
+ * Traces with a TraceLevel equal or higher than the configured priority trace level are notified
+ * immediately together with the rest of pending traces. If the queue is full they are kept in an
+ * overflow queue with space for 256 traces until the next notification, and merged with the rest
+ * of traces by id so every trace is notified in the order it was read.
+ *
+ * Big batches of traces are not notified at once. Traces are split into slices sized to fit the
+ * frame budget measured by FrameBudget and the rest of the slices are delivered on the next frames.
+ * Traces arriving while slices are pending are merged into the next slice instead of being
+ * notified on their own. If the MainThread can't schedule Runnable objects the next slices are
+ * just posted to it.
+ *
  * @author Pedro Vicente Gomez Sanchez.
  */
 public class Lynx {
 
-  private static final String LOGTAG = "Lynx";
+  static final int TRACE_QUEUE_CAPACITY = 4096;
+  static final int PRIORITY_TRACE_QUEUE_CAPACITY = 256;
 
-  private Logcat logcat;
+  private final SharedLogcat sharedLogcat;
+  private final SharedLogcat.Subscriber subscriber;
   private final MainThread mainThread;
+  private final ScheduledMainThread scheduledMainThread;
   private final TimeProvider timeProvider;
-  private final List<Trace> tracesToNotify;
+  private final TraceQueue tracesToNotify;
+  private final TraceQueue priorityTracesToNotify;
+  private final List<Trace> priorityTraces;
   private final List<Listener> listeners;
+  private final Executor historyExecutor;
+  private final AtomicBoolean isNotificationPending;
+  private final AtomicBoolean isFlushScheduled;
+  private final AtomicLong droppedTraces;
+  private final Runnable notifyListenersRunnable;
+  private final Runnable flushRunnable;
+  private final AdaptiveSamplingRate adaptiveSamplingRate;
+  private final FrameBudget frameBudget;
+  private final List<Trace> pendingTraces;
+  private final Runnable deliverNextSliceRunnable;
 
-  private LynxConfig lynxConfig = new LynxConfig();
-  private long lastNotificationTime;
-
-  private String lowerCaseFilter = "";
-  private Pattern regexpFilter;
+  private volatile ConfigSnapshot configSnapshot;
+  private volatile long lastNotificationTime;
+  private int firstPendingTrace;
+  private boolean isNextSliceScheduled;
+  private List<Trace> replayedTracesToNotify;
+  private boolean isReplayPending;
+  private int replayGeneration;
+  private volatile long firstTraceIdWithTheCurrentFilter = Trace.NO_ID;
 
   public Lynx(Logcat logcat, MainThread mainThread, TimeProvider timeProvider) {
-    this.listeners = new LinkedList<>();
-    this.tracesToNotify = new LinkedList<>();
-    this.logcat = logcat;
+    this(new SharedLogcat(logcat), mainThread, timeProvider);
+  }
+
+  public Lynx(SharedLogcat sharedLogcat, MainThread mainThread, TimeProvider timeProvider) {
+    this(sharedLogcat, mainThread, timeProvider, BackgroundExecutors.newSingleThreadExecutor());
+  }
+
+  Lynx(SharedLogcat sharedLogcat, MainThread mainThread, TimeProvider timeProvider,
+      Executor historyExecutor) {
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.tracesToNotify = new TraceQueue(TRACE_QUEUE_CAPACITY);
+    this.priorityTracesToNotify = new TraceQueue(PRIORITY_TRACE_QUEUE_CAPACITY);
+    this.priorityTraces = new ArrayList<>();
+    this.historyExecutor = historyExecutor;
+    this.isNotificationPending = new AtomicBoolean();
+    this.isFlushScheduled = new AtomicBoolean();
+    this.droppedTraces = new AtomicLong();
+    this.notifyListenersRunnable = new Runnable() {
+      @Override public void run() {
+        isNotificationPending.set(false);
+        notifyListeners();
+      }
+    };
+    this.adaptiveSamplingRate = new AdaptiveSamplingRate();
+    this.frameBudget = new FrameBudget();
+    this.pendingTraces = new ArrayList<>();
+    this.deliverNextSliceRunnable = new Runnable() {
+      @Override public void run() {
+        isNextSliceScheduled = false;
+        drainTracesToNotify();
+        deliverNextSlice();
+      }
+    };
+    this.flushRunnable = new Runnable() {
+      @Override public void run() {
+        isFlushScheduled.set(false);
+        notifyListeners();
+      }
+    };
+    this.subscriber = new SharedLogcat.Subscriber() {
+      @Override public TraceFilter getTraceFilter() {
+        return configSnapshot.traceFilter;
+      }
+
+      @Override public void onTraceRead(Trace trace) {
+        addTraceToTheBuffer(trace);
+        if (isPriorityTrace(trace)) {
+          postNotification();
+        } else {
+          notifyNewTraces();
+        }
+      }
+    };
+    this.sharedLogcat = sharedLogcat;
     this.mainThread = mainThread;
+    this.scheduledMainThread =
+        mainThread instanceof ScheduledMainThread ? (ScheduledMainThread) mainThread : null;
     this.timeProvider = timeProvider;
-    setFilters();
+    this.configSnapshot = new ConfigSnapshot(new LynxConfig());
   }
 
   /**
-   * Indicates a custom LynxConfig object.
+   * Indicates a custom LynxConfig object. If the filter changes, the traces read before and not
+   * notified yet are filtered again with the new filter before notifying them.
    *
    * @param lynxConfig a custom LynxConfig object
    */
-  public synchronized void setConfig(LynxConfig lynxConfig) {
-    this.lynxConfig = lynxConfig;
-    setFilters();
+  public void setConfig(LynxConfig lynxConfig) {
+    ConfigSnapshot previousConfigSnapshot = configSnapshot;
+    this.configSnapshot = new ConfigSnapshot((LynxConfig) lynxConfig.clone());
+    if (configSnapshot.hasDifferentFilter(previousConfigSnapshot)) {
+      firstTraceIdWithTheCurrentFilter = sharedLogcat.getNextTraceId();
+    }
   }
 
   /**
@@ -79,50 +186,50 @@ public class Lynx {
    * @return a copy of the current LynxConfig object
    */
   public LynxConfig getConfig() {
-    return (LynxConfig) lynxConfig.clone();
+    return (LynxConfig) configSnapshot.lynxConfig.clone();
   }
 
   /**
-   * Configures a Logcat.Listener and initialize Logcat dependency to read traces from the OS log.
+   * Subscribes to the SharedLogcat dependency to read traces from the OS log. Traces already read
+   * by the SharedLogcat matching the current filter are notified first. This method has to be
+   * invoked from the main thread.
    */
   public void startReading() {
-    logcat.setListener(new Logcat.Listener() {
-      @Override public void onTraceRead(String logcatTrace) {
-        try {
-          addTraceToTheBuffer(logcatTrace);
-        } catch (IllegalTraceException e) {
-          return;
-        }
-        notifyNewTraces();
-      }
-    });
-    boolean logcatWasNotStarted = Thread.State.NEW.equals(logcat.getState());
-    if (logcatWasNotStarted) {
-      logcat.start();
-    }
+    SharedLogcat.HistorySnapshot previousTraces = sharedLogcat.subscribe(subscriber);
+    notifyPreviousTraces(previousTraces);
   }
 
   /**
-   * Stops Logcat dependency to stop receiving logcat traces.
+   * Unsubscribes from the SharedLogcat dependency to stop receiving logcat traces. This method has
+   * to be invoked from the main thread.
    */
   public void stopReading() {
-    logcat.stopReading();
-    logcat.interrupt();
+    sharedLogcat.unsubscribe(subscriber);
+    cancelReplay();
   }
 
   /**
-   * Stops the configured Logcat dependency and creates a clone to restart using Logcat and
-   * LogcatListener configured previously.
+   * Discards the pending traces and applies the current filter to the SharedLogcat dependency
+   * traces again. This method has to be invoked from the main thread.
    */
-  public synchronized void restart() {
-    Logcat.Listener previousListener = logcat.getListener();
-    logcat.stopReading();
-    logcat.interrupt();
-    logcat = (Logcat) logcat.clone();
-    logcat.setListener(previousListener);
+  public void restart() {
     lastNotificationTime = 0;
+    adaptiveSamplingRate.reset();
     tracesToNotify.clear();
-    logcat.start();
+    priorityTracesToNotify.clear();
+    cancelReplay();
+    pendingTraces.clear();
+    firstPendingTrace = 0;
+    SharedLogcat.HistorySnapshot previousTraces = sharedLogcat.restart(subscriber);
+    notifyPreviousTraces(previousTraces);
+  }
+
+  /**
+   * Returns the number of traces discarded since this instance was created because the queue of
+   * traces pending to be notified was full. This method can be called from any thread.
+   */
+  public long getNumberOfDroppedTraces() {
+    return droppedTraces.get();
   }
 
   /**
@@ -130,7 +237,7 @@ public class Lynx {
    *
    * @param lynxPresenter a lynx listener
    */
-  public synchronized void registerListener(Listener lynxPresenter) {
+  public void registerListener(Listener lynxPresenter) {
     listeners.add(lynxPresenter);
   }
 
@@ -139,85 +246,265 @@ public class Lynx {
    *
    * @param lynxPresenter a lynx listener
    */
-  public synchronized void unregisterListener(Listener lynxPresenter) {
+  public void unregisterListener(Listener lynxPresenter) {
     listeners.remove(lynxPresenter);
   }
 
-  private void setFilters() {
-    lowerCaseFilter = lynxConfig.getFilter().toLowerCase();
-    try {
-      regexpFilter = Pattern.compile(lowerCaseFilter);
-    } catch (PatternSyntaxException exception) {
-      regexpFilter = null;
-      Log.d(LOGTAG, "Invalid regexp filter!");
+  /**
+   * Parses the lines read before subscribing from a background thread and notifies them from the
+   * main thread before the traces read later, which are kept in the queue until then.
+   */
+  private void notifyPreviousTraces(final SharedLogcat.HistorySnapshot previousTraces) {
+    if (previousTraces.isEmpty()) {
+      return;
     }
+    final int replay = ++replayGeneration;
+    final TraceFilter traceFilter = configSnapshot.traceFilter;
+    isReplayPending = true;
+    historyExecutor.execute(new Runnable() {
+      @Override public void run() {
+        final List<Trace> traces = previousTraces.getTraces(traceFilter);
+        mainThread.post(new Runnable() {
+          @Override public void run() {
+            if (replay != replayGeneration) {
+              return;
+            }
+            isReplayPending = false;
+            replayedTracesToNotify = traces;
+            notifyListeners();
+          }
+        });
+      }
+    });
   }
 
-  private synchronized void addTraceToTheBuffer(String logcatTrace) throws IllegalTraceException {
-    if (shouldAddTrace(logcatTrace)) {
-      Trace trace = Trace.fromString(logcatTrace);
-      tracesToNotify.add(trace);
+  private void cancelReplay() {
+    replayGeneration++;
+    isReplayPending = false;
+    replayedTracesToNotify = null;
+  }
+
+  private void addTraceToTheBuffer(Trace trace) {
+    // If the main thread is not able to drain the queue we discard the new trace instead of
+    // blocking the thread reading from Logcat, unless it is a priority trace.
+    boolean wasAdded = tracesToNotify.offer(trace);
+    if (wasAdded) {
+      return;
+    }
+    if (!isPriorityTrace(trace) || !priorityTracesToNotify.offer(trace)) {
+      droppedTraces.incrementAndGet();
     }
   }
 
-  private boolean shouldAddTrace(String logcatTrace) {
-    boolean hasFilterConfigured = lynxConfig.hasFilter();
-    boolean hasMinSize = logcatTrace.length() >= Trace.MIN_TRACE_SIZE;
-    return hasMinSize && (!hasFilterConfigured || traceMatchesFilter(logcatTrace));
+  private boolean isPriorityTrace(Trace trace) {
+    TraceLevel priorityTraceLevel = configSnapshot.lynxConfig.getPriorityTraceLevel();
+    return trace.getLevel().ordinal() >= priorityTraceLevel.ordinal();
   }
 
-  private synchronized boolean traceMatchesFilter(String logcatTrace) {
-    return traceStringMatchesFilter(logcatTrace)
-            && containsTraceLevel(logcatTrace, lynxConfig.getFilterTraceLevel());
+  private void notifyNewTraces() {
+    if (!hasTracesToNotify()) {
+      return;
+    }
+    LynxConfig lynxConfig = configSnapshot.lynxConfig;
+    long now = timeProvider.getCurrentTimeMillis();
+    long timeFromLastNotification = now - lastNotificationTime;
+    long samplingRate = getSamplingRate(lynxConfig);
+    boolean hasSamplingRateExpired = timeFromLastNotification > samplingRate;
+    boolean hasReachedBatchSize = tracesToNotify.size() >= lynxConfig.getBatchSize();
+    if (hasSamplingRateExpired || hasReachedBatchSize) {
+      postNotification();
+    } else {
+      scheduleFlush(samplingRate - timeFromLastNotification);
+    }
   }
 
-  private boolean traceStringMatchesFilter(String logcatTrace) {
-    String lowerCaseLogcatTrace = logcatTrace.toLowerCase();
-    boolean matchesFilter = lowerCaseLogcatTrace.contains(lowerCaseFilter);
-    if (!matchesFilter && regexpFilter != null) {
-      matchesFilter = regexpFilter.matcher(lowerCaseLogcatTrace).find();
+  private long getSamplingRate(LynxConfig lynxConfig) {
+    if (lynxConfig.isAdaptiveSamplingRateEnabled()) {
+      return adaptiveSamplingRate.getSamplingRate();
     }
-    return matchesFilter;
+    return lynxConfig.getSamplingRate();
   }
 
-  private boolean containsTraceLevel(String logcatTrace, TraceLevel levelFilter) {
-    return levelFilter.equals(TraceLevel.VERBOSE) || hasTraceLevelEqualOrHigher(logcatTrace,
-        levelFilter);
+  private void postNotification() {
+    if (isNotificationPending.compareAndSet(false, true)) {
+      mainThread.post(notifyListenersRunnable);
+    }
   }
 
-  private boolean hasTraceLevelEqualOrHigher(String logcatTrace, TraceLevel levelFilter) {
-    TraceLevel level = TraceLevel.getTraceLevel(logcatTrace.charAt(Trace.TRACE_LEVEL_INDEX));
-    return level.ordinal() >= levelFilter.ordinal();
+  private void scheduleFlush(long delayInMillis) {
+    if (scheduledMainThread != null && isFlushScheduled.compareAndSet(false, true)) {
+      scheduledMainThread.postDelayed(flushRunnable, Math.max(0, delayInMillis));
+    }
   }
 
-  private synchronized void notifyNewTraces() {
-    if (shouldNotifyListeners()) {
-      final List<Trace> traces = new LinkedList<>(tracesToNotify);
-      tracesToNotify.clear();
-      notifyListeners(traces);
+  /**
+   * Notifies the pending traces if there is no slice scheduled for the next frame. Otherwise the
+   * traces are delivered together with the next slice.
+   */
+  private void notifyListeners() {
+    drainTracesToNotify();
+    if (!isNextSliceScheduled) {
+      deliverNextSlice();
     }
   }
 
-  private synchronized boolean shouldNotifyListeners() {
-    long now = timeProvider.getCurrentTimeMillis();
-    long timeFromLastNotification = now - lastNotificationTime;
-    boolean hasTracesToNotify = tracesToNotify.size() > 0;
-    return timeFromLastNotification > lynxConfig.getSamplingRate() && hasTracesToNotify;
+  private void drainTracesToNotify() {
+    if (isReplayPending) {
+      return;
+    }
+    long lastReplayedTraceId = Trace.NO_ID;
+    if (replayedTracesToNotify != null && !replayedTracesToNotify.isEmpty()) {
+      pendingTraces.addAll(replayedTracesToNotify);
+      lastReplayedTraceId = replayedTracesToNotify.get(replayedTracesToNotify.size() - 1).getId();
+    }
+    replayedTracesToNotify = null;
+    int firstNewTrace = pendingTraces.size();
+    tracesToNotify.drainTo(pendingTraces, Integer.MAX_VALUE);
+    if (priorityTracesToNotify.drainTo(priorityTraces, Integer.MAX_VALUE) > 0) {
+      mergeById(pendingTraces, firstNewTrace, priorityTraces);
+      priorityTraces.clear();
+    }
+    if (lastReplayedTraceId != Trace.NO_ID) {
+      removeTracesAlreadyReplayed(firstNewTrace, lastReplayedTraceId);
+    }
+    removeTracesFilteredWithThePreviousFilter();
   }
 
-  private synchronized void notifyListeners(final List<Trace> traces) {
-    mainThread.post(new Runnable() {
-      @Override public void run() {
-        for (Listener listener : listeners) {
-          listener.onNewTraces(traces);
-        }
-        lastNotificationTime = timeProvider.getCurrentTimeMillis();
+  /**
+   * Traces read before the filter changed were filtered with the previous filter, so the pending
+   * ones not matching the current filter are removed. Ids are assigned in read order, so just the
+   * traces with an id lower than the first one filtered with the current filter are checked.
+   */
+  private void removeTracesFilteredWithThePreviousFilter() {
+    long firstTraceId = firstTraceIdWithTheCurrentFilter;
+    if (firstTraceId == Trace.NO_ID) {
+      return;
+    }
+    TraceFilter traceFilter = configSnapshot.traceFilter;
+    int numberOfTracesKept = firstPendingTrace;
+    for (int i = firstPendingTrace; i < pendingTraces.size(); i++) {
+      Trace trace = pendingTraces.get(i);
+      if (trace.getId() >= firstTraceId || traceFilter.matches(trace)) {
+        pendingTraces.set(numberOfTracesKept++, trace);
       }
-    });
+    }
+    pendingTraces.subList(numberOfTracesKept, pendingTraces.size()).clear();
+    boolean isLastTraceFilteredWithTheCurrentFilter = !pendingTraces.isEmpty()
+        && pendingTraces.get(pendingTraces.size() - 1).getId() >= firstTraceId;
+    if (isLastTraceFilteredWithTheCurrentFilter) {
+      firstTraceIdWithTheCurrentFilter = Trace.NO_ID;
+    }
+  }
+
+  /**
+   * Traces read while SharedLogcat copies its history are enqueued and also part of the history
+   * replayed. Traces drained from firstTrace to the end of the list are sorted by id, so the ones
+   * not newer than the last trace replayed are removed.
+   */
+  private void removeTracesAlreadyReplayed(int firstTrace, long lastReplayedTraceId) {
+    int lastTrace = firstTrace;
+    while (lastTrace < pendingTraces.size()
+        && pendingTraces.get(lastTrace).getId() <= lastReplayedTraceId) {
+      lastTrace++;
+    }
+    pendingTraces.subList(firstTrace, lastTrace).clear();
+  }
+
+  /**
+   * Traces are offered to the queue while it's drained, so traces read after a priority trace kept
+   * in the overflow queue could be drained before it. Both queues are sorted by id, the id assigned
+   * by SharedLogcat in read order, so the traces drained from the queue, from firstTrace to the end
+   * of the list, and the priority traces are merged by id.
+   */
+  static void mergeById(List<Trace> traces, int firstTrace, List<Trace> priorityTraces) {
+    List<Trace> drainedTracesView = traces.subList(firstTrace, traces.size());
+    List<Trace> drainedTraces = new ArrayList<>(drainedTracesView);
+    drainedTracesView.clear();
+    int drainedTraceIndex = 0;
+    int priorityTraceIndex = 0;
+    while (drainedTraceIndex < drainedTraces.size()
+        && priorityTraceIndex < priorityTraces.size()) {
+      Trace drainedTrace = drainedTraces.get(drainedTraceIndex);
+      Trace priorityTrace = priorityTraces.get(priorityTraceIndex);
+      if (priorityTrace.getId() < drainedTrace.getId()) {
+        traces.add(priorityTrace);
+        priorityTraceIndex++;
+      } else {
+        traces.add(drainedTrace);
+        drainedTraceIndex++;
+      }
+    }
+    traces.addAll(drainedTraces.subList(drainedTraceIndex, drainedTraces.size()));
+    traces.addAll(priorityTraces.subList(priorityTraceIndex, priorityTraces.size()));
+  }
+
+  /**
+   * Notifies as many pending traces as the frame budget allows and schedules the delivery of the
+   * rest of the traces on the next frame.
+   */
+  private void deliverNextSlice() {
+    int numberOfPendingTraces = pendingTraces.size() - firstPendingTrace;
+    if (numberOfPendingTraces == 0) {
+      return;
+    }
+    int sliceSize = Math.min(numberOfPendingTraces, frameBudget.getSliceSize());
+    List<Trace> traces =
+        new ArrayList<>(pendingTraces.subList(firstPendingTrace, firstPendingTrace + sliceSize));
+    firstPendingTrace += sliceSize;
+    if (firstPendingTrace == pendingTraces.size()) {
+      pendingTraces.clear();
+      firstPendingTrace = 0;
+    }
+    LynxConfig lynxConfig = configSnapshot.lynxConfig;
+    long notificationStartTime = timeProvider.getNanoTime();
+    for (Listener listener : listeners) {
+      listener.onNewTraces(traces);
+    }
+    long notificationCost = timeProvider.getNanoTime() - notificationStartTime;
+    frameBudget.onSliceDelivered(traces.size(), notificationCost);
+    long previousNotificationTime = lastNotificationTime;
+    lastNotificationTime = timeProvider.getCurrentTimeMillis();
+    if (lynxConfig.isAdaptiveSamplingRateEnabled()) {
+      adaptiveSamplingRate.onNotification(traces.size(),
+          lastNotificationTime - previousNotificationTime, notificationCost,
+          lynxConfig.getSamplingRate());
+    }
+    if (!pendingTraces.isEmpty()) {
+      isNextSliceScheduled = true;
+      if (scheduledMainThread != null) {
+        scheduledMainThread.postOnNextFrame(deliverNextSliceRunnable);
+      } else {
+        mainThread.post(deliverNextSliceRunnable);
+      }
+    }
+  }
+
+  private boolean hasTracesToNotify() {
+    return !tracesToNotify.isEmpty() || !priorityTracesToNotify.isEmpty();
   }
 
   public interface Listener {
 
     void onNewTraces(List<Trace> traces);
   }
+
+  /**
+   * Immutable copy of the LynxConfig in use and the TraceFilter created from it. Replacing the
+   * whole snapshot lets the threads reading from Logcat use the configuration without locks.
+   */
+  private static final class ConfigSnapshot {
+
+    private final LynxConfig lynxConfig;
+    private final TraceFilter traceFilter;
+
+    ConfigSnapshot(LynxConfig lynxConfig) {
+      this.lynxConfig = lynxConfig;
+      this.traceFilter = new TraceFilter(lynxConfig);
+    }
+
+    boolean hasDifferentFilter(ConfigSnapshot configSnapshot) {
+      return !lynxConfig.getFilter().equals(configSnapshot.lynxConfig.getFilter())
+          || lynxConfig.getFilterTraceLevel() != configSnapshot.lynxConfig.getFilterTraceLevel();
+    }
+  }
 }
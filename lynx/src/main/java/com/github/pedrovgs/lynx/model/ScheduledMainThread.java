@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+/**
+ * MainThread able to delay the execution of Runnable objects. Lynx uses it to flush the pending
+ * traces once the sampling rate window expires and to split big batches of traces across frames.
+ *
+ * Runnable objects posted on the next frame are executed before the next frame is drawn, so work
+ * split across consecutive frames doesn't block the UI.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public interface ScheduledMainThread extends MainThread {
+
+  void postDelayed(Runnable runnable, long delayInMillis);
+
+  void postOnNextFrame(Runnable runnable);
+}
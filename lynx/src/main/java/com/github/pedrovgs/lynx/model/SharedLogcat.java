@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import com.github.pedrovgs.lynx.LynxConfig;
+import com.github.pedrovgs.lynx.exception.IllegalTraceException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Logcat reader shared between different Lynx instances. Just one Logcat process is running while
+ * there is at least one subscriber registered, the process is started when the first subscriber
+ * is registered and stopped when the last one is unregistered.
+ *
+ * Every line read from the Logcat output is parsed once and the filters of all the subscribers
+ * are evaluated in a single pass sharing the lower case version of the line. Subscribers
+ * registered while the Logcat process is running receive the last lines already read without
+ * starting a new process. Every line read gets an increasing id used as Trace id, lines stored
+ * keep their id so traces notified again to new subscribers have the id they had before.
+ *
+ * The thread reading from Logcat holds the history lock just to assign the trace id, store the
+ * line and take the subscribers the trace has to be notified to. Filters are evaluated and
+ * subscribers notified outside the lock. The stored lines are copied under the same lock and
+ * returned as a HistorySnapshot, parsed later by the subscriber from the thread it chooses. Every
+ * trace is notified just once to every subscriber, as part of the HistorySnapshot returned on
+ * subscription or from the Logcat thread. Locks are always taken in the same order, the
+ * SharedLogcat instance first and the history later.
+ *
+ * Background capture can be started from an Application or a foreground Service to keep the
+ * Logcat process running and the last lines stored while there are no subscribers. Lynx instances
+ * subscribed later receive the stored lines immediately. While capturing without subscribers no
+ * line is parsed and the Logcat thread reads traces in bursts.
+ *
+ * Components not related to the UI like crash reporters or file writers can consume traces using a
+ * TraceSubscriber. These subscribers request traces on demand and receive them from the Executor
+ * they choose, every one of them has its own bounded queue so a slow TraceSubscriber never blocks
+ * the rest of subscribers.
+ *
+ * Use getInstance to obtain the instance shared by the whole application.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public class SharedLogcat {
+
+  private static final int HISTORY_CAPACITY = 5000;
+
+  private static SharedLogcat instance;
+
+  private final String[] history;
+  private final long[] historyIds;
+  private int historyHead;
+  private int historySize;
+  private long nextTraceId;
+  private volatile Subscriber[] subscribers;
+  private Logcat logcat;
+  private volatile TraceFilter captureFilter;
+
+  SharedLogcat(Logcat logcat) {
+    this.logcat = logcat;
+    this.subscribers = new Subscriber[0];
+    this.history = new String[HISTORY_CAPACITY];
+    this.historyIds = new long[HISTORY_CAPACITY];
+  }
+
+  /**
+   * Returns the SharedLogcat instance shared by the whole application.
+   *
+   * @return the shared SharedLogcat instance
+   */
+  public static synchronized SharedLogcat getInstance() {
+    if (instance == null) {
+      instance = new SharedLogcat(new Logcat());
+    }
+    return instance;
+  }
+
+  /**
+   * Starts capturing traces in background. The Logcat process keeps running even if there are no
+   * subscribers and the last lines matching the filter configured in the LynxConfig passed as
+   * argument are stored to be notified to the next subscribers. If the capture was already started
+   * just the filter is updated.
+   *
+   * @param lynxConfig the configuration used to filter the captured traces
+   */
+  public synchronized void startCapture(LynxConfig lynxConfig) {
+    if (lynxConfig == null) {
+      throw new IllegalArgumentException(
+          "You can't use a null instance of LynxConfig as configuration.");
+    }
+    boolean wasReading = isReading();
+    captureFilter = new TraceFilter(lynxConfig);
+    if (!wasReading) {
+      startLogcat();
+    } else {
+      updateThrottling();
+    }
+  }
+
+  /**
+   * Stops capturing traces in background. If there are no subscribers the Logcat process is
+   * stopped and the stored lines are discarded.
+   */
+  public synchronized void stopCapture() {
+    if (captureFilter == null) {
+      return;
+    }
+    captureFilter = null;
+    if (!isReading()) {
+      stopLogcat();
+      clearHistory();
+    } else {
+      updateThrottling();
+    }
+  }
+
+  /**
+   * Returns true if the background capture has been started.
+   *
+   * @return true if the background capture has been started
+   */
+  public boolean isCapturing() {
+    return captureFilter != null;
+  }
+
+  /**
+   * Registers a TraceSubscriber to receive the traces matching the filter configured in the
+   * LynxConfig passed as argument. TraceSubscriber.onSubscribe is invoked from the caller thread and
+   * the traces requested are delivered using the Executor passed as argument, starting with the
+   * traces already read matching the filter.
+   *
+   * @param lynxConfig the configuration used to filter the traces
+   * @param executor the executor used to deliver the traces
+   * @param traceSubscriber the subscriber to register
+   */
+  public void subscribe(LynxConfig lynxConfig, Executor executor,
+      TraceSubscriber traceSubscriber) {
+    if (lynxConfig == null) {
+      throw new IllegalArgumentException(
+          "You can't use a null instance of LynxConfig as configuration.");
+    }
+    if (executor == null || traceSubscriber == null) {
+      throw new IllegalArgumentException("You can't use a null executor or subscriber.");
+    }
+    TraceStreamSubscription subscription =
+        new TraceStreamSubscription(this, new TraceFilter(lynxConfig), executor, traceSubscriber);
+    traceSubscriber.onSubscribe(subscription);
+    register(subscription);
+  }
+
+  private void register(TraceStreamSubscription subscription) {
+    HistorySnapshot previousTraces;
+    synchronized (this) {
+      if (subscription.isCancelled()) {
+        return;
+      }
+      previousTraces = subscribe(subscription);
+    }
+    // The subscription doesn't deliver the traces notified from the Logcat thread until it
+    // receives the previous ones, so they are delivered in the order they were read.
+    subscription.onPreviousTracesRead(previousTraces);
+  }
+
+  /**
+   * Registers a subscriber and starts the Logcat process if this is the first one. Returns the
+   * lines read before the subscription, the subscriber has to filter them using its filter.
+   */
+  synchronized HistorySnapshot subscribe(Subscriber subscriber) {
+    if (contains(subscriber)) {
+      return HistorySnapshot.EMPTY;
+    }
+    if (!isReading()) {
+      addSubscriber(subscriber);
+      startLogcat();
+      return HistorySnapshot.EMPTY;
+    }
+    // Registering the subscriber and copying the history under the history lock guarantees every
+    // trace is received just once, as part of the history or from the Logcat thread.
+    HistorySnapshot previousTraces;
+    synchronized (history) {
+      addSubscriber(subscriber);
+      previousTraces = getHistory();
+    }
+    updateThrottling();
+    return previousTraces;
+  }
+
+  /**
+   * Unregisters a subscriber and stops the Logcat process if there are no more subscribers.
+   */
+  synchronized void unsubscribe(Subscriber subscriber) {
+    if (!contains(subscriber)) {
+      return;
+    }
+    removeSubscriber(subscriber);
+    if (!isReading()) {
+      stopLogcat();
+      clearHistory();
+    } else {
+      updateThrottling();
+    }
+  }
+
+  /**
+   * Applies the current subscriber filter to the traces already read. If the subscriber is the
+   * only one registered the Logcat process is restarted to read the whole device log again, if
+   * not, the lines already read are returned and the subscriber has to filter them using its
+   * filter.
+   */
+  synchronized HistorySnapshot restart(Subscriber subscriber) {
+    int numberOfSubscribers = subscribers.length;
+    boolean isSharedWithOtherSubscribers =
+        numberOfSubscribers > 1 || (numberOfSubscribers == 1 && !contains(subscriber));
+    if (isSharedWithOtherSubscribers || isCapturing()) {
+      return getHistory();
+    }
+    restartLogcat();
+    return HistorySnapshot.EMPTY;
+  }
+
+  /**
+   * Returns the id the next trace read will have. Subscribers read their TraceFilter after the id
+   * of a trace is assigned, so traces with this id or a greater one are filtered with the
+   * TraceFilter the subscribers return once this method returns.
+   */
+  long getNextTraceId() {
+    synchronized (history) {
+      return nextTraceId;
+    }
+  }
+
+  /**
+   * Returns the number of subscribers registered.
+   */
+  int getNumberOfSubscribers() {
+    return subscribers.length;
+  }
+
+  private boolean isReading() {
+    return subscribers.length > 0 || isCapturing();
+  }
+
+  private void updateThrottling() {
+    logcat.setThrottled(subscribers.length == 0);
+  }
+
+  private boolean contains(Subscriber subscriber) {
+    for (Subscriber registeredSubscriber : subscribers) {
+      if (registeredSubscriber == subscriber) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The subscribers array is replaced instead of modified, so the Logcat thread can keep the
+   * array read under the history lock once the lock is released.
+   */
+  private void addSubscriber(Subscriber subscriber) {
+    synchronized (history) {
+      Subscriber[] updatedSubscribers = Arrays.copyOf(subscribers, subscribers.length + 1);
+      updatedSubscribers[subscribers.length] = subscriber;
+      subscribers = updatedSubscribers;
+    }
+  }
+
+  private void removeSubscriber(Subscriber subscriber) {
+    synchronized (history) {
+      Subscriber[] updatedSubscribers = new Subscriber[subscribers.length - 1];
+      int index = 0;
+      for (Subscriber registeredSubscriber : subscribers) {
+        if (registeredSubscriber != subscriber) {
+          updatedSubscribers[index++] = registeredSubscriber;
+        }
+      }
+      subscribers = updatedSubscribers;
+    }
+  }
+
+  private void startLogcat() {
+    boolean isLogcatAlreadyUsed = !Thread.State.NEW.equals(logcat.getState());
+    if (isLogcatAlreadyUsed) {
+      logcat = (Logcat) logcat.clone();
+    }
+    logcat.setListener(new Logcat.Listener() {
+      @Override public void onTraceRead(String logcatTrace) {
+        dispatchTrace(logcatTrace);
+      }
+    });
+    updateThrottling();
+    logcat.start();
+  }
+
+  private void stopLogcat() {
+    logcat.stopReading();
+    logcat.interrupt();
+  }
+
+  private void restartLogcat() {
+    Logcat.Listener previousListener = logcat.getListener();
+    stopLogcat();
+    logcat = (Logcat) logcat.clone();
+    logcat.setListener(previousListener);
+    updateThrottling();
+    clearHistory();
+    logcat.start();
+  }
+
+  private void dispatchTrace(String logcatTrace) {
+    if (logcatTrace.length() < Trace.MIN_TRACE_SIZE) {
+      return;
+    }
+    String lowerCaseLogcatTrace = null;
+    TraceFilter captureFilter = this.captureFilter;
+    if (captureFilter != null && captureFilter.requiresLowerCaseTrace()) {
+      lowerCaseLogcatTrace = logcatTrace.toLowerCase();
+    }
+    boolean isCaptured =
+        captureFilter == null || captureFilter.matches(logcatTrace, lowerCaseLogcatTrace);
+    long traceId;
+    Subscriber[] subscribers;
+    synchronized (history) {
+      traceId = nextTraceId++;
+      if (isCaptured) {
+        addToHistory(logcatTrace, traceId);
+      }
+      subscribers = this.subscribers;
+    }
+    Trace trace = null;
+    for (Subscriber subscriber : subscribers) {
+      TraceFilter traceFilter = subscriber.getTraceFilter();
+      if (lowerCaseLogcatTrace == null && traceFilter.requiresLowerCaseTrace()) {
+        lowerCaseLogcatTrace = logcatTrace.toLowerCase();
+      }
+      if (traceFilter.matches(logcatTrace, lowerCaseLogcatTrace)) {
+        if (trace == null) {
+          trace = parseTrace(logcatTrace, traceId);
+        }
+        if (trace == null) {
+          return;
+        }
+        subscriber.onTraceRead(trace);
+      }
+    }
+  }
+
+  private static Trace parseTrace(String logcatTrace, long traceId) {
+    try {
+      return Trace.fromString(logcatTrace, traceId);
+    } catch (IllegalTraceException e) {
+      return null;
+    }
+  }
+
+  private void addToHistory(String logcatTrace, long traceId) {
+    int index = (historyHead + historySize) % HISTORY_CAPACITY;
+    history[index] = logcatTrace;
+    historyIds[index] = traceId;
+    if (historySize < HISTORY_CAPACITY) {
+      historySize++;
+    } else {
+      historyHead = (historyHead + 1) % HISTORY_CAPACITY;
+    }
+  }
+
+  /**
+   * Copies the lines stored without parsing them, so the history lock is held just while the
+   * references are copied.
+   */
+  private HistorySnapshot getHistory() {
+    synchronized (history) {
+      String[] lines = new String[historySize];
+      long[] ids = new long[historySize];
+      for (int i = 0; i < historySize; i++) {
+        int index = (historyHead + i) % HISTORY_CAPACITY;
+        lines[i] = history[index];
+        ids[i] = historyIds[index];
+      }
+      return new HistorySnapshot(lines, ids);
+    }
+  }
+
+  private void clearHistory() {
+    synchronized (history) {
+      Arrays.fill(history, null);
+      historyHead = 0;
+      historySize = 0;
+    }
+  }
+
+  /**
+   * Lines read before a subscription with the id assigned when they were read. Lines are parsed
+   * just when getTraces is invoked, so the subscriber can parse them from a background thread.
+   */
+  static final class HistorySnapshot {
+
+    static final HistorySnapshot EMPTY = new HistorySnapshot(new String[0], new long[0]);
+
+    private final String[] lines;
+    private final long[] ids;
+
+    HistorySnapshot(String[] lines, long[] ids) {
+      this.lines = lines;
+      this.ids = ids;
+    }
+
+    boolean isEmpty() {
+      return lines.length == 0;
+    }
+
+    /**
+     * Returns the traces matching the filter passed as argument in the order they were read. This
+     * method can be invoked from any thread.
+     */
+    List<Trace> getTraces(TraceFilter traceFilter) {
+      List<Trace> traces = new ArrayList<>();
+      for (int i = 0; i < lines.length; i++) {
+        if (traceFilter.matches(lines[i])) {
+          Trace trace = parseTrace(lines[i], ids[i]);
+          if (trace != null) {
+            traces.add(trace);
+          }
+        }
+      }
+      return traces;
+    }
+  }
+
+  /**
+   * Component interested in the traces read by SharedLogcat. The filter is evaluated from the
+   * thread reading Logcat for every new line and onTraceRead is invoked from the same thread,
+   * without holding any SharedLogcat lock.
+   */
+  interface Subscriber {
+
+    TraceFilter getTraceFilter();
+
+    void onTraceRead(Trace trace);
+  }
+}
@@ -18,8 +18,9 @@ package com.github.pedrovgs.lynx.model;
 
 /**
  * Class created to add testability in terms of time usage. Using this wrapper of
- * System.currentTimeMillis instead of use the System call directly we improve our code
- * testability and provide mocked implementations of TimeProvider with pre-configured results.
+ * System.currentTimeMillis and System.nanoTime instead of use the System call directly we improve
+ * our code testability and provide mocked implementations of TimeProvider with pre-configured
+ * results.
  *
  * @author Pedro Vicente Gomez Sanchez.
  */
@@ -28,4 +29,8 @@ public class TimeProvider {
   public long getCurrentTimeMillis() {
     return System.currentTimeMillis();
   }
+
+  public long getNanoTime() {
+    return System.nanoTime();
+  }
 }
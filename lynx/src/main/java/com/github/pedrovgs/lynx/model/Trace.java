@@ -19,7 +19,20 @@ package com.github.pedrovgs.lynx.model;
 import com.github.pedrovgs.lynx.exception.IllegalTraceException;
 
 /**
- * Logcat trace representation. All traces contains a message and a TraceLevel assigned.
+ * Logcat trace representation. All traces contains a message and a TraceLevel assigned. Traces
+ * read from Logcat also contain the tag and the pid of the process that printed them, if the
+ * trace has no tag the tag is null and the pid is NO_PID.
+ *
+ * Traces with a message starting with the date printed by Logcat, something like
+ * "02-07 17:45:33.014", have a timestamp. Timestamps are the milliseconds elapsed from the
+ * beginning of the year using months of 31 days, so they can be compared but they are not
+ * milliseconds since the epoch. Traces without a date have NO_TIMESTAMP as timestamp.
+ *
+ * Traces read from Logcat have an id assigned when the line is read. Ids are increasing in the
+ * order the lines are read and don't change while the trace is kept, even if the traces are
+ * filtered again or stored in the disk history, so they can be used to identify the trace shown
+ * in the UI. Traces created by hand have NO_ID as id. The id is not part of the trace equality,
+ * traces with the same TraceLevel and message are equal.
  *
  * @author Pedro Vicente Gomez Sanchez.
  */
@@ -28,15 +41,38 @@ public class Trace {
   private static final char TRACE_LEVEL_SEPARATOR = '/';
   private static final int END_OF_DATE_INDEX = 18;
   private static final int START_OF_MESSAGE_INDEX = 21;
+  private static final String TIMESTAMP_FORMAT = "dd-dd dd:dd:dd.ddd";
   public static final int MIN_TRACE_SIZE = 21;
   public static final int TRACE_LEVEL_INDEX = 19;
+  public static final int NO_PID = -1;
+  public static final long NO_TIMESTAMP = -1;
+  public static final int TIMESTAMP_LENGTH = 18;
+  public static final int DAYS_PER_MONTH = 31;
+  public static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+  public static final long NO_ID = -1;
 
   private final TraceLevel level;
   private final String message;
+  private final String tag;
+  private final int pid;
+  private final long timestamp;
+  private final long id;
 
   public Trace(TraceLevel level, String message) {
+    this(level, message, null, NO_PID);
+  }
+
+  public Trace(TraceLevel level, String message, String tag, int pid) {
+    this(level, message, tag, pid, NO_ID);
+  }
+
+  public Trace(TraceLevel level, String message, String tag, int pid, long id) {
     this.level = level;
     this.message = message;
+    this.tag = tag;
+    this.pid = pid;
+    this.timestamp = parseTimestamp(message);
+    this.id = id;
   }
 
   /**
@@ -48,6 +84,20 @@ public class Trace {
    * @throws IllegalTraceException if the string argument is an invalid string
    */
   public static Trace fromString(String logcatTrace) throws IllegalTraceException {
+    return fromString(logcatTrace, NO_ID);
+  }
+
+  /**
+   * Factory method used to create a Trace instance from a String with the id passed as argument.
+   * The format of the input string have to be something like: "02-07 17:45:33.014 D/Any debug
+   * trace"
+   *
+   * @param logcatTrace the logcat string
+   * @param id the id of the trace
+   * @return a new Trace instance
+   * @throws IllegalTraceException if the string argument is an invalid string
+   */
+  public static Trace fromString(String logcatTrace, long id) throws IllegalTraceException {
     if (logcatTrace == null
         || logcatTrace.length() < MIN_TRACE_SIZE
         || logcatTrace.charAt(20) != TRACE_LEVEL_SEPARATOR) {
@@ -58,7 +108,72 @@ public class Trace {
     TraceLevel level = TraceLevel.getTraceLevel(logcatTrace.charAt(TRACE_LEVEL_INDEX));
     String date = logcatTrace.substring(0, END_OF_DATE_INDEX);
     String message = logcatTrace.substring(START_OF_MESSAGE_INDEX, logcatTrace.length());
-    return new Trace(level, date + " " + message);
+    int pidStartIndex = logcatTrace.indexOf('(', START_OF_MESSAGE_INDEX);
+    int pidEndIndex = pidStartIndex == -1 ? -1 : logcatTrace.indexOf(')', pidStartIndex);
+    int pid = pidEndIndex == -1 ? NO_PID : parsePid(logcatTrace, pidStartIndex + 1, pidEndIndex);
+    if (pid == NO_PID) {
+      return new Trace(level, date + " " + message, null, NO_PID, id);
+    }
+    // Tags are interned to share a single instance between all the traces with the same tag.
+    String tag = logcatTrace.substring(START_OF_MESSAGE_INDEX, pidStartIndex).trim().intern();
+    return new Trace(level, date + " " + message, tag, pid, id);
+  }
+
+  /**
+   * Parses the date printed by Logcat at the beginning of the text passed as argument, something
+   * like "02-07 17:45:33.014", and returns it as a timestamp. Returns NO_TIMESTAMP if the text
+   * doesn't start with a date.
+   */
+  public static long parseTimestamp(String text) {
+    if (text.length() < TIMESTAMP_LENGTH) {
+      return NO_TIMESTAMP;
+    }
+    for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+      char character = text.charAt(i);
+      char expected = TIMESTAMP_FORMAT.charAt(i);
+      boolean isValid = expected == 'd' ? character >= '0' && character <= '9'
+          : character == expected;
+      if (!isValid) {
+        return NO_TIMESTAMP;
+      }
+    }
+    int month = parseNumber(text, 0, 2);
+    int day = parseNumber(text, 3, 5);
+    long days = (month - 1) * DAYS_PER_MONTH + day - 1;
+    long hours = days * 24 + parseNumber(text, 6, 8);
+    long minutes = hours * 60 + parseNumber(text, 9, 11);
+    long seconds = minutes * 60 + parseNumber(text, 12, 14);
+    return seconds * 1000 + parseNumber(text, 15, 18);
+  }
+
+  private static int parseNumber(String text, int start, int end) {
+    int number = 0;
+    for (int i = start; i < end; i++) {
+      number = number * 10 + text.charAt(i) - '0';
+    }
+    return number;
+  }
+
+  /**
+   * Parses the pid printed by "logcat -v time" between the tag and the message, something like
+   * "Tag( 1234): message". Returns NO_PID if the trace doesn't follow this format.
+   */
+  private static int parsePid(String logcatTrace, int start, int end) {
+    if (end + 1 >= logcatTrace.length() || logcatTrace.charAt(end + 1) != ':') {
+      return NO_PID;
+    }
+    int pid = 0;
+    boolean hasDigits = false;
+    for (int i = start; i < end; i++) {
+      char character = logcatTrace.charAt(i);
+      if (character >= '0' && character <= '9' && pid < Integer.MAX_VALUE / 10) {
+        pid = pid * 10 + character - '0';
+        hasDigits = true;
+      } else if (character != ' ' || hasDigits) {
+        return NO_PID;
+      }
+    }
+    return hasDigits ? pid : NO_PID;
   }
 
   public TraceLevel getLevel() {
@@ -69,7 +184,95 @@ public class Trace {
     return message;
   }
 
+  /**
+   * Returns the text of the trace without the date printed by Logcat and, if the trace has a tag,
+   * without the tag and the pid printed before the text. For a trace read from
+   * "02-07 17:45:33.014 D/Lynx( 1234): Any debug trace" the text is "Any debug trace".
+   */
+  public String getMessageBody() {
+    int start = hasTimestamp() ? Math.min(message.length(), TIMESTAMP_LENGTH + 1) : 0;
+    if (hasTag() && message.startsWith(tag, start)) {
+      int pidEndIndex = message.indexOf(')', start + tag.length());
+      if (pidEndIndex != -1 && message.startsWith("): ", pidEndIndex)) {
+        start = pidEndIndex + 3;
+      } else if (pidEndIndex != -1 && message.startsWith("):", pidEndIndex)) {
+        start = pidEndIndex + 2;
+      }
+    }
+    return message.substring(start);
+  }
+
+  public String getTag() {
+    return tag;
+  }
+
+  public boolean hasTag() {
+    return tag != null;
+  }
+
+  public int getPid() {
+    return pid;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public boolean hasTimestamp() {
+    return timestamp != NO_TIMESTAMP;
+  }
+
+  public long getId() {
+    return id;
+  }
 
+  public boolean hasId() {
+    return id != NO_ID;
+  }
+
+  /**
+   * Returns the line printed by Logcat this trace was read from, the message with the TraceLevel
+   * and the separator inserted after the date, something like "02-07 17:45:33.014 D/Any trace".
+   * This is the text the filters configured in LynxConfig are applied to.
+   */
+  public String getLogcatLine() {
+    int levelIndex = getLogcatLineLevelIndex();
+    return new StringBuilder(getLogcatLineLength())
+        .append(message, 0, levelIndex)
+        .append(level.getValue())
+        .append(TRACE_LEVEL_SEPARATOR)
+        .append(message, levelIndex, message.length())
+        .toString();
+  }
+
+  /**
+   * Returns the number of characters of the line returned by getLogcatLine.
+   */
+  public int getLogcatLineLength() {
+    return message.length() + 2;
+  }
+
+  /**
+   * Returns the character of the line returned by getLogcatLine at the index passed as argument
+   * without creating the line.
+   */
+  public char getLogcatLineCharAt(int index) {
+    int levelIndex = getLogcatLineLevelIndex();
+    if (index < levelIndex) {
+      return message.charAt(index);
+    } else if (index == levelIndex) {
+      return level.getValue().charAt(0);
+    } else if (index == levelIndex + 1) {
+      return TRACE_LEVEL_SEPARATOR;
+    }
+    return message.charAt(index - 2);
+  }
+
+  private int getLogcatLineLevelIndex() {
+    boolean hasDate =
+        message.length() > END_OF_DATE_INDEX && message.charAt(END_OF_DATE_INDEX) == ' ';
+    return hasDate ? TRACE_LEVEL_INDEX : 0;
+  }
 
   @Override public boolean equals(Object o) {
     if (this == o) {
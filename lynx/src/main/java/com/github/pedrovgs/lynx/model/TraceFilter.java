@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import android.util.Log;
+import com.github.pedrovgs.lynx.LynxConfig;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Immutable representation of the filter configured in a LynxConfig object. Filtering will remove
+ * traces that doesn't contain the configured filter, that doesn't match the filter used as regular
+ * expression or with a TraceLevel lower than the configured one. This class doesn't have any
+ * mutable state and can be used from different threads at the same time.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TraceFilter {
+
+  private static final String LOGTAG = "Lynx";
+
+  private final boolean hasFilterConfigured;
+  private final String lowerCaseFilter;
+  private final Pattern regexpFilter;
+  private final TraceLevel filterTraceLevel;
+
+  TraceFilter(LynxConfig lynxConfig) {
+    this.hasFilterConfigured = lynxConfig.hasFilter();
+    this.lowerCaseFilter = lynxConfig.getFilter().toLowerCase();
+    this.regexpFilter = compileRegexpFilter(lowerCaseFilter);
+    this.filterTraceLevel = lynxConfig.getFilterTraceLevel();
+  }
+
+  /**
+   * Returns true if the logcat trace passed as argument has the min size needed to be a trace and
+   * matches with the configured filter.
+   */
+  boolean matches(String logcatTrace) {
+    String lowerCaseLogcatTrace = requiresLowerCaseTrace() ? logcatTrace.toLowerCase() : null;
+    return matches(logcatTrace, lowerCaseLogcatTrace);
+  }
+
+  /**
+   * Returns true if the line the trace passed as argument was read from matches with the
+   * configured filter.
+   */
+  boolean matches(Trace trace) {
+    return matches(trace.getLogcatLine());
+  }
+
+  /**
+   * Returns true if the logcat trace passed as argument has the min size needed to be a trace and
+   * matches with the configured filter. The lower case version of the trace can be null if
+   * requiresLowerCaseTrace returns false. This method is used to share the lower case conversion
+   * of the trace between different filters.
+   */
+  boolean matches(String logcatTrace, String lowerCaseLogcatTrace) {
+    boolean hasMinSize = logcatTrace.length() >= Trace.MIN_TRACE_SIZE;
+    return hasMinSize && (!hasFilterConfigured || traceMatchesFilter(logcatTrace,
+        lowerCaseLogcatTrace));
+  }
+
+  /**
+   * Returns true if this filter needs the lower case version of the trace to be evaluated.
+   */
+  boolean requiresLowerCaseTrace() {
+    return hasFilterConfigured && !lowerCaseFilter.isEmpty();
+  }
+
+  private static Pattern compileRegexpFilter(String lowerCaseFilter) {
+    try {
+      return Pattern.compile(lowerCaseFilter);
+    } catch (PatternSyntaxException exception) {
+      Log.d(LOGTAG, "Invalid regexp filter!");
+      return null;
+    }
+  }
+
+  private boolean traceMatchesFilter(String logcatTrace, String lowerCaseLogcatTrace) {
+    return traceStringMatchesFilter(lowerCaseLogcatTrace) && containsTraceLevel(logcatTrace);
+  }
+
+  private boolean traceStringMatchesFilter(String lowerCaseLogcatTrace) {
+    if (lowerCaseFilter.isEmpty()) {
+      return true;
+    }
+    boolean matchesFilter = lowerCaseLogcatTrace.contains(lowerCaseFilter);
+    if (!matchesFilter && regexpFilter != null) {
+      matchesFilter = regexpFilter.matcher(lowerCaseLogcatTrace).find();
+    }
+    return matchesFilter;
+  }
+
+  private boolean containsTraceLevel(String logcatTrace) {
+    return filterTraceLevel.equals(TraceLevel.VERBOSE) || hasTraceLevelEqualOrHigher(logcatTrace);
+  }
+
+  private boolean hasTraceLevelEqualOrHigher(String logcatTrace) {
+    TraceLevel level = TraceLevel.getTraceLevel(logcatTrace.charAt(Trace.TRACE_LEVEL_INDEX));
+    return level.ordinal() >= filterTraceLevel.ordinal();
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded and lock free multi-producer single-consumer queue used to move Trace objects from the
+ * threads reading the Logcat output to the thread notifying Lynx listeners. All the slots are
+ * preallocated on creation and every slot has a sequence number used by producers and the
+ * consumer to know if the slot is ready to be written or read. This queue never blocks, offer
+ * returns false if the queue is full.
+ *
+ * Just one thread can call drainTo or clear at the same time.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TraceQueue {
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<Trace> traces;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail;
+  private volatile long head;
+
+  TraceQueue(int capacity) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("The TraceQueue capacity has to be a power of two.");
+    }
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.traces = new AtomicReferenceArray<Trace>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    this.tail = new AtomicLong();
+  }
+
+  /**
+   * Adds a trace to the end of the queue if there is space available. This method can be called
+   * from different threads at the same time.
+   */
+  boolean offer(Trace trace) {
+    while (true) {
+      long currentTail = tail.get();
+      int index = (int) currentTail & mask;
+      long sequence = sequences.get(index);
+      long difference = sequence - currentTail;
+      if (difference == 0) {
+        if (tail.compareAndSet(currentTail, currentTail + 1)) {
+          traces.lazySet(index, trace);
+          sequences.lazySet(index, currentTail + 1);
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Moves up to maxTraces published traces to the collection passed as argument preserving the
+   * order they were offered and returns the number of traces moved.
+   */
+  int drainTo(Collection<Trace> collection, int maxTraces) {
+    int drainedTraces = 0;
+    while (drainedTraces < maxTraces) {
+      Trace trace = poll();
+      if (trace == null) {
+        break;
+      }
+      collection.add(trace);
+      drainedTraces++;
+    }
+    return drainedTraces;
+  }
+
+  /**
+   * Returns true if there are no published traces pending to be drained. This method can be
+   * called from any thread but the result could be out of date if other threads are using the
+   * queue at the same time.
+   */
+  boolean isEmpty() {
+    long currentHead = head;
+    return sequences.get((int) currentHead & mask) != currentHead + 1;
+  }
+
+  /**
+   * Returns the number of published traces pending to be drained. This method can be called from
+   * any thread but the result is an approximation if other threads are using the queue at the same
+   * time.
+   */
+  int size() {
+    long size = tail.get() - head;
+    return (int) Math.max(0, Math.min(size, capacity));
+  }
+
+  /**
+   * Returns the number of traces offered successfully since this queue was created.
+   */
+  long getNumberOfTracesOffered() {
+    return tail.get();
+  }
+
+  /**
+   * Returns the number of traces drained or cleared since this queue was created.
+   */
+  long getNumberOfTracesDrained() {
+    return head;
+  }
+
+  /**
+   * Returns the number of slots preallocated by this queue.
+   */
+  int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Discards every published trace pending to be drained.
+   */
+  void clear() {
+    Trace trace = poll();
+    while (trace != null) {
+      trace = poll();
+    }
+  }
+
+  private Trace poll() {
+    long currentHead = head;
+    int index = (int) currentHead & mask;
+    if (sequences.get(index) != currentHead + 1) {
+      return null;
+    }
+    Trace trace = traces.get(index);
+    traces.lazySet(index, null);
+    sequences.lazySet(index, currentHead + capacity);
+    head = currentHead + 1;
+    return trace;
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SharedLogcat subscriber delivering traces to a TraceSubscriber based on its demand. Traces read
+ * are published into a bounded lock free queue owned by this subscription and drained from the
+ * Executor configured just while the TraceSubscriber has pending demand. Just one drain task is
+ * executed at the same time, so the TraceSubscriber is never invoked concurrently. Traces read
+ * while the queue is full are discarded and reported using TraceSubscriber.onTracesDropped.
+ *
+ * Traces read before the subscription are parsed from the Executor configured and delivered
+ * first. Traces read after the subscription are not delivered until the previous ones are
+ * received from SharedLogcat.
+ *
+ * Errors, like requesting zero traces or an exception thrown by the TraceSubscriber, cancel the
+ * subscription and are notified using TraceSubscriber.onError from the drain task, so the caller
+ * of request never receives the exception and the drain task always finishes.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TraceStreamSubscription implements SharedLogcat.Subscriber, TraceSubscription {
+
+  static final int QUEUE_CAPACITY = 8192;
+
+  private static final int MAX_TRACES_PER_DRAIN = 256;
+  private static final long NO_GAP = 0;
+
+  private final SharedLogcat sharedLogcat;
+  private final TraceFilter traceFilter;
+  private final Executor executor;
+  private final TraceSubscriber traceSubscriber;
+  private final TraceQueue traces;
+  private final AtomicLong requested;
+  private final AtomicLong droppedTraces;
+  private final AtomicLong gapPosition;
+  private final AtomicInteger pendingDrains;
+  private final AtomicReference<Throwable> error;
+  private final Runnable drainRunnable;
+  private final List<Trace> tracesToDeliver;
+
+  private volatile boolean isCancelled;
+  private volatile boolean hasReceivedPreviousTraces;
+  private SharedLogcat.HistorySnapshot previousHistory;
+  private List<Trace> previousTraces;
+  private int firstPreviousTrace;
+  private boolean isErrorNotified;
+
+  TraceStreamSubscription(SharedLogcat sharedLogcat, TraceFilter traceFilter, Executor executor,
+      TraceSubscriber traceSubscriber) {
+    this.sharedLogcat = sharedLogcat;
+    this.traceFilter = traceFilter;
+    this.executor = executor;
+    this.traceSubscriber = traceSubscriber;
+    this.traces = new TraceQueue(QUEUE_CAPACITY);
+    this.requested = new AtomicLong();
+    this.droppedTraces = new AtomicLong();
+    this.gapPosition = new AtomicLong(NO_GAP);
+    this.pendingDrains = new AtomicInteger();
+    this.error = new AtomicReference<>();
+    this.tracesToDeliver = new ArrayList<>();
+    this.drainRunnable = new Runnable() {
+      @Override public void run() {
+        drain();
+      }
+    };
+  }
+
+  @Override public TraceFilter getTraceFilter() {
+    return traceFilter;
+  }
+
+  @Override public void onTraceRead(Trace trace) {
+    if (isCancelled) {
+      return;
+    }
+    // If the subscriber is not able to consume traces we discard the new ones instead of blocking
+    // the thread reading from Logcat.
+    if (!traces.offer(trace)) {
+      gapPosition.compareAndSet(NO_GAP, traces.getNumberOfTracesOffered());
+      droppedTraces.incrementAndGet();
+    }
+    scheduleDrain();
+  }
+
+  @Override public void request(long numberOfTraces) {
+    if (numberOfTraces <= 0) {
+      onError(new IllegalArgumentException(
+          "You can't request zero or a negative number of traces."));
+      return;
+    }
+    addRequested(numberOfTraces);
+    scheduleDrain();
+  }
+
+  @Override public void cancel() {
+    if (!isCancelled) {
+      isCancelled = true;
+      sharedLogcat.unsubscribe(this);
+    }
+  }
+
+  /**
+   * Returns true if the subscription has been cancelled.
+   */
+  boolean isCancelled() {
+    return isCancelled;
+  }
+
+  /**
+   * Receives the lines read before the subscription to be delivered before the new ones.
+   */
+  void onPreviousTracesRead(SharedLogcat.HistorySnapshot previousHistory) {
+    this.previousHistory = previousHistory;
+    hasReceivedPreviousTraces = true;
+    scheduleDrain();
+  }
+
+  private void onError(Throwable throwable) {
+    if (error.compareAndSet(null, throwable)) {
+      cancel();
+      scheduleDrain();
+    }
+  }
+
+  private void addRequested(long numberOfTraces) {
+    long current;
+    long updated;
+    do {
+      current = requested.get();
+      if (current == Long.MAX_VALUE) {
+        return;
+      }
+      updated = current + numberOfTraces;
+      if (updated < 0) {
+        updated = Long.MAX_VALUE;
+      }
+    } while (!requested.compareAndSet(current, updated));
+  }
+
+  private void scheduleDrain() {
+    if (pendingDrains.getAndIncrement() == 0) {
+      executor.execute(drainRunnable);
+    }
+  }
+
+  private void drain() {
+    int missedDrains = 1;
+    do {
+      try {
+        if (hasReceivedPreviousTraces) {
+          deliverRequestedTraces();
+        }
+      } catch (RuntimeException exception) {
+        tracesToDeliver.clear();
+        onError(exception);
+      }
+      notifyError();
+      missedDrains = pendingDrains.addAndGet(-missedDrains);
+    } while (missedDrains != 0);
+  }
+
+  private void notifyError() {
+    Throwable throwable = error.get();
+    if (throwable == null || isErrorNotified) {
+      return;
+    }
+    isErrorNotified = true;
+    try {
+      traceSubscriber.onError(throwable);
+    } catch (RuntimeException ignored) {
+      // The subscription is already cancelled and there is nobody else to notify.
+    }
+  }
+
+  private void deliverRequestedTraces() {
+    long currentRequested = requested.get();
+    while (currentRequested > 0 && !isCancelled) {
+      int maxTraces = (int) Math.min(currentRequested, MAX_TRACES_PER_DRAIN);
+      int numberOfTraces = drainPreviousTraces(maxTraces);
+      if (numberOfTraces == 0) {
+        numberOfTraces = drainNewTraces(maxTraces);
+      }
+      if (numberOfTraces == 0) {
+        break;
+      }
+      for (Trace trace : tracesToDeliver) {
+        if (isCancelled) {
+          tracesToDeliver.clear();
+          return;
+        }
+        traceSubscriber.onNext(trace);
+      }
+      tracesToDeliver.clear();
+      currentRequested = consumeRequested(numberOfTraces);
+    }
+  }
+
+  /**
+   * Parses the lines read before the subscription the first time they are needed and moves up to
+   * maxTraces of them to the list of traces to deliver.
+   */
+  private int drainPreviousTraces(int maxTraces) {
+    if (previousHistory != null) {
+      previousTraces = previousHistory.getTraces(traceFilter);
+      previousHistory = null;
+    }
+    if (previousTraces == null) {
+      return 0;
+    }
+    int numberOfTraces = Math.min(maxTraces, previousTraces.size() - firstPreviousTrace);
+    tracesToDeliver.addAll(
+        previousTraces.subList(firstPreviousTrace, firstPreviousTrace + numberOfTraces));
+    firstPreviousTrace += numberOfTraces;
+    if (firstPreviousTrace == previousTraces.size()) {
+      previousTraces = null;
+    }
+    return numberOfTraces;
+  }
+
+  /**
+   * Moves up to maxTraces of the traces queued to the list of traces to deliver. If some traces
+   * were discarded because the queue was full, just the ones queued before them are moved and the
+   * subscriber is notified once all of them have been delivered.
+   */
+  private int drainNewTraces(int maxTraces) {
+    int tracesToDrain = maxTraces;
+    if (droppedTraces.get() > 0) {
+      long tracesQueuedBeforeTheGap = gapPosition.get() - traces.getNumberOfTracesDrained();
+      if (tracesQueuedBeforeTheGap <= 0) {
+        notifyDroppedTraces();
+      } else {
+        tracesToDrain = (int) Math.min(maxTraces, tracesQueuedBeforeTheGap);
+      }
+    }
+    return traces.drainTo(tracesToDeliver, tracesToDrain);
+  }
+
+  private void notifyDroppedTraces() {
+    gapPosition.set(NO_GAP);
+    long numberOfTraces = droppedTraces.getAndSet(0);
+    if (numberOfTraces > 0 && !isCancelled) {
+      traceSubscriber.onTracesDropped(numberOfTraces);
+    }
+  }
+
+  private long consumeRequested(int numberOfTraces) {
+    if (requested.get() == Long.MAX_VALUE) {
+      return Long.MAX_VALUE;
+    }
+    return requested.addAndGet(-numberOfTraces);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+/**
+ * Consumer of the traces read by SharedLogcat without using the UI thread. Traces are delivered
+ * using the Executor passed to SharedLogcat when the subscriber was registered and just after
+ * requesting them using the TraceSubscription received in onSubscribe.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public interface TraceSubscriber {
+
+  /**
+   * Invoked once when the subscriber is registered, before any trace is delivered. No trace is
+   * delivered until TraceSubscription.request is invoked.
+   *
+   * @param subscription the subscription used to request traces or cancel the subscription
+   */
+  void onSubscribe(TraceSubscription subscription);
+
+  /**
+   * Invoked for every trace requested from the Executor configured.
+   *
+   * @param trace the trace read
+   */
+  void onNext(Trace trace);
+
+  /**
+   * Invoked from the Executor configured when traces have been discarded because the subscriber
+   * was not requesting them fast enough and its queue was full. The notification is delivered
+   * just before the traces read after the discarded ones and does not consume any demand.
+   *
+   * @param numberOfTraces number of traces discarded since the previous notification
+   */
+  void onTracesDropped(long numberOfTraces);
+
+  /**
+   * Invoked once from the Executor configured when the subscription can't continue, like when
+   * zero or a negative number of traces is requested or when this subscriber throws an exception
+   * receiving a trace. The subscription is cancelled before the notification and no more traces
+   * are delivered after it.
+   *
+   * @param error the reason why the subscription was cancelled
+   */
+  void onError(Throwable error);
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+/**
+ * Link between a TraceSubscriber and SharedLogcat used to indicate how many traces the subscriber
+ * is able to process. Traces read while the subscriber has no pending demand are kept in a bounded
+ * queue and discarded once the queue is full, so a slow subscriber never blocks Logcat reading
+ * or other subscribers.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public interface TraceSubscription {
+
+  /**
+   * Adds the number of traces passed as argument to the number of traces the subscriber is able to
+   * process. Use Long.MAX_VALUE to receive every trace without requesting them again. Requesting
+   * zero or a negative number of traces cancels the subscription and notifies an
+   * IllegalArgumentException using TraceSubscriber.onError. This method can be invoked from any
+   * thread.
+   *
+   * @param numberOfTraces the number of traces to request
+   */
+  void request(long numberOfTraces);
+
+  /**
+   * Stops delivering traces to the subscriber and unregisters it from SharedLogcat. This method
+   * can be invoked from any thread.
+   */
+  void cancel();
+}
@@ -19,10 +19,11 @@ package com.github.pedrovgs.lynx.presenter;
 import android.support.annotation.CheckResult;
 
 import com.github.pedrovgs.lynx.LynxConfig;
+import com.github.pedrovgs.lynx.export.TraceExporter;
 import com.github.pedrovgs.lynx.model.Lynx;
 import com.github.pedrovgs.lynx.model.Trace;
 import com.github.pedrovgs.lynx.model.TraceLevel;
-import java.util.LinkedList;
+import java.io.File;
 import java.util.List;
 
 /**
@@ -30,22 +31,72 @@ import java.util.List;
  * responsibility is related to all the presentation logic to Lynx UI implementations. Lynx UI
  * implementations have to implement LynxPresenter.View interface.
  *
+ * If a directory to store the trace history and a max disk history size are configured, traces
+ * discarded from the buffer are stored on disk. Once the user scrolls to the first trace shown,
+ * older traces are read from the history and shown page by page. While the user is reading the
+ * history the number of traces shown is still limited by the max number of traces to show, new
+ * traces are not shown until the user scrolls to the last trace again.
+ *
+ * If a retention tier is configured and there is no disk history, the important traces discarded
+ * from the buffer are shown before the rest of traces. Changes in the retained traces are notified
+ * replacing every trace shown. With a disk history the traces discarded are stored just in the
+ * history, where the user finds them in order scrolling to the first trace shown.
+ *
+ * The user can jump to the first trace printed at or after a given time. If that trace is not
+ * shown, the traces around it are read from the buffer or the history and shown instead of the
+ * last traces, as if the user was reading the history.
+ *
+ * Traces are shared writing a snapshot of the traces stored to a file with the TraceExporter
+ * configured, the file is shared once it has been written in a background thread. The progress of
+ * the export is shown while the file is written and the export is cancelled if the user clicks
+ * the share button again or the presenter is paused.
+ *
  * @author Pedro Vicente Gomez Sanchez.
  */
 public class LynxPresenter implements Lynx.Listener {
 
   private static final int MIN_VISIBLE_POSITION_TO_ENABLE_AUTO_SCROLL = 3;
+  private static final int HISTORY_PAGE_SIZE = 250;
+  private static final String REGEXP_SPECIAL_CHARACTERS = "\\^$.|?*+()[]{}";
 
   private final Lynx lynx;
   private final View view;
   private final TraceBuffer traceBuffer;
+  private final File historyDirectory;
+  private final TraceExporter traceExporter;
+  private TraceHistory history;
+  private long maxDiskHistorySizeInBytes;
   private boolean isInitialized;
+  private int maxNumberOfTracesToShow;
+  private long maxBufferSizeInBytes;
+  private boolean isMemoryTrimmed;
+  private long sizeInBytesBeforeTrimming;
+  private long trimmedSizeInBytes;
+  private long firstTraceIdShown;
+  private long nextTraceIdShown;
+  private int numberOfTracesShown;
+  private int numberOfRetainedTracesShown;
+  private long firstRetainedTraceIdShown;
+  private boolean isShowingLastTraces = true;
+  private TraceExporter.Export export;
 
   public LynxPresenter(Lynx lynx, View view, int maxNumberOfTracesToShow) {
+    this(lynx, view, maxNumberOfTracesToShow, null);
+  }
+
+  public LynxPresenter(Lynx lynx, View view, int maxNumberOfTracesToShow, File historyDirectory) {
+    this(lynx, view, maxNumberOfTracesToShow, historyDirectory, null);
+  }
+
+  public LynxPresenter(Lynx lynx, View view, int maxNumberOfTracesToShow, File historyDirectory,
+      TraceExporter traceExporter) {
     validateNumberOfTracesConfiguration(maxNumberOfTracesToShow);
     this.lynx = lynx;
     this.view = view;
+    this.maxNumberOfTracesToShow = maxNumberOfTracesToShow;
     this.traceBuffer = new TraceBuffer(maxNumberOfTracesToShow);
+    this.historyDirectory = historyDirectory;
+    this.traceExporter = traceExporter;
   }
 
   /**
@@ -56,16 +107,90 @@ public class LynxPresenter implements Lynx.Listener {
    */
   public void setLynxConfig(LynxConfig lynxConfig) {
     validateLynxConfig(lynxConfig);
+    setMaxDiskHistorySize(lynxConfig.getMaxDiskHistorySizeInBytes());
     updateBufferConfig(lynxConfig);
     updateLynxConfig(lynxConfig);
   }
 
   /**
-   * Initializes presenter lifecycle if it wasn't initialized before.
+   * Configures the max number of bytes used to store the traces discarded from the buffer. Use
+   * zero to disable the disk history. The disk history is not used if there is no history
+   * directory configured.
+   *
+   * @param maxDiskHistorySizeInBytes the max disk history size in bytes
+   */
+  public void setMaxDiskHistorySize(long maxDiskHistorySizeInBytes) {
+    this.maxDiskHistorySizeInBytes = maxDiskHistorySizeInBytes;
+    if (historyDirectory == null) {
+      return;
+    }
+    boolean isHistoryEnabled = maxDiskHistorySizeInBytes > 0;
+    if (isHistoryEnabled && history == null) {
+      history = new TraceHistory(historyDirectory, maxDiskHistorySizeInBytes);
+      traceBuffer.setHistory(history);
+    } else if (isHistoryEnabled) {
+      history.setMaxSizeInBytes(maxDiskHistorySizeInBytes);
+    } else {
+      closeHistory();
+    }
+  }
+
+  /**
+   * Reduces the max size in bytes of the traces kept in memory to the fraction passed as argument
+   * of the size the traces had when the memory pressure began, discarding the oldest traces. Invoke
+   * this method when the system notifies memory pressure. Invoking it again with the same fraction
+   * doesn't discard more traces. Passing one as argument restores the max size configured, as
+   * restoreMemory does.
+   *
+   * @param fractionToKeep the fraction of the size before trimming to keep, between zero and one
+   */
+  public void trimMemory(float fractionToKeep) {
+    if (fractionToKeep < 0 || fractionToKeep > 1) {
+      throw new IllegalArgumentException("The fraction to keep has to be between zero and one.");
+    }
+    if (fractionToKeep == 1) {
+      restoreMemory();
+      return;
+    }
+    if (!isMemoryTrimmed) {
+      isMemoryTrimmed = true;
+      sizeInBytesBeforeTrimming = traceBuffer.getCurrentSizeInBytes();
+      trimmedSizeInBytes = 0;
+    }
+    long sizeInBytes = Math.max(1, (long) (sizeInBytesBeforeTrimming * fractionToKeep));
+    if (sizeInBytes != trimmedSizeInBytes) {
+      trimmedSizeInBytes = sizeInBytes;
+      traceBuffer.setMaxSizeInBytes(sizeInBytes);
+      refreshTraces();
+    }
+  }
+
+  /**
+   * Restores the max size in bytes of the traces kept in memory reduced by trimMemory. Invoke this
+   * method once the memory pressure ends. The max size configured is also restored once the
+   * presenter is resumed again or a new LynxConfig is set.
+   */
+  public void restoreMemory() {
+    if (isMemoryTrimmed) {
+      isMemoryTrimmed = false;
+      traceBuffer.setMaxSizeInBytes(maxBufferSizeInBytes);
+    }
+  }
+
+  /**
+   * Initializes presenter lifecycle if it wasn't initialized before. Traces shown before a pause
+   * are discarded because Lynx notifies the traces already read again once it starts reading.
    */
   public void resume() {
     if (!isInitialized) {
       isInitialized = true;
+      restoreMemory();
+      if (history == null) {
+        setMaxDiskHistorySize(maxDiskHistorySizeInBytes);
+      }
+      if (traceBuffer.getCurrentNumberOfTraces() > 0) {
+        clearView();
+      }
       lynx.registerListener(this);
       lynx.startReading();
     }
@@ -75,6 +200,7 @@ public class LynxPresenter implements Lynx.Listener {
    * Stops presenter lifecycle if it was previously initialized.
    */
   public void pause() {
+    cancelExport();
     if (isInitialized) {
       isInitialized = false;
       lynx.stopReading();
@@ -83,49 +209,155 @@ public class LynxPresenter implements Lynx.Listener {
   }
 
   /**
-   * Given a list of Trace objects to show, updates the buffer of traces and refresh the view.
+   * Pauses the presenter and releases the disk history and the files exported before the last
+   * one. Invoke this method once the view is not going to be shown anymore. The disk history is
+   * created again if the presenter is resumed later.
+   */
+  public void close() {
+    pause();
+    closeHistory();
+    if (traceExporter != null) {
+      traceExporter.close();
+    }
+  }
+
+  /**
+   * Given a list of Trace objects to show, updates the buffer of traces and notifies the view with
+   * the traces appended and the number of traces discarded from the beginning of the traces shown.
+   * If the user is reading the history the view is not updated.
    */
   @Override public void onNewTraces(List<Trace> traces) {
-    int tracesRemoved = updateTraceBuffer(traces);
-    List<Trace> tracesToNotify = getCurrentTraces();
-    view.showTraces(tracesToNotify, tracesRemoved);
+    if (traces.isEmpty()) {
+      return;
+    }
+    long previousNextTraceId = traceBuffer.getNextSequenceNumber();
+    updateTraceBuffer(traces);
+    if (!isShowingLastTraces) {
+      return;
+    }
+    if (haveRetainedTracesChanged()) {
+      refreshTraces();
+      return;
+    }
+    long nextTraceId = traceBuffer.getNextSequenceNumber();
+    long firstNewTraceId = Math.max(previousNextTraceId,
+        traceBuffer.skipTraces(nextTraceId, -maxNumberOfTracesToShow));
+    List<Trace> newTraces =
+        traceBuffer.getTraces(firstNewTraceId, (int) (nextTraceId - firstNewTraceId));
+    showNewTraces(newTraces, firstNewTraceId, nextTraceId);
+  }
+
+  /**
+   * Shows the previous page of traces stored in the history if the first trace shown is not the
+   * oldest one. Traces at the end of the list are removed to keep the max number of traces shown.
+   */
+  public void onScrollToTop() {
+    int pageSize = Math.min(HISTORY_PAGE_SIZE, maxNumberOfTracesToShow);
+    long firstTraceIdToShow = traceBuffer.skipTraces(firstTraceIdShown, -pageSize);
+    int numberOfOlderTraces = traceBuffer.countTraces(firstTraceIdToShow, firstTraceIdShown);
+    if (numberOfOlderTraces == 0) {
+      return;
+    }
+    List<Trace> olderTraces = traceBuffer.getTraces(firstTraceIdToShow, numberOfOlderTraces);
+    int tracesRemoved =
+        Math.max(0, numberOfTracesShown + olderTraces.size() - maxNumberOfTracesToShow);
+    firstTraceIdShown = firstTraceIdToShow;
+    numberOfTracesShown += olderTraces.size() - tracesRemoved;
+    if (tracesRemoved > 0) {
+      nextTraceIdShown = traceBuffer.skipTraces(firstTraceIdShown, numberOfTracesShown);
+    }
+    isShowingLastTraces = isShowingLastTraces && tracesRemoved == 0;
+    view.disableAutoScroll();
+    view.prependTraces(olderTraces, tracesRemoved);
   }
 
   /**
-   * Updates the filter used to know which Trace objects we have to show in the UI.
+   * Updates the filter used to know which Trace objects we have to show in the UI. If every trace
+   * matching the new filter matches the previous one, the traces stored in the buffer not matching
+   * the new filter are discarded using the buffer full text index and Lynx doesn't need to be
+   * restarted. The history and the retained traces are kept. If not, traces are read again from
+   * Logcat.
    *
    * @param filter the filter to use
    */
   public void updateFilter(String filter) {
     if (isInitialized) {
       LynxConfig lynxConfig = lynx.getConfig();
+      String previousFilter = lynxConfig.getFilter();
       lynxConfig.setFilter(filter);
       lynx.setConfig(lynxConfig);
-      clearView();
-      restartLynx();
+      if (filter.isEmpty()) {
+        traceBuffer.releaseTextIndex();
+      }
+      if (isNarrowerFilter(filter, previousFilter)) {
+        traceBuffer.keepTracesMatching(filter);
+        refreshTraces();
+      } else {
+        clearView();
+        restartLynx();
+      }
     }
   }
 
+  /**
+   * Updates the min TraceLevel of the Trace objects to show in the UI. If the new TraceLevel is
+   * equal or higher than the previous one, the traces stored in the buffer with a lower TraceLevel
+   * are discarded using the buffer indexes and Lynx doesn't need to be restarted. The history and
+   * the retained traces are kept. If not, traces are read again from Logcat.
+   *
+   * @param level the min TraceLevel to show
+   */
   public void updateFilterTraceLevel(TraceLevel level) {
     if (isInitialized) {
-      clearView();
       LynxConfig lynxConfig = lynx.getConfig();
+      TraceLevel previousLevel = lynxConfig.getFilterTraceLevel();
       lynxConfig.setFilterTraceLevel(level);
       lynx.setConfig(lynxConfig);
-      restartLynx();
+      if (level.ordinal() >= previousLevel.ordinal()) {
+        traceBuffer.keepTracesMatching(level);
+        refreshTraces();
+      } else {
+        clearView();
+        restartLynx();
+      }
     }
   }
 
   /**
-   * Generates a plain representation of all the Trace objects this presenter has stored and share
-   * them to other applications.
+   * Exports a snapshot of all the Trace objects this presenter has stored to a file in a
+   * background thread and shares the file with other applications. If the traces are already
+   * being exported the export is cancelled.
    */
   public void onShareButtonClicked() {
-    List<Trace> tracesToShare = new LinkedList<Trace>(traceBuffer.getTraces());
-    String plainTraces = generatePlainTracesToShare(tracesToShare);
-    if (!view.shareTraces(plainTraces)) {
+    if (traceExporter == null) {
       view.notifyShareTracesFailed();
+      return;
+    }
+    if (export != null) {
+      cancelExport();
+      return;
     }
+    view.showExportProgress(0);
+    export = traceExporter.export(getCurrentTraces(), lynx.getConfig(),
+        new TraceExporter.Listener() {
+          @Override public void onExportProgress(int percentage) {
+            view.showExportProgress(percentage);
+          }
+
+          @Override public void onTracesExported(File file) {
+            export = null;
+            view.hideExportProgress();
+            if (!view.shareTraces(file)) {
+              view.notifyShareTracesFailed();
+            }
+          }
+
+          @Override public void onExportFailed() {
+            export = null;
+            view.hideExportProgress();
+            view.notifyShareTracesFailed();
+          }
+        });
   }
 
   /**
@@ -136,6 +368,9 @@ public class LynxPresenter implements Lynx.Listener {
    * @param lastVisiblePositionInTheList the index of the last visible position
    */
   public void onScrollToPosition(int lastVisiblePositionInTheList) {
+    if (!isShowingLastTraces && lastVisiblePositionInTheList >= numberOfTracesShown) {
+      showNextHistoryTraces();
+    }
     if (shouldDisableAutoScroll(lastVisiblePositionInTheList)) {
       view.disableAutoScroll();
     } else {
@@ -144,30 +379,183 @@ public class LynxPresenter implements Lynx.Listener {
   }
 
   /**
-   * Returns a list of the current traces stored in this presenter.
+   * Scrolls to the first trace printed at or after the time passed as argument, showing the traces
+   * around it if the trace is not shown. The time can be a Logcat date like "02-07 17:45:33.014"
+   * or a time like "17:45", "17:45:33" or "17:45:33.014" of the same day than the last trace
+   * stored. If every trace was printed before the time the last trace is shown.
+   *
+   * @param time the time to jump to
+   * @return false if the time has an invalid format or there are no traces stored
+   */
+  public boolean onJumpToTime(String time) {
+    long lastTraceId = traceBuffer.skipTraces(traceBuffer.getNextSequenceNumber(), -1);
+    List<Trace> lastTraces = traceBuffer.getTraces(lastTraceId, 1);
+    if (lastTraces.isEmpty()) {
+      return false;
+    }
+    long timestamp = TimestampIndex.parseTime(time, lastTraces.get(0).getTimestamp());
+    if (timestamp == Trace.NO_TIMESTAMP) {
+      return false;
+    }
+    long traceId = Math.min(lastTraceId, traceBuffer.findSequenceNumber(timestamp));
+    boolean isTraceShown = traceId >= firstTraceIdShown && traceId < nextTraceIdShown;
+    if (!isTraceShown) {
+      showTracesAround(traceId);
+    }
+    view.disableAutoScroll();
+    Trace trace = traceBuffer.getTraces(traceId, 1).get(0);
+    if (trace.hasId()) {
+      view.scrollToTrace(trace.getId());
+    }
+    return true;
+  }
+
+  /**
+   * Returns an immutable snapshot of the current traces stored in this presenter. The snapshot is
+   * obtained in constant time without copying the traces and can be read from any thread.
    *
-   * @return a list of the current traces
+   * @return an immutable list of the current traces
    */
   public List<Trace> getCurrentTraces() {
-    return traceBuffer.getTraces();
+    return traceBuffer.getSnapshot();
+  }
+
+  /**
+   * Returns the estimated size in bytes of the current traces stored in this presenter.
+   *
+   * @return the estimated size in bytes of the current traces
+   */
+  public long getCurrentTracesSizeInBytes() {
+    return traceBuffer.getCurrentSizeInBytes();
+  }
+
+  /**
+   * Appends the new traces to the traces shown removing the traces exceeding the max number of
+   * traces to show and the traces already discarded from the buffer and the history.
+   */
+  private void showNewTraces(List<Trace> newTraces, long firstNewTraceId, long nextNewTraceId) {
+    long firstTraceIdToShow = traceBuffer.skipTraces(nextNewTraceId, -maxNumberOfTracesToShow);
+    int tracesRemoved = numberOfTracesShown;
+    if (nextTraceIdShown == firstNewTraceId) {
+      int tracesKept = traceBuffer.countTraces(Math.max(firstTraceIdShown, firstTraceIdToShow),
+          nextTraceIdShown);
+      tracesRemoved = numberOfTracesShown - Math.min(numberOfTracesShown, tracesKept);
+    }
+    if (tracesRemoved > 0 && numberOfRetainedTracesShown > 0) {
+      // Traces removed are not at the beginning of the list, they are after the retained ones.
+      refreshTraces();
+      return;
+    }
+    firstTraceIdShown = tracesRemoved == numberOfTracesShown ? firstNewTraceId
+        : Math.max(firstTraceIdShown, firstTraceIdToShow);
+    numberOfTracesShown += newTraces.size() - tracesRemoved;
+    nextTraceIdShown = nextNewTraceId;
+    view.appendTraces(newTraces, tracesRemoved);
+  }
+
+  private void showNextHistoryTraces() {
+    if (nextTraceIdShown < traceBuffer.getOldestSequenceNumber()) {
+      refreshTraces();
+      return;
+    }
+    List<Trace> newTraces = traceBuffer.getTraces(nextTraceIdShown, HISTORY_PAGE_SIZE);
+    showNewTraces(newTraces, nextTraceIdShown,
+        traceBuffer.skipTraces(nextTraceIdShown, newTraces.size()));
+    isShowingLastTraces = nextTraceIdShown == traceBuffer.getNextSequenceNumber();
+    if (isShowingLastTraces && traceBuffer.getNumberOfRetainedTraces() > 0) {
+      refreshTraces();
+    }
+  }
+
+  /**
+   * Replaces the traces shown with the traces stored around the trace passed as argument. The
+   * traces shown are not the last ones anymore, new traces are not shown until the user scrolls
+   * to the last trace shown.
+   */
+  private void showTracesAround(long traceId) {
+    long firstTraceIdToShow = traceBuffer.skipTraces(traceId, -maxNumberOfTracesToShow / 2);
+    List<Trace> traces = traceBuffer.getTraces(firstTraceIdToShow, maxNumberOfTracesToShow);
+    firstTraceIdShown = firstTraceIdToShow;
+    nextTraceIdShown = traceBuffer.skipTraces(firstTraceIdToShow, traces.size());
+    numberOfTracesShown = traces.size();
+    numberOfRetainedTracesShown = 0;
+    isShowingLastTraces = false;
+    view.showTraces(traces);
+  }
+
+  /**
+   * Returns true if every trace matching the filter matches the previous filter too. This is
+   * known just if there was no previous filter or both filters are plain texts and the filter
+   * contains the previous one.
+   */
+  private boolean isNarrowerFilter(String filter, String previousFilter) {
+    if (previousFilter.isEmpty()) {
+      return true;
+    }
+    return isPlainText(filter) && isPlainText(previousFilter)
+        && filter.toLowerCase().contains(previousFilter.toLowerCase());
+  }
+
+  private boolean isPlainText(String filter) {
+    for (int i = 0; i < filter.length(); i++) {
+      if (REGEXP_SPECIAL_CHARACTERS.indexOf(filter.charAt(i)) != -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean haveRetainedTracesChanged() {
+    int numberOfRetainedTraces = traceBuffer.getNumberOfRetainedTraces();
+    if (numberOfRetainedTraces != numberOfRetainedTracesShown) {
+      return true;
+    }
+    return numberOfRetainedTraces > 0
+        && traceBuffer.getSequenceNumber(0) != firstRetainedTraceIdShown;
   }
 
   private void clearView() {
     traceBuffer.clear();
+    resetTracesShown();
     view.clear();
   }
 
+  private void resetTracesShown() {
+    firstTraceIdShown = traceBuffer.getFirstSequenceNumber();
+    nextTraceIdShown = traceBuffer.getNextSequenceNumber();
+    numberOfTracesShown = traceBuffer.getCurrentNumberOfTraces();
+    numberOfRetainedTracesShown = traceBuffer.getNumberOfRetainedTraces();
+    firstRetainedTraceIdShown =
+        numberOfRetainedTracesShown > 0 ? traceBuffer.getSequenceNumber(0) : 0;
+    isShowingLastTraces = true;
+  }
+
   private void restartLynx() {
     lynx.restart();
   }
 
   private void updateBufferConfig(LynxConfig lynxConfig) {
-    traceBuffer.setBufferSize(lynxConfig.getMaxNumberOfTracesToShow());
+    maxNumberOfTracesToShow = lynxConfig.getMaxNumberOfTracesToShow();
+    maxBufferSizeInBytes = lynxConfig.getMaxBufferSizeInBytes();
+    isMemoryTrimmed = false;
+    traceBuffer.setBufferSize(maxNumberOfTracesToShow);
+    traceBuffer.setMaxSizeInBytes(maxBufferSizeInBytes);
+    traceBuffer.setRetentionPolicy(lynxConfig.getRetainedTraceLevel(),
+        lynxConfig.getMaxNumberOfRetainedTraces());
     refreshTraces();
   }
 
+  private void closeHistory() {
+    if (history != null) {
+      traceBuffer.setHistory(null);
+      history.close();
+      history = null;
+    }
+  }
+
   private void refreshTraces() {
-    onNewTraces(traceBuffer.getTraces());
+    resetTracesShown();
+    view.showTraces(traceBuffer.getTraces());
   }
 
   private void updateLynxConfig(LynxConfig lynxConfig) {
@@ -192,36 +580,69 @@ public class LynxPresenter implements Lynx.Listener {
     }
   }
 
-  private boolean shouldDisableAutoScroll(int lastVisiblePosition) {
-    int positionOffset = traceBuffer.getCurrentNumberOfTraces() - lastVisiblePosition;
-    return positionOffset >= MIN_VISIBLE_POSITION_TO_ENABLE_AUTO_SCROLL;
+  private void cancelExport() {
+    if (export != null) {
+      export.cancel();
+      export = null;
+      view.hideExportProgress();
+    }
   }
 
-  private String generatePlainTracesToShare(List<Trace> tracesToShare) {
-    StringBuilder sb = new StringBuilder();
-    for (Trace trace : tracesToShare) {
-      String traceLevel = trace.getLevel().getValue();
-      String traceMessage = trace.getMessage();
-      sb.append(traceLevel);
-      sb.append("/ ");
-      sb.append(traceMessage);
-      sb.append("\n");
-    }
-    return sb.toString();
+  private boolean shouldDisableAutoScroll(int lastVisiblePosition) {
+    int positionOffset = numberOfRetainedTracesShown + numberOfTracesShown - lastVisiblePosition;
+    return !isShowingLastTraces || positionOffset >= MIN_VISIBLE_POSITION_TO_ENABLE_AUTO_SCROLL;
   }
 
+  /**
+   * Lynx UI implementations contract. Traces are identified by the id returned by Trace.getId,
+   * assigned when the trace is read from Logcat. The ids of the traces shown are increasing, the
+   * retained traces are older than the rest of traces and are shown before them.
+   */
   public interface View {
 
-    void showTraces(List<Trace> traces, int removedTraces);
+    /**
+     * Replaces the traces shown with the list passed as argument. The list is a view of the
+     * presenter buffer and has to be copied if the implementation needs to keep it.
+     */
+    void showTraces(List<Trace> traces);
+
+    /**
+     * Removes the number of traces passed as argument from the beginning of the traces shown and
+     * appends the new traces at the end.
+     */
+    void appendTraces(List<Trace> newTraces, int removedTraces);
+
+    /**
+     * Removes the number of traces passed as argument from the end of the traces shown and
+     * inserts the older traces at the beginning.
+     */
+    void prependTraces(List<Trace> olderTraces, int removedTraces);
 
     void clear();
 
-    @CheckResult boolean shareTraces(String plainTraces);
+    /**
+     * Shares the file passed as argument, containing the traces exported, with other
+     * applications.
+     */
+    @CheckResult boolean shareTraces(File tracesFile);
 
     void notifyShareTracesFailed();
 
+    /**
+     * Shows the percentage of traces already written to the file to share, from 0 to 100.
+     */
+    void showExportProgress(int percentage);
+
+    void hideExportProgress();
+
     void disableAutoScroll();
 
     void enableAutoScroll();
+
+    /**
+     * Scrolls to the trace shown with the id passed as argument, the id returned by Trace.getId.
+     * Nothing is done if there is no trace shown with this id.
+     */
+    void scrollToTrace(long traceId);
   }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.Arrays;
+
+/**
+ * Retention tier used by TraceBuffer to keep the important traces discarded from the buffer.
+ * Traces with a TraceLevel equal or higher than the configured one are stored together with their
+ * sequence number in a circular array, once the max number of traces is reached the oldest one is
+ * discarded.
+ *
+ * This class is not thread safe and has to be used from just one thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class RetainedTraces {
+
+  private TraceLevel traceLevel;
+  private Trace[] traces;
+  private long[] sequenceNumbers;
+  private int head;
+  private int size;
+
+  RetainedTraces() {
+    this.traceLevel = TraceLevel.WARNING;
+    this.traces = new Trace[0];
+    this.sequenceNumbers = new long[0];
+  }
+
+  /**
+   * Configures the min TraceLevel of the traces retained and the max number of traces to keep.
+   * The newest traces already retained matching the new configuration are kept.
+   */
+  void configure(TraceLevel traceLevel, int maxNumberOfTraces) {
+    if (traceLevel == this.traceLevel && maxNumberOfTraces == traces.length) {
+      return;
+    }
+    Trace[] previousTraces = traces;
+    long[] previousSequenceNumbers = sequenceNumbers;
+    int previousHead = head;
+    int previousSize = size;
+    this.traceLevel = traceLevel;
+    this.traces = new Trace[maxNumberOfTraces];
+    this.sequenceNumbers = new long[maxNumberOfTraces];
+    this.head = 0;
+    this.size = 0;
+    for (int i = 0; i < previousSize; i++) {
+      int index = (previousHead + i) % previousTraces.length;
+      add(previousTraces[index], previousSequenceNumbers[index]);
+    }
+  }
+
+  /**
+   * Returns true if the trace passed as argument has to be retained.
+   */
+  boolean shouldRetain(Trace trace) {
+    return traces.length > 0 && trace.getLevel().ordinal() >= traceLevel.ordinal();
+  }
+
+  /**
+   * Retains a trace if it matches the configured TraceLevel discarding the oldest trace retained
+   * if needed.
+   */
+  void add(Trace trace, long sequenceNumber) {
+    if (!shouldRetain(trace)) {
+      return;
+    }
+    int index = (head + size) % traces.length;
+    if (size == traces.length) {
+      head = (head + 1) % traces.length;
+    } else {
+      size++;
+    }
+    traces[index] = trace;
+    sequenceNumbers[index] = sequenceNumber;
+  }
+
+  Trace get(int position) {
+    return traces[(head + position) % traces.length];
+  }
+
+  long getSequenceNumber(int position) {
+    return sequenceNumbers[(head + position) % traces.length];
+  }
+
+  /**
+   * Returns a copy of the traces retained sorted by sequence number.
+   */
+  Trace[] toArray() {
+    Trace[] copy = new Trace[size];
+    for (int i = 0; i < size; i++) {
+      copy[i] = get(i);
+    }
+    return copy;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    Arrays.fill(traces, null);
+    head = 0;
+    size = 0;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+/**
+ * Sorted list of sequence numbers used by TraceBuffer to index the traces stored. Sequence numbers
+ * are stored as 32 bits offsets from a base sequence number in a growable circular array, so
+ * adding a sequence number at the end and removing the first one are constant time operations.
+ * Sequence numbers have to be added in ascending order.
+ *
+ * This class is not thread safe and has to be used from just one thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class SequenceIndex {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] offsets;
+  private int mask;
+  private int head;
+  private int size;
+  private long baseSequenceNumber;
+
+  SequenceIndex() {
+    this.offsets = new int[INITIAL_CAPACITY];
+    this.mask = INITIAL_CAPACITY - 1;
+  }
+
+  void add(long sequenceNumber) {
+    if (size == 0) {
+      head = 0;
+      baseSequenceNumber = sequenceNumber;
+    } else if (sequenceNumber - baseSequenceNumber > Integer.MAX_VALUE) {
+      rebase();
+    }
+    if (size == offsets.length) {
+      resize(offsets.length << 1);
+    }
+    offsets[(head + size) & mask] = (int) (sequenceNumber - baseSequenceNumber);
+    size++;
+  }
+
+  /**
+   * Removes the sequence numbers lower than the one passed as argument.
+   */
+  void removeUntil(long sequenceNumber) {
+    while (size > 0 && get(0) < sequenceNumber) {
+      head = (head + 1) & mask;
+      size--;
+    }
+  }
+
+  long get(int position) {
+    return baseSequenceNumber + offsets[(head + position) & mask];
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  private void rebase() {
+    long newBaseSequenceNumber = get(0);
+    int delta = (int) (newBaseSequenceNumber - baseSequenceNumber);
+    for (int i = 0; i < size; i++) {
+      offsets[(head + i) & mask] -= delta;
+    }
+    baseSequenceNumber = newBaseSequenceNumber;
+  }
+
+  private void resize(int capacity) {
+    int[] resizedOffsets = new int[capacity];
+    for (int i = 0; i < size; i++) {
+      resizedOffsets[i] = offsets[(head + i) & mask];
+    }
+    offsets = resizedOffsets;
+    mask = capacity - 1;
+    head = 0;
+  }
+}
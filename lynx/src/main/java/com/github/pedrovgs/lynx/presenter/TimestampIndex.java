@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import java.util.Locale;
+
+/**
+ * Sparse index used by TraceBuffer to find the first trace printed at or after a timestamp. Every
+ * SAMPLING_INTERVAL traces with timestamp a sample is stored with the sequence number of the trace
+ * and the max timestamp of the traces indexed until that trace. Logcat traces are not always
+ * sorted by timestamp, using the max timestamp keeps the samples sorted, so the samples are binary
+ * searched and just the traces between two consecutive samples have to be read to find a trace.
+ *
+ * Samples are stored in a growable circular array and the oldest ones are removed once the traces
+ * they index can't be read anymore.
+ *
+ * This class is not thread safe and has to be used from just one thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TimestampIndex {
+
+  static final int SAMPLING_INTERVAL = 64;
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int TIME_WITHOUT_SECONDS_LENGTH = "17:45".length();
+  private static final int TIME_WITHOUT_MILLIS_LENGTH = "17:45:33".length();
+  private static final int TIME_LENGTH = "17:45:33.014".length();
+  private static final int DATE_WITHOUT_MILLIS_LENGTH = "02-07 17:45:33".length();
+
+  private long[] sequenceNumbers;
+  private long[] timestamps;
+  private int mask;
+  private int head;
+  private int size;
+  private long maxTimestamp;
+
+  TimestampIndex() {
+    this.sequenceNumbers = new long[INITIAL_CAPACITY];
+    this.timestamps = new long[INITIAL_CAPACITY];
+    this.mask = INITIAL_CAPACITY - 1;
+    this.maxTimestamp = Trace.NO_TIMESTAMP;
+  }
+
+  /**
+   * Indexes the trace passed as argument. Traces have to be added in sequence number order.
+   */
+  void add(Trace trace, long sequenceNumber) {
+    if (!trace.hasTimestamp()) {
+      return;
+    }
+    maxTimestamp = Math.max(maxTimestamp, trace.getTimestamp());
+    if (size > 0 && sequenceNumber - getSequenceNumber(size - 1) < SAMPLING_INTERVAL) {
+      return;
+    }
+    if (size == sequenceNumbers.length) {
+      resize(sequenceNumbers.length << 1);
+    }
+    int index = (head + size) & mask;
+    sequenceNumbers[index] = sequenceNumber;
+    timestamps[index] = maxTimestamp;
+    size++;
+  }
+
+  /**
+   * Removes the samples not needed to find the traces with a sequence number equal or higher than
+   * the one passed as argument. The last sample before that sequence number is kept.
+   */
+  void removeUntil(long sequenceNumber) {
+    while (size > 1 && getSequenceNumber(1) <= sequenceNumber) {
+      head = (head + 1) & mask;
+      size--;
+    }
+  }
+
+  /**
+   * Returns the sequence number of the first trace that could have been printed at or after the
+   * timestamp passed as argument. Every trace indexed before the sequence number returned was
+   * printed before the timestamp. Long.MIN_VALUE is returned if every trace indexed could match.
+   */
+  long findFirstCandidate(long timestamp) {
+    int low = 0;
+    int high = size - 1;
+    int lastSampleBefore = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (timestamps[(head + middle) & mask] < timestamp) {
+        lastSampleBefore = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return lastSampleBefore == -1 ? Long.MIN_VALUE : getSequenceNumber(lastSampleBefore) + 1;
+  }
+
+  /**
+   * Parses a Logcat date like "02-07 17:45:33.014" or a time like "17:45", "17:45:33" or
+   * "17:45:33.014" and returns it as a timestamp. Times are considered to be in the same day than
+   * the reference timestamp passed as argument. Returns Trace.NO_TIMESTAMP if the text has an
+   * invalid format or the text is just a time and there is no reference timestamp.
+   */
+  static long parseTime(String time, long referenceTimestamp) {
+    String text = time.trim();
+    if (text.length() == TIME_WITHOUT_SECONDS_LENGTH) {
+      text += ":00";
+    }
+    if (text.length() == TIME_WITHOUT_MILLIS_LENGTH
+        || text.length() == DATE_WITHOUT_MILLIS_LENGTH) {
+      text += ".000";
+    }
+    if (text.length() == TIME_LENGTH) {
+      if (referenceTimestamp == Trace.NO_TIMESTAMP) {
+        return Trace.NO_TIMESTAMP;
+      }
+      long days = referenceTimestamp / Trace.MILLIS_PER_DAY;
+      text = String.format(Locale.US, "%02d-%02d ", days / Trace.DAYS_PER_MONTH + 1,
+          days % Trace.DAYS_PER_MONTH + 1) + text;
+    }
+    if (text.length() != Trace.TIMESTAMP_LENGTH) {
+      return Trace.NO_TIMESTAMP;
+    }
+    return Trace.parseTimestamp(text);
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    head = 0;
+    size = 0;
+    maxTimestamp = Trace.NO_TIMESTAMP;
+  }
+
+  private long getSequenceNumber(int position) {
+    return sequenceNumbers[(head + position) & mask];
+  }
+
+  private void resize(int capacity) {
+    long[] resizedSequenceNumbers = new long[capacity];
+    long[] resizedTimestamps = new long[capacity];
+    for (int i = 0; i < size; i++) {
+      resizedSequenceNumbers[i] = sequenceNumbers[(head + i) & mask];
+      resizedTimestamps[i] = timestamps[(head + i) & mask];
+    }
+    sequenceNumbers = resizedSequenceNumbers;
+    timestamps = resizedTimestamps;
+    mask = capacity - 1;
+    head = 0;
+  }
+}
@@ -17,22 +17,110 @@
 package com.github.pedrovgs.lynx.presenter;
 
 import com.github.pedrovgs.lynx.model.Trace;
-import java.util.LinkedList;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.RandomAccess;
 
 /**
  * Buffer created to keep a max number of traces and be able to configure the size of the buffer.
  *
+ * Traces are stored in consecutive slots of a preallocated circular array with a power of two
+ * capacity, so adding a trace, discarding the oldest traces and accessing a trace by position are
+ * constant time operations. Every trace added gets a sequence number that never changes while the
+ * trace is inside the buffer or the history and never is reused, even after clearing the buffer.
+ * The array is just reallocated when the buffer size configured is bigger than the current
+ * capacity.
+ *
+ * The traces stored can be narrowed to the ones matching a filter or a min TraceLevel without
+ * clearing the buffer. The traces kept are moved to the first slots keeping their sequence
+ * numbers, so the sequence numbers of the traces stored are increasing but not always consecutive.
+ * The sequence numbers are stored next to the traces and the slot of a trace is found in constant
+ * time while there are no gaps between the sequence numbers, or binary searched otherwise. Traces
+ * are counted and skipped using countTraces and skipTraces instead of subtracting sequence
+ * numbers.
+ *
+ * Besides the max number of traces, a max size in bytes can be configured. The size of every trace
+ * is estimated when the trace is added and the oldest traces are discarded while the estimated
+ * size of the traces stored exceeds the max size, keeping at least the last trace added.
+ *
+ * A retention tier can be configured to keep the traces with a TraceLevel equal or higher than a
+ * given one after discarding them from the buffer. The retained traces are older than the traces
+ * stored in the buffer, so the read only view of the traces returns the retained traces followed
+ * by the buffer traces, sorted by sequence number.
+ *
+ * If a TraceHistory is configured the traces discarded are appended to it and can be read again
+ * using the sequence number they had inside the buffer. The retention tier is not used while a
+ * history is configured, the history already keeps every trace discarded, so traces discarded are
+ * stored just once.
+ *
+ * Immutable snapshots of the traces can be obtained in constant time to read them from other
+ * threads. Snapshots share the array used by the buffer, the array is copied just before a trace
+ * referenced by a snapshot is overwritten.
+ *
+ * The sequence numbers of the traces stored are indexed by TraceLevel, tag and pid while traces
+ * are added and discarded. Traces matching a min TraceLevel, a tag and a pid are found iterating
+ * just the shortest index involved instead of every trace stored. A trigram index of the logcat
+ * lines is used to find the traces containing a text or matching a regular expression verifying
+ * just the traces containing the least frequent trigram of the text. The trigram index is built
+ * the first time a text is searched, so it costs nothing until a filter is used, is updated from
+ * then on and its estimated size is counted in the max size in bytes until it is released.
+ *
+ * A sparse timestamp index covering the traces stored and the history is updated too, so the
+ * first trace printed at or after a timestamp is found with a binary search and reading just the
+ * traces between two samples of the index.
+ *
+ * This class is not thread safe and has to be used from just one thread.
+ *
  * @author Pedro Vicente Gomez Sanchez.
  */
 class TraceBuffer {
 
+  private static final int TRACE_OVERHEAD_IN_BYTES = 64;
+  private static final int BYTES_PER_CHAR = 2;
+
   private int bufferSize;
-  private final List<Trace> traces;
+  private long maxSizeInBytes;
+  private long sizeInBytes;
+  private Trace[] traces;
+  private long[] sequenceNumbers;
+  private int mask;
+  private long firstSlot;
+  private long nextSlot;
+  private long nextSequenceNumber;
+  private final List<Trace> tracesView;
+  private TraceHistory history;
+  private final RetainedTraces retainedTraces;
+  private boolean isShared;
+  private long sharedFromSlot;
+  private final SequenceIndex[] levelIndexes;
+  private final Map<String, SequenceIndex> tagIndexes;
+  private final Map<Integer, SequenceIndex> pidIndexes;
+  private final TrigramIndex trigramIndex;
+  private final TimestampIndex timestampIndex;
+  private boolean isTextIndexBuilt;
 
   TraceBuffer(int bufferSize) {
     this.bufferSize = bufferSize;
-    traces = new LinkedList<Trace>();
+    this.traces = new Trace[calculateCapacity(bufferSize)];
+    this.sequenceNumbers = new long[traces.length];
+    this.mask = traces.length - 1;
+    this.tracesView = new TracesView();
+    this.retainedTraces = new RetainedTraces();
+    this.levelIndexes = new SequenceIndex[TraceLevel.values().length];
+    for (int i = 0; i < levelIndexes.length; i++) {
+      levelIndexes[i] = new SequenceIndex();
+    }
+    this.tagIndexes = new HashMap<String, SequenceIndex>();
+    this.pidIndexes = new HashMap<Integer, SequenceIndex>();
+    this.trigramIndex = new TrigramIndex();
+    this.timestampIndex = new TimestampIndex();
   }
 
   /**
@@ -40,37 +128,324 @@ class TraceBuffer {
    */
   void setBufferSize(int bufferSize) {
     this.bufferSize = bufferSize;
+    if (bufferSize > traces.length) {
+      resize(calculateCapacity(bufferSize));
+    }
     removeExceededTracesIfNeeded();
   }
 
+  /**
+   * Configures the max estimated size in bytes of the traces kept inside the buffer. Use zero to
+   * limit the buffer just by the number of traces.
+   */
+  void setMaxSizeInBytes(long maxSizeInBytes) {
+    this.maxSizeInBytes = maxSizeInBytes;
+    removeExceededTracesIfNeeded();
+  }
+
+  /**
+   * Configures the retention tier used to keep the traces discarded with a TraceLevel equal or
+   * higher than the one passed as argument. Use zero as max number of traces to disable it.
+   */
+  void setRetentionPolicy(TraceLevel retainedTraceLevel, int maxNumberOfRetainedTraces) {
+    retainedTraces.configure(retainedTraceLevel, maxNumberOfRetainedTraces);
+  }
+
+  /**
+   * Configures the history used to store the traces discarded instead of the retention tier. Use
+   * null to just discard them or keep them in the retention tier.
+   */
+  void setHistory(TraceHistory history) {
+    this.history = history;
+    if (history != null) {
+      history.reset(getFirstSequenceNumber());
+      retainedTraces.clear();
+    }
+  }
+
   /**
    * Adds a list of traces to the buffer, if the buffer is full your new traces will be added and
    * the previous one will be removed.
    */
   int add(List<Trace> traces) {
-    this.traces.addAll(traces);
-    return removeExceededTracesIfNeeded();
+    int tracesDiscarded = 0;
+    for (Trace trace : traces) {
+      // Traces have to be discarded before their positions are reused.
+      if (getCurrentNumberOfTraces() == bufferSize) {
+        discardTraces(1);
+        tracesDiscarded++;
+      }
+      unshareIfNeeded(nextSlot - this.traces.length);
+      int index = (int) (nextSlot & mask);
+      this.traces[index] = trace;
+      sequenceNumbers[index] = nextSequenceNumber;
+      sizeInBytes += estimateSizeInBytes(trace);
+      addToIndexes(trace, nextSequenceNumber);
+      timestampIndex.add(trace, nextSequenceNumber);
+      nextSlot++;
+      nextSequenceNumber++;
+    }
+    return tracesDiscarded + removeExceededTracesIfNeeded();
   }
 
   /**
-   * Returns the current list of traces stored in the buffer.
+   * Returns a read only view of the traces retained and the traces stored in the buffer. The view
+   * supports constant time random access and reflects later changes in the buffer.
    */
   List<Trace> getTraces() {
+    return tracesView;
+  }
+
+  /**
+   * Returns an immutable snapshot of the traces retained and the traces stored in the buffer.
+   * Later changes in the buffer are not reflected in the snapshot.
+   */
+  List<Trace> getSnapshot() {
+    if (!isShared) {
+      isShared = true;
+      sharedFromSlot = firstSlot;
+    }
+    return new TraceSnapshot(retainedTraces.toArray(), traces, firstSlot,
+        getCurrentNumberOfTraces());
+  }
+
+  /**
+   * Returns the sequence number of the trace stored in the position passed as argument.
+   */
+  long getSequenceNumber(int position) {
+    checkPosition(position);
+    int numberOfRetainedTraces = retainedTraces.size();
+    if (position < numberOfRetainedTraces) {
+      return retainedTraces.getSequenceNumber(position);
+    }
+    return sequenceNumbers[(int) ((firstSlot + position - numberOfRetainedTraces) & mask)];
+  }
+
+  /**
+   * Returns the sequence number of the oldest trace stored in the buffer. If the buffer is empty
+   * the sequence number the next trace added will have is returned.
+   */
+  long getFirstSequenceNumber() {
+    return firstSlot == nextSlot ? nextSequenceNumber : sequenceNumbers[(int) (firstSlot & mask)];
+  }
+
+  /**
+   * Returns the sequence number of the oldest trace that can be read from the buffer or the
+   * history configured.
+   */
+  long getOldestSequenceNumber() {
+    return history != null ? history.getFirstSequenceNumber() : getFirstSequenceNumber();
+  }
+
+  /**
+   * Returns the sequence number the next trace added will have.
+   */
+  long getNextSequenceNumber() {
+    return nextSequenceNumber;
+  }
+
+  /**
+   * Returns up to maxTraces traces starting from the first trace with a sequence number equal or
+   * higher than the one passed as argument, reading from the history configured the traces already
+   * discarded.
+   */
+  List<Trace> getTraces(long fromSequenceNumber, int maxTraces) {
+    List<Trace> traces = new ArrayList<Trace>(maxTraces);
+    if (history != null && fromSequenceNumber < getFirstSequenceNumber()) {
+      traces.addAll(history.read(fromSequenceNumber, maxTraces));
+    }
+    for (long slot = findSlot(fromSequenceNumber); traces.size() < maxTraces && slot < nextSlot;
+        slot++) {
+      traces.add(this.traces[(int) (slot & mask)]);
+    }
     return traces;
   }
 
+  /**
+   * Returns the number of traces stored in the buffer or the history with a sequence number equal
+   * or higher than fromSequenceNumber and lower than toSequenceNumber.
+   */
+  int countTraces(long fromSequenceNumber, long toSequenceNumber) {
+    long firstSequenceNumber = getFirstSequenceNumber();
+    int numberOfTraces = 0;
+    if (history != null && fromSequenceNumber < firstSequenceNumber) {
+      numberOfTraces +=
+          history.countTraces(fromSequenceNumber, Math.min(toSequenceNumber, firstSequenceNumber));
+    }
+    if (toSequenceNumber > fromSequenceNumber) {
+      numberOfTraces += (int) (findSlot(toSequenceNumber) - findSlot(fromSequenceNumber));
+    }
+    return numberOfTraces;
+  }
+
+  /**
+   * Returns the sequence number of the trace stored in the buffer or the history the number of
+   * traces passed as argument after the first trace with a sequence number equal or higher than
+   * the one passed as argument, or before it if the number of traces is negative. If there are
+   * not enough traces the sequence number the next trace added will have or the oldest sequence
+   * number is returned.
+   */
+  long skipTraces(long sequenceNumber, int numberOfTraces) {
+    long firstSequenceNumber = getFirstSequenceNumber();
+    if (history != null && sequenceNumber < firstSequenceNumber) {
+      int numberOfHistoryTraces = history.countTraces(sequenceNumber, firstSequenceNumber);
+      if (numberOfTraces < numberOfHistoryTraces) {
+        return history.skipTraces(sequenceNumber, numberOfTraces);
+      }
+      numberOfTraces -= numberOfHistoryTraces;
+      sequenceNumber = firstSequenceNumber;
+    }
+    long slot = findSlot(sequenceNumber) + numberOfTraces;
+    if (slot >= nextSlot) {
+      return nextSequenceNumber;
+    } else if (slot >= firstSlot) {
+      return sequenceNumbers[(int) (slot & mask)];
+    } else if (history == null) {
+      return firstSequenceNumber;
+    }
+    return history.skipTraces(firstSequenceNumber, (int) (slot - firstSlot));
+  }
+
+  /**
+   * Returns the sequence number of the first trace stored in the buffer or the history printed at
+   * or after the timestamp passed as argument. Retained traces are not considered. If every trace
+   * was printed before the timestamp the sequence number the next trace added will have is
+   * returned.
+   */
+  long findSequenceNumber(long timestamp) {
+    long oldestSequenceNumber = getOldestSequenceNumber();
+    timestampIndex.removeUntil(oldestSequenceNumber);
+    long sequenceNumber =
+        Math.max(oldestSequenceNumber, timestampIndex.findFirstCandidate(timestamp));
+    while (sequenceNumber < nextSequenceNumber) {
+      List<Trace> candidates = getTraces(sequenceNumber, TimestampIndex.SAMPLING_INTERVAL);
+      if (candidates.isEmpty()) {
+        break;
+      }
+      for (int i = 0; i < candidates.size(); i++) {
+        if (candidates.get(i).getTimestamp() >= timestamp) {
+          return skipTraces(sequenceNumber, i);
+        }
+      }
+      sequenceNumber = skipTraces(sequenceNumber, candidates.size());
+    }
+    return nextSequenceNumber;
+  }
+
+  /**
+   * Returns the traces retained and stored in the buffer with a TraceLevel equal or higher than
+   * the one passed as argument, the tag passed as argument and the pid passed as argument, sorted
+   * by sequence number. Use a null tag or Trace.NO_PID to match any tag or pid. Traces stored in
+   * the buffer are found iterating the shortest index involved, so the time needed depends on the
+   * size of that index instead of the number of traces stored.
+   */
+  List<Trace> findTraces(TraceLevel minTraceLevel, String tag, int pid) {
+    List<Trace> matchingTraces = new ArrayList<Trace>();
+    for (int i = 0; i < retainedTraces.size(); i++) {
+      Trace trace = retainedTraces.get(i);
+      if (matches(trace, minTraceLevel, tag, pid)) {
+        matchingTraces.add(trace);
+      }
+    }
+    addTraces(findSequenceNumbers(minTraceLevel, tag, pid), matchingTraces);
+    return matchingTraces;
+  }
+
+  /**
+   * Returns the traces retained and stored in the buffer containing the filter passed as argument
+   * or matching it as regular expression, ignoring case, sorted by sequence number. The traces
+   * stored in the buffer are verified just if they contain the least frequent trigram of the text
+   * every trace matching the filter has to contain. Traces are matched using the logcat line they
+   * were read from, the same text used by Lynx to filter the traces read.
+   */
+  List<Trace> findTraces(String filter) {
+    String lowerCaseFilter = filter.toLowerCase();
+    Pattern regexpFilter = compileRegexpFilter(lowerCaseFilter);
+    List<Trace> matchingTraces = new ArrayList<Trace>();
+    for (int i = 0; i < retainedTraces.size(); i++) {
+      Trace trace = retainedTraces.get(i);
+      if (matches(trace, lowerCaseFilter, regexpFilter)) {
+        matchingTraces.add(trace);
+      }
+    }
+    addTraces(findSequenceNumbers(lowerCaseFilter, regexpFilter), matchingTraces);
+    return matchingTraces;
+  }
+
+  /**
+   * Discards the traces stored in the buffer with a TraceLevel lower than the one passed as
+   * argument. The traces kept don't change their sequence numbers and the traces retained and
+   * stored in the history are not discarded, so the history can still be read.
+   */
+  void keepTracesMatching(TraceLevel minTraceLevel) {
+    keepTraces(findSequenceNumbers(minTraceLevel, null, Trace.NO_PID));
+  }
+
+  /**
+   * Discards the traces stored in the buffer not containing the filter passed as argument or not
+   * matching it as regular expression, ignoring case. The traces kept don't change their sequence
+   * numbers and the traces retained and stored in the history are not discarded, so the history
+   * can still be read.
+   */
+  void keepTracesMatching(String filter) {
+    String lowerCaseFilter = filter.toLowerCase();
+    keepTraces(findSequenceNumbers(lowerCaseFilter, compileRegexpFilter(lowerCaseFilter)));
+  }
+
+  /**
+   * Releases the trigram index used to find the traces containing a text until a text is searched
+   * again.
+   */
+  void releaseTextIndex() {
+    if (isTextIndexBuilt) {
+      for (int i = 0; i < getCurrentNumberOfTraces(); i++) {
+        sizeInBytes -= TrigramIndex.estimateSizeInBytes(getTraceAt(i));
+      }
+      isTextIndexBuilt = false;
+      trigramIndex.clear();
+    }
+  }
+
   /**
    * Returns the number of traes stored in the buffer.
    */
   public int getCurrentNumberOfTraces() {
-    return traces.size();
+    return (int) (nextSlot - firstSlot);
+  }
+
+  /**
+   * Returns the number of traces kept by the retention tier after discarding them.
+   */
+  int getNumberOfRetainedTraces() {
+    return retainedTraces.size();
+  }
+
+  /**
+   * Returns the estimated size in bytes of the traces stored in the buffer and the trigram index
+   * if it is built.
+   */
+  long getCurrentSizeInBytes() {
+    return sizeInBytes;
   }
 
   /**
    * Removes traces stored in the buffer.
    */
   public void clear() {
-    traces.clear();
+    if (isShared) {
+      traces = new Trace[traces.length];
+      isShared = false;
+    } else {
+      Arrays.fill(traces, null);
+    }
+    firstSlot = nextSlot;
+    sizeInBytes = 0;
+    clearIndexes();
+    timestampIndex.clear();
+    retainedTraces.clear();
+    if (history != null) {
+      history.reset(nextSequenceNumber);
+    }
   }
 
   private int removeExceededTracesIfNeeded() {
@@ -82,15 +457,363 @@ class TraceBuffer {
   }
 
   private int getNumberOfTracesToDiscard() {
-    int currentTracesSize = this.traces.size();
+    int currentTracesSize = getCurrentNumberOfTraces();
     int tracesToDiscard = currentTracesSize - bufferSize;
     tracesToDiscard = tracesToDiscard < 0 ? 0 : tracesToDiscard;
+    if (maxSizeInBytes > 0) {
+      long sizeInBytesAfterDiscarding = sizeInBytes;
+      for (int i = 0; i < tracesToDiscard; i++) {
+        sizeInBytesAfterDiscarding -= estimateSizeInBytes(getTraceAt(i));
+      }
+      while (sizeInBytesAfterDiscarding > maxSizeInBytes
+          && tracesToDiscard < currentTracesSize - 1) {
+        sizeInBytesAfterDiscarding -= estimateSizeInBytes(getTraceAt(tracesToDiscard));
+        tracesToDiscard++;
+      }
+    }
     return tracesToDiscard;
   }
 
   private void discardTraces(int tracesToDiscard) {
+    // Discarded positions are released to not retain the traces until they are reused, unless a
+    // snapshot is still using them.
     for (int i = 0; i < tracesToDiscard; i++) {
-      traces.remove(0);
+      int index = (int) ((firstSlot + i) & mask);
+      Trace trace = traces[index];
+      long sequenceNumber = sequenceNumbers[index];
+      if (history != null) {
+        history.append(trace, sequenceNumber);
+      } else {
+        retainedTraces.add(trace, sequenceNumber);
+      }
+      sizeInBytes -= estimateSizeInBytes(trace);
+      removeFromIndexes(trace, sequenceNumber);
+      if (!isShared) {
+        traces[index] = null;
+      }
+    }
+    firstSlot += tracesToDiscard;
+    timestampIndex.removeUntil(getOldestSequenceNumber());
+  }
+
+  /**
+   * The trigram index is not built when the buffer is full, so the size of the buffer can exceed
+   * the max size in bytes until the next traces are added.
+   */
+  private void buildTextIndexIfNeeded() {
+    if (!isTextIndexBuilt) {
+      isTextIndexBuilt = true;
+      for (int i = 0; i < getCurrentNumberOfTraces(); i++) {
+        int index = (int) ((firstSlot + i) & mask);
+        trigramIndex.add(traces[index], sequenceNumbers[index]);
+        sizeInBytes += TrigramIndex.estimateSizeInBytes(traces[index]);
+      }
+    }
+  }
+
+  private void addToIndexes(Trace trace, long sequenceNumber) {
+    levelIndexes[trace.getLevel().ordinal()].add(sequenceNumber);
+    if (isTextIndexBuilt) {
+      trigramIndex.add(trace, sequenceNumber);
+    }
+    if (trace.hasTag()) {
+      SequenceIndex tagIndex = tagIndexes.get(trace.getTag());
+      if (tagIndex == null) {
+        tagIndex = new SequenceIndex();
+        tagIndexes.put(trace.getTag(), tagIndex);
+      }
+      tagIndex.add(sequenceNumber);
+    }
+    if (trace.getPid() != Trace.NO_PID) {
+      SequenceIndex pidIndex = pidIndexes.get(trace.getPid());
+      if (pidIndex == null) {
+        pidIndex = new SequenceIndex();
+        pidIndexes.put(trace.getPid(), pidIndex);
+      }
+      pidIndex.add(sequenceNumber);
+    }
+  }
+
+  /**
+   * Traces are discarded in order, so the sequence number of a discarded trace is always the
+   * first one of the indexes containing it.
+   */
+  private void removeFromIndexes(Trace trace, long sequenceNumber) {
+    levelIndexes[trace.getLevel().ordinal()].removeUntil(sequenceNumber + 1);
+    if (isTextIndexBuilt) {
+      trigramIndex.remove(trace, sequenceNumber);
+    }
+    if (trace.hasTag()) {
+      SequenceIndex tagIndex = tagIndexes.get(trace.getTag());
+      tagIndex.removeUntil(sequenceNumber + 1);
+      if (tagIndex.isEmpty()) {
+        tagIndexes.remove(trace.getTag());
+      }
+    }
+    if (trace.getPid() != Trace.NO_PID) {
+      SequenceIndex pidIndex = pidIndexes.get(trace.getPid());
+      pidIndex.removeUntil(sequenceNumber + 1);
+      if (pidIndex.isEmpty()) {
+        pidIndexes.remove(trace.getPid());
+      }
+    }
+  }
+
+  /**
+   * Returns the sequence numbers of the traces stored in the buffer matching the TraceLevel, the
+   * tag and the pid passed as argument iterating the shortest index involved, so the time needed
+   * depends on the size of that index instead of the number of traces stored.
+   */
+  private SequenceIndex findSequenceNumbers(TraceLevel minTraceLevel, String tag, int pid) {
+    SequenceIndex matchingSequenceNumbers = new SequenceIndex();
+    SequenceIndex tagIndex = tag != null ? tagIndexes.get(tag) : null;
+    SequenceIndex pidIndex = pid != Trace.NO_PID ? pidIndexes.get(pid) : null;
+    if ((tag != null && tagIndex == null) || (pid != Trace.NO_PID && pidIndex == null)) {
+      return matchingSequenceNumbers;
+    }
+    SequenceIndex shortestIndex = tagIndex;
+    if (pidIndex != null && (shortestIndex == null || pidIndex.size() < shortestIndex.size())) {
+      shortestIndex = pidIndex;
+    }
+    int numberOfTracesWithLevel = 0;
+    for (int i = minTraceLevel.ordinal(); i < levelIndexes.length; i++) {
+      numberOfTracesWithLevel += levelIndexes[i].size();
+    }
+    if (shortestIndex != null && shortestIndex.size() <= numberOfTracesWithLevel) {
+      addMatchingSequenceNumbers(shortestIndex, minTraceLevel, tag, pid, matchingSequenceNumbers);
+    } else {
+      addMatchingSequenceNumbersByLevel(minTraceLevel, tag, pid, matchingSequenceNumbers);
+    }
+    return matchingSequenceNumbers;
+  }
+
+  /**
+   * Returns the sequence numbers of the traces stored in the buffer matching the filter passed as
+   * argument. Just the traces containing the least frequent trigram of the text every trace
+   * matching the filter has to contain are verified.
+   */
+  private SequenceIndex findSequenceNumbers(String lowerCaseFilter, Pattern regexpFilter) {
+    SequenceIndex matchingSequenceNumbers = new SequenceIndex();
+    String requiredText =
+        regexpFilter != null ? TrigramIndex.getRequiredText(lowerCaseFilter) : lowerCaseFilter;
+    if (requiredText.length() >= TrigramIndex.TRIGRAM_LENGTH) {
+      buildTextIndexIfNeeded();
+    }
+    SequenceIndex candidates = isTextIndexBuilt ? trigramIndex.getCandidates(requiredText) : null;
+    int numberOfCandidates = candidates != null ? candidates.size() : getCurrentNumberOfTraces();
+    for (int i = 0; i < numberOfCandidates; i++) {
+      long slot = candidates != null ? findSlot(candidates.get(i)) : firstSlot + i;
+      int index = (int) (slot & mask);
+      if (matches(traces[index], lowerCaseFilter, regexpFilter)) {
+        matchingSequenceNumbers.add(sequenceNumbers[index]);
+      }
+    }
+    return matchingSequenceNumbers;
+  }
+
+  /**
+   * The timestamp index is not cleared, it covers the history too.
+   */
+  private void clearIndexes() {
+    for (SequenceIndex levelIndex : levelIndexes) {
+      levelIndex.removeUntil(nextSequenceNumber);
+    }
+    tagIndexes.clear();
+    pidIndexes.clear();
+    trigramIndex.clear();
+  }
+
+  /**
+   * Moves the traces with the sequence numbers passed as argument to the first slots of a new
+   * array and discards the rest of traces stored in the buffer. The indexes are built again, but
+   * the timestamp index is kept, the samples of the traces discarded are still valid because the
+   * traces are read again to find a timestamp.
+   */
+  private void keepTraces(SequenceIndex sequenceNumbersToKeep) {
+    int numberOfTraces = sequenceNumbersToKeep.size();
+    Trace[] keptTraces = new Trace[traces.length];
+    long[] keptSequenceNumbers = new long[traces.length];
+    for (int i = 0; i < numberOfTraces; i++) {
+      int index = (int) (findSlot(sequenceNumbersToKeep.get(i)) & mask);
+      int keptIndex = (int) ((firstSlot + i) & mask);
+      keptTraces[keptIndex] = traces[index];
+      keptSequenceNumbers[keptIndex] = sequenceNumbers[index];
+    }
+    traces = keptTraces;
+    sequenceNumbers = keptSequenceNumbers;
+    isShared = false;
+    nextSlot = firstSlot + numberOfTraces;
+    clearIndexes();
+    sizeInBytes = 0;
+    for (int i = 0; i < numberOfTraces; i++) {
+      int index = (int) ((firstSlot + i) & mask);
+      sizeInBytes += estimateSizeInBytes(traces[index]);
+      addToIndexes(traces[index], sequenceNumbers[index]);
+    }
+  }
+
+  /**
+   * Returns the slot of the first trace stored with a sequence number equal or higher than the one
+   * passed as argument, or the next slot if there is no trace. If there are no gaps between the
+   * sequence numbers of the traces stored the slot is calculated, if not, it's binary searched.
+   */
+  private long findSlot(long sequenceNumber) {
+    long firstSequenceNumber = getFirstSequenceNumber();
+    if (sequenceNumber <= firstSequenceNumber) {
+      return firstSlot;
+    } else if (sequenceNumber >= nextSequenceNumber) {
+      return nextSlot;
+    }
+    long slot = firstSlot + sequenceNumber - firstSequenceNumber;
+    if (slot < nextSlot && sequenceNumbers[(int) (slot & mask)] == sequenceNumber) {
+      return slot;
+    }
+    long low = firstSlot;
+    long high = nextSlot;
+    while (low < high) {
+      long middle = (low + high) >>> 1;
+      if (sequenceNumbers[(int) (middle & mask)] < sequenceNumber) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private void addTraces(SequenceIndex sequenceNumbers, List<Trace> traces) {
+    for (int i = 0; i < sequenceNumbers.size(); i++) {
+      traces.add(this.traces[(int) (findSlot(sequenceNumbers.get(i)) & mask)]);
+    }
+  }
+
+  private void addMatchingSequenceNumbers(SequenceIndex index, TraceLevel minTraceLevel,
+      String tag, int pid, SequenceIndex matchingSequenceNumbers) {
+    for (int i = 0; i < index.size(); i++) {
+      long sequenceNumber = index.get(i);
+      Trace trace = traces[(int) (findSlot(sequenceNumber) & mask)];
+      if (matches(trace, minTraceLevel, tag, pid)) {
+        matchingSequenceNumbers.add(sequenceNumber);
+      }
+    }
+  }
+
+  /**
+   * Merges the indexes of every TraceLevel equal or higher than the one passed as argument to
+   * iterate the traces matching the TraceLevel sorted by sequence number.
+   */
+  private void addMatchingSequenceNumbersByLevel(TraceLevel minTraceLevel, String tag, int pid,
+      SequenceIndex matchingSequenceNumbers) {
+    int firstLevel = minTraceLevel.ordinal();
+    int[] positions = new int[levelIndexes.length];
+    while (true) {
+      int nextLevel = -1;
+      long sequenceNumber = Long.MAX_VALUE;
+      for (int level = firstLevel; level < levelIndexes.length; level++) {
+        SequenceIndex levelIndex = levelIndexes[level];
+        if (positions[level] < levelIndex.size()
+            && levelIndex.get(positions[level]) < sequenceNumber) {
+          nextLevel = level;
+          sequenceNumber = levelIndex.get(positions[level]);
+        }
+      }
+      if (nextLevel == -1) {
+        return;
+      }
+      positions[nextLevel]++;
+      Trace trace = traces[(int) (findSlot(sequenceNumber) & mask)];
+      if (matches(trace, minTraceLevel, tag, pid)) {
+        matchingSequenceNumbers.add(sequenceNumber);
+      }
+    }
+  }
+
+  /**
+   * Traces match a filter following the same rules used by Lynx to filter the traces read.
+   */
+  private static boolean matches(Trace trace, String lowerCaseFilter, Pattern regexpFilter) {
+    String lowerCaseLine = trace.getLogcatLine().toLowerCase();
+    return lowerCaseLine.contains(lowerCaseFilter)
+        || (regexpFilter != null && regexpFilter.matcher(lowerCaseLine).find());
+  }
+
+  private static Pattern compileRegexpFilter(String lowerCaseFilter) {
+    try {
+      return Pattern.compile(lowerCaseFilter);
+    } catch (PatternSyntaxException exception) {
+      return null;
+    }
+  }
+
+  private static boolean matches(Trace trace, TraceLevel minTraceLevel, String tag, int pid) {
+    return trace.getLevel().ordinal() >= minTraceLevel.ordinal()
+        && (tag == null || tag.equals(trace.getTag()))
+        && (pid == Trace.NO_PID || pid == trace.getPid());
+  }
+
+  private Trace getTraceAt(int position) {
+    return traces[(int) ((firstSlot + position) & mask)];
+  }
+
+  /**
+   * Estimates the memory retained by a trace: the Trace and String objects plus the message
+   * characters and the trigram index entries if the index is built.
+   */
+  private long estimateSizeInBytes(Trace trace) {
+    long sizeInBytes =
+        TRACE_OVERHEAD_IN_BYTES + (long) BYTES_PER_CHAR * trace.getMessage().length();
+    return isTextIndexBuilt ? sizeInBytes + TrigramIndex.estimateSizeInBytes(trace) : sizeInBytes;
+  }
+
+  private void resize(int capacity) {
+    Trace[] resizedTraces = new Trace[capacity];
+    long[] resizedSequenceNumbers = new long[capacity];
+    int resizedMask = capacity - 1;
+    for (long slot = firstSlot; slot < nextSlot; slot++) {
+      resizedTraces[(int) (slot & resizedMask)] = traces[(int) (slot & mask)];
+      resizedSequenceNumbers[(int) (slot & resizedMask)] = sequenceNumbers[(int) (slot & mask)];
+    }
+    traces = resizedTraces;
+    sequenceNumbers = resizedSequenceNumbers;
+    mask = resizedMask;
+    isShared = false;
+  }
+
+  /**
+   * Copies the traces stored if the trace in the slot passed as argument is going to be
+   * overwritten and can be referenced by a snapshot.
+   */
+  private void unshareIfNeeded(long overwrittenSlot) {
+    if (isShared && overwrittenSlot >= sharedFromSlot) {
+      resize(traces.length);
+    }
+  }
+
+  private void checkPosition(int position) {
+    int size = tracesView.size();
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + size);
+    }
+  }
+
+  private static int calculateCapacity(int bufferSize) {
+    int capacity = Integer.highestOneBit(Math.max(1, bufferSize));
+    return capacity < bufferSize ? capacity << 1 : capacity;
+  }
+
+  private class TracesView extends AbstractList<Trace> implements RandomAccess {
+
+    @Override public Trace get(int position) {
+      checkPosition(position);
+      int numberOfRetainedTraces = retainedTraces.size();
+      if (position < numberOfRetainedTraces) {
+        return retainedTraces.get(position);
+      }
+      return getTraceAt(position - numberOfRetainedTraces);
+    }
+
+    @Override public int size() {
+      return retainedTraces.size() + getCurrentNumberOfTraces();
     }
   }
 }
@@ -0,0 +1,545 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+import android.util.Log;
+import com.github.pedrovgs.lynx.model.BackgroundExecutors;
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Disk backed history of the traces discarded from the TraceBuffer. Traces are appended to an open
+ * segment kept in memory and once the segment is full it is sealed and written to a file inside
+ * the history directory from a background thread. Sealed segments are memory mapped to read
+ * traces from them, so the memory used doesn't depend on the number of traces stored. When the
+ * files written exceed the max size configured the oldest segments are deleted.
+ *
+ * Every trace stored has the sequence number it had inside the TraceBuffer. Sequence numbers are
+ * increasing but can have gaps if the TraceBuffer discarded traces not matching a new filter.
+ * Segments without gaps compute the sequence number of every trace from the first one, segments
+ * with gaps keep the offset of every sequence number in memory. This class is not thread safe and
+ * has to be used from just one thread, the thread writing segments is synchronized internally.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TraceHistory {
+
+  static final int SEGMENT_SIZE = 1024;
+
+  private static final String LOGTAG = "Lynx";
+  private static final String SEGMENT_FILE_PREFIX = "segment-";
+  private static final int MAX_MAPPED_SEGMENTS = 4;
+  private static final int BYTES_PER_INT = 4;
+  private static final int TRACE_HEADER_SIZE = 15;
+  private static final short NO_TAG_LENGTH = -1;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final File directory;
+  private final Executor executor;
+  private final ArrayDeque<Segment> segments;
+  private final Map<Segment, ByteBuffer> mappedSegments;
+  private final Runnable deleteSegmentFilesRunnable;
+  private Segment openSegment;
+  private long maxSizeInBytes;
+  private long sizeInBytes;
+  private long firstSequenceNumber;
+  private long nextSequenceNumber;
+  private int nextSegmentId;
+
+  TraceHistory(File directory, long maxSizeInBytes) {
+    this(directory, maxSizeInBytes, BackgroundExecutors.newSingleThreadExecutor());
+  }
+
+  TraceHistory(File directory, long maxSizeInBytes, Executor executor) {
+    this.directory = directory;
+    this.maxSizeInBytes = maxSizeInBytes;
+    this.executor = executor;
+    this.segments = new ArrayDeque<Segment>();
+    this.mappedSegments = new LinkedHashMap<Segment, ByteBuffer>(MAX_MAPPED_SEGMENTS, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Segment, ByteBuffer> eldest) {
+        return size() > MAX_MAPPED_SEGMENTS;
+      }
+    };
+    this.openSegment = new Segment();
+    this.deleteSegmentFilesRunnable = new Runnable() {
+      @Override public void run() {
+        deleteSegmentFiles();
+      }
+    };
+    // Files written by previous instances are deleted before writing new segments.
+    executor.execute(deleteSegmentFilesRunnable);
+  }
+
+  /**
+   * Configures the max number of bytes the segment files can use.
+   */
+  void setMaxSizeInBytes(long maxSizeInBytes) {
+    synchronized (this) {
+      this.maxSizeInBytes = maxSizeInBytes;
+      removeOldestSegmentsIfNeeded();
+    }
+  }
+
+  /**
+   * Adds a trace to the history. The trace gets the next sequence number.
+   */
+  void append(Trace trace) {
+    append(trace, nextSequenceNumber);
+  }
+
+  /**
+   * Adds a trace to the history with the sequence number passed as argument. Sequence numbers
+   * have to be equal or higher than the next sequence number.
+   */
+  void append(Trace trace, long sequenceNumber) {
+    if (!openSegment.canAdd(sequenceNumber)) {
+      sealOpenSegment();
+    }
+    openSegment.add(trace, sequenceNumber);
+    nextSequenceNumber = sequenceNumber + 1;
+    if (openSegment.numberOfTraces == SEGMENT_SIZE) {
+      sealOpenSegment();
+    }
+  }
+
+  /**
+   * Returns the sequence number of the oldest trace stored. If the history is empty the sequence
+   * number the next trace appended will have is returned.
+   */
+  long getFirstSequenceNumber() {
+    synchronized (this) {
+      return firstSequenceNumber;
+    }
+  }
+
+  /**
+   * Returns the sequence number the next trace appended will have if no sequence number is passed.
+   */
+  long getNextSequenceNumber() {
+    return nextSequenceNumber;
+  }
+
+  /**
+   * Reads up to maxTraces traces starting from the first trace with a sequence number equal or
+   * higher than the one passed as argument. Traces already deleted are skipped.
+   */
+  List<Trace> read(long fromSequenceNumber, int maxTraces) {
+    List<Trace> traces = new ArrayList<Trace>();
+    synchronized (this) {
+      for (Segment segment : segments) {
+        for (int index = segment.indexOf(fromSequenceNumber);
+            traces.size() < maxTraces && index < segment.numberOfTraces; index++) {
+          Trace trace = readTrace(segment, index);
+          if (trace == null) {
+            return traces;
+          }
+          traces.add(trace);
+        }
+      }
+    }
+    for (int index = openSegment.indexOf(fromSequenceNumber);
+        traces.size() < maxTraces && index < openSegment.numberOfTraces; index++) {
+      traces.add(openSegment.pendingTraces.get(index));
+    }
+    return traces;
+  }
+
+  /**
+   * Returns the number of traces stored with a sequence number equal or higher than
+   * fromSequenceNumber and lower than toSequenceNumber.
+   */
+  int countTraces(long fromSequenceNumber, long toSequenceNumber) {
+    int numberOfTraces = 0;
+    synchronized (this) {
+      for (Segment segment : segments) {
+        numberOfTraces += segment.countTraces(fromSequenceNumber, toSequenceNumber);
+      }
+    }
+    return numberOfTraces + openSegment.countTraces(fromSequenceNumber, toSequenceNumber);
+  }
+
+  /**
+   * Returns the sequence number of the trace stored the number of traces passed as argument after
+   * the first trace with a sequence number equal or higher than the one passed as argument, or
+   * before it if the number of traces is negative. If there are not enough traces the next
+   * sequence number or the first one is returned.
+   */
+  long skipTraces(long sequenceNumber, int numberOfTraces) {
+    synchronized (this) {
+      return numberOfTraces >= 0 ? skipTracesForward(sequenceNumber, numberOfTraces)
+          : skipTracesBackward(sequenceNumber, -numberOfTraces);
+    }
+  }
+
+  /**
+   * Discards every trace stored and deletes the segment files. The next trace appended will have
+   * the sequence number passed as argument.
+   */
+  void reset(long nextSequenceNumber) {
+    synchronized (this) {
+      for (Segment segment : segments) {
+        segment.isDiscarded = true;
+      }
+      segments.clear();
+      mappedSegments.clear();
+      sizeInBytes = 0;
+      firstSequenceNumber = nextSequenceNumber;
+    }
+    this.nextSequenceNumber = nextSequenceNumber;
+    openSegment = new Segment();
+    executor.execute(deleteSegmentFilesRunnable);
+  }
+
+  /**
+   * Discards every trace stored, deletes the segment files and stops the thread used to write
+   * them. This instance can't be used after closing it.
+   */
+  void close() {
+    reset(nextSequenceNumber);
+    if (executor instanceof ExecutorService) {
+      ((ExecutorService) executor).shutdown();
+    }
+  }
+
+  private long skipTracesForward(long sequenceNumber, int numberOfTraces) {
+    for (Segment segment : segments) {
+      int index = segment.indexOf(sequenceNumber) + numberOfTraces;
+      if (index < segment.numberOfTraces) {
+        return segment.getSequenceNumber(index);
+      }
+      numberOfTraces = index - segment.numberOfTraces;
+    }
+    int index = openSegment.indexOf(sequenceNumber) + numberOfTraces;
+    return index < openSegment.numberOfTraces ? openSegment.getSequenceNumber(index)
+        : nextSequenceNumber;
+  }
+
+  private long skipTracesBackward(long sequenceNumber, int numberOfTraces) {
+    int index = openSegment.indexOf(sequenceNumber) - numberOfTraces;
+    if (index >= 0) {
+      return openSegment.getSequenceNumber(index);
+    }
+    numberOfTraces = -index;
+    Iterator<Segment> iterator = segments.descendingIterator();
+    while (iterator.hasNext()) {
+      Segment segment = iterator.next();
+      index = segment.indexOf(sequenceNumber) - numberOfTraces;
+      if (index >= 0) {
+        return segment.getSequenceNumber(index);
+      }
+      numberOfTraces = -index;
+    }
+    return firstSequenceNumber;
+  }
+
+  private void sealOpenSegment() {
+    final Segment segment = openSegment;
+    segment.seal(new File(directory, SEGMENT_FILE_PREFIX + nextSegmentId++));
+    openSegment = new Segment();
+    synchronized (this) {
+      segments.addLast(segment);
+    }
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        writeSegment(segment);
+      }
+    });
+  }
+
+  private void writeSegment(Segment segment) {
+    byte[] bytes = encode(segment.pendingTraces);
+    try {
+      FileOutputStream outputStream = new FileOutputStream(segment.file);
+      try {
+        outputStream.write(bytes);
+      } finally {
+        outputStream.close();
+      }
+    } catch (IOException e) {
+      Log.e(LOGTAG, "IOException writing trace history segment.", e);
+      removeSegmentsUntil(segment);
+      return;
+    }
+    synchronized (this) {
+      if (segment.isDiscarded) {
+        segment.file.delete();
+        return;
+      }
+      segment.sizeInBytes = bytes.length;
+      segment.pendingTraces = null;
+      sizeInBytes += bytes.length;
+      removeOldestSegmentsIfNeeded();
+    }
+  }
+
+  private void removeOldestSegmentsIfNeeded() {
+    while (sizeInBytes > maxSizeInBytes && !segments.isEmpty()
+        && segments.peekFirst().isWritten()) {
+      Segment segment = segments.removeFirst();
+      segment.isDiscarded = true;
+      mappedSegments.remove(segment);
+      segment.file.delete();
+      sizeInBytes -= segment.sizeInBytes;
+      firstSequenceNumber = segment.getLastSequenceNumber() + 1;
+    }
+  }
+
+  /**
+   * Segments not written can't be kept in memory, so the segment passed as argument and the older
+   * ones are removed.
+   */
+  private synchronized void removeSegmentsUntil(Segment segment) {
+    if (segment.isDiscarded) {
+      return;
+    }
+    Segment removedSegment;
+    do {
+      removedSegment = segments.removeFirst();
+      removedSegment.isDiscarded = true;
+      mappedSegments.remove(removedSegment);
+      removedSegment.file.delete();
+      sizeInBytes -= removedSegment.sizeInBytes;
+    } while (removedSegment != segment);
+    firstSequenceNumber = segment.getLastSequenceNumber() + 1;
+  }
+
+  private Trace readTrace(Segment segment, int index) {
+    if (!segment.isWritten()) {
+      return segment.pendingTraces.get(index);
+    }
+    ByteBuffer buffer = getMappedSegment(segment);
+    if (buffer == null) {
+      return null;
+    }
+    int start = buffer.getInt(BYTES_PER_INT * (index + 1));
+    int end = buffer.getInt(BYTES_PER_INT * (index + 2));
+    ByteBuffer traceBuffer = buffer.duplicate();
+    traceBuffer.position(start);
+    TraceLevel level = TraceLevel.getTraceLevel((char) traceBuffer.get());
+    long id = traceBuffer.getLong();
+    int pid = traceBuffer.getInt();
+    short tagLength = traceBuffer.getShort();
+    String tag = null;
+    if (tagLength != NO_TAG_LENGTH) {
+      byte[] tagBytes = new byte[tagLength];
+      traceBuffer.get(tagBytes);
+      tag = new String(tagBytes, UTF_8).intern();
+    }
+    byte[] message = new byte[end - traceBuffer.position()];
+    traceBuffer.get(message);
+    return new Trace(level, new String(message, UTF_8), tag, pid, id);
+  }
+
+  private ByteBuffer getMappedSegment(Segment segment) {
+    ByteBuffer buffer = mappedSegments.get(segment);
+    if (buffer == null) {
+      buffer = mapSegment(segment);
+      if (buffer != null) {
+        mappedSegments.put(segment, buffer);
+      }
+    }
+    return buffer;
+  }
+
+  private MappedByteBuffer mapSegment(Segment segment) {
+    try {
+      RandomAccessFile file = new RandomAccessFile(segment.file, "r");
+      try {
+        return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, segment.sizeInBytes);
+      } finally {
+        file.close();
+      }
+    } catch (IOException e) {
+      Log.e(LOGTAG, "IOException mapping trace history segment.", e);
+      return null;
+    }
+  }
+
+  /**
+   * Segment files start with the number of traces and the offset of every trace followed by the
+   * offset where the last trace ends. Every trace is stored as the TraceLevel value, the trace id,
+   * the pid, the length of the tag or -1 if there is no tag, the tag and the trace message encoded
+   * in UTF-8.
+   */
+  private static byte[] encode(List<Trace> traces) {
+    List<byte[]> tags = new ArrayList<byte[]>(traces.size());
+    List<byte[]> messages = new ArrayList<byte[]>(traces.size());
+    int[] traceSizes = new int[traces.size()];
+    int headerSize = BYTES_PER_INT * (traces.size() + 2);
+    int size = headerSize;
+    for (int i = 0; i < traces.size(); i++) {
+      Trace trace = traces.get(i);
+      byte[] tag = trace.hasTag() ? trace.getTag().getBytes(UTF_8) : null;
+      byte[] message = trace.getMessage().getBytes(UTF_8);
+      tags.add(tag);
+      messages.add(message);
+      traceSizes[i] = TRACE_HEADER_SIZE + (tag == null ? 0 : tag.length) + message.length;
+      size += traceSizes[i];
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(traces.size());
+    int offset = headerSize;
+    for (int traceSize : traceSizes) {
+      buffer.putInt(offset);
+      offset += traceSize;
+    }
+    buffer.putInt(offset);
+    for (int i = 0; i < traces.size(); i++) {
+      Trace trace = traces.get(i);
+      byte[] tag = tags.get(i);
+      buffer.put((byte) trace.getLevel().getValue().charAt(0));
+      buffer.putLong(trace.getId());
+      buffer.putInt(trace.getPid());
+      buffer.putShort(tag == null ? NO_TAG_LENGTH : (short) tag.length);
+      if (tag != null) {
+        buffer.put(tag);
+      }
+      buffer.put(messages.get(i));
+    }
+    return buffer.array();
+  }
+
+  private void deleteSegmentFiles() {
+    directory.mkdirs();
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    synchronized (this) {
+      for (File file : files) {
+        if (file.getName().startsWith(SEGMENT_FILE_PREFIX) && !isInUse(file)) {
+          file.delete();
+        }
+      }
+    }
+  }
+
+  private boolean isInUse(File file) {
+    for (Segment segment : segments) {
+      if (segment.file.equals(file)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Traces appended to a segment until it is sealed. The offsets of the sequence numbers from the
+   * first one are stored just once the segment has a gap between two sequence numbers.
+   */
+  private static class Segment {
+
+    private long firstSequenceNumber;
+    private int numberOfTraces;
+    private int[] offsets;
+    private File file;
+    private List<Trace> pendingTraces;
+    private long sizeInBytes;
+    private boolean isDiscarded;
+
+    Segment() {
+      this.pendingTraces = new ArrayList<Trace>(SEGMENT_SIZE);
+    }
+
+    boolean canAdd(long sequenceNumber) {
+      return numberOfTraces == 0 || sequenceNumber - firstSequenceNumber <= Integer.MAX_VALUE;
+    }
+
+    void add(Trace trace, long sequenceNumber) {
+      if (numberOfTraces == 0) {
+        firstSequenceNumber = sequenceNumber;
+      }
+      int offset = (int) (sequenceNumber - firstSequenceNumber);
+      if (offsets == null && offset != numberOfTraces) {
+        offsets = new int[SEGMENT_SIZE];
+        for (int i = 0; i < numberOfTraces; i++) {
+          offsets[i] = i;
+        }
+      }
+      if (offsets != null) {
+        offsets[numberOfTraces] = offset;
+      }
+      pendingTraces.add(trace);
+      numberOfTraces++;
+    }
+
+    void seal(File file) {
+      this.file = file;
+      if (offsets != null) {
+        offsets = Arrays.copyOf(offsets, numberOfTraces);
+      }
+    }
+
+    long getSequenceNumber(int index) {
+      return firstSequenceNumber + (offsets == null ? index : offsets[index]);
+    }
+
+    long getLastSequenceNumber() {
+      return getSequenceNumber(numberOfTraces - 1);
+    }
+
+    /**
+     * Returns the index of the first trace with a sequence number equal or higher than the one
+     * passed as argument or the number of traces if there is no trace.
+     */
+    int indexOf(long sequenceNumber) {
+      if (numberOfTraces == 0 || sequenceNumber <= firstSequenceNumber) {
+        return 0;
+      } else if (sequenceNumber > getLastSequenceNumber()) {
+        return numberOfTraces;
+      } else if (offsets == null) {
+        return (int) (sequenceNumber - firstSequenceNumber);
+      }
+      int low = 0;
+      int high = numberOfTraces - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (getSequenceNumber(middle) < sequenceNumber) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    int countTraces(long fromSequenceNumber, long toSequenceNumber) {
+      return Math.max(0, indexOf(toSequenceNumber) - indexOf(fromSequenceNumber));
+    }
+
+    boolean isWritten() {
+      return pendingTraces == null;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of traces created by TraceBuffer. The retained traces are copied and the traces
+ * stored in the buffer are read from the circular array shared with the TraceBuffer, which never
+ * overwrites a position referenced by a snapshot.
+ *
+ * Instances of this class can be read from any thread once they have been safely published, for
+ * example, passing them to an Executor.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TraceSnapshot extends AbstractList<Trace> implements RandomAccess {
+
+  private final Trace[] retainedTraces;
+  private final Trace[] traces;
+  private final int mask;
+  private final long firstSlot;
+  private final int numberOfTraces;
+
+  TraceSnapshot(Trace[] retainedTraces, Trace[] traces, long firstSlot, int numberOfTraces) {
+    this.retainedTraces = retainedTraces;
+    this.traces = traces;
+    this.mask = traces.length - 1;
+    this.firstSlot = firstSlot;
+    this.numberOfTraces = numberOfTraces;
+  }
+
+  @Override public Trace get(int position) {
+    if (position < 0 || position >= size()) {
+      throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + size());
+    }
+    if (position < retainedTraces.length) {
+      return retainedTraces[position];
+    }
+    long slot = firstSlot + position - retainedTraces.length;
+    return traces[(int) (slot & mask)];
+  }
+
+  @Override public int size() {
+    return retainedTraces.length + numberOfTraces;
+  }
+}
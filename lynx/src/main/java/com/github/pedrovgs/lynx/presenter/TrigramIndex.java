@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+import com.github.pedrovgs.lynx.model.Trace;
+
+/**
+ * Full text index used by TraceBuffer to find the traces containing a text without reading every
+ * trace stored. The sequence number of every trace is indexed by each one of the different
+ * trigrams, three consecutive characters, of the lower case line the trace was read from, the same
+ * text LynxConfig filters are applied to.
+ *
+ * A trace containing a text contains every trigram of the text, so the traces containing a text
+ * are found reading just the sequence numbers indexed by the least frequent trigram of the text.
+ * Those traces are just candidates and have to be verified, the trigrams could be in a different
+ * order.
+ *
+ * Trigrams are packed into a long and stored in an open addressing hash table with linear probing,
+ * so no key is boxed and the lower case characters are computed one by one without copying the
+ * line. Characters are converted to lower case individually, so texts with non ASCII characters
+ * could be converted differently by String.toLowerCase and every trace is a candidate for them.
+ *
+ * This class is not thread safe and has to be used from just one thread.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+class TrigramIndex {
+
+  static final int TRIGRAM_LENGTH = 3;
+
+  private static final SequenceIndex NO_CANDIDATES = new SequenceIndex();
+  private static final int INITIAL_CAPACITY = 256;
+  private static final long TRIGRAM_MASK = 0xFFFFFFFFFFFFL;
+  private static final int BITS_PER_CHAR = 16;
+  private static final int MAX_ASCII_CHAR = 127;
+  // Sequence numbers are stored as int offsets inside arrays that double their capacity, the
+  // hash table and the SequenceIndex objects are amortized between the traces indexed.
+  private static final int BYTES_PER_TRIGRAM_POSITION = 8;
+
+  private long[] trigrams;
+  private SequenceIndex[] trigramIndexes;
+  private int mask;
+  private int size;
+
+  TrigramIndex() {
+    clear();
+  }
+
+  /**
+   * Indexes the trace passed as argument. Traces have to be added in sequence number order.
+   */
+  void add(Trace trace, long sequenceNumber) {
+    int length = trace.getLogcatLineLength();
+    long trigram = 0;
+    for (int i = 0; i < length; i++) {
+      trigram = nextTrigram(trigram, Character.toLowerCase(trace.getLogcatLineCharAt(i)));
+      if (i + 1 < TRIGRAM_LENGTH) {
+        continue;
+      }
+      SequenceIndex trigramIndex = get(trigram);
+      if (trigramIndex == null) {
+        trigramIndex = new SequenceIndex();
+        put(trigram, trigramIndex);
+      }
+      boolean isRepeatedTrigram = !trigramIndex.isEmpty()
+          && trigramIndex.get(trigramIndex.size() - 1) == sequenceNumber;
+      if (!isRepeatedTrigram) {
+        trigramIndex.add(sequenceNumber);
+      }
+    }
+  }
+
+  /**
+   * Removes a trace from the index. Traces have to be removed in sequence number order.
+   */
+  void remove(Trace trace, long sequenceNumber) {
+    int length = trace.getLogcatLineLength();
+    long trigram = 0;
+    for (int i = 0; i < length; i++) {
+      trigram = nextTrigram(trigram, Character.toLowerCase(trace.getLogcatLineCharAt(i)));
+      if (i + 1 < TRIGRAM_LENGTH) {
+        continue;
+      }
+      int slot = findSlot(trigram);
+      SequenceIndex trigramIndex = trigramIndexes[slot];
+      if (trigramIndex != null) {
+        trigramIndex.removeUntil(sequenceNumber + 1);
+        if (trigramIndex.isEmpty()) {
+          removeSlot(slot);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the sequence numbers of the traces that could contain the lower case text passed as
+   * argument or null if the text is too short or has non ASCII characters and every trace is a
+   * candidate.
+   */
+  SequenceIndex getCandidates(String lowerCaseText) {
+    if (lowerCaseText.length() < TRIGRAM_LENGTH || !isAscii(lowerCaseText)) {
+      return null;
+    }
+    SequenceIndex candidates = null;
+    long trigram = 0;
+    for (int i = 0; i < lowerCaseText.length(); i++) {
+      trigram = nextTrigram(trigram, lowerCaseText.charAt(i));
+      if (i + 1 < TRIGRAM_LENGTH) {
+        continue;
+      }
+      SequenceIndex trigramIndex = get(trigram);
+      if (trigramIndex == null) {
+        return NO_CANDIDATES;
+      }
+      if (candidates == null || trigramIndex.size() < candidates.size()) {
+        candidates = trigramIndex;
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Estimates the memory used to index the trace passed as argument.
+   */
+  static long estimateSizeInBytes(Trace trace) {
+    return (long) BYTES_PER_TRIGRAM_POSITION
+        * Math.max(0, trace.getLogcatLineLength() - TRIGRAM_LENGTH + 1);
+  }
+
+  void clear() {
+    trigrams = new long[INITIAL_CAPACITY];
+    trigramIndexes = new SequenceIndex[INITIAL_CAPACITY];
+    mask = INITIAL_CAPACITY - 1;
+    size = 0;
+  }
+
+  /**
+   * Returns the longest text every string matching the lower case regular expression passed as
+   * argument has to contain. The regular expression is analyzed conservatively, an empty string
+   * is returned if there is no text every match has to contain or it can't be found easily.
+   */
+  static String getRequiredText(String lowerCaseRegexp) {
+    if (lowerCaseRegexp.indexOf('|') != -1) {
+      return "";
+    }
+    String requiredText = "";
+    StringBuilder text = new StringBuilder();
+    int groupDepth = 0;
+    for (int i = 0; i < lowerCaseRegexp.length(); i++) {
+      char character = lowerCaseRegexp.charAt(i);
+      boolean isLiteral = false;
+      if (character == '\\') {
+        i++;
+      } else if (character == '[') {
+        i = lowerCaseRegexp.indexOf(']', i + 2);
+        i = i == -1 ? lowerCaseRegexp.length() : i;
+      } else if (character == '(') {
+        groupDepth++;
+      } else if (character == ')') {
+        groupDepth--;
+      } else if (character == '?' || character == '*' || character == '{') {
+        // The previous character could be optional.
+        text.setLength(Math.max(0, text.length() - 1));
+        if (character == '{') {
+          i = lowerCaseRegexp.indexOf('}', i);
+          i = i == -1 ? lowerCaseRegexp.length() : i;
+        }
+      } else {
+        isLiteral = groupDepth == 0 && ".^$+".indexOf(character) == -1;
+      }
+      if (isLiteral) {
+        text.append(character);
+      } else {
+        requiredText = text.length() > requiredText.length() ? text.toString() : requiredText;
+        text.setLength(0);
+      }
+    }
+    return text.length() > requiredText.length() ? text.toString() : requiredText;
+  }
+
+  private static long nextTrigram(long trigram, char character) {
+    return ((trigram << BITS_PER_CHAR) | character) & TRIGRAM_MASK;
+  }
+
+  private static boolean isAscii(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) > MAX_ASCII_CHAR) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private SequenceIndex get(long trigram) {
+    return trigramIndexes[findSlot(trigram)];
+  }
+
+  /**
+   * Returns the slot containing the trigram passed as argument or the empty slot where it has to
+   * be inserted.
+   */
+  private int findSlot(long trigram) {
+    int slot = hash(trigram) & mask;
+    while (trigramIndexes[slot] != null && trigrams[slot] != trigram) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void put(long trigram, SequenceIndex trigramIndex) {
+    if ((size + 1) * 2 > trigrams.length) {
+      resize(trigrams.length * 2);
+    }
+    int slot = findSlot(trigram);
+    trigrams[slot] = trigram;
+    trigramIndexes[slot] = trigramIndex;
+    size++;
+  }
+
+  /**
+   * Empties the slot passed as argument moving back the next entries of the same cluster that
+   * would not be found anymore, so no tombstones are needed.
+   */
+  private void removeSlot(int slot) {
+    int emptySlot = slot;
+    int nextSlot = (slot + 1) & mask;
+    while (trigramIndexes[nextSlot] != null) {
+      int idealSlot = hash(trigrams[nextSlot]) & mask;
+      if (((nextSlot - idealSlot) & mask) >= ((nextSlot - emptySlot) & mask)) {
+        trigrams[emptySlot] = trigrams[nextSlot];
+        trigramIndexes[emptySlot] = trigramIndexes[nextSlot];
+        emptySlot = nextSlot;
+      }
+      nextSlot = (nextSlot + 1) & mask;
+    }
+    trigramIndexes[emptySlot] = null;
+    size--;
+  }
+
+  private void resize(int capacity) {
+    long[] previousTrigrams = trigrams;
+    SequenceIndex[] previousTrigramIndexes = trigramIndexes;
+    trigrams = new long[capacity];
+    trigramIndexes = new SequenceIndex[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < previousTrigrams.length; i++) {
+      if (previousTrigramIndexes[i] != null) {
+        int slot = findSlot(previousTrigrams[i]);
+        trigrams[slot] = previousTrigrams[i];
+        trigramIndexes[slot] = previousTrigramIndexes[i];
+      }
+    }
+  }
+
+  private static int hash(long trigram) {
+    long hash = trigram * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32);
+  }
+}
@@ -16,7 +16,6 @@
 
 package com.github.pedrovgs.lynx.renderer;
 
-import com.github.pedrovgs.lynx.LynxConfig;
 
 /**
  * TraceRenderer implementation used to render Trace objects with TraceLevel.ASSERT trace level.
@@ -28,7 +27,7 @@ import com.github.pedrovgs.lynx.LynxConfig;
  */
 class AssertTraceRenderer extends DebugTraceRenderer {
 
-  AssertTraceRenderer(LynxConfig lynxConfig) {
-    super(lynxConfig);
+  AssertTraceRenderer(TraceLayoutCache layoutCache) {
+    super(layoutCache);
   }
 }
@@ -17,7 +17,6 @@
 package com.github.pedrovgs.lynx.renderer;
 
 import android.graphics.Color;
-import com.github.pedrovgs.lynx.LynxConfig;
 
 /**
  * TraceRenderer implementation used to render Trace objects with TraceLevel.ERROR trace level.
@@ -29,8 +28,8 @@ import com.github.pedrovgs.lynx.LynxConfig;
  */
 class ErrorTraceRenderer extends TraceRenderer {
 
-  ErrorTraceRenderer(LynxConfig lynxConfig) {
-    super(lynxConfig);
+  ErrorTraceRenderer(TraceLayoutCache layoutCache) {
+    super(layoutCache);
   }
 
   @Override protected int getTraceColor() {
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.renderer;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import com.github.pedrovgs.lynx.model.BackgroundExecutors;
+import com.github.pedrovgs.lynx.model.Trace;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * LRU cache of the text layouts drawn by TraceRowView, shared by every TraceRenderer created by
+ * the same TraceRendererBuilder. Measuring long traces wrapped across many lines is expensive, so
+ * the StaticLayout of every trace is computed once and reused every time the trace is bound to a
+ * row. The layouts of the traces most likely to be shown next, the traces just appended, are
+ * computed in a background thread before their rows are bound.
+ *
+ * Layouts are indexed by Trace and computed with the monospace typeface, the text size of the
+ * cache and the width of the rows. The width is updated every time a row is measured, changing it
+ * discards every layout computed and the layouts still being computed with the previous width.
+ *
+ * This class can be used from any thread, layouts are precomputed in a single background thread
+ * created the first time layouts are precomputed.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public class TraceLayoutCache {
+
+  private static final int MAX_LAYOUTS = 512;
+  private static final int MAX_TRACES_TO_PRECOMPUTE = 64;
+
+  private final float textSizeInPx;
+  private final Map<Trace, Layout> layouts;
+  private int width;
+  private TextPaint textPaint;
+  private ExecutorService executor;
+
+  public TraceLayoutCache(float textSizeInPx) {
+    this.textSizeInPx = textSizeInPx;
+    this.layouts = new LinkedHashMap<Trace, Layout>(MAX_LAYOUTS, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Trace, Layout> eldest) {
+        return size() > MAX_LAYOUTS;
+      }
+    };
+  }
+
+  /**
+   * Computes in a background thread the layouts not computed yet of the last traces passed as
+   * argument. Nothing is computed until a row has been measured, the width of the rows is not
+   * known before.
+   */
+  public synchronized void precompute(List<Trace> traces) {
+    final int width = getWidth();
+    if (width <= 0 || traces.isEmpty()) {
+      return;
+    }
+    int firstTraceToPrecompute = Math.max(0, traces.size() - MAX_TRACES_TO_PRECOMPUTE);
+    final List<Trace> tracesToPrecompute =
+        new ArrayList<Trace>(traces.subList(firstTraceToPrecompute, traces.size()));
+    if (executor == null) {
+      executor = BackgroundExecutors.newSingleThreadExecutor();
+    }
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        // Text paints are not thread safe, the layouts computed in background use their own one.
+        TextPaint textPaint = createTextPaint(textSizeInPx);
+        for (Trace trace : tracesToPrecompute) {
+          if (width != getWidth()) {
+            return;
+          }
+          if (!containsLayout(trace)) {
+            putLayout(trace, createLayout(trace, textPaint, width), width);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Stops the background thread used to precompute the layouts discarding the pending work. The
+   * thread is created again if more layouts are precomputed later.
+   */
+  public synchronized void release() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Returns the layout of the trace passed as argument for the width passed as argument. If the
+   * layout has not been computed yet it's computed in the calling thread and cached. This method
+   * has to be called from the UI thread.
+   */
+  Layout getLayout(Trace trace, int width) {
+    synchronized (layouts) {
+      if (width != this.width) {
+        this.width = width;
+        layouts.clear();
+      }
+      Layout layout = layouts.get(trace);
+      if (layout != null) {
+        return layout;
+      }
+    }
+    if (textPaint == null) {
+      textPaint = createTextPaint(textSizeInPx);
+    }
+    Layout layout = createLayout(trace, textPaint, width);
+    putLayout(trace, layout, width);
+    return layout;
+  }
+
+  /**
+   * Returns the text drawn for the trace passed as argument, the TraceLevel followed by the trace
+   * message.
+   */
+  static String getTraceText(Trace trace) {
+    return " " + trace.getLevel().getValue() + "  " + trace.getMessage();
+  }
+
+  private int getWidth() {
+    synchronized (layouts) {
+      return width;
+    }
+  }
+
+  private boolean containsLayout(Trace trace) {
+    synchronized (layouts) {
+      return layouts.containsKey(trace);
+    }
+  }
+
+  private void putLayout(Trace trace, Layout layout, int width) {
+    synchronized (layouts) {
+      if (width == this.width) {
+        layouts.put(trace, layout);
+      }
+    }
+  }
+
+  private static Layout createLayout(Trace trace, TextPaint textPaint, int width) {
+    return new StaticLayout(getTraceText(trace), textPaint, width, Layout.Alignment.ALIGN_NORMAL,
+        1f, 0f, true);
+  }
+
+  private static TextPaint createTextPaint(float textSizeInPx) {
+    TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    textPaint.setTypeface(Typeface.MONOSPACE);
+    textPaint.setColor(Color.WHITE);
+    textPaint.setTextSize(textSizeInPx);
+    return textPaint;
+  }
+}
@@ -17,18 +17,11 @@
 package com.github.pedrovgs.lynx.renderer;
 
 import android.graphics.Color;
-import android.graphics.Typeface;
-import android.text.Spannable;
-import android.text.SpannableString;
-import android.text.style.BackgroundColorSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
-import com.github.pedrovgs.lynx.LynxConfig;
 import com.github.pedrovgs.lynx.R;
 import com.github.pedrovgs.lynx.model.Trace;
-import com.github.pedrovgs.lynx.model.TraceLevel;
 import com.pedrogomez.renderers.Renderer;
 
 /**
@@ -36,6 +29,9 @@ import com.pedrogomez.renderers.Renderer;
  * message as main information to show. This Renderer<Trace> is used as the base of other
  * Renderers<Trace> and to show verbose TraceLevel traces.
  *
+ * Traces are shown using a TraceRowView drawing the text layout stored in a TraceLayoutCache,
+ * rendering a trace already cached doesn't measure the trace text again.
+ *
  * To learn more about Renderers library take a look to the repository:
  * https://github.com/pedrovgs/Renderers
  *
@@ -43,12 +39,12 @@ import com.pedrogomez.renderers.Renderer;
  */
 class TraceRenderer extends Renderer<Trace> {
 
-  private final LynxConfig lynxConfig;
+  private final TraceLayoutCache layoutCache;
 
-  private TextView tv_trace;
+  private TraceRowView trv_trace;
 
-  TraceRenderer(LynxConfig lynxConfig) {
-    this.lynxConfig = lynxConfig;
+  TraceRenderer(TraceLayoutCache layoutCache) {
+    this.layoutCache = layoutCache;
   }
 
   @Override protected View inflate(LayoutInflater inflater, ViewGroup parent) {
@@ -56,12 +52,8 @@ class TraceRenderer extends Renderer<Trace> {
   }
 
   @Override protected void setUpView(View rootView) {
-    tv_trace = (TextView) rootView.findViewById(R.id.tv_trace);
-    tv_trace.setTypeface(Typeface.MONOSPACE);
-    if (lynxConfig.hasTextSizeInPx()) {
-      float textSize = lynxConfig.getTextSizeInPx();
-      tv_trace.setTextSize(textSize);
-    }
+    trv_trace = (TraceRowView) rootView.findViewById(R.id.trv_trace);
+    trv_trace.setLayoutCache(layoutCache);
   }
 
   @Override protected void hookListeners(View rootView) {
@@ -69,22 +61,10 @@ class TraceRenderer extends Renderer<Trace> {
   }
 
   @Override public void render() {
-    Trace trace = getContent();
-    String traceMessage = trace.getMessage();
-    Spannable traceRepresentation = getTraceVisualRepresentation(trace.getLevel(), traceMessage);
-    tv_trace.setText(traceRepresentation);
+    trv_trace.setTrace(getContent(), getTraceColor());
   }
 
   protected int getTraceColor() {
     return Color.GRAY;
   }
-
-  private Spannable getTraceVisualRepresentation(TraceLevel level, String traceMessage) {
-    traceMessage = " " + level.getValue() + "  " + traceMessage;
-    Spannable traceRepresentation = new SpannableString(traceMessage);
-    int traceColor = getTraceColor();
-    traceRepresentation.setSpan(new BackgroundColorSpan(traceColor), 0, 3,
-        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-    return traceRepresentation;
-  }
 }
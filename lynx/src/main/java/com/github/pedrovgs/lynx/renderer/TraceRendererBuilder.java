@@ -16,7 +16,6 @@
 
 package com.github.pedrovgs.lynx.renderer;
 
-import com.github.pedrovgs.lynx.LynxConfig;
 import com.github.pedrovgs.lynx.model.Trace;
 import com.github.pedrovgs.lynx.model.TraceLevel;
 import com.pedrogomez.renderers.Renderer;
@@ -27,7 +26,8 @@ import java.util.List;
 /**
  * Renderer builder implementation created to return {@code Renderer<Trace>} instances based on the
  * trace level. This builder will use six different {@code Renderer<Trace>} implementations, one for
- * each TraceLevel type.
+ * each TraceLevel type. Every Renderer created by this builder shares the TraceLayoutCache passed
+ * as argument.
  *
  * To learn more about Renderers library take a look to the repository:
  * https://github.com/pedrovgs/Renderers
@@ -36,15 +36,15 @@ import java.util.List;
  */
 public class TraceRendererBuilder extends RendererBuilder<Trace> {
 
-  public TraceRendererBuilder(LynxConfig lynxConfig) {
+  public TraceRendererBuilder(TraceLayoutCache layoutCache) {
     List<Renderer<Trace>> prototypes = new LinkedList<Renderer<Trace>>();
-    prototypes.add(new TraceRenderer(lynxConfig));
-    prototypes.add(new AssertTraceRenderer(lynxConfig));
-    prototypes.add(new DebugTraceRenderer(lynxConfig));
-    prototypes.add(new InfoTraceRenderer(lynxConfig));
-    prototypes.add(new WarningTraceRenderer(lynxConfig));
-    prototypes.add(new ErrorTraceRenderer(lynxConfig));
-    prototypes.add(new WtfTraceRenderer(lynxConfig));
+    prototypes.add(new TraceRenderer(layoutCache));
+    prototypes.add(new AssertTraceRenderer(layoutCache));
+    prototypes.add(new DebugTraceRenderer(layoutCache));
+    prototypes.add(new InfoTraceRenderer(layoutCache));
+    prototypes.add(new WarningTraceRenderer(layoutCache));
+    prototypes.add(new ErrorTraceRenderer(layoutCache));
+    prototypes.add(new WtfTraceRenderer(layoutCache));
     setPrototypes(prototypes);
   }
 
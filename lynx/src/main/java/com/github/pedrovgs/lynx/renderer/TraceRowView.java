@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.renderer;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.Layout;
+import android.util.AttributeSet;
+import android.view.View;
+import com.github.pedrovgs.lynx.model.Trace;
+
+/**
+ * View used by TraceRenderer to show a trace inside a ListView or a RecyclerView. Instead of
+ * measuring the trace text every time the row is bound, like a TextView does, the row draws the
+ * StaticLayout cached in a TraceLayoutCache for the trace and the width of the row. Binding a
+ * trace already computed, in the UI thread or in background, doesn't measure the text again.
+ *
+ * The TraceLevel at the beginning of the trace is highlighted with the color of the TraceRenderer.
+ *
+ * @author Pedro Vicente Gomez Sanchez.
+ */
+public class TraceRowView extends View {
+
+  private static final int TRACE_LEVEL_LENGTH = 3;
+
+  private final Paint traceLevelPaint;
+  private TraceLayoutCache layoutCache;
+  private Trace trace;
+  private Layout layout;
+
+  public TraceRowView(Context context) {
+    this(context, null);
+  }
+
+  public TraceRowView(Context context, AttributeSet attrs) {
+    this(context, attrs, 0);
+  }
+
+  public TraceRowView(Context context, AttributeSet attrs, int defStyleAttr) {
+    super(context, attrs, defStyleAttr);
+    this.traceLevelPaint = new Paint();
+  }
+
+  /**
+   * Configures the cache used to obtain the layout of the traces shown.
+   */
+  void setLayoutCache(TraceLayoutCache layoutCache) {
+    this.layoutCache = layoutCache;
+    this.layout = null;
+    requestLayout();
+  }
+
+  /**
+   * Shows the trace passed as argument highlighting its TraceLevel with the color passed as
+   * argument. The layout of the trace is obtained from the cache once the row is measured.
+   */
+  void setTrace(Trace trace, int traceLevelColor) {
+    traceLevelPaint.setColor(traceLevelColor);
+    if (trace != this.trace) {
+      this.trace = trace;
+      this.layout = null;
+      requestLayout();
+    }
+    invalidate();
+  }
+
+  /**
+   * Returns the layout drawn or null if the row has not been measured yet.
+   */
+  Layout getTraceLayout() {
+    return layout;
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int width = MeasureSpec.getSize(widthMeasureSpec);
+    int textWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+    layout = trace != null && layoutCache != null ? layoutCache.getLayout(trace, textWidth) : null;
+    int textHeight = layout != null ? layout.getHeight() : 0;
+    int height = textHeight + getPaddingTop() + getPaddingBottom();
+    setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    super.onDraw(canvas);
+    if (layout == null) {
+      return;
+    }
+    canvas.save();
+    canvas.translate(getPaddingLeft(), getPaddingTop());
+    canvas.drawRect(0, layout.getLineTop(0), layout.getPrimaryHorizontal(TRACE_LEVEL_LENGTH),
+        layout.getLineBottom(0), traceLevelPaint);
+    layout.draw(canvas);
+    canvas.restore();
+  }
+}
@@ -17,7 +17,6 @@
 package com.github.pedrovgs.lynx.renderer;
 
 import android.graphics.Color;
-import com.github.pedrovgs.lynx.LynxConfig;
 
 /**
  * TraceRenderer implementation used to render Trace objects with TraceLevel.WARNING trace level.
@@ -26,8 +25,8 @@ import com.github.pedrovgs.lynx.LynxConfig;
  */
 class WarningTraceRenderer extends TraceRenderer {
 
-  WarningTraceRenderer(LynxConfig lynxConfig) {
-    super(lynxConfig);
+  WarningTraceRenderer(TraceLayoutCache layoutCache) {
+    super(layoutCache);
   }
 
   @Override protected int getTraceColor() {
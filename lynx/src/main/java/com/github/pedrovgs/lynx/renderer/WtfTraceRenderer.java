@@ -16,7 +16,6 @@
 
 package com.github.pedrovgs.lynx.renderer;
 
-import com.github.pedrovgs.lynx.LynxConfig;
 
 /**
  * TraceRenderer implementation used to render Trace objects with TraceLevel.WTF trace level.
@@ -28,7 +27,7 @@ import com.github.pedrovgs.lynx.LynxConfig;
  */
 class WtfTraceRenderer extends ErrorTraceRenderer {
 
-  WtfTraceRenderer(LynxConfig lynxConfig) {
-    super(lynxConfig);
+  WtfTraceRenderer(TraceLayoutCache layoutCache) {
+    super(layoutCache);
   }
 }
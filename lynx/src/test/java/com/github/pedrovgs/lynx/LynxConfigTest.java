@@ -16,6 +16,7 @@
 
 package com.github.pedrovgs.lynx;
 
+import com.github.pedrovgs.lynx.export.ExportFormat;
 import com.github.pedrovgs.lynx.model.TraceLevel;
 import org.junit.Rule;
 import org.junit.Test;
@@ -109,4 +110,152 @@ public class LynxConfigTest {
 
     assertEquals(150, lynxConfig.getSamplingRate());
   }
+
+  @Test public void shouldUse500AsDefaultBatchSize() {
+    LynxConfig lynxConfig = new LynxConfig();
+
+    assertEquals(500, lynxConfig.getBatchSize());
+  }
+
+  @Test public void setBatchSizeToZeroThrowsIllegalArgumentException() {
+    exception.expect(IllegalArgumentException.class);
+    LynxConfig lynxConfig = new LynxConfig();
+    lynxConfig.setBatchSize(0);
+  }
+
+  @Test public void shouldKeepBatchSizeOnClone() {
+    LynxConfig lynxConfig = new LynxConfig().setBatchSize(20);
+
+    LynxConfig clonedLynxConfig = (LynxConfig) lynxConfig.clone();
+
+    assertEquals(20, clonedLynxConfig.getBatchSize());
+  }
+
+  @Test public void shouldUseErrorAsDefaultPriorityTraceLevel() {
+    LynxConfig lynxConfig = new LynxConfig();
+
+    assertEquals(TraceLevel.ERROR, lynxConfig.getPriorityTraceLevel());
+  }
+
+  @Test public void setPriorityTraceLevelNullThrowsNPE() {
+    exception.expect(IllegalArgumentException.class);
+    exception.expectMessage("priorityTraceLevel can't be null");
+    LynxConfig lynxConfig = new LynxConfig();
+    lynxConfig.setPriorityTraceLevel(null);
+  }
+
+  @Test public void shouldUseListViewByDefault() {
+    LynxConfig lynxConfig = new LynxConfig();
+
+    assertFalse(lynxConfig.isRecyclerViewEnabled());
+  }
+
+  @Test public void shouldKeepRecyclerViewConfigurationOnClone() {
+    LynxConfig lynxConfig = new LynxConfig().setRecyclerView(true);
+
+    LynxConfig clonedLynxConfig = (LynxConfig) lynxConfig.clone();
+
+    assertTrue(clonedLynxConfig.isRecyclerViewEnabled());
+    assertEquals(lynxConfig, clonedLynxConfig);
+  }
+
+  @Test public void shouldNotUseTheCanvasViewByDefault() {
+    LynxConfig lynxConfig = new LynxConfig();
+
+    assertFalse(lynxConfig.isCanvasViewEnabled());
+  }
+
+  @Test public void shouldKeepCanvasViewConfigurationOnClone() {
+    LynxConfig lynxConfig = new LynxConfig().setCanvasView(true);
+
+    LynxConfig clonedLynxConfig = (LynxConfig) lynxConfig.clone();
+
+    assertTrue(clonedLynxConfig.isCanvasViewEnabled());
+    assertEquals(lynxConfig, clonedLynxConfig);
+  }
+
+  @Test public void shouldNotUseGzipExportByDefault() {
+    LynxConfig lynxConfig = new LynxConfig();
+
+    assertFalse(lynxConfig.isGzipExportEnabled());
+  }
+
+  @Test public void shouldKeepGzipExportConfigurationOnClone() {
+    LynxConfig lynxConfig = new LynxConfig().setGzipExport(true);
+
+    LynxConfig clonedLynxConfig = (LynxConfig) lynxConfig.clone();
+
+    assertTrue(clonedLynxConfig.isGzipExportEnabled());
+    assertEquals(lynxConfig, clonedLynxConfig);
+  }
+
+  @Test public void shouldExportPlainTextByDefault() {
+    LynxConfig lynxConfig = new LynxConfig();
+
+    assertEquals(ExportFormat.PLAIN_TEXT, lynxConfig.getExportFormat());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptANullExportFormat() {
+    new LynxConfig().setExportFormat(null);
+  }
+
+  @Test public void shouldKeepExportFormatConfigurationOnClone() {
+    LynxConfig lynxConfig = new LynxConfig().setExportFormat(ExportFormat.BINARY);
+
+    LynxConfig clonedLynxConfig = (LynxConfig) lynxConfig.clone();
+
+    assertEquals(ExportFormat.BINARY, clonedLynxConfig.getExportFormat());
+    assertEquals(lynxConfig, clonedLynxConfig);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptNegativeMaxDiskHistorySizes() {
+    new LynxConfig().setMaxDiskHistorySizeInBytes(-1);
+  }
+
+  @Test public void shouldDisableTheDiskHistoryByDefault() {
+    LynxConfig lynxConfig = new LynxConfig();
+
+    assertFalse(lynxConfig.isDiskHistoryEnabled());
+  }
+
+  @Test public void shouldKeepMaxDiskHistorySizeOnClone() {
+    LynxConfig lynxConfig = new LynxConfig().setMaxDiskHistorySizeInBytes(1024);
+
+    LynxConfig clonedLynxConfig = (LynxConfig) lynxConfig.clone();
+
+    assertEquals(1024, clonedLynxConfig.getMaxDiskHistorySizeInBytes());
+    assertEquals(lynxConfig, clonedLynxConfig);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptNegativeMaxBufferSizes() {
+    new LynxConfig().setMaxBufferSizeInBytes(-1);
+  }
+
+  @Test public void shouldKeepMaxBufferSizeOnClone() {
+    LynxConfig lynxConfig = new LynxConfig().setMaxBufferSizeInBytes(2048);
+
+    LynxConfig clonedLynxConfig = (LynxConfig) lynxConfig.clone();
+
+    assertEquals(2048, clonedLynxConfig.getMaxBufferSizeInBytes());
+    assertEquals(lynxConfig, clonedLynxConfig);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptNegativeMaxNumberOfRetainedTraces() {
+    new LynxConfig().setMaxNumberOfRetainedTraces(-1);
+  }
+
+  @Test public void shouldKeepRetentionPolicyOnClone() {
+    LynxConfig lynxConfig = new LynxConfig().setRetainedTraceLevel(TraceLevel.ERROR)
+        .setMaxNumberOfRetainedTraces(100);
+
+    LynxConfig clonedLynxConfig = (LynxConfig) lynxConfig.clone();
+
+    assertEquals(TraceLevel.ERROR, clonedLynxConfig.getRetainedTraceLevel());
+    assertEquals(100, clonedLynxConfig.getMaxNumberOfRetainedTraces());
+    assertEquals(lynxConfig, clonedLynxConfig);
+  }
 }
@@ -17,13 +17,18 @@
 package com.github.pedrovgs.lynx;
 
 import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.DialogInterface;
+import android.support.v7.widget.RecyclerView;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.ListView;
+import android.widget.SectionIndexer;
 import android.widget.Spinner;
 import com.github.pedrovgs.lynx.model.Trace;
 import com.github.pedrovgs.lynx.model.TraceLevel;
 import com.github.pedrovgs.lynx.presenter.LynxPresenter;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,10 +38,14 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAlertDialog;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
 
 /**
  * @author Pedro Vicente Gómez Sánchez.
@@ -47,6 +56,7 @@ public class LynxViewTest {
 
   private static final String ANY_TRACE_MESSAGE = "02-07 17:45:33.014 D/ Any trace message";
   private static final int ANY_TEXT_SIZE = 300;
+  private static final String ANY_TIME = "17:45:33";
 
   private LynxView lynxView;
   private Activity activity;
@@ -85,6 +95,36 @@ public class LynxViewTest {
     assertEquals(View.VISIBLE, ib_share.getVisibility());
   }
 
+  @Test public void shouldShowJumpToTimeImageButtonAsVisible() {
+    View ib_jump_to_time = lynxView.findViewById(R.id.ib_jump_to_time);
+
+    assertEquals(View.VISIBLE, ib_jump_to_time.getVisibility());
+  }
+
+  @Test public void shouldAskTheTimeToJumpToOnJumpToTimeImageButtonClicked() {
+    lynxView.findViewById(R.id.ib_jump_to_time).performClick();
+
+    assertTrue(ShadowAlertDialog.getLatestAlertDialog().isShowing());
+  }
+
+  @Test public void shouldJumpToTheTimeTypedInTheJumpToTimeDialog() {
+    lynxView.findViewById(R.id.ib_jump_to_time).performClick();
+    AlertDialog dialog = ShadowAlertDialog.getLatestAlertDialog();
+    EditText et_time = (EditText) shadowOf(dialog).getView();
+
+    et_time.setText(ANY_TIME);
+    dialog.getButton(DialogInterface.BUTTON_POSITIVE).performClick();
+
+    verify(presenter).onJumpToTime(ANY_TIME);
+  }
+
+  @Test public void shouldUseAListViewAdapterWithTimestampSections() {
+    ListView lv_traces = getLvTraces();
+
+    assertTrue(lv_traces.isFastScrollEnabled());
+    assertTrue(lv_traces.getAdapter() instanceof SectionIndexer);
+  }
+
   @Test public void shouldResumePresenterOnAttachedToWindowAndViewIsVisible() {
     lynxView.onAttachedToWindow();
 
@@ -107,6 +147,14 @@ public class LynxViewTest {
     verify(presenter).pause();
   }
 
+  @Test public void shouldClosePresenterOnDetachedFromWindow() {
+    lynxView.onAttachedToWindow();
+
+    lynxView.onDetachedFromWindow();
+
+    verify(presenter).close();
+  }
+
   @Test public void shouldResumePresenterOnVisibilityChangedToVisible() {
     lynxView.onAttachedToWindow();
 
@@ -134,7 +182,7 @@ public class LynxViewTest {
     int numberOfTracesToShow = 10;
     List<Trace> traces = givenAnyListOfTraces(numberOfTracesToShow);
 
-    lynxView.showTraces(traces, 0);
+    lynxView.showTraces(traces);
 
     ListView tracesListView = getLvTraces();
     int tracesCount = tracesListView.getAdapter().getCount();
@@ -146,8 +194,8 @@ public class LynxViewTest {
     List<Trace> traces = givenAnyListOfTraces(10);
     List<Trace> newTraces = givenAnyListOfTraces(20);
 
-    lynxView.showTraces(traces, 0);
-    lynxView.showTraces(newTraces, 0);
+    lynxView.showTraces(traces);
+    lynxView.showTraces(newTraces);
 
     ListView tracesListView = getLvTraces();
     int tracesCount = tracesListView.getAdapter().getCount();
@@ -155,16 +203,120 @@ public class LynxViewTest {
     assertTracesRendered(newTraces, tracesListView);
   }
 
+  @Test public void shouldRemoveDiscardedTracesAndAppendTheNewOnes() {
+    List<Trace> traces = givenAnyListOfTracesWithIds(0, 10);
+    List<Trace> newTraces = givenAnyListOfTracesWithIds(10, 3);
+
+    lynxView.showTraces(traces);
+    lynxView.appendTraces(newTraces, 3);
+
+    ListView tracesListView = getLvTraces();
+    assertEquals(10, tracesListView.getAdapter().getCount());
+    assertEquals(3L, tracesListView.getAdapter().getItemId(0));
+    assertEquals(12L, tracesListView.getAdapter().getItemId(9));
+  }
+
+  @Test public void shouldRemoveManyDiscardedTracesKeepingTheOrderOfTheOtherOnes() {
+    List<Trace> traces = givenAnyListOfTracesWithIds(0, 2500);
+    List<Trace> newTraces = givenAnyListOfTracesWithIds(2500, 2000);
+
+    lynxView.showTraces(traces);
+    lynxView.appendTraces(newTraces, 2000);
+
+    ListView tracesListView = getLvTraces();
+    assertEquals(2500, tracesListView.getAdapter().getCount());
+    assertEquals(2000L, tracesListView.getAdapter().getItemId(0));
+    assertEquals(4499L, tracesListView.getAdapter().getItemId(2499));
+    assertSame(traces.get(2000), tracesListView.getAdapter().getItem(0));
+    assertSame(newTraces.get(1999), tracesListView.getAdapter().getItem(2499));
+  }
+
+  @Test public void shouldRemoveDiscardedTracesFromTheEndAndPrependTheOlderOnes() {
+    List<Trace> traces = givenAnyListOfTracesWithIds(10, 10);
+    List<Trace> olderTraces = givenAnyListOfTracesWithIds(7, 3);
+
+    lynxView.showTraces(traces);
+    lynxView.prependTraces(olderTraces, 3);
+
+    ListView tracesListView = getLvTraces();
+    assertEquals(10, tracesListView.getAdapter().getCount());
+    assertSame(olderTraces.get(0), tracesListView.getAdapter().getItem(0));
+    assertSame(traces.get(6), tracesListView.getAdapter().getItem(9));
+    assertEquals(7L, tracesListView.getAdapter().getItemId(0));
+  }
+
+  @Test public void shouldShowTracesInTheRecyclerViewIfConfigured() {
+    List<Trace> traces = givenAnyListOfTracesWithIds(0, 10);
+    List<Trace> newTraces = givenAnyListOfTracesWithIds(10, 3);
+
+    lynxView.setLynxConfig(new LynxConfig().setRecyclerView(true));
+    lynxView.showTraces(traces);
+    lynxView.appendTraces(newTraces, 3);
+
+    RecyclerView tracesRecyclerView = (RecyclerView) lynxView.findViewById(R.id.rv_traces);
+    assertEquals(View.VISIBLE, tracesRecyclerView.getVisibility());
+    assertEquals(View.GONE, getLvTraces().getVisibility());
+    assertEquals(10, tracesRecyclerView.getAdapter().getItemCount());
+    assertEquals(3L, tracesRecyclerView.getAdapter().getItemId(0));
+  }
+
+  @Test public void shouldReplaceTheTracesShownInTheRecyclerViewKeepingTheCommonOnes() {
+    List<Trace> traces = givenAnyListOfTracesWithIds(0, 10);
+    List<Trace> newTraces = new ArrayList<Trace>(traces.subList(5, 10));
+    newTraces.addAll(givenAnyListOfTracesWithIds(10, 3));
+
+    lynxView.setLynxConfig(new LynxConfig().setRecyclerView(true));
+    lynxView.showTraces(traces);
+    lynxView.showTraces(newTraces);
+
+    RecyclerView tracesRecyclerView = (RecyclerView) lynxView.findViewById(R.id.rv_traces);
+    assertEquals(8, tracesRecyclerView.getAdapter().getItemCount());
+    assertEquals(5L, tracesRecyclerView.getAdapter().getItemId(0));
+    assertEquals(12L, tracesRecyclerView.getAdapter().getItemId(7));
+  }
+
+  @Test public void shouldRemoveAllTheTracesShownInTheRecyclerViewOnClear() {
+    lynxView.setLynxConfig(new LynxConfig().setRecyclerView(true));
+    lynxView.showTraces(givenAnyListOfTraces(10));
+
+    lynxView.clear();
+
+    RecyclerView tracesRecyclerView = (RecyclerView) lynxView.findViewById(R.id.rv_traces);
+    assertEquals(0, tracesRecyclerView.getAdapter().getItemCount());
+  }
+
   @Test public void shouldResetListViewStateOnClear() {
     List<Trace> traces = givenAnyListOfTraces(10);
 
-    lynxView.showTraces(traces, 0);
+    lynxView.showTraces(traces);
     lynxView.clear();
 
     ListView tracesListView = getLvTraces();
     assertEquals(0, tracesListView.getAdapter().getCount());
   }
 
+  @Test public void shouldScrollToTheTraceWithTheIdPassedAsArgument() {
+    List<Trace> traces = givenAnyListOfTracesWithIds(100, 10);
+    traces.addAll(givenAnyListOfTracesWithIds(200, 10));
+
+    lynxView.disableAutoScroll();
+    lynxView.showTraces(traces);
+    lynxView.scrollToTrace(205L);
+
+    assertEquals(15, getLvTraces().getSelectedItemPosition());
+  }
+
+  @Test public void shouldNotScrollToATraceNotShown() {
+    List<Trace> traces = givenAnyListOfTracesWithIds(100, 10);
+    traces.addAll(givenAnyListOfTracesWithIds(200, 10));
+
+    lynxView.disableAutoScroll();
+    lynxView.showTraces(traces);
+    lynxView.scrollToTrace(150L);
+
+    assertEquals(ListView.INVALID_POSITION, getLvTraces().getSelectedItemPosition());
+  }
+
   @Test public void shouldApplyNewConfigJustIfIsDifferentOfTheCurrentOne() {
     LynxConfig newLynxConfig = new LynxConfig().setTextSizeInPx(ANY_TEXT_SIZE);
 
@@ -199,13 +351,21 @@ public class LynxViewTest {
   }
 
   private List<Trace> givenAnyListOfTraces(int tracesCount) {
-    List<Trace> traces = new LinkedList<Trace>();
+    List<Trace> traces = new ArrayList<Trace>();
     for (int i = 0; i < tracesCount; i++) {
       traces.add(new Trace(TraceLevel.DEBUG, ANY_TRACE_MESSAGE));
     }
     return traces;
   }
 
+  private List<Trace> givenAnyListOfTracesWithIds(long firstId, int tracesCount) {
+    List<Trace> traces = new ArrayList<Trace>();
+    for (int i = 0; i < tracesCount; i++) {
+      traces.add(new Trace(TraceLevel.DEBUG, ANY_TRACE_MESSAGE, "", 0, firstId + i));
+    }
+    return traces;
+  }
+
   private ListView getLvTraces() {
     return (ListView) lynxView.findViewById(R.id.lv_traces);
   }
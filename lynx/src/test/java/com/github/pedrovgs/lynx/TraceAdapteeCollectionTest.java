@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class TraceAdapteeCollectionTest {
+
+  private static final String ANY_TRACE_MESSAGE = "02-07 17:45:33.014 D/ Any trace message";
+  private static final int ANY_LARGE_NUMBER_OF_TRACES = 100000;
+
+  @Test public void shouldRemoveTheFirstTracesKeepingTheOrderOfTheOtherOnes() {
+    List<Trace> traces = givenAnyListOfTraces(ANY_LARGE_NUMBER_OF_TRACES);
+    TraceAdapteeCollection collection = givenACollectionWith(traces);
+
+    int removedTraces = collection.removeFirst(ANY_LARGE_NUMBER_OF_TRACES / 2);
+
+    assertEquals(ANY_LARGE_NUMBER_OF_TRACES / 2, removedTraces);
+    assertEquals(ANY_LARGE_NUMBER_OF_TRACES / 2, collection.size());
+    assertSame(traces.get(ANY_LARGE_NUMBER_OF_TRACES / 2), collection.get(0));
+    assertSame(traces.get(ANY_LARGE_NUMBER_OF_TRACES - 1),
+        collection.get(ANY_LARGE_NUMBER_OF_TRACES / 2 - 1));
+  }
+
+  @Test public void shouldRemoveTheLastTracesKeepingTheOrderOfTheOtherOnes() {
+    List<Trace> traces = givenAnyListOfTraces(10);
+    TraceAdapteeCollection collection = givenACollectionWith(traces);
+
+    int removedTraces = collection.removeLast(3);
+
+    assertEquals(3, removedTraces);
+    assertEquals(7, collection.size());
+    assertSame(traces.get(0), collection.get(0));
+    assertSame(traces.get(6), collection.get(6));
+  }
+
+  @Test public void shouldNotRemoveMoreTracesThanTheOnesStored() {
+    TraceAdapteeCollection collection = givenACollectionWith(givenAnyListOfTraces(3));
+
+    int removedTraces = collection.removeFirst(5);
+
+    assertEquals(3, removedTraces);
+    assertEquals(0, collection.size());
+  }
+
+  @Test public void shouldInsertTracesAtTheBeginningKeepingTheOrder() {
+    List<Trace> traces = givenAnyListOfTraces(3);
+    List<Trace> olderTraces = givenAnyListOfTraces(2);
+    TraceAdapteeCollection collection = givenACollectionWith(traces);
+
+    collection.addAllFirst(olderTraces);
+
+    assertEquals(5, collection.size());
+    assertSame(olderTraces.get(0), collection.get(0));
+    assertSame(olderTraces.get(1), collection.get(1));
+    assertSame(traces.get(0), collection.get(2));
+  }
+
+  private TraceAdapteeCollection givenACollectionWith(List<Trace> traces) {
+    TraceAdapteeCollection collection = new TraceAdapteeCollection();
+    collection.addAll(traces);
+    return collection;
+  }
+
+  private List<Trace> givenAnyListOfTraces(int tracesCount) {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < tracesCount; i++) {
+      traces.add(new Trace(TraceLevel.DEBUG, ANY_TRACE_MESSAGE));
+    }
+    return traces;
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+import android.widget.FrameLayout;
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+@Config(constants = BuildConfig.class, sdk = 18)
+@RunWith(RobolectricTestRunner.class)
+public class TraceCanvasViewTest {
+
+  private static final int CHAR_WIDTH = 10;
+  private static final int LINE_HEIGHT = 20;
+  private static final int BASELINE = 15;
+  private static final int COLUMNS = 40;
+  private static final int LEVEL_LABEL_LENGTH = 4;
+  // Padding at both sides and the fast scroll thumb, 4dp each one.
+  private static final int HORIZONTAL_PADDING_IN_DP = 12;
+  private static final int HEIGHT = 10 * LINE_HEIGHT;
+  private static final int ANY_NUMBER_OF_TRACES = 100;
+
+  private Activity activity;
+  private TraceCanvasView canvasView;
+
+  @Mock private TraceCanvasView.Listener listener;
+
+  @Before public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    activity = Robolectric.buildActivity(Activity.class).create().resume().get();
+    canvasView = new TraceCanvasView(activity);
+    new FrameLayout(activity).addView(canvasView);
+    canvasView.setTextMetrics(CHAR_WIDTH, LINE_HEIGHT, BASELINE);
+    canvasView.setListener(listener);
+    givenTheViewHasAWidthOf(COLUMNS);
+  }
+
+  @Test public void shouldIndexTheFirstLineOfEveryTraceWrappingItEveryColumnsCharacters() {
+    List<Trace> traces = Arrays.asList(givenATraceWithLength(COLUMNS - LEVEL_LABEL_LENGTH),
+        givenATraceWithLength(COLUMNS - LEVEL_LABEL_LENGTH + 1),
+        givenATraceWithLength(3 * COLUMNS - LEVEL_LABEL_LENGTH), givenATraceWithLength(1));
+
+    canvasView.showTraces(traces);
+
+    assertEquals(0, canvasView.getFirstLine(0));
+    assertEquals(1, canvasView.getFirstLine(1));
+    assertEquals(3, canvasView.getFirstLine(2));
+    assertEquals(6, canvasView.getFirstLine(3));
+    assertEquals(7, canvasView.getNumberOfLines());
+  }
+
+  @Test public void shouldUpdateTheLineIndexWhenTracesAreAppendedAndTheFirstOnesRemoved() {
+    canvasView.showTraces(Arrays.asList(givenATraceWithLength(2 * COLUMNS),
+        givenATraceWithLength(1)));
+    Trace newTrace = givenATraceWithLength(COLUMNS);
+
+    canvasView.appendTraces(Arrays.asList(newTrace), 1);
+
+    assertEquals(2, canvasView.getNumberOfTraces());
+    assertSame(newTrace, canvasView.getTrace(1));
+    assertEquals(1, canvasView.getFirstLine(1));
+    assertEquals(3, canvasView.getNumberOfLines());
+  }
+
+  @Test public void shouldUpdateTheLineIndexWhenTracesArePrependedAndTheLastOnesRemoved() {
+    Trace firstTrace = givenATraceWithLength(1);
+    canvasView.showTraces(Arrays.asList(firstTrace, givenATraceWithLength(2 * COLUMNS)));
+    Trace olderTrace = givenATraceWithLength(2 * COLUMNS - LEVEL_LABEL_LENGTH);
+
+    canvasView.prependTraces(Arrays.asList(olderTrace), 1);
+
+    assertEquals(2, canvasView.getNumberOfTraces());
+    assertSame(olderTrace, canvasView.getTrace(0));
+    assertSame(firstTrace, canvasView.getTrace(1));
+    assertEquals(2, canvasView.getFirstLine(1));
+    assertEquals(3, canvasView.getNumberOfLines());
+  }
+
+  @Test public void shouldWrapTheTracesAgainWhenTheWidthChanges() {
+    canvasView.showTraces(Arrays.asList(givenATraceWithLength(COLUMNS - LEVEL_LABEL_LENGTH),
+        givenATraceWithLength(1)));
+
+    givenTheViewHasAWidthOf(COLUMNS / 2);
+
+    assertEquals(2, canvasView.getFirstLine(1));
+    assertEquals(3, canvasView.getNumberOfLines());
+  }
+
+  @Test public void shouldReuseThePositionsOfTheTracesRemovedInsteadOfGrowingTheArrays() {
+    canvasView.showTraces(givenAnyListOfTraces(64));
+    canvasView.appendTraces(givenAnyListOfTraces(32), 32);
+    int capacity = canvasView.getCapacity();
+    List<Trace> lastTraces = null;
+
+    for (int i = 0; i < ANY_NUMBER_OF_TRACES; i++) {
+      lastTraces = givenAnyListOfTraces(32);
+      canvasView.appendTraces(lastTraces, 32);
+    }
+
+    assertEquals(capacity, canvasView.getCapacity());
+    assertEquals(64, canvasView.getNumberOfTraces());
+    assertSame(lastTraces.get(31), canvasView.getTrace(63));
+    assertEquals(0, canvasView.getFirstLine(0));
+    assertEquals(63, canvasView.getFirstLine(63));
+  }
+
+  @Test public void shouldShowTheLastTraceIfTheAutoScrollIsEnabled() {
+    canvasView.showTraces(givenAnyListOfTraces(ANY_NUMBER_OF_TRACES));
+
+    canvasView.appendTraces(givenAnyListOfTraces(10), 0);
+
+    assertEquals((ANY_NUMBER_OF_TRACES + 10) * LINE_HEIGHT - HEIGHT,
+        canvasView.getScrollOffset());
+  }
+
+  @Test public void shouldKeepTheFirstTraceVisibleIfTheAutoScrollIsDisabled() {
+    canvasView.setAutoScroll(false);
+    canvasView.showTraces(givenAnyListOfTraces(ANY_NUMBER_OF_TRACES));
+    canvasView.scrollToPosition(50);
+    Trace firstVisibleTrace = canvasView.getTrace(50);
+
+    canvasView.appendTraces(givenAnyListOfTraces(10), 10);
+
+    assertSame(firstVisibleTrace, canvasView.getTrace(40));
+    assertEquals(canvasView.getFirstLine(40) * LINE_HEIGHT, canvasView.getScrollOffset());
+  }
+
+  @Test public void shouldNotifyTheLastTraceVisibleAndTheTopWhenScrollingToTheFirstTrace() {
+    canvasView.showTraces(givenAnyListOfTraces(ANY_NUMBER_OF_TRACES));
+
+    canvasView.scrollToPosition(0);
+
+    assertEquals(0, canvasView.getScrollOffset());
+    verify(listener).onScrollToPosition(HEIGHT / LINE_HEIGHT);
+    verify(listener).onScrollToTop();
+  }
+
+  @Test public void shouldScrollToTheTraceWithTheIdPassedAsArgument() {
+    canvasView.setAutoScroll(false);
+    canvasView.showTraces(givenAnyListOfTracesWithIds(100, ANY_NUMBER_OF_TRACES));
+
+    canvasView.scrollToTrace(150);
+
+    assertEquals(canvasView.getFirstLine(50) * LINE_HEIGHT, canvasView.getScrollOffset());
+  }
+
+  @Test public void shouldNotScrollToATraceNotShown() {
+    canvasView.setAutoScroll(false);
+    canvasView.showTraces(givenAnyListOfTracesWithIds(100, ANY_NUMBER_OF_TRACES));
+    canvasView.scrollToPosition(10);
+
+    canvasView.scrollToTrace(99);
+
+    assertEquals(canvasView.getFirstLine(10) * LINE_HEIGHT, canvasView.getScrollOffset());
+  }
+
+  @Test public void shouldFastScrollToTheTopTouchingTheTopOfTheRightEdge() {
+    canvasView.showTraces(givenAnyListOfTraces(ANY_NUMBER_OF_TRACES));
+
+    touch(MotionEvent.ACTION_DOWN, canvasView.getWidth() - 1, 0);
+
+    assertEquals(0, canvasView.getScrollOffset());
+  }
+
+  @Test public void shouldFastScrollToTheBottomDraggingTheRightEdge() {
+    canvasView.setAutoScroll(false);
+    canvasView.showTraces(givenAnyListOfTraces(ANY_NUMBER_OF_TRACES));
+
+    touch(MotionEvent.ACTION_DOWN, canvasView.getWidth() - 1, 0);
+    touch(MotionEvent.ACTION_MOVE, canvasView.getWidth() - 1, HEIGHT);
+
+    assertEquals(ANY_NUMBER_OF_TRACES * LINE_HEIGHT - HEIGHT, canvasView.getScrollOffset());
+  }
+
+  @Test public void shouldScrollTheContentDraggingOutsideTheRightEdge() {
+    canvasView.setAutoScroll(false);
+    canvasView.showTraces(givenAnyListOfTraces(ANY_NUMBER_OF_TRACES));
+
+    touch(MotionEvent.ACTION_DOWN, 0, HEIGHT);
+    touch(MotionEvent.ACTION_MOVE, 0, HEIGHT - 5 * LINE_HEIGHT);
+
+    assertEquals(5 * LINE_HEIGHT, canvasView.getScrollOffset());
+  }
+
+  @Test public void shouldNotScrollTouchingOutsideTheRightEdgeWithoutDragging() {
+    canvasView.showTraces(givenAnyListOfTraces(ANY_NUMBER_OF_TRACES));
+    int scrollOffset = canvasView.getScrollOffset();
+
+    touch(MotionEvent.ACTION_DOWN, 0, 0);
+    touch(MotionEvent.ACTION_UP, 0, 0);
+
+    assertEquals(scrollOffset, canvasView.getScrollOffset());
+  }
+
+  private void givenTheViewHasAWidthOf(int columns) {
+    float density = activity.getResources().getDisplayMetrics().density;
+    int width = columns * CHAR_WIDTH + (int) (HORIZONTAL_PADDING_IN_DP * density);
+    canvasView.layout(0, 0, width, HEIGHT);
+  }
+
+  private void touch(int action, float x, float y) {
+    MotionEvent event = MotionEvent.obtain(0, 0, action, x, y, 0);
+    canvasView.onTouchEvent(event);
+    event.recycle();
+  }
+
+  private Trace givenATraceWithLength(int length) {
+    StringBuilder message = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      message.append('a');
+    }
+    return new Trace(TraceLevel.DEBUG, message.toString());
+  }
+
+  private List<Trace> givenAnyListOfTracesWithIds(long firstId, int numberOfTraces) {
+    List<Trace> traces = new ArrayList<Trace>();
+    for (int i = 0; i < numberOfTraces; i++) {
+      traces.add(new Trace(TraceLevel.DEBUG, "a", null, Trace.NO_PID, firstId + i));
+    }
+    return traces;
+  }
+
+  private List<Trace> givenAnyListOfTraces(int numberOfTraces) {
+    List<Trace> traces = new ArrayList<Trace>();
+    for (int i = 0; i < numberOfTraces; i++) {
+      traces.add(givenATraceWithLength(1));
+    }
+    return traces;
+  }
+}
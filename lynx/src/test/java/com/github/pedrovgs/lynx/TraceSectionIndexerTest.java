@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.Locale;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class TraceSectionIndexerTest {
+
+  private static final int ANY_NUMBER_OF_TRACES = 250;
+
+  private TraceAdapteeCollection traces;
+  private TraceSectionIndexer sectionIndexer;
+
+  @Before public void setUp() {
+    traces = new TraceAdapteeCollection();
+    sectionIndexer = new TraceSectionIndexer(traces);
+  }
+
+  @Test public void shouldReturnTheSectionOfTheFirstTraceOfEverySection() {
+    givenTimestampedTraces(ANY_NUMBER_OF_TRACES);
+
+    for (int section = 0; section < TraceSectionIndexer.NUMBER_OF_SECTIONS; section++) {
+      int position = sectionIndexer.getPositionForSection(section);
+
+      assertEquals(section, sectionIndexer.getSectionForPosition(position));
+      if (position > 0) {
+        assertEquals(section - 1, sectionIndexer.getSectionForPosition(position - 1));
+      }
+    }
+  }
+
+  @Test public void shouldAssignTheFirstAndTheLastTracesToTheFirstAndTheLastSections() {
+    givenTimestampedTraces(ANY_NUMBER_OF_TRACES);
+
+    assertEquals(0, sectionIndexer.getSectionForPosition(0));
+    assertEquals(TraceSectionIndexer.NUMBER_OF_SECTIONS - 1,
+        sectionIndexer.getSectionForPosition(ANY_NUMBER_OF_TRACES - 1));
+  }
+
+  @Test public void shouldLabelEverySectionWithTheDateOfItsFirstTrace() {
+    givenTimestampedTraces(ANY_NUMBER_OF_TRACES);
+
+    Object[] sections = sectionIndexer.getSections();
+
+    assertEquals(getDate(0), sections[0].toString());
+    int position = sectionIndexer.getPositionForSection(50);
+    assertEquals(getDate(position), sections[50].toString());
+  }
+
+  @Test public void shouldUpdateTheLabelsOfTheSectionsWhenTheTracesChange() {
+    Object[] sections = sectionIndexer.getSections();
+
+    givenTimestampedTraces(ANY_NUMBER_OF_TRACES);
+
+    assertEquals(getDate(0), sections[0].toString());
+  }
+
+  @Test public void shouldReturnAnEmptyLabelForTracesWithoutTimestamp() {
+    traces.add(new Trace(TraceLevel.DEBUG, "Any trace without timestamp"));
+
+    assertEquals("", sectionIndexer.getSections()[0].toString());
+  }
+
+  @Test public void shouldReturnAnEmptyLabelForSectionsWithoutTraces() {
+    givenTimestampedTraces(1);
+
+    assertEquals("", sectionIndexer.getSections()[1].toString());
+    assertEquals(0, sectionIndexer.getSectionForPosition(0));
+  }
+
+  private void givenTimestampedTraces(int numberOfTraces) {
+    for (int i = 0; i < numberOfTraces; i++) {
+      traces.add(new Trace(TraceLevel.DEBUG, getDate(i) + " Any trace " + i));
+    }
+  }
+
+  private String getDate(int position) {
+    return String.format(Locale.US, "02-07 17:%02d:%02d.000", position / 60, position % 60);
+  }
+}
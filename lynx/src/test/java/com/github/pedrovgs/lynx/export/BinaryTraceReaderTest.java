@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class BinaryTraceReaderTest {
+
+  private static final int ANY_BUFFER_SIZE = 1024;
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+  private static final TimeZone ANY_TIME_ZONE = TimeZone.getTimeZone("America/New_York");
+  // 2017-03-01 00:00:00.000 UTC.
+  private static final long ANY_REFERENCE_TIME = 1488326400000L;
+  // 2017-02-07 17:45:33.014 UTC.
+  private static final long ANY_EPOCH_TIME = 1486489533014L;
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptANullInputStream() {
+    new BinaryTraceReader(null);
+  }
+
+  @Test public void shouldReturnNullIfThereAreNoTraces() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    givenAWriter(outputStream).close();
+
+    BinaryTraceReader reader = givenAReader(outputStream);
+
+    assertNull(reader.read());
+  }
+
+  @Test public void shouldReadTheTracesWritten() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    BinaryTraceWriter writer = givenAWriter(outputStream);
+    Trace trace = Trace.fromString("02-07 17:45:33.014 W/Lynx( 1234): Any trace ñ");
+    writer.writeHeader(new ExportHeader("Any device", "Any config", 1, null, null));
+    writer.writeTrace(trace);
+    writer.close();
+
+    BinaryTraceReader reader = givenAReader(outputStream);
+
+    assertSameTrace(trace, reader.read());
+    assertNull(reader.read());
+  }
+
+  @Test public void shouldReadTheTracesWrittenWithoutTagNorDate() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    BinaryTraceWriter writer = givenAWriter(outputStream);
+    Trace traceWithoutTag = Trace.fromString("12-31 23:59:59.999 D/Any trace without tag");
+    Trace traceWithoutDate = new Trace(TraceLevel.ERROR, "Any trace without date");
+    writer.writeTrace(traceWithoutTag);
+    writer.writeTrace(traceWithoutDate);
+    writer.close();
+
+    BinaryTraceReader reader = givenAReader(outputStream);
+
+    assertSameTrace(traceWithoutTag, reader.read());
+    assertSameTrace(traceWithoutDate, reader.read());
+    assertNull(reader.read());
+  }
+
+  @Test public void shouldWriteTheMessageBodyAndTheTimestampAsMillisecondsSinceTheEpoch()
+      throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    BinaryTraceWriter writer =
+        new BinaryTraceWriter(outputStream, ANY_BUFFER_SIZE, givenAConverter(UTC));
+    writer.writeTrace(Trace.fromString("02-07 17:45:33.014 W/Lynx( 1234): Any trace"));
+    writer.close();
+
+    DataInputStream input =
+        new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+    input.skipBytes(BinaryTraceWriter.MAGIC.length + 1);
+    assertEquals("UTC", readString(input));
+    input.skipBytes(4);
+    assertEquals(BinaryTraceWriter.TRACE_RECORD, input.readByte());
+    assertEquals(ANY_EPOCH_TIME, input.readLong());
+    assertEquals('W', input.readByte());
+    assertEquals(1234, input.readInt());
+    assertEquals("Lynx", readString(input));
+    assertEquals("Any trace", readString(input));
+  }
+
+  @Test public void shouldSkipTheRecordsWithAnUnknownType() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+    dataOutputStream.write(BinaryTraceWriter.MAGIC);
+    dataOutputStream.writeByte(BinaryTraceWriter.VERSION);
+    dataOutputStream.writeInt(3);
+    dataOutputStream.write(new byte[] { 'U', 'T', 'C' });
+    dataOutputStream.writeInt(4);
+    dataOutputStream.writeByte('X');
+    dataOutputStream.write(new byte[] { 1, 2, 3 });
+    dataOutputStream.close();
+
+    BinaryTraceReader reader = givenAReader(outputStream);
+
+    assertNull(reader.read());
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldNotReadStreamsWithoutTheLynxMagicBytes() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    outputStream.write(new byte[] { 'A', 'N', 'Y', '!', BinaryTraceWriter.VERSION });
+
+    givenAReader(outputStream).read();
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldNotReadUnsupportedVersions() throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    outputStream.write(BinaryTraceWriter.MAGIC);
+    outputStream.write(BinaryTraceWriter.VERSION + 1);
+
+    givenAReader(outputStream).read();
+  }
+
+  private BinaryTraceWriter givenAWriter(ByteArrayOutputStream outputStream) throws IOException {
+    return new BinaryTraceWriter(outputStream, ANY_BUFFER_SIZE, givenAConverter(ANY_TIME_ZONE));
+  }
+
+  private LogcatDateConverter givenAConverter(TimeZone timeZone) {
+    return new LogcatDateConverter(timeZone, ANY_REFERENCE_TIME);
+  }
+
+  private void assertSameTrace(Trace expectedTrace, Trace trace) {
+    assertEquals(expectedTrace, trace);
+    assertEquals(expectedTrace.getTag(), trace.getTag());
+    assertEquals(expectedTrace.getPid(), trace.getPid());
+    assertEquals(expectedTrace.getTimestamp(), trace.getTimestamp());
+  }
+
+  private String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, BinaryTraceWriter.UTF_8);
+  }
+
+  private BinaryTraceReader givenAReader(ByteArrayOutputStream outputStream) {
+    return new BinaryTraceReader(new ByteArrayInputStream(outputStream.toByteArray()));
+  }
+}
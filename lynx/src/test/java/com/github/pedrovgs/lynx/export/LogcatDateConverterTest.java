@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class LogcatDateConverterTest {
+
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+  private static final TimeZone ANY_TIME_ZONE = TimeZone.getTimeZone("America/New_York");
+  // 2017-03-01 00:00:00.000 UTC.
+  private static final long MARCH_2017 = 1488326400000L;
+  // 2017-01-05 00:00:00.000 UTC.
+  private static final long JANUARY_2017 = 1483574400000L;
+  // 2017-02-07 17:45:33.014 UTC.
+  private static final long ANY_EPOCH_TIME = 1486489533014L;
+  // 2016-12-31 23:59:59.999 UTC.
+  private static final long LAST_MILLISECOND_OF_2016 = 1483228799999L;
+
+  @Test public void shouldConvertTheTimestampToMillisecondsSinceTheEpoch() {
+    LogcatDateConverter converter = new LogcatDateConverter(UTC, MARCH_2017);
+
+    long epochTime = converter.toEpochTime(givenATimestamp("02-07 17:45:33.014"));
+
+    assertEquals(ANY_EPOCH_TIME, epochTime);
+  }
+
+  @Test public void shouldUseThePreviousYearForDatesOfALaterMonthThanTheReferenceTime() {
+    LogcatDateConverter converter = new LogcatDateConverter(UTC, JANUARY_2017);
+
+    long epochTime = converter.toEpochTime(givenATimestamp("12-31 23:59:59.999"));
+
+    assertEquals(LAST_MILLISECOND_OF_2016, epochTime);
+  }
+
+  @Test public void shouldNotConvertTracesWithoutTimestamp() {
+    LogcatDateConverter converter = new LogcatDateConverter(UTC, MARCH_2017);
+
+    assertEquals(Trace.NO_TIMESTAMP, converter.toEpochTime(Trace.NO_TIMESTAMP));
+  }
+
+  @Test public void shouldConvertTimestampsOfDifferentHoursOfTheSameDay() {
+    LogcatDateConverter converter = new LogcatDateConverter(UTC, MARCH_2017);
+
+    converter.toEpochTime(givenATimestamp("02-07 16:45:33.014"));
+    long epochTime = converter.toEpochTime(givenATimestamp("02-07 17:45:33.014"));
+
+    assertEquals(ANY_EPOCH_TIME, epochTime);
+  }
+
+  @Test public void shouldFormatTheEpochTimeAsTheDatePrintedByLogcat() {
+    LogcatDateConverter converter = new LogcatDateConverter(UTC, MARCH_2017);
+
+    assertEquals("02-07 17:45:33.014", converter.toLogcatDate(ANY_EPOCH_TIME));
+  }
+
+  @Test public void shouldReturnTheSameDateConvertingItToEpochTimeAndBack() {
+    LogcatDateConverter converter = new LogcatDateConverter(ANY_TIME_ZONE, MARCH_2017);
+
+    long epochTime = converter.toEpochTime(givenATimestamp("02-07 09:05:03.004"));
+
+    assertEquals("02-07 09:05:03.004", converter.toLogcatDate(epochTime));
+  }
+
+  private long givenATimestamp(String date) {
+    return new Trace(TraceLevel.DEBUG, date + " Any trace").getTimestamp();
+  }
+}
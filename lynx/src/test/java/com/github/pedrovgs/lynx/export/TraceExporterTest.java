@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.export;
+
+import com.github.pedrovgs.lynx.LynxConfig;
+import com.github.pedrovgs.lynx.model.FakeMainThread;
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class TraceExporterTest {
+
+  private static final String ANY_DEVICE = "Any device";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File directory;
+  private TraceExporter traceExporter;
+  private FakeListener listener;
+  private LynxConfig lynxConfig;
+
+  @Before public void setUp() throws Exception {
+    directory = new File(temporaryFolder.getRoot(), "exports");
+    traceExporter =
+        new TraceExporter(directory, ANY_DEVICE, new DirectExecutor(), new FakeMainThread());
+    listener = new FakeListener();
+    lynxConfig = new LynxConfig();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptANullDirectory() {
+    new TraceExporter(null, ANY_DEVICE, new DirectExecutor(), new FakeMainThread());
+  }
+
+  @Test public void shouldWriteAPlainRepresentationOfTheTracesExported() throws Exception {
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any debug trace"),
+        new Trace(TraceLevel.ERROR, "Any error trace ñ"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    assertEquals("D/ Any debug trace\nE/ Any error trace ñ\n", readFile(listener.file));
+  }
+
+  @Test public void shouldWriteEveryTraceEvenIfTheyDontFitInTheBuffer() throws Exception {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < TraceExporter.BUFFER_SIZE; i++) {
+      traces.add(new Trace(TraceLevel.INFO, String.format("%06d", i)));
+    }
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    assertEquals(TraceExporter.BUFFER_SIZE * "I/ 000000\n".length(), listener.file.length());
+  }
+
+  @Test public void shouldKeepTheLastFileExportedAndDeleteTheOlderOnes() {
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any debug trace"));
+    traceExporter.export(traces, lynxConfig, listener);
+    File firstFile = listener.file;
+    traceExporter.export(traces, lynxConfig, listener);
+    File secondFile = listener.file;
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    assertFalse(firstFile.exists());
+    assertTrue(secondFile.exists());
+    assertTrue(listener.file.exists());
+  }
+
+  @Test public void shouldKeepJustTheLastFileExportedOnClose() {
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any debug trace"));
+    traceExporter.export(traces, lynxConfig, listener);
+    File firstFile = listener.file;
+    traceExporter.export(traces, lynxConfig, listener);
+
+    traceExporter.close();
+
+    assertFalse(firstFile.exists());
+    assertTrue(listener.file.exists());
+  }
+
+  @Test public void shouldNotifyTheExportFailedIfTheDirectoryCantBeCreated() throws Exception {
+    File file = temporaryFolder.newFile();
+    traceExporter =
+        new TraceExporter(file, ANY_DEVICE, new DirectExecutor(), new FakeMainThread());
+
+    traceExporter.export(new LinkedList<Trace>(), lynxConfig, listener);
+
+    assertTrue(listener.hasFailed);
+    assertNull(listener.file);
+  }
+
+  @Test public void shouldWriteACompressedArchiveIfGzipExportIsEnabled() throws Exception {
+    lynxConfig.setGzipExport(true);
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any debug trace"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    assertTrue(listener.file.getName().endsWith(".gz"));
+    assertTrue(readGzipFile(listener.file).endsWith("D/ Any debug trace\n"));
+  }
+
+  @Test public void shouldDescribeTheDeviceConfigAndTimeRangeInTheArchiveHeader()
+      throws Exception {
+    lynxConfig.setGzipExport(true);
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any trace without date"),
+        new Trace(TraceLevel.DEBUG, "02-07 17:45:33.014 Any first trace"),
+        new Trace(TraceLevel.ERROR, "02-07 17:50:01.123 Any last trace"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    String expectedHeader = "# Lynx traces\n"
+        + "# Device: " + ANY_DEVICE + "\n"
+        + "# Config: " + lynxConfig + "\n"
+        + "# Traces: 3\n"
+        + "# From: 02-07 17:45:33.014\n"
+        + "# To: 02-07 17:50:01.123\n";
+    assertTrue(readGzipFile(listener.file).startsWith(expectedHeader));
+  }
+
+  @Test public void shouldNotWriteTheHeaderInPlainTextFiles() throws Exception {
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any debug trace"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    assertFalse(readFile(listener.file).startsWith(PlainTextTraceWriter.HEADER_PREFIX));
+  }
+
+  @Test public void shouldNotifyTheProgressOfTheExport() {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < 250; i++) {
+      traces.add(new Trace(TraceLevel.INFO, "Trace " + i));
+    }
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    assertEquals(100, listener.progress.size());
+    assertEquals(Integer.valueOf(1), listener.progress.get(0));
+    assertEquals(Integer.valueOf(100), listener.progress.get(99));
+  }
+
+  @Test public void shouldNotWriteAnyFileIfTheExportIsCancelledBeforeStarting() {
+    QueuedExecutor executor = new QueuedExecutor();
+    traceExporter = new TraceExporter(directory, ANY_DEVICE, executor, new FakeMainThread());
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any debug trace"));
+
+    TraceExporter.Export export = traceExporter.export(traces, lynxConfig, listener);
+    export.cancel();
+    executor.runPendingCommands();
+
+    assertFalse(directory.exists());
+    assertNull(listener.file);
+    assertFalse(listener.hasFailed);
+  }
+
+  @Test public void shouldStopWritingAndDeleteTheFileIfTheExportIsCancelled() {
+    QueuedExecutor executor = new QueuedExecutor();
+    traceExporter = new TraceExporter(directory, ANY_DEVICE, executor, new FakeMainThread());
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < 250; i++) {
+      traces.add(new Trace(TraceLevel.INFO, "Trace " + i));
+    }
+    listener.cancelOnProgress = 10;
+
+    listener.export = traceExporter.export(traces, lynxConfig, listener);
+    executor.runPendingCommands();
+
+    assertEquals(Integer.valueOf(10), listener.progress.get(listener.progress.size() - 1));
+    assertNull(listener.file);
+    assertFalse(listener.hasFailed);
+    assertEquals(0, directory.listFiles().length);
+  }
+
+  @Test public void shouldWriteEveryTraceAsAJsonObjectInItsOwnLine() throws Exception {
+    lynxConfig.setExportFormat(ExportFormat.JSON_LINES);
+    List<Trace> traces =
+        Arrays.asList(Trace.fromString("02-07 17:45:33.014 D/Lynx( 1234): Any debug trace"),
+            new Trace(TraceLevel.ERROR, "Any error trace"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    long epochTime = new LogcatDateConverter(TimeZone.getDefault(), System.currentTimeMillis())
+        .toEpochTime(traces.get(0).getTimestamp());
+    String expectedFirstTrace = "{\"timestamp\":" + epochTime
+        + ",\"level\":\"D\",\"pid\":1234,\"tag\":\"Lynx\","
+        + "\"message\":\"Any debug trace\"}\n";
+    String expectedSecondTrace = "{\"timestamp\":null,\"level\":\"E\",\"pid\":null,"
+        + "\"tag\":null,\"message\":\"Any error trace\"}\n";
+    assertTrue(listener.file.getName().endsWith(".jsonl"));
+    assertEquals(expectedFirstTrace + expectedSecondTrace, readFile(listener.file));
+  }
+
+  @Test public void shouldEscapeTheJsonStrings() throws Exception {
+    lynxConfig.setExportFormat(ExportFormat.JSON_LINES);
+    List<Trace> traces =
+        Arrays.asList(new Trace(TraceLevel.INFO, "Any \"quoted\" \\ trace\twith\u0001ñ"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    assertTrue(readFile(listener.file).contains(
+        "\"message\":\"Any \\\"quoted\\\" \\\\ trace\\twith\\u0001ñ\""));
+  }
+
+  @Test public void shouldWriteTheHeaderAsTheFirstJsonLineOfCompressedArchives()
+      throws Exception {
+    lynxConfig.setExportFormat(ExportFormat.JSON_LINES).setGzipExport(true);
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any trace without date"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    String expectedHeader = "{\"header\":{\"device\":\"" + ANY_DEVICE + "\",\"config\":\""
+        + lynxConfig + "\",\"traces\":1,\"from\":null,\"to\":null}}\n";
+    assertTrue(listener.file.getName().endsWith(".jsonl.gz"));
+    assertTrue(readGzipFile(listener.file).startsWith(expectedHeader));
+  }
+
+  @Test public void shouldWriteTracesReadableWithTheBinaryTraceReader() throws Exception {
+    lynxConfig.setExportFormat(ExportFormat.BINARY);
+    List<Trace> traces =
+        Arrays.asList(Trace.fromString("02-07 17:45:33.014 D/Lynx( 1234): Any debug trace ñ"),
+            Trace.fromString("02-07 17:45:33.015 I/Any info trace without tag"),
+            new Trace(TraceLevel.ERROR, "Any error trace"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    assertTrue(listener.file.getName().endsWith(".lynx"));
+    assertEquals(traces, readBinaryTraces(new FileInputStream(listener.file)));
+  }
+
+  @Test public void shouldSkipTheHeaderOfCompressedBinaryArchives() throws Exception {
+    lynxConfig.setExportFormat(ExportFormat.BINARY).setGzipExport(true);
+    List<Trace> traces = Arrays.asList(new Trace(TraceLevel.DEBUG, "Any debug trace"));
+
+    traceExporter.export(traces, lynxConfig, listener);
+
+    InputStream inputStream = new GZIPInputStream(new FileInputStream(listener.file));
+    assertEquals(traces, readBinaryTraces(inputStream));
+  }
+
+  @Test public void shouldReturnTheMimeTypeOfTheFilesExported() {
+    assertEquals("text/plain", TraceExporter.getMimeType(new File("lynx_traces_1.txt")));
+    assertEquals("application/x-ndjson",
+        TraceExporter.getMimeType(new File("lynx_traces_1.jsonl")));
+    assertEquals("application/octet-stream",
+        TraceExporter.getMimeType(new File("lynx_traces_1.lynx")));
+    assertEquals("application/gzip", TraceExporter.getMimeType(new File("lynx_traces_1.lynx.gz")));
+  }
+
+  private List<Trace> readBinaryTraces(InputStream inputStream) throws IOException {
+    BinaryTraceReader reader = new BinaryTraceReader(inputStream);
+    try {
+      List<Trace> traces = new ArrayList<Trace>();
+      Trace trace;
+      while ((trace = reader.read()) != null) {
+        traces.add(trace);
+      }
+      return traces;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private String readGzipFile(File file) throws IOException {
+    return readStream(new GZIPInputStream(new FileInputStream(file)));
+  }
+
+  private String readFile(File file) throws IOException {
+    return readStream(new FileInputStream(file));
+  }
+
+  private String readStream(InputStream inputStream) throws IOException {
+    try {
+      Reader reader = new InputStreamReader(inputStream, "UTF-8");
+      StringBuilder content = new StringBuilder();
+      char[] buffer = new char[1024];
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        content.append(buffer, 0, read);
+      }
+      return content.toString();
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private static class FakeListener implements TraceExporter.Listener {
+
+    private final List<Integer> progress = new ArrayList<Integer>();
+    private File file;
+    private boolean hasFailed;
+    private int cancelOnProgress = -1;
+    private TraceExporter.Export export;
+
+    @Override public void onExportProgress(int percentage) {
+      progress.add(percentage);
+      if (percentage == cancelOnProgress) {
+        export.cancel();
+      }
+    }
+
+    @Override public void onTracesExported(File file) {
+      this.file = file;
+    }
+
+    @Override public void onExportFailed() {
+      hasFailed = true;
+    }
+  }
+
+  private static class DirectExecutor implements Executor {
+
+    @Override public void execute(Runnable command) {
+      command.run();
+    }
+  }
+
+  private static class QueuedExecutor implements Executor {
+
+    private final List<Runnable> commands = new LinkedList<Runnable>();
+
+    @Override public void execute(Runnable command) {
+      commands.add(command);
+    }
+
+    void runPendingCommands() {
+      for (Runnable command : commands) {
+        command.run();
+      }
+      commands.clear();
+    }
+  }
+}
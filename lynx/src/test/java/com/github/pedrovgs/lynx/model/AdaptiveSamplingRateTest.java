@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class AdaptiveSamplingRateTest {
+
+  private static final int MAX_SAMPLING_RATE = 150;
+  private static final long CHEAP_NOTIFICATION_IN_NANOS = 100000;
+  private static final long EXPENSIVE_NOTIFICATION_IN_NANOS = 10000000;
+  private static final long VERY_EXPENSIVE_NOTIFICATION_IN_NANOS = 100000000;
+
+  private AdaptiveSamplingRate adaptiveSamplingRate;
+
+  @Before public void setUp() {
+    adaptiveSamplingRate = new AdaptiveSamplingRate();
+  }
+
+  @Test public void shouldUseZeroAsSamplingRateByDefault() {
+    assertEquals(0, adaptiveSamplingRate.getSamplingRate());
+  }
+
+  @Test public void shouldUseZeroAsSamplingRateIfTracesArriveSlowlyAndNotificationsAreCheap() {
+    givenNotifications(1, 1000, CHEAP_NOTIFICATION_IN_NANOS);
+
+    assertEquals(0, adaptiveSamplingRate.getSamplingRate());
+  }
+
+  @Test public void shouldGroupTracesByFrameIfMoreThanOneTracePerFrameArrives() {
+    givenNotifications(100, 16, CHEAP_NOTIFICATION_IN_NANOS);
+
+    assertEquals(AdaptiveSamplingRate.FRAME_DURATION_IN_MILLIS,
+        adaptiveSamplingRate.getSamplingRate());
+  }
+
+  @Test public void shouldIncreaseSamplingRateIfNotificationsAreExpensive() {
+    givenNotifications(100, 16, EXPENSIVE_NOTIFICATION_IN_NANOS);
+
+    assertEquals(39, adaptiveSamplingRate.getSamplingRate());
+  }
+
+  @Test public void shouldNotUseASamplingRateBiggerThanTheMaxSamplingRate() {
+    givenNotifications(100, 16, VERY_EXPENSIVE_NOTIFICATION_IN_NANOS);
+
+    assertEquals(MAX_SAMPLING_RATE, adaptiveSamplingRate.getSamplingRate());
+  }
+
+  @Test public void shouldUseZeroAsSamplingRateOnReset() {
+    givenNotifications(100, 16, VERY_EXPENSIVE_NOTIFICATION_IN_NANOS);
+
+    adaptiveSamplingRate.reset();
+
+    assertEquals(0, adaptiveSamplingRate.getSamplingRate());
+  }
+
+  private void givenNotifications(int numberOfTraces, long timeFromLastNotification,
+      long notificationCostInNanos) {
+    for (int i = 0; i < 10; i++) {
+      adaptiveSamplingRate.onNotification(numberOfTraces, timeFromLastNotification,
+          notificationCostInNanos, MAX_SAMPLING_RATE);
+    }
+  }
+}
@@ -17,15 +17,25 @@
 package com.github.pedrovgs.lynx.model;
 
 /**
- * MainThread extension created for testing purposes. This implementation is going to execute the
+ * ScheduledMainThread extension created for testing purposes. This implementation is going to execute the
  * Runnable passed as argument directly instead of post the Runnable directly to the main Looper as
- * the original implementation does.
+ * the original implementation does. Runnable objects posted on the next frame are executed directly
+ * too. Delayed Runnable objects are ignored, use VirtualClock to test code based on delayed
+ * executions.
  *
  * @author Pedro Vicente Gómez Sánchez.
  */
-public class FakeMainThread implements MainThread {
+public class FakeMainThread implements ScheduledMainThread {
 
   @Override public void post(Runnable runnable) {
     runnable.run();
   }
+
+  @Override public void postDelayed(Runnable runnable, long delayInMillis) {
+    //Empty
+  }
+
+  @Override public void postOnNextFrame(Runnable runnable) {
+    runnable.run();
+  }
 }
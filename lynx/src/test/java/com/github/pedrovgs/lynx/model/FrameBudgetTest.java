@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class FrameBudgetTest {
+
+  private FrameBudget frameBudget;
+
+  @Before public void setUp() {
+    frameBudget = new FrameBudget();
+  }
+
+  @Test public void shouldUseTheInitialSliceSizeIfNoSliceHasBeenDelivered() {
+    assertEquals(FrameBudget.INITIAL_SLICE_SIZE, frameBudget.getSliceSize());
+  }
+
+  @Test public void shouldUseTheNumberOfTracesFittingInTheFrameBudgetAsSliceSize() {
+    frameBudget.onSliceDelivered(100, FrameBudget.FRAME_BUDGET_IN_NANOS);
+
+    assertEquals(100, frameBudget.getSliceSize());
+  }
+
+  @Test public void shouldNotUseASliceSizeSmallerThanTheMinSliceSize() {
+    frameBudget.onSliceDelivered(1, FrameBudget.FRAME_BUDGET_IN_NANOS);
+
+    assertEquals(FrameBudget.MIN_SLICE_SIZE, frameBudget.getSliceSize());
+  }
+
+  @Test public void shouldNotSplitTracesIfListenersHaveNoMeasurableCost() {
+    frameBudget.onSliceDelivered(100, 0);
+
+    assertEquals(Integer.MAX_VALUE, frameBudget.getSliceSize());
+  }
+
+  @Test public void shouldSmoothTheCostOfTheSlicesDelivered() {
+    frameBudget.onSliceDelivered(100, FrameBudget.FRAME_BUDGET_IN_NANOS);
+    frameBudget.onSliceDelivered(100, 3 * FrameBudget.FRAME_BUDGET_IN_NANOS);
+
+    assertEquals(50, frameBudget.getSliceSize());
+  }
+}
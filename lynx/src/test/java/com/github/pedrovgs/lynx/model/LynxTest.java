@@ -24,13 +24,21 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -40,9 +48,12 @@ import static org.mockito.Mockito.when;
 public class LynxTest {
 
   private static final long NOW = 100;
+  private static final long VIRTUAL_CLOCK_START_TIME = 10000;
   private static final String ANY_DEBUG_TRACE = "02-07 17:45:33.014 D/Any debug trace";
   private static final String ANY_ERROR_TRACE = "02-07 17:45:33.014 E/Any error trace";
   private static final String ANY_WTF_TRACE = "02-07 17:45:33.014 F/Any WTF trace";
+  private static final String ANY_INFO_TRACE = "02-07 17:45:33.014 I/Any info trace";
+  private static final String ANY_WARNING_TRACE = "02-07 17:45:33.014 W/Any warning trace";
   private static final String ANY_FILTER = "FiLteR";
   private static final String ANY_OTHER_FILTER = "Other";
   private static final String ANY_INVALID_REGEXP_FILTER = "[a-z";
@@ -115,7 +126,7 @@ public class LynxTest {
 
     Logcat.Listener logcatListener = startLogcat();
     logcatListener.onTraceRead(ANY_DEBUG_TRACE);
-    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    logcatListener.onTraceRead(ANY_INFO_TRACE);
 
     List<Trace> expectedTraces = generateTraces(ANY_DEBUG_TRACE);
     verify(listener).onNewTraces(expectedTraces);
@@ -127,12 +138,12 @@ public class LynxTest {
 
     Logcat.Listener logcatListener = startLogcat();
     logcatListener.onTraceRead(ANY_DEBUG_TRACE);
-    logcatListener.onTraceRead(ANY_ERROR_TRACE);
-    logcatListener.onTraceRead(ANY_WTF_TRACE);
+    logcatListener.onTraceRead(ANY_INFO_TRACE);
+    logcatListener.onTraceRead(ANY_WARNING_TRACE);
 
     List<Trace> expectedTraces = generateTraces(ANY_DEBUG_TRACE);
     verify(listener).onNewTraces(expectedTraces);
-    expectedTraces = generateTraces(ANY_ERROR_TRACE, ANY_WTF_TRACE);
+    expectedTraces = generateTraces(ANY_INFO_TRACE, ANY_WARNING_TRACE);
     verify(listener).onNewTraces(expectedTraces);
   }
 
@@ -251,6 +262,74 @@ public class LynxTest {
     verify(listener).onNewTraces(expectedTraces);
   }
 
+  @Test public void shouldParseTheTracesReadBeforeStartingFromABackgroundThread()
+      throws IllegalTraceException {
+    SharedLogcat sharedLogcat = new SharedLogcat(logcat);
+    Lynx otherLynx = new Lynx(sharedLogcat, new FakeMainThread(), timeProvider);
+    otherLynx.startReading();
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    QueuedExecutor historyExecutor = new QueuedExecutor();
+    lynx = new Lynx(sharedLogcat, new FakeMainThread(), timeProvider, historyExecutor);
+    lynx.registerListener(listener);
+    givenCurrentTime();
+
+    lynx.startReading();
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    verify(listener, never()).onNewTraces(anyList());
+    historyExecutor.runPendingCommands();
+    verify(listener).onNewTraces(generateTraces(ANY_DEBUG_TRACE, ANY_ERROR_TRACE));
+  }
+
+  @Test public void shouldNotNotifyTwiceTheTracesReadWhileRestarting()
+      throws IllegalTraceException {
+    final Logcat.Listener[] logcatListener = new Logcat.Listener[1];
+    SharedLogcat sharedLogcat = new SharedLogcat(logcat) {
+      @Override HistorySnapshot restart(Subscriber subscriber) {
+        logcatListener[0].onTraceRead(ANY_ERROR_TRACE);
+        return super.restart(subscriber);
+      }
+    };
+    new Lynx(sharedLogcat, new FakeMainThread(), timeProvider).startReading();
+    logcatListener[0] = getLogcatListener();
+    QueuedMainThread mainThread = new QueuedMainThread();
+    QueuedExecutor historyExecutor = new QueuedExecutor();
+    lynx = new Lynx(sharedLogcat, mainThread, timeProvider, historyExecutor);
+    lynx.registerListener(listener);
+    givenCurrentTime();
+    lynx.startReading();
+    logcatListener[0].onTraceRead(ANY_DEBUG_TRACE);
+    mainThread.runPendingRunnables();
+
+    lynx.restart();
+    historyExecutor.runPendingCommands();
+    mainThread.runPendingRunnables();
+
+    verify(listener).onNewTraces(generateTraces(ANY_DEBUG_TRACE));
+    verify(listener).onNewTraces(generateTraces(ANY_DEBUG_TRACE, ANY_ERROR_TRACE));
+    verify(listener, times(2)).onNewTraces(anyList());
+  }
+
+  @Test public void shouldNotNotifyThePendingTracesNotMatchingANewFilter()
+      throws IllegalTraceException {
+    QueuedMainThread mainThread = new QueuedMainThread();
+    lynx = new Lynx(logcat, mainThread, timeProvider);
+    lynx.setConfig(new LynxConfig().setSamplingRate(10));
+    lynx.registerListener(listener);
+    givenCurrentTime();
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_TRACE_MATCHING_FILTER_DEBUG);
+
+    lynx.setConfig(new LynxConfig().setFilter(ANY_FILTER).setSamplingRate(10));
+    logcatListener.onTraceRead(ANY_TRACE_MATCHING_FILTER_VERBOSE);
+    mainThread.runPendingRunnables();
+
+    verify(listener).onNewTraces(
+        generateTraces(ANY_TRACE_MATCHING_FILTER_DEBUG, ANY_TRACE_MATCHING_FILTER_VERBOSE));
+  }
+
   @Test public void shouldStopAndInterruptLogcatOnRestart() {
     lynx.restart();
 
@@ -287,6 +366,272 @@ public class LynxTest {
     verify(listener).onNewTraces(tracesAfterReset);
   }
 
+  @Test public void shouldNotBeAffectedByChangesInTheLynxConfigOnceConfigured()
+      throws IllegalTraceException {
+    givenCurrentTime();
+    LynxConfig lynxConfig = new LynxConfig().setFilter(ANY_FILTER).setSamplingRate(10);
+    lynx.setConfig(lynxConfig);
+
+    lynxConfig.setFilter(ANY_OTHER_FILTER);
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_TRACE_MATCHING_FILTER_DEBUG);
+
+    List<Trace> expectedTraces = generateTraces(ANY_TRACE_MATCHING_FILTER_DEBUG);
+    verify(listener).onNewTraces(expectedTraces);
+    assertEquals(ANY_FILTER, lynx.getConfig().getFilter());
+  }
+
+  @Test public void shouldNotifyPendingTracesOnceTheSamplingRateExpiresWithoutNewTraces()
+      throws IllegalTraceException {
+    VirtualClock clock = givenLynxWithVirtualClock(10, 500);
+
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    clock.advanceTime(5);
+    logcatListener.onTraceRead(ANY_INFO_TRACE);
+    clock.advanceTime(4);
+
+    List<Trace> pendingTraces = generateTraces(ANY_INFO_TRACE);
+    verify(listener, never()).onNewTraces(pendingTraces);
+    clock.advanceTime(1);
+    verify(listener).onNewTraces(pendingTraces);
+  }
+
+  @Test public void shouldScheduleJustOneFlushForAllThePendingTraces()
+      throws IllegalTraceException {
+    VirtualClock clock = givenLynxWithVirtualClock(10, 500);
+
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    clock.advanceTime(1);
+    logcatListener.onTraceRead(ANY_INFO_TRACE);
+    clock.advanceTime(1);
+    logcatListener.onTraceRead(ANY_WARNING_TRACE);
+
+    assertEquals(1, clock.getNumberOfScheduledRunnables());
+    clock.advanceTime(8);
+    verify(listener).onNewTraces(generateTraces(ANY_INFO_TRACE, ANY_WARNING_TRACE));
+  }
+
+  @Test public void shouldNotifyPendingTracesBeforeTheSamplingRateExpiresIfBatchSizeIsReached()
+      throws IllegalTraceException {
+    givenLynxWithVirtualClock(1000, 2);
+
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_INFO_TRACE);
+    logcatListener.onTraceRead(ANY_WARNING_TRACE);
+
+    verify(listener).onNewTraces(generateTraces(ANY_DEBUG_TRACE));
+    verify(listener).onNewTraces(generateTraces(ANY_INFO_TRACE, ANY_WARNING_TRACE));
+  }
+
+  @Test public void shouldNotNotifyAnEmptyListOfTracesIfPendingTracesWereAlreadyNotified() {
+    VirtualClock clock = givenLynxWithVirtualClock(1000, 2);
+
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_INFO_TRACE);
+    logcatListener.onTraceRead(ANY_WARNING_TRACE);
+    clock.advanceTime(1000);
+
+    verify(listener, times(2)).onNewTraces(anyList());
+  }
+
+  @Test public void shouldNotifyTracesImmediatelyIfAdaptiveSamplingRateIsEnabledAndThereAreFewTraces()
+      throws IllegalTraceException {
+    VirtualClock clock = new VirtualClock(VIRTUAL_CLOCK_START_TIME);
+    lynx = new Lynx(logcat, clock, clock);
+    lynx.setConfig(new LynxConfig().setAdaptiveSamplingRate(true));
+    lynx.registerListener(listener);
+
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    clock.advanceTime(1);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    verify(listener).onNewTraces(generateTraces(ANY_DEBUG_TRACE));
+    verify(listener).onNewTraces(generateTraces(ANY_ERROR_TRACE));
+  }
+
+  @Test public void shouldNotifyPriorityTracesWithPendingTracesEvenIfSamplingRateHasNotExpired()
+      throws IllegalTraceException {
+    givenLynxWithVirtualClock(1000, 500);
+
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_INFO_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    verify(listener).onNewTraces(generateTraces(ANY_INFO_TRACE, ANY_ERROR_TRACE));
+  }
+
+  @Test public void shouldNotNotifyTracesImmediatelyIfTheTraceLevelIsLowerThanThePriorityTraceLevel()
+      throws IllegalTraceException {
+    VirtualClock clock = new VirtualClock(VIRTUAL_CLOCK_START_TIME);
+    lynx = new Lynx(logcat, clock, clock);
+    lynx.setConfig(new LynxConfig().setSamplingRate(1000).setPriorityTraceLevel(TraceLevel.WTF));
+    lynx.registerListener(listener);
+
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    verify(listener, never()).onNewTraces(generateTraces(ANY_ERROR_TRACE));
+  }
+
+  @Test public void shouldNotDiscardPriorityTracesIfTheQueueIsFull() throws IllegalTraceException {
+    ScheduledMainThread mainThread = mock(ScheduledMainThread.class);
+    lynx = new Lynx(logcat, mainThread, timeProvider);
+    lynx.registerListener(listener);
+    givenCurrentTime();
+
+    Logcat.Listener logcatListener = startLogcat();
+    for (int i = 0; i < 5000; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    ArgumentCaptor<Runnable> notification = ArgumentCaptor.forClass(Runnable.class);
+    verify(mainThread).post(notification.capture());
+    notification.getValue().run();
+    ArgumentCaptor<Runnable> nextSlice = ArgumentCaptor.forClass(Runnable.class);
+    verify(mainThread).postOnNextFrame(nextSlice.capture());
+    nextSlice.getValue().run();
+
+    ArgumentCaptor<List> notifiedTraces = ArgumentCaptor.forClass(List.class);
+    verify(listener, times(2)).onNewTraces(notifiedTraces.capture());
+    List<Trace> traces = notifiedTraces.getValue();
+    assertEquals(Trace.fromString(ANY_ERROR_TRACE), traces.get(traces.size() - 1));
+  }
+
+  @Test public void shouldNotifyPendingTracesWithTheNextTraceIfTheMainThreadCantScheduleThem()
+      throws IllegalTraceException {
+    VirtualClock clock = new VirtualClock(VIRTUAL_CLOCK_START_TIME);
+    MainThread mainThread = new MainThread() {
+      @Override public void post(Runnable runnable) {
+        runnable.run();
+      }
+    };
+    lynx = new Lynx(logcat, mainThread, clock);
+    lynx.setConfig(new LynxConfig().setSamplingRate(1000));
+    lynx.registerListener(listener);
+
+    Logcat.Listener logcatListener = startLogcat();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_INFO_TRACE);
+    verify(listener, never()).onNewTraces(generateTraces(ANY_INFO_TRACE));
+    clock.advanceTime(1001);
+    logcatListener.onTraceRead(ANY_WARNING_TRACE);
+
+    verify(listener).onNewTraces(generateTraces(ANY_DEBUG_TRACE));
+    verify(listener).onNewTraces(generateTraces(ANY_INFO_TRACE, ANY_WARNING_TRACE));
+  }
+
+  @Test public void shouldCountTheTracesDiscardedIfTheQueueIsFull() {
+    MainThread mainThread = mock(MainThread.class);
+    lynx = new Lynx(logcat, mainThread, timeProvider);
+    lynx.registerListener(listener);
+    givenCurrentTime();
+
+    Logcat.Listener logcatListener = startLogcat();
+    for (int i = 0; i < Lynx.TRACE_QUEUE_CAPACITY + 10; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    assertEquals(10, lynx.getNumberOfDroppedTraces());
+  }
+
+  @Test public void shouldNotCountTracesAsDiscardedIfTheQueueIsNotFull() {
+    givenCurrentTime();
+
+    Logcat.Listener logcatListener = startLogcat();
+    for (int i = 0; i < Lynx.TRACE_QUEUE_CAPACITY + 10; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+
+    assertEquals(0, lynx.getNumberOfDroppedTraces());
+  }
+
+  @Test public void shouldDiscardPriorityTracesIfTheOverflowQueueIsFull() {
+    MainThread mainThread = mock(MainThread.class);
+    lynx = new Lynx(logcat, mainThread, timeProvider);
+    lynx.registerListener(listener);
+    givenCurrentTime();
+
+    Logcat.Listener logcatListener = startLogcat();
+    for (int i = 0; i < Lynx.TRACE_QUEUE_CAPACITY; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+    for (int i = 0; i < Lynx.PRIORITY_TRACE_QUEUE_CAPACITY + 10; i++) {
+      logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    }
+
+    assertEquals(10, lynx.getNumberOfDroppedTraces());
+  }
+
+  @Test public void shouldMergeThePriorityTracesWithTheTracesDrainedById() {
+    Trace alreadyPendingTrace = new Trace(TraceLevel.DEBUG, ANY_DEBUG_TRACE, null, Trace.NO_PID, 1);
+    Trace firstTrace = new Trace(TraceLevel.INFO, ANY_INFO_TRACE, null, Trace.NO_PID, 2);
+    Trace priorityTrace = new Trace(TraceLevel.ERROR, ANY_ERROR_TRACE, null, Trace.NO_PID, 3);
+    Trace lastTrace = new Trace(TraceLevel.WARNING, ANY_WARNING_TRACE, null, Trace.NO_PID, 4);
+    List<Trace> traces = new ArrayList<Trace>(asList(alreadyPendingTrace, firstTrace, lastTrace));
+
+    Lynx.mergeById(traces, 1, asList(priorityTrace));
+
+    assertEquals(asList(alreadyPendingTrace, firstTrace, priorityTrace, lastTrace), traces);
+  }
+
+  @Test public void shouldSplitBigBatchesOfTracesInSlicesDeliveredOnTheNextFrames() {
+    VirtualClock clock = givenLynxWithVirtualClockStartedBeforeTheSamplingRate(2000);
+
+    Logcat.Listener logcatListener = startLogcat();
+    for (int i = 0; i < 2000; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+
+    ArgumentCaptor<List> notifiedTraces = ArgumentCaptor.forClass(List.class);
+    verify(listener).onNewTraces(notifiedTraces.capture());
+    assertEquals(FrameBudget.INITIAL_SLICE_SIZE, notifiedTraces.getValue().size());
+    clock.advanceTime(16);
+    verify(listener, times(2)).onNewTraces(notifiedTraces.capture());
+    assertEquals(2000 - FrameBudget.INITIAL_SLICE_SIZE, notifiedTraces.getValue().size());
+  }
+
+  @Test public void shouldMergeTheTracesReceivedWhileSlicesArePendingIntoTheNextSlice()
+      throws IllegalTraceException {
+    VirtualClock clock = givenLynxWithVirtualClockStartedBeforeTheSamplingRate(1500);
+
+    Logcat.Listener logcatListener = startLogcat();
+    for (int i = 0; i < 1500; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    verify(listener).onNewTraces(anyList());
+    clock.advanceTime(16);
+    ArgumentCaptor<List> notifiedTraces = ArgumentCaptor.forClass(List.class);
+    verify(listener, times(2)).onNewTraces(notifiedTraces.capture());
+    List<Trace> traces = notifiedTraces.getValue();
+    assertEquals(1501 - FrameBudget.INITIAL_SLICE_SIZE, traces.size());
+    assertEquals(Trace.fromString(ANY_ERROR_TRACE), traces.get(traces.size() - 1));
+  }
+
+  @Test public void shouldReduceTheSliceSizeIfListenersAreExpensive() {
+    lynx.setConfig(new LynxConfig().setSamplingRate(10).setBatchSize(200));
+    givenCurrentTime();
+    givenEveryNotificationCostsOneMillisecond();
+
+    Logcat.Listener logcatListener = startLogcat();
+    for (int i = 0; i < 201; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+
+    ArgumentCaptor<List> notifiedTraces = ArgumentCaptor.forClass(List.class);
+    verify(listener, times(5)).onNewTraces(notifiedTraces.capture());
+    assertEquals(FrameBudget.MIN_SLICE_SIZE, notifiedTraces.getValue().size());
+  }
+
   private void givenLynxWithFilter(String filter, TraceLevel filterTraceLevel) {
     LynxConfig lynxConfigWithFilter =
         new LynxConfig().setFilter(filter).setFilterTraceLevel(filterTraceLevel);
@@ -294,6 +639,33 @@ public class LynxTest {
     lynx.setConfig(lynxConfigWithFilter);
   }
 
+  private VirtualClock givenLynxWithVirtualClock(int samplingRate, int batchSize) {
+    VirtualClock clock = new VirtualClock(VIRTUAL_CLOCK_START_TIME);
+    lynx = new Lynx(logcat, clock, clock);
+    lynx.setConfig(new LynxConfig().setSamplingRate(samplingRate).setBatchSize(batchSize));
+    lynx.registerListener(listener);
+    return clock;
+  }
+
+  private VirtualClock givenLynxWithVirtualClockStartedBeforeTheSamplingRate(int batchSize) {
+    VirtualClock clock = new VirtualClock(0);
+    lynx = new Lynx(logcat, clock, clock);
+    lynx.setConfig(new LynxConfig().setSamplingRate(1000).setBatchSize(batchSize));
+    lynx.registerListener(listener);
+    return clock;
+  }
+
+  private void givenEveryNotificationCostsOneMillisecond() {
+    when(timeProvider.getNanoTime()).thenAnswer(new Answer<Long>() {
+      private long nanoTime;
+
+      @Override public Long answer(InvocationOnMock invocation) {
+        nanoTime += 1000000;
+        return nanoTime;
+      }
+    });
+  }
+
   private void givenCurrentTimes(long t1, long t2, long t3, long t4) {
     when(timeProvider.getCurrentTimeMillis()).thenReturn(t1, t2, t3, t4);
   }
@@ -307,8 +679,12 @@ public class LynxTest {
   }
 
   private Logcat.Listener startLogcat() {
-    ArgumentCaptor<Logcat.Listener> listener = ArgumentCaptor.forClass(Logcat.Listener.class);
     lynx.startReading();
+    return getLogcatListener();
+  }
+
+  private Logcat.Listener getLogcatListener() {
+    ArgumentCaptor<Logcat.Listener> listener = ArgumentCaptor.forClass(Logcat.Listener.class);
     verify(logcat).setListener(listener.capture());
     return listener.getValue();
   }
@@ -320,4 +696,42 @@ public class LynxTest {
   private void givenLogcatHasBeenCreatedButNotStarted() {
     when(logcat.getState()).thenReturn(Thread.State.NEW);
   }
+
+  private static class QueuedExecutor implements Executor {
+
+    private final List<Runnable> commands = new LinkedList<Runnable>();
+
+    @Override public void execute(Runnable command) {
+      commands.add(command);
+    }
+
+    void runPendingCommands() {
+      while (!commands.isEmpty()) {
+        commands.remove(0).run();
+      }
+    }
+  }
+
+  private static class QueuedMainThread implements ScheduledMainThread {
+
+    private final List<Runnable> runnables = new LinkedList<Runnable>();
+
+    @Override public void post(Runnable runnable) {
+      runnables.add(runnable);
+    }
+
+    @Override public void postDelayed(Runnable runnable, long delayInMillis) {
+      runnables.add(runnable);
+    }
+
+    @Override public void postOnNextFrame(Runnable runnable) {
+      runnables.add(runnable);
+    }
+
+    void runPendingRunnables() {
+      while (!runnables.isEmpty()) {
+        runnables.remove(0).run();
+      }
+    }
+  }
 }
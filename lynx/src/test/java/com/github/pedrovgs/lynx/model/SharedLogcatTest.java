@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import com.github.pedrovgs.lynx.LynxConfig;
+import com.github.pedrovgs.lynx.exception.IllegalTraceException;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class SharedLogcatTest {
+
+  private static final String ANY_DEBUG_TRACE = "02-07 17:45:33.014 D/Any debug trace";
+  private static final String ANY_ERROR_TRACE = "02-07 17:45:33.014 E/Any error trace";
+  private static final String ANY_FILTER = "error";
+
+  @Mock private Logcat logcat;
+
+  private SharedLogcat sharedLogcat;
+
+  @Before public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(logcat.clone()).thenReturn(logcat);
+    when(logcat.getState()).thenReturn(Thread.State.NEW);
+    sharedLogcat = new SharedLogcat(logcat);
+  }
+
+  @Test public void shouldStartLogcatJustOnceForDifferentSubscribers() {
+    sharedLogcat.subscribe(givenSubscriber(""));
+    sharedLogcat.subscribe(givenSubscriber(""));
+
+    verify(logcat).start();
+    assertEquals(2, sharedLogcat.getNumberOfSubscribers());
+  }
+
+  @Test public void shouldNotStopLogcatIfThereAreOtherSubscribers() {
+    FakeSubscriber subscriber = givenSubscriber("");
+    sharedLogcat.subscribe(subscriber);
+    sharedLogcat.subscribe(givenSubscriber(""));
+
+    sharedLogcat.unsubscribe(subscriber);
+
+    verify(logcat, never()).stopReading();
+  }
+
+  @Test public void shouldStopLogcatWhenTheLastSubscriberIsUnsubscribed() {
+    FakeSubscriber subscriber = givenSubscriber("");
+    sharedLogcat.subscribe(subscriber);
+
+    sharedLogcat.unsubscribe(subscriber);
+
+    verify(logcat).stopReading();
+    verify(logcat).interrupt();
+  }
+
+  @Test public void shouldNotifyTracesToTheSubscribersMatchingTheirFilters()
+      throws IllegalTraceException {
+    FakeSubscriber allTracesSubscriber = givenSubscriber("");
+    FakeSubscriber errorTracesSubscriber = givenSubscriber(ANY_FILTER);
+    sharedLogcat.subscribe(allTracesSubscriber);
+    sharedLogcat.subscribe(errorTracesSubscriber);
+
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    assertEquals(generateTraces(ANY_DEBUG_TRACE, ANY_ERROR_TRACE), allTracesSubscriber.traces);
+    assertEquals(generateTraces(ANY_ERROR_TRACE), errorTracesSubscriber.traces);
+  }
+
+  @Test public void shouldParseEveryTraceJustOnce() {
+    FakeSubscriber firstSubscriber = givenSubscriber("");
+    FakeSubscriber secondSubscriber = givenSubscriber("");
+    sharedLogcat.subscribe(firstSubscriber);
+    sharedLogcat.subscribe(secondSubscriber);
+
+    getLogcatListener().onTraceRead(ANY_DEBUG_TRACE);
+
+    assertSame(firstSubscriber.traces.get(0), secondSubscriber.traces.get(0));
+  }
+
+  @Test public void shouldReturnPreviousTracesMatchingTheFilterIfLogcatIsAlreadyRunning()
+      throws IllegalTraceException {
+    sharedLogcat.subscribe(givenSubscriber(""));
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    List<Trace> previousTraces = getPreviousTraces(givenSubscriber(ANY_FILTER));
+
+    assertEquals(generateTraces(ANY_ERROR_TRACE), previousTraces);
+  }
+
+  @Test public void shouldAssignIncreasingIdsToTheTracesRead() {
+    FakeSubscriber subscriber = givenSubscriber("");
+    sharedLogcat.subscribe(subscriber);
+
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    assertEquals(0, subscriber.traces.get(0).getId());
+    assertEquals(1, subscriber.traces.get(1).getId());
+  }
+
+  @Test public void shouldKeepTheIdsOfThePreviousTracesNotifiedToNewSubscribers() {
+    FakeSubscriber subscriber = givenSubscriber("");
+    sharedLogcat.subscribe(subscriber);
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    List<Trace> previousTraces = getPreviousTraces(givenSubscriber(ANY_FILTER));
+
+    assertEquals(subscriber.traces.get(1).getId(), previousTraces.get(0).getId());
+  }
+
+  @Test public void shouldRestartLogcatIfThereIsJustOneSubscriber() {
+    FakeSubscriber subscriber = givenSubscriber("");
+    sharedLogcat.subscribe(subscriber);
+
+    List<Trace> previousTraces =
+        sharedLogcat.restart(subscriber).getTraces(subscriber.getTraceFilter());
+
+    verify(logcat).stopReading();
+    assertTrue(previousTraces.isEmpty());
+  }
+
+  @Test public void shouldReturnPreviousTracesOnRestartIfThereAreOtherSubscribers()
+      throws IllegalTraceException {
+    FakeSubscriber subscriber = givenSubscriber("");
+    sharedLogcat.subscribe(subscriber);
+    sharedLogcat.subscribe(givenSubscriber(""));
+    getLogcatListener().onTraceRead(ANY_DEBUG_TRACE);
+
+    List<Trace> previousTraces =
+        sharedLogcat.restart(subscriber).getTraces(subscriber.getTraceFilter());
+
+    verify(logcat, never()).stopReading();
+    assertEquals(generateTraces(ANY_DEBUG_TRACE), previousTraces);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptNullConfigurationsToStartCapturing() {
+    sharedLogcat.startCapture(null);
+  }
+
+  @Test public void shouldStartLogcatThrottledWhenTheCaptureIsStarted() {
+    sharedLogcat.startCapture(new LynxConfig());
+
+    verify(logcat).start();
+    verify(logcat).setThrottled(true);
+    assertTrue(sharedLogcat.isCapturing());
+  }
+
+  @Test public void shouldNotStopLogcatWhenTheLastSubscriberIsUnsubscribedWhileCapturing() {
+    FakeSubscriber subscriber = givenSubscriber("");
+    sharedLogcat.startCapture(new LynxConfig());
+    sharedLogcat.subscribe(subscriber);
+
+    sharedLogcat.unsubscribe(subscriber);
+
+    verify(logcat).start();
+    verify(logcat, never()).stopReading();
+  }
+
+  @Test public void shouldDisableThrottlingWhileThereAreSubscribers() {
+    sharedLogcat.startCapture(new LynxConfig());
+
+    sharedLogcat.subscribe(givenSubscriber(""));
+
+    verify(logcat).setThrottled(false);
+  }
+
+  @Test public void shouldNotifyCapturedTracesMatchingTheCaptureFilterToNewSubscribers()
+      throws IllegalTraceException {
+    sharedLogcat.startCapture(new LynxConfig().setFilter(ANY_FILTER));
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+
+    List<Trace> previousTraces = getPreviousTraces(givenSubscriber(""));
+
+    assertEquals(generateTraces(ANY_ERROR_TRACE), previousTraces);
+  }
+
+  @Test public void shouldStopLogcatWhenTheCaptureIsStoppedWithoutSubscribers() {
+    sharedLogcat.startCapture(new LynxConfig());
+
+    sharedLogcat.stopCapture();
+
+    verify(logcat).stopReading();
+    assertFalse(sharedLogcat.isCapturing());
+  }
+
+  @Test public void shouldNotStopLogcatWhenTheCaptureIsStoppedWithSubscribers() {
+    sharedLogcat.subscribe(givenSubscriber(""));
+    sharedLogcat.startCapture(new LynxConfig());
+
+    sharedLogcat.stopCapture();
+
+    verify(logcat, never()).stopReading();
+  }
+
+  private List<Trace> getPreviousTraces(FakeSubscriber subscriber) {
+    return sharedLogcat.subscribe(subscriber).getTraces(subscriber.getTraceFilter());
+  }
+
+  private Logcat.Listener getLogcatListener() {
+    ArgumentCaptor<Logcat.Listener> listener = ArgumentCaptor.forClass(Logcat.Listener.class);
+    verify(logcat).setListener(listener.capture());
+    return listener.getValue();
+  }
+
+  private FakeSubscriber givenSubscriber(String filter) {
+    return new FakeSubscriber(new TraceFilter(new LynxConfig().setFilter(filter)));
+  }
+
+  private List<Trace> generateTraces(String... traces) throws IllegalTraceException {
+    List<Trace> listOfTraces = new LinkedList<Trace>();
+    for (String trace : traces) {
+      listOfTraces.add(Trace.fromString(trace));
+    }
+    return listOfTraces;
+  }
+
+  private static class FakeSubscriber implements SharedLogcat.Subscriber {
+
+    private final TraceFilter traceFilter;
+    private final List<Trace> traces = new LinkedList<Trace>();
+
+    FakeSubscriber(TraceFilter traceFilter) {
+      this.traceFilter = traceFilter;
+    }
+
+    @Override public TraceFilter getTraceFilter() {
+      return traceFilter;
+    }
+
+    @Override public void onTraceRead(Trace trace) {
+      traces.add(trace);
+    }
+  }
+}
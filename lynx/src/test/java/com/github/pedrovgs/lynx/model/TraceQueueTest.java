@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class TraceQueueTest {
+
+  private static final int ANY_CAPACITY = 16;
+  private static final int NUMBER_OF_PRODUCERS = 4;
+  private static final int TRACES_PER_PRODUCER = 20000;
+
+  private TraceQueue traceQueue;
+
+  @Before public void setUp() {
+    traceQueue = new TraceQueue(ANY_CAPACITY);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptCapacitiesThatAreNotPowerOfTwo() {
+    new TraceQueue(10);
+  }
+
+  @Test public void shouldBeEmptyByDefault() {
+    assertTrue(traceQueue.isEmpty());
+  }
+
+  @Test public void shouldDrainTracesInTheSameOrderTheyWereOffered() {
+    List<Trace> traces = generateTraces(0, ANY_CAPACITY);
+
+    offer(traces);
+    List<Trace> drainedTraces = new LinkedList<Trace>();
+    int numberOfDrainedTraces = traceQueue.drainTo(drainedTraces, Integer.MAX_VALUE);
+
+    assertEquals(ANY_CAPACITY, numberOfDrainedTraces);
+    assertEquals(traces, drainedTraces);
+    assertTrue(traceQueue.isEmpty());
+  }
+
+  @Test public void shouldRejectTracesIfTheQueueIsFull() {
+    offer(generateTraces(0, ANY_CAPACITY));
+
+    boolean offered = traceQueue.offer(new Trace(TraceLevel.DEBUG, "overflow"));
+
+    assertFalse(offered);
+  }
+
+  @Test public void shouldAcceptNewTracesOnceTheQueueHasBeenDrained() {
+    offer(generateTraces(0, ANY_CAPACITY));
+    traceQueue.drainTo(new LinkedList<Trace>(), Integer.MAX_VALUE);
+
+    List<Trace> traces = generateTraces(ANY_CAPACITY, ANY_CAPACITY * 2);
+    offer(traces);
+    List<Trace> drainedTraces = new LinkedList<Trace>();
+    traceQueue.drainTo(drainedTraces, Integer.MAX_VALUE);
+
+    assertEquals(traces, drainedTraces);
+  }
+
+  @Test public void shouldDrainJustTheMaxNumberOfTracesRequested() {
+    List<Trace> traces = generateTraces(0, 10);
+
+    offer(traces);
+    List<Trace> drainedTraces = new LinkedList<Trace>();
+    traceQueue.drainTo(drainedTraces, 4);
+
+    assertEquals(traces.subList(0, 4), drainedTraces);
+    assertFalse(traceQueue.isEmpty());
+  }
+
+  @Test public void shouldDiscardPendingTracesOnClear() {
+    offer(generateTraces(0, 10));
+
+    traceQueue.clear();
+
+    assertTrue(traceQueue.isEmpty());
+  }
+
+  @Test public void shouldNotLoseOrReorderTracesOfferedFromDifferentThreads()
+      throws InterruptedException {
+    final TraceQueue traceQueue = new TraceQueue(1024);
+    List<Thread> producers = new ArrayList<Thread>();
+    for (int i = 0; i < NUMBER_OF_PRODUCERS; i++) {
+      final String producerId = String.valueOf(i);
+      producers.add(new Thread(new Runnable() {
+        @Override public void run() {
+          for (int j = 0; j < TRACES_PER_PRODUCER; j++) {
+            Trace trace = new Trace(TraceLevel.DEBUG, producerId + ":" + j);
+            while (!traceQueue.offer(trace)) {
+              Thread.yield();
+            }
+          }
+        }
+      }));
+    }
+
+    for (Thread producer : producers) {
+      producer.start();
+    }
+    List<Trace> drainedTraces = new ArrayList<Trace>();
+    while (drainedTraces.size() < NUMBER_OF_PRODUCERS * TRACES_PER_PRODUCER) {
+      traceQueue.drainTo(drainedTraces, Integer.MAX_VALUE);
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+
+    int[] lastTraceByProducer = new int[NUMBER_OF_PRODUCERS];
+    for (Trace trace : drainedTraces) {
+      String[] traceParts = trace.getMessage().split(":");
+      int producer = Integer.parseInt(traceParts[0]);
+      int traceNumber = Integer.parseInt(traceParts[1]);
+      assertEquals(lastTraceByProducer[producer], traceNumber);
+      lastTraceByProducer[producer]++;
+    }
+    assertTrue(traceQueue.isEmpty());
+  }
+
+  private void offer(List<Trace> traces) {
+    for (Trace trace : traces) {
+      traceQueue.offer(trace);
+    }
+  }
+
+  private List<Trace> generateTraces(int initialValue, int finalValue) {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = initialValue; i < finalValue; i++) {
+      traces.add(new Trace(TraceLevel.DEBUG, String.valueOf(i)));
+    }
+    return traces;
+  }
+}
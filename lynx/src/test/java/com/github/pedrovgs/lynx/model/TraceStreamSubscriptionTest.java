@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import com.github.pedrovgs.lynx.LynxConfig;
+import com.github.pedrovgs.lynx.exception.IllegalTraceException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class TraceStreamSubscriptionTest {
+
+  private static final String ANY_DEBUG_TRACE = "02-07 17:45:33.014 D/Any debug trace";
+  private static final String ANY_ERROR_TRACE = "02-07 17:45:33.014 E/Any error trace";
+
+  @Mock private Logcat logcat;
+
+  private SharedLogcat sharedLogcat;
+  private FakeExecutor executor;
+
+  @Before public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(logcat.clone()).thenReturn(logcat);
+    when(logcat.getState()).thenReturn(Thread.State.NEW);
+    sharedLogcat = new SharedLogcat(logcat);
+    executor = new FakeExecutor();
+  }
+
+  @Test public void shouldInvokeOnSubscribeWhenTheSubscriberIsRegistered() {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(0);
+
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+
+    assertNotNull(traceSubscriber.subscription);
+    assertEquals(1, sharedLogcat.getNumberOfSubscribers());
+  }
+
+  @Test public void shouldNotifyAnErrorAndCancelTheSubscriptionIfZeroTracesAreRequested() {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(0);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+
+    traceSubscriber.subscription.request(0);
+    executor.runPendingTasks();
+
+    assertTrue(traceSubscriber.error instanceof IllegalArgumentException);
+    assertEquals(0, sharedLogcat.getNumberOfSubscribers());
+  }
+
+  @Test public void shouldNotifyTheErrorAndCancelTheSubscriptionIfTheSubscriberThrows() {
+    final RuntimeException anyException = new RuntimeException();
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE) {
+      @Override public void onNext(Trace trace) {
+        super.onNext(trace);
+        throw anyException;
+      }
+    };
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+    Logcat.Listener logcatListener = getLogcatListener();
+
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    executor.runPendingTasks();
+
+    assertEquals(1, traceSubscriber.traces.size());
+    assertEquals(anyException, traceSubscriber.error);
+    assertEquals(0, sharedLogcat.getNumberOfSubscribers());
+  }
+
+  @Test public void shouldNotifyTheErrorJustOnce() {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(0);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+
+    traceSubscriber.subscription.request(0);
+    traceSubscriber.subscription.request(-1);
+    executor.runPendingTasks();
+
+    assertEquals(1, traceSubscriber.errors);
+  }
+
+  @Test public void shouldNotDeliverTracesUntilTheyAreRequested() {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(0);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+
+    getLogcatListener().onTraceRead(ANY_DEBUG_TRACE);
+    executor.runPendingTasks();
+
+    assertTrue(traceSubscriber.traces.isEmpty());
+  }
+
+  @Test public void shouldDeliverTracesFromTheExecutorConfigured() {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+
+    getLogcatListener().onTraceRead(ANY_DEBUG_TRACE);
+
+    assertTrue(traceSubscriber.traces.isEmpty());
+    executor.runPendingTasks();
+    assertEquals(1, traceSubscriber.traces.size());
+  }
+
+  @Test public void shouldDeliverJustTheNumberOfTracesRequested() throws IllegalTraceException {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(1);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    executor.runPendingTasks();
+
+    assertEquals(generateTraces(ANY_DEBUG_TRACE), traceSubscriber.traces);
+  }
+
+  @Test public void shouldDeliverPendingTracesOnceTheyAreRequested() throws IllegalTraceException {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(1);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    executor.runPendingTasks();
+
+    traceSubscriber.subscription.request(1);
+    executor.runPendingTasks();
+
+    assertEquals(generateTraces(ANY_DEBUG_TRACE, ANY_ERROR_TRACE), traceSubscriber.traces);
+  }
+
+  @Test public void shouldDeliverJustTheTracesMatchingTheFilter() throws IllegalTraceException {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE);
+    LynxConfig lynxConfig = new LynxConfig().setFilterTraceLevel(TraceLevel.ERROR);
+    sharedLogcat.subscribe(lynxConfig, executor, traceSubscriber);
+
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    executor.runPendingTasks();
+
+    assertEquals(generateTraces(ANY_ERROR_TRACE), traceSubscriber.traces);
+  }
+
+  @Test public void shouldDeliverTracesReadBeforeTheSubscription() throws IllegalTraceException {
+    sharedLogcat.subscribe(new LynxConfig(), executor, new FakeTraceSubscriber(0));
+    getLogcatListener().onTraceRead(ANY_DEBUG_TRACE);
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE);
+
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+    executor.runPendingTasks();
+
+    assertEquals(generateTraces(ANY_DEBUG_TRACE), traceSubscriber.traces);
+  }
+
+  @Test public void shouldDeliverTheTracesReadBeforeTheSubscriptionFirst()
+      throws IllegalTraceException {
+    sharedLogcat.subscribe(new LynxConfig(), executor, new FakeTraceSubscriber(0));
+    Logcat.Listener logcatListener = getLogcatListener();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE);
+
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    executor.runPendingTasks();
+
+    assertEquals(generateTraces(ANY_DEBUG_TRACE, ANY_ERROR_TRACE), traceSubscriber.traces);
+  }
+
+  @Test(timeout = 5000)
+  public void shouldNotDeadlockIfTheSubscriptionIsCancelledWhileOtherThreadSubscribes()
+      throws Exception {
+    final Executor directExecutor = new Executor() {
+      @Override public void execute(Runnable command) {
+        command.run();
+      }
+    };
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE) {
+      @Override public void onNext(Trace trace) {
+        Thread otherThread = new Thread() {
+          @Override public void run() {
+            sharedLogcat.subscribe(new LynxConfig(), directExecutor, new FakeTraceSubscriber(0));
+          }
+        };
+        otherThread.start();
+        try {
+          otherThread.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.onNext(trace);
+        getSubscription().cancel();
+      }
+    };
+    sharedLogcat.subscribe(new LynxConfig(), directExecutor, traceSubscriber);
+
+    getLogcatListener().onTraceRead(ANY_DEBUG_TRACE);
+
+    assertEquals(generateTraces(ANY_DEBUG_TRACE), traceSubscriber.traces);
+    assertEquals(1, sharedLogcat.getNumberOfSubscribers());
+  }
+
+  @Test public void shouldNotBlockOtherSubscribersIfOneOfThemDoesNotRequestTraces() {
+    FakeTraceSubscriber slowTraceSubscriber = new FakeTraceSubscriber(0);
+    FakeTraceSubscriber fastTraceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE);
+    sharedLogcat.subscribe(new LynxConfig(), executor, slowTraceSubscriber);
+    sharedLogcat.subscribe(new LynxConfig(), executor, fastTraceSubscriber);
+
+    Logcat.Listener logcatListener = getLogcatListener();
+    for (int i = 0; i < TraceStreamSubscription.QUEUE_CAPACITY * 2; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+      executor.runPendingTasks();
+    }
+
+    assertTrue(slowTraceSubscriber.traces.isEmpty());
+    assertEquals(TraceStreamSubscription.QUEUE_CAPACITY * 2, fastTraceSubscriber.traces.size());
+  }
+
+  @Test public void shouldNotifyTheNumberOfTracesDroppedIfTheQueueIsFull() {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(0);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+    Logcat.Listener logcatListener = getLogcatListener();
+
+    for (int i = 0; i < TraceStreamSubscription.QUEUE_CAPACITY + 3; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+    traceSubscriber.getSubscription().request(Long.MAX_VALUE);
+    executor.runPendingTasks();
+
+    assertEquals(TraceStreamSubscription.QUEUE_CAPACITY, traceSubscriber.traces.size());
+    assertEquals(3, traceSubscriber.droppedTraces);
+  }
+
+  @Test public void shouldNotifyTheTracesDroppedBeforeDeliveringTheTracesReadAfterThem()
+      throws IllegalTraceException {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(0);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+    Logcat.Listener logcatListener = getLogcatListener();
+    for (int i = 0; i < TraceStreamSubscription.QUEUE_CAPACITY + 1; i++) {
+      logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    }
+    traceSubscriber.getSubscription().request(1);
+    executor.runPendingTasks();
+
+    logcatListener.onTraceRead(ANY_ERROR_TRACE);
+    traceSubscriber.getSubscription().request(Long.MAX_VALUE);
+    executor.runPendingTasks();
+
+    assertEquals(1, traceSubscriber.droppedTraces);
+    assertEquals(TraceStreamSubscription.QUEUE_CAPACITY,
+        traceSubscriber.tracesDeliveredBeforeDropping);
+    assertEquals(Trace.fromString(ANY_ERROR_TRACE),
+        traceSubscriber.traces.get(TraceStreamSubscription.QUEUE_CAPACITY));
+  }
+
+  @Test public void shouldNotNotifyDroppedTracesIfTheQueueIsNeverFull() {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+
+    getLogcatListener().onTraceRead(ANY_DEBUG_TRACE);
+    executor.runPendingTasks();
+
+    assertEquals(0, traceSubscriber.droppedTraces);
+  }
+
+  @Test public void shouldStopDeliveringTracesOnceTheSubscriptionIsCancelled() {
+    FakeTraceSubscriber traceSubscriber = new FakeTraceSubscriber(Long.MAX_VALUE);
+    sharedLogcat.subscribe(new LynxConfig(), executor, traceSubscriber);
+    Logcat.Listener logcatListener = getLogcatListener();
+
+    traceSubscriber.subscription.cancel();
+    logcatListener.onTraceRead(ANY_DEBUG_TRACE);
+    executor.runPendingTasks();
+
+    assertTrue(traceSubscriber.traces.isEmpty());
+    verify(logcat).stopReading();
+  }
+
+  private Logcat.Listener getLogcatListener() {
+    ArgumentCaptor<Logcat.Listener> listener = ArgumentCaptor.forClass(Logcat.Listener.class);
+    verify(logcat).setListener(listener.capture());
+    return listener.getValue();
+  }
+
+  private List<Trace> generateTraces(String... traces) throws IllegalTraceException {
+    List<Trace> listOfTraces = new LinkedList<Trace>();
+    for (String trace : traces) {
+      listOfTraces.add(Trace.fromString(trace));
+    }
+    return listOfTraces;
+  }
+
+  private static class FakeTraceSubscriber implements TraceSubscriber {
+
+    private final long initialRequest;
+    private final List<Trace> traces = new LinkedList<Trace>();
+    private TraceSubscription subscription;
+    private long droppedTraces;
+    private int tracesDeliveredBeforeDropping;
+    private Throwable error;
+    private int errors;
+
+    FakeTraceSubscriber(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override public void onSubscribe(TraceSubscription subscription) {
+      this.subscription = subscription;
+      if (initialRequest > 0) {
+        subscription.request(initialRequest);
+      }
+    }
+
+    @Override public void onNext(Trace trace) {
+      traces.add(trace);
+    }
+
+    @Override public void onTracesDropped(long numberOfTraces) {
+      droppedTraces += numberOfTraces;
+      tracesDeliveredBeforeDropping = traces.size();
+    }
+
+    @Override public void onError(Throwable error) {
+      this.error = error;
+      errors++;
+    }
+
+    TraceSubscription getSubscription() {
+      return subscription;
+    }
+  }
+
+  private static class FakeExecutor implements Executor {
+
+    private final List<Runnable> pendingTasks = new LinkedList<Runnable>();
+
+    @Override public void execute(Runnable task) {
+      pendingTasks.add(task);
+    }
+
+    void runPendingTasks() {
+      while (!pendingTasks.isEmpty()) {
+        pendingTasks.remove(0).run();
+      }
+    }
+  }
+}
@@ -20,6 +20,9 @@ import com.github.pedrovgs.lynx.exception.IllegalTraceException;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Pedro Vicente Gómez Sánchez.
@@ -41,6 +44,8 @@ public class TraceTest {
   private static final String ERROR_TRACE = ANY_TRACE_DATE + " E/" + ERROR_TRACE_MESSAGE;
   private static final String WTF_TRACE_MESSAGE = "Any wtf message";
   private static final String WTF_TRACE = ANY_TRACE_DATE + " F/" + WTF_TRACE_MESSAGE;
+  private static final String TAGGED_TRACE_MESSAGE = "ActivityManager( 1234): Any message";
+  private static final String TAGGED_TRACE = ANY_TRACE_DATE + " I/" + TAGGED_TRACE_MESSAGE;
 
   @Test(expected = IllegalTraceException.class) public void shouldThrowExceptionIfTraceInputIsNull()
       throws IllegalTraceException {
@@ -110,4 +115,115 @@ public class TraceTest {
     assertEquals(TraceLevel.WTF, trace.getLevel());
     assertEquals(ANY_TRACE_DATE + " " + WTF_TRACE_MESSAGE, trace.getMessage());
   }
+
+  @Test public void shouldParseTheTagAndThePidFromStringTrace() throws IllegalTraceException {
+    Trace trace = Trace.fromString(TAGGED_TRACE);
+
+    assertEquals("ActivityManager", trace.getTag());
+    assertEquals(1234, trace.getPid());
+    assertEquals(ANY_TRACE_DATE + " " + TAGGED_TRACE_MESSAGE, trace.getMessage());
+  }
+
+  @Test public void shouldShareTheTagInstanceBetweenTraces() throws IllegalTraceException {
+    Trace trace = Trace.fromString(TAGGED_TRACE);
+    Trace otherTrace = Trace.fromString(ANY_TRACE_DATE + " D/" + TAGGED_TRACE_MESSAGE);
+
+    assertSame(trace.getTag(), otherTrace.getTag());
+  }
+
+  @Test public void shouldNotAssignTagNorPidIfTheTraceHasNoPid() throws IllegalTraceException {
+    Trace trace = Trace.fromString(ANY_TRACE_DATE + " I/Message (not a pid): text");
+
+    assertFalse(trace.hasTag());
+    assertEquals(Trace.NO_PID, trace.getPid());
+  }
+
+  @Test public void shouldParseTheTimestampFromTheTraceDate() throws IllegalTraceException {
+    Trace trace = Trace.fromString(DEBUG_TRACE);
+
+    long days = Trace.DAYS_PER_MONTH + 6;
+    long millisOfDay = ((17 * 60 + 45) * 60 + 33) * 1000 + 14;
+    assertTrue(trace.hasTimestamp());
+    assertEquals(days * Trace.MILLIS_PER_DAY + millisOfDay, trace.getTimestamp());
+  }
+
+  @Test public void shouldNotHaveTimestampIfTheMessageDoesNotStartWithADate() {
+    Trace trace = new Trace(TraceLevel.DEBUG, "17:45:33 is not a date");
+
+    assertFalse(trace.hasTimestamp());
+    assertEquals(Trace.NO_TIMESTAMP, trace.getTimestamp());
+  }
+
+  @Test public void shouldSortTheTimestampsChronologically() {
+    long timestamp = Trace.parseTimestamp("01-31 23:59:59.999");
+    long nextDayTimestamp = Trace.parseTimestamp("02-01 00:00:00.000");
+    long nextMonthTimestamp = Trace.parseTimestamp("03-01 00:00:00.000");
+
+    assertTrue(timestamp < nextDayTimestamp);
+    assertTrue(nextDayTimestamp < nextMonthTimestamp);
+  }
+
+  @Test public void shouldCreateTracesWithoutIdByDefault() throws IllegalTraceException {
+    Trace trace = Trace.fromString(DEBUG_TRACE);
+
+    assertFalse(trace.hasId());
+    assertEquals(Trace.NO_ID, trace.getId());
+  }
+
+  @Test public void shouldKeepTheIdPassedOnCreation() throws IllegalTraceException {
+    Trace trace = Trace.fromString(DEBUG_TRACE, 42);
+
+    assertTrue(trace.hasId());
+    assertEquals(42, trace.getId());
+  }
+
+  @Test public void shouldConsiderEqualTracesWithDifferentIds() throws IllegalTraceException {
+    Trace trace = Trace.fromString(DEBUG_TRACE, 1);
+    Trace sameTrace = Trace.fromString(DEBUG_TRACE, 2);
+
+    assertEquals(trace, sameTrace);
+    assertEquals(trace.hashCode(), sameTrace.hashCode());
+  }
+
+  @Test public void shouldReturnTheLogcatLineTheTraceWasReadFrom() throws IllegalTraceException {
+    Trace trace = Trace.fromString(TAGGED_TRACE);
+
+    assertEquals(TAGGED_TRACE, trace.getLogcatLine());
+    assertEquals(TAGGED_TRACE.length(), trace.getLogcatLineLength());
+  }
+
+  @Test public void shouldReturnTheLogcatLineCharactersWithoutCreatingTheLine()
+      throws IllegalTraceException {
+    Trace trace = Trace.fromString(TAGGED_TRACE);
+
+    for (int i = 0; i < TAGGED_TRACE.length(); i++) {
+      assertEquals(TAGGED_TRACE.charAt(i), trace.getLogcatLineCharAt(i));
+    }
+  }
+
+  @Test public void shouldPrefixTheLevelToTheLogcatLineOfTracesWithoutDate() {
+    Trace trace = new Trace(TraceLevel.WARNING, "Any message");
+
+    assertEquals("W/Any message", trace.getLogcatLine());
+  }
+
+  @Test public void shouldReturnTheMessageBodyWithoutTheDateTheTagAndThePid()
+      throws IllegalTraceException {
+    Trace trace = Trace.fromString(TAGGED_TRACE);
+
+    assertEquals("Any message", trace.getMessageBody());
+  }
+
+  @Test public void shouldReturnTheMessageBodyWithoutTheDateOfTracesWithoutTag()
+      throws IllegalTraceException {
+    Trace trace = Trace.fromString(DEBUG_TRACE);
+
+    assertEquals(DEBUG_TRACE_MESSAGE, trace.getMessageBody());
+  }
+
+  @Test public void shouldReturnTheWholeMessageAsBodyOfTracesWithoutDateNorTag() {
+    Trace trace = new Trace(TraceLevel.WARNING, "Any message (not a pid): text");
+
+    assertEquals("Any message (not a pid): text", trace.getMessageBody());
+  }
 }
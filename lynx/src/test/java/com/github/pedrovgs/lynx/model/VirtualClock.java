@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.model;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * TimeProvider and ScheduledMainThread implementation created for testing purposes. The current
+ * time is controlled by the test using advanceTime and delayed Runnable objects are executed in
+ * order when the virtual time reaches their execution time. Runnable objects posted without delay
+ * are executed directly and Runnable objects posted on the next frame are delayed the duration of
+ * a frame.
+ *
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class VirtualClock extends TimeProvider implements ScheduledMainThread {
+
+  private static final long NANOS_PER_MILLI = 1000000;
+  private static final long FRAME_DURATION_IN_MILLIS = 16;
+
+  private final List<ScheduledRunnable> scheduledRunnables = new LinkedList<ScheduledRunnable>();
+  private long now;
+
+  public VirtualClock(long now) {
+    this.now = now;
+  }
+
+  @Override public long getCurrentTimeMillis() {
+    return now;
+  }
+
+  @Override public long getNanoTime() {
+    return now * NANOS_PER_MILLI;
+  }
+
+  @Override public void post(Runnable runnable) {
+    runnable.run();
+  }
+
+  @Override public void postDelayed(Runnable runnable, long delayInMillis) {
+    scheduledRunnables.add(new ScheduledRunnable(runnable, now + delayInMillis));
+  }
+
+  @Override public void postOnNextFrame(Runnable runnable) {
+    postDelayed(runnable, FRAME_DURATION_IN_MILLIS);
+  }
+
+  public void advanceTime(long timeInMillis) {
+    long targetTime = now + timeInMillis;
+    ScheduledRunnable next = getNextScheduledRunnable(targetTime);
+    while (next != null) {
+      scheduledRunnables.remove(next);
+      now = next.executionTime;
+      next.runnable.run();
+      next = getNextScheduledRunnable(targetTime);
+    }
+    now = targetTime;
+  }
+
+  public int getNumberOfScheduledRunnables() {
+    return scheduledRunnables.size();
+  }
+
+  private ScheduledRunnable getNextScheduledRunnable(long targetTime) {
+    ScheduledRunnable next = null;
+    for (ScheduledRunnable scheduledRunnable : scheduledRunnables) {
+      boolean isReady = scheduledRunnable.executionTime <= targetTime;
+      if (isReady && (next == null || scheduledRunnable.executionTime < next.executionTime)) {
+        next = scheduledRunnable;
+      }
+    }
+    return next;
+  }
+
+  private static class ScheduledRunnable {
+
+    private final Runnable runnable;
+    private final long executionTime;
+
+    ScheduledRunnable(Runnable runnable, long executionTime) {
+      this.runnable = runnable;
+      this.executionTime = executionTime;
+    }
+  }
+}
@@ -17,19 +17,29 @@
 package com.github.pedrovgs.lynx.presenter;
 
 import com.github.pedrovgs.lynx.LynxConfig;
+import com.github.pedrovgs.lynx.export.TraceExporter;
 import com.github.pedrovgs.lynx.model.Lynx;
 import com.github.pedrovgs.lynx.model.Trace;
 import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -43,9 +53,16 @@ public class LynxPresenterTest {
 
   private static final int MAX_NUMBER_OF_TRACES = 10;
   private static final String ANY_FILTER = "filter";
+  private static final long ANY_MAX_DISK_HISTORY_SIZE = 1024 * 1024;
+  private static final long ANY_FIRST_TRACE_ID = 1000;
+  private static final File ANY_FILE = new File("lynx_traces.txt");
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   @Mock private Lynx lynx;
   @Mock private LynxPresenter.View view;
+  @Mock private TraceExporter traceExporter;
+  @Mock private TraceExporter.Export export;
 
   private LynxPresenter presenter;
 
@@ -89,7 +106,35 @@ public class LynxPresenterTest {
     presenter.resume();
     presenter.onNewTraces(traces);
 
-    verify(view).showTraces(eq(traces), eq(0));
+    verify(view).appendTraces(eq(traces), eq(0));
+  }
+
+  @Test public void shouldNotifyTheNumberOfTracesRemovedToShowTheNewTraces() {
+    List<Trace> newTraces = generateTraces(2);
+
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES));
+    presenter.onNewTraces(newTraces);
+
+    verify(view).appendTraces(eq(newTraces), eq(2));
+  }
+
+  @Test public void shouldNotifyJustTheLastTracesIfThereAreMoreTracesThanTheBufferSize() {
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES + 5);
+
+    presenter.onNewTraces(traces);
+
+    List<Trace> expectedTraces = traces.subList(5, MAX_NUMBER_OF_TRACES + 5);
+    verify(view).appendTraces(eq(expectedTraces), eq(0));
+  }
+
+  @Test public void shouldShowTheCurrentTracesWithoutDuplicatingThemOnLynxConfigUpdated() {
+    List<Trace> traces = generateTraces(5);
+    presenter.onNewTraces(traces);
+
+    presenter.setLynxConfig(new LynxConfig().setMaxNumberOfTracesToShow(MAX_NUMBER_OF_TRACES));
+
+    verify(view).showTraces(eq(traces));
+    assertEquals(traces, presenter.getCurrentTraces());
   }
 
   @Test(expected = IllegalArgumentException.class) public void shouldNotAcceptNullLynxConfigs() {
@@ -151,22 +196,131 @@ public class LynxPresenterTest {
     assertEquals(TraceLevel.DEBUG, lynxConfig.getFilterTraceLevel());
   }
 
+  @Test public void shouldClearPreviousTracesOnResumeAfterPause() {
+    presenter.resume();
+    presenter.onNewTraces(generateTraces(3));
+    presenter.pause();
+
+    presenter.resume();
+
+    verify(view).clear();
+    assertTrue(presenter.getCurrentTraces().isEmpty());
+  }
+
   @Test public void shouldClearViewOnFilterUpdated() {
-    givenAPreviusLynxConfig();
+    when(lynx.getConfig()).thenReturn(new LynxConfig().setFilter("previous"));
 
     presenter.resume();
     presenter.updateFilter(ANY_FILTER);
 
     verify(view).clear();
+    verify(lynx).restart();
   }
 
-  @Test public void shouldClearViewOnFilterTraceLevelUpdated() {
+  @Test public void shouldShowTheTracesStoredMatchingTheNewFilterIfItIsNarrower() {
+    when(lynx.getConfig()).thenReturn(new LynxConfig().setFilter("Fil"));
+    Trace matchingTrace = new Trace(TraceLevel.DEBUG, "Any " + ANY_FILTER);
+    List<Trace> traces = generateTraces(3);
+    traces.add(1, matchingTrace);
+
+    presenter.resume();
+    presenter.onNewTraces(traces);
+    presenter.updateFilter(ANY_FILTER);
+
+    assertEquals(Collections.singletonList(matchingTrace), presenter.getCurrentTraces());
+    verify(view).showTraces(Collections.singletonList(matchingTrace));
+    verify(view, never()).clear();
+    verify(lynx, never()).restart();
+  }
+
+  @Test public void shouldShowTheTracesStoredInTheHistoryOnScrollToTopAfterANarrowerFilter()
+      throws Exception {
+    givenAPresenterWithDiskHistory();
+    givenAPreviusLynxConfig();
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES * 2);
+
+    presenter.resume();
+    presenter.onNewTraces(traces);
+    presenter.updateFilter("5");
+    presenter.onScrollToTop();
+
+    verify(view).showTraces(traces.subList(MAX_NUMBER_OF_TRACES + 5, MAX_NUMBER_OF_TRACES + 6));
+    verify(view).prependTraces(traces.subList(0, MAX_NUMBER_OF_TRACES), 1);
+    verify(lynx, never()).restart();
+  }
+
+  @Test public void shouldKeepTheRetainedTracesOnFilterUpdatedIfItIsNarrower() {
+    givenARetentionPolicy();
     givenAPreviusLynxConfig();
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES * 2);
+
+    presenter.resume();
+    presenter.onNewTraces(Collections.singletonList(error));
+    presenter.onNewTraces(traces);
+    presenter.updateFilter("5");
+
+    List<Trace> expectedTraces = Arrays.asList(error, traces.get(MAX_NUMBER_OF_TRACES + 5));
+    assertEquals(expectedTraces, presenter.getCurrentTraces());
+    verify(lynx, never()).restart();
+  }
+
+  @Test public void shouldReadTracesAgainIfTheNewFilterIsARegularExpression() {
+    when(lynx.getConfig()).thenReturn(new LynxConfig().setFilter("fil"));
+
+    presenter.resume();
+    presenter.updateFilter("fil.*r");
+
+    verify(view).clear();
+    verify(lynx).restart();
+  }
+
+  @Test public void shouldClearViewOnFilterTraceLevelDecreased() {
+    when(lynx.getConfig()).thenReturn(new LynxConfig().setFilterTraceLevel(TraceLevel.ERROR));
 
     presenter.resume();
     presenter.updateFilterTraceLevel(TraceLevel.DEBUG);
 
     verify(view).clear();
+    verify(lynx).restart();
+  }
+
+  @Test public void shouldShowTheTracesStoredWithTheNewLevelOnFilterTraceLevelIncreased() {
+    givenAPreviusLynxConfig();
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    Trace warning = new Trace(TraceLevel.WARNING, "warning");
+    List<Trace> traces = generateTraces(3);
+    traces.add(1, error);
+    traces.add(warning);
+
+    presenter.resume();
+    presenter.onNewTraces(traces);
+    presenter.updateFilterTraceLevel(TraceLevel.WARNING);
+
+    assertEquals(Arrays.asList(error, warning), presenter.getCurrentTraces());
+    verify(view).showTraces(Arrays.asList(error, warning));
+    verify(view, never()).clear();
+    verify(lynx, never()).restart();
+  }
+
+  @Test public void shouldShowTheTracesStoredInTheHistoryOnScrollToTopAfterIncreasingTheLevel()
+      throws Exception {
+    givenAPresenterWithDiskHistory();
+    givenAPreviusLynxConfig();
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES);
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    List<Trace> newTraces = generateTraces(MAX_NUMBER_OF_TRACES - 1);
+    newTraces.add(error);
+
+    presenter.resume();
+    presenter.onNewTraces(traces);
+    presenter.onNewTraces(newTraces);
+    presenter.updateFilterTraceLevel(TraceLevel.ERROR);
+    presenter.onScrollToTop();
+
+    verify(view).showTraces(Collections.singletonList(error));
+    verify(view).prependTraces(traces, 1);
+    verify(lynx, never()).restart();
   }
 
   @Test public void shouldShowNewTracesAfterOnFilterUpdated() {
@@ -179,7 +333,7 @@ public class LynxPresenterTest {
     List<Trace> newTraces = generateTraces(5);
     presenter.onNewTraces(newTraces);
 
-    verify(view, times(2)).showTraces(newTraces, 0);
+    verify(view).appendTraces(newTraces, 0);
   }
 
   @Test public void shouldShowNewTracesAfterOnFilterTraceLevelUpdated() {
@@ -192,10 +346,11 @@ public class LynxPresenterTest {
     List<Trace> newTraces = generateTraces(5);
     presenter.onNewTraces(newTraces);
 
-    verify(view, times(2)).showTraces(newTraces, 0);
+    verify(view).appendTraces(newTraces, 0);
   }
 
-  @Test public void shouldShareAPlainRepresentationOfTheCurrentBufferTraces() {
+  @Test public void shouldExportTheCurrentBufferTracesToShareThem() {
+    givenAPresenterWithTraceExporter();
     List<Trace> traces = generateTraces(30);
 
     presenter.resume();
@@ -203,8 +358,95 @@ public class LynxPresenterTest {
     presenter.onShareButtonClicked();
 
     traces = removeFirstTraces(20, traces);
-    String expectedTraces = generatePlainTracesToShare(traces);
-    verify(view).shareTraces(expectedTraces);
+    assertEquals(traces, getTracesExported());
+  }
+
+  @Test public void shouldShareTheFileWithTheTracesExported() {
+    givenAPresenterWithTraceExporter();
+    presenter.onNewTraces(generateTraces(3));
+    when(view.shareTraces(ANY_FILE)).thenReturn(true);
+
+    presenter.onShareButtonClicked();
+    getExportListener().onTracesExported(ANY_FILE);
+
+    verify(view).shareTraces(ANY_FILE);
+    verify(view, never()).notifyShareTracesFailed();
+  }
+
+  @Test public void shouldNotifyTheShareFailedIfTheTracesCantBeExported() {
+    givenAPresenterWithTraceExporter();
+
+    presenter.onShareButtonClicked();
+    getExportListener().onExportFailed();
+
+    verify(view).notifyShareTracesFailed();
+  }
+
+  @Test public void shouldNotifyTheShareFailedIfTheFileCantBeShared() {
+    givenAPresenterWithTraceExporter();
+    when(view.shareTraces(ANY_FILE)).thenReturn(false);
+
+    presenter.onShareButtonClicked();
+    getExportListener().onTracesExported(ANY_FILE);
+
+    verify(view).notifyShareTracesFailed();
+  }
+
+  @Test public void shouldShowTheProgressOfTheExport() {
+    givenAPresenterWithTraceExporter();
+
+    presenter.onShareButtonClicked();
+    getExportListener().onExportProgress(50);
+
+    verify(view).showExportProgress(0);
+    verify(view).showExportProgress(50);
+  }
+
+  @Test public void shouldHideTheProgressOnceTheTracesAreExported() {
+    givenAPresenterWithTraceExporter();
+
+    presenter.onShareButtonClicked();
+    getExportListener().onTracesExported(ANY_FILE);
+
+    verify(view).hideExportProgress();
+  }
+
+  @Test public void shouldCancelTheExportIfTheShareButtonIsClickedWhileExporting() {
+    givenAPresenterWithTraceExporter();
+
+    presenter.onShareButtonClicked();
+    presenter.onShareButtonClicked();
+
+    verify(export).cancel();
+    verify(view).hideExportProgress();
+    verify(traceExporter)
+        .export(anyListOf(Trace.class), any(LynxConfig.class), any(TraceExporter.Listener.class));
+  }
+
+  @Test public void shouldCancelTheExportOnPause() {
+    givenAPresenterWithTraceExporter();
+
+    presenter.onShareButtonClicked();
+    presenter.pause();
+
+    verify(export).cancel();
+  }
+
+  @Test public void shouldExportTheTracesAgainOnceThePreviousExportFinishes() {
+    givenAPresenterWithTraceExporter();
+
+    presenter.onShareButtonClicked();
+    getExportListener().onTracesExported(ANY_FILE);
+    presenter.onShareButtonClicked();
+
+    verify(traceExporter, times(2))
+        .export(anyListOf(Trace.class), any(LynxConfig.class), any(TraceExporter.Listener.class));
+  }
+
+  @Test public void shouldNotifyTheShareFailedIfThereIsNoTraceExporter() {
+    presenter.onShareButtonClicked();
+
+    verify(view).notifyShareTracesFailed();
   }
 
   @Test public void shouldNotStartReadingFromLynxIfPresenterIsAlreadyInitialized() {
@@ -239,6 +481,266 @@ public class LynxPresenterTest {
     assertEquals(traces, presenter.getCurrentTraces());
   }
 
+  @Test public void shouldShowTheTracesStoredInTheHistoryOnScrollToTop() throws Exception {
+    givenAPresenterWithDiskHistory();
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES * 2);
+
+    presenter.onNewTraces(traces);
+    presenter.onScrollToTop();
+
+    verify(view).disableAutoScroll();
+    verify(view).prependTraces(traces.subList(0, MAX_NUMBER_OF_TRACES), MAX_NUMBER_OF_TRACES);
+  }
+
+  @Test public void shouldNotShowNewTracesWhileShowingTheHistory() throws Exception {
+    givenAPresenterWithDiskHistory();
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES * 2));
+    presenter.onScrollToTop();
+    List<Trace> newTraces = generateTraces(5);
+
+    presenter.onNewTraces(newTraces);
+
+    verify(view, never()).appendTraces(eq(newTraces), any(Integer.class));
+  }
+
+  @Test public void shouldShowTheNextTracesOnScrollToTheBottomWhileShowingTheHistory()
+      throws Exception {
+    givenAPresenterWithDiskHistory();
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES * 2);
+    presenter.onNewTraces(traces);
+    presenter.onScrollToTop();
+
+    presenter.onScrollToPosition(MAX_NUMBER_OF_TRACES);
+
+    verify(view).appendTraces(traces.subList(MAX_NUMBER_OF_TRACES, MAX_NUMBER_OF_TRACES * 2),
+        MAX_NUMBER_OF_TRACES);
+  }
+
+  @Test public void shouldScrollToTheFirstTracePrintedAtTheTimeToJumpTo() {
+    presenter.onNewTraces(generateTimestampedTraces(MAX_NUMBER_OF_TRACES));
+
+    boolean hasJumped = presenter.onJumpToTime("17:45:00.450");
+
+    assertTrue(hasJumped);
+    verify(view).disableAutoScroll();
+    verify(view).scrollToTrace(ANY_FIRST_TRACE_ID + 5);
+  }
+
+  @Test public void shouldShowTheTracesAroundTheTraceToJumpToIfItIsNotShown() throws Exception {
+    givenAPresenterWithDiskHistory();
+    List<Trace> traces = generateTimestampedTraces(MAX_NUMBER_OF_TRACES * 4);
+    presenter.onNewTraces(traces);
+
+    presenter.onJumpToTime("02-07 17:45:01.000");
+
+    verify(view).showTraces(traces.subList(5, 5 + MAX_NUMBER_OF_TRACES));
+    verify(view).scrollToTrace(ANY_FIRST_TRACE_ID + 10);
+  }
+
+  @Test public void shouldNotJumpToAnInvalidTime() {
+    presenter.onNewTraces(generateTimestampedTraces(MAX_NUMBER_OF_TRACES));
+
+    boolean hasJumped = presenter.onJumpToTime("Any invalid time");
+
+    assertFalse(hasJumped);
+    verify(view, never()).scrollToTrace(any(Long.class));
+  }
+
+  @Test public void shouldNotShowPreviousTracesIfThereIsNoHistory() {
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES * 2));
+
+    presenter.onScrollToTop();
+
+    verify(view, never()).prependTraces(any(List.class), any(Integer.class));
+  }
+
+  @Test public void shouldStopReadingTracesOnClose() {
+    presenter.resume();
+
+    presenter.close();
+
+    verify(lynx).stopReading();
+  }
+
+  @Test public void shouldDiscardTheDiskHistoryOnClose() throws Exception {
+    givenAPresenterWithDiskHistory();
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES * 2));
+
+    presenter.close();
+    presenter.onScrollToTop();
+
+    verify(view, never()).prependTraces(any(List.class), any(Integer.class));
+  }
+
+  @Test public void shouldUseTheDiskHistoryAgainIfThePresenterIsResumedAfterClosingIt()
+      throws Exception {
+    givenAPresenterWithDiskHistory();
+    presenter.close();
+    presenter.resume();
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES * 2);
+
+    presenter.onNewTraces(traces);
+    presenter.onScrollToTop();
+
+    verify(view).prependTraces(traces.subList(0, MAX_NUMBER_OF_TRACES), MAX_NUMBER_OF_TRACES);
+  }
+
+  @Test public void shouldCloseTheTraceExporterOnClose() {
+    givenAPresenterWithTraceExporter();
+
+    presenter.close();
+
+    verify(traceExporter).close();
+  }
+
+  @Test public void shouldDiscardTheOldestTracesOnTrimMemory() {
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES);
+    presenter.onNewTraces(traces);
+
+    presenter.trimMemory(0.5f);
+
+    List<Trace> expectedTraces = traces.subList(MAX_NUMBER_OF_TRACES / 2, MAX_NUMBER_OF_TRACES);
+    assertEquals(expectedTraces, presenter.getCurrentTraces());
+    verify(view).showTraces(expectedTraces);
+  }
+
+  @Test public void shouldRestoreTheMaxBufferSizeOnResumeAfterTrimMemory() {
+    presenter.resume();
+    presenter.trimMemory(0);
+    presenter.pause();
+    presenter.resume();
+
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES));
+
+    assertEquals(MAX_NUMBER_OF_TRACES, presenter.getCurrentTraces().size());
+  }
+
+  @Test public void shouldNotDiscardMoreTracesIfTrimMemoryIsInvokedTwiceWithTheSameFraction() {
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES);
+    presenter.onNewTraces(traces);
+
+    presenter.trimMemory(0.5f);
+    presenter.trimMemory(0.5f);
+
+    List<Trace> expectedTraces = traces.subList(MAX_NUMBER_OF_TRACES / 2, MAX_NUMBER_OF_TRACES);
+    assertEquals(expectedTraces, presenter.getCurrentTraces());
+    verify(view).showTraces(expectedTraces);
+  }
+
+  @Test public void shouldTrimTheMemoryFromTheSizeTheTracesHadBeforeTrimming() {
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES);
+    presenter.onNewTraces(traces);
+    long sizeBeforeTrimming = presenter.getCurrentTracesSizeInBytes();
+
+    presenter.trimMemory(0.25f);
+    presenter.onNewTraces(traces);
+    presenter.trimMemory(0.5f);
+    presenter.onNewTraces(traces);
+
+    assertTrue(presenter.getCurrentTracesSizeInBytes() <= sizeBeforeTrimming / 2);
+    assertTrue(presenter.getCurrentTracesSizeInBytes() > sizeBeforeTrimming / 4);
+  }
+
+  @Test public void shouldRestoreTheMaxBufferSizeOnceTheMemoryPressureEnds() {
+    presenter.trimMemory(0);
+
+    presenter.restoreMemory();
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES));
+
+    assertEquals(MAX_NUMBER_OF_TRACES, presenter.getCurrentTraces().size());
+  }
+
+  @Test public void shouldRestoreTheMaxBufferSizeIfTheFractionToKeepIsOne() {
+    presenter.trimMemory(0);
+
+    presenter.trimMemory(1);
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES));
+
+    assertEquals(MAX_NUMBER_OF_TRACES, presenter.getCurrentTraces().size());
+  }
+
+  @Test public void shouldRemoveTheTracesExceedingTheMaxBufferSizeInBytesFromTheView() {
+    presenter.onNewTraces(generateTraces(2));
+    long sizeOfTwoTraces = presenter.getCurrentTracesSizeInBytes();
+    presenter.setLynxConfig(new LynxConfig().setMaxNumberOfTracesToShow(MAX_NUMBER_OF_TRACES)
+        .setMaxBufferSizeInBytes(sizeOfTwoTraces));
+    List<Trace> newTraces = generateTraces(1);
+
+    presenter.onNewTraces(newTraces);
+
+    verify(view).appendTraces(newTraces, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptFractionsToKeepBiggerThanOneOnTrimMemory() {
+    presenter.trimMemory(2);
+  }
+
+  @Test public void shouldShowTheRetainedTracesBeforeTheRestOfTraces() {
+    givenARetentionPolicy();
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    presenter.onNewTraces(Collections.singletonList(error));
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES);
+
+    presenter.onNewTraces(traces);
+
+    List<Trace> expectedTraces = new LinkedList<Trace>();
+    expectedTraces.add(error);
+    expectedTraces.addAll(traces);
+    assertEquals(expectedTraces, presenter.getCurrentTraces());
+    verify(view, times(2)).showTraces(any(List.class));
+  }
+
+  @Test public void shouldShowTheTracesDiscardedJustFromTheHistoryIfThereIsADiskHistory()
+      throws Exception {
+    givenAPresenterWithDiskHistory();
+    presenter.setLynxConfig(givenARetentionPolicy().setMaxDiskHistorySizeInBytes(
+        ANY_MAX_DISK_HISTORY_SIZE));
+    List<Trace> errors = generateTraces(TraceLevel.ERROR, MAX_NUMBER_OF_TRACES * 2);
+
+    presenter.onNewTraces(errors);
+    presenter.onScrollToTop();
+
+    assertEquals(errors.subList(MAX_NUMBER_OF_TRACES, MAX_NUMBER_OF_TRACES * 2),
+        presenter.getCurrentTraces());
+    verify(view).prependTraces(errors.subList(0, MAX_NUMBER_OF_TRACES), MAX_NUMBER_OF_TRACES);
+  }
+
+  @Test public void shouldAppendNewTracesIfTheRetainedTracesDoNotChange() {
+    LynxConfig lynxConfig = givenARetentionPolicy();
+    presenter.onNewTraces(Collections.singletonList(new Trace(TraceLevel.ERROR, "error")));
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES));
+    presenter.setLynxConfig(lynxConfig.setMaxNumberOfTracesToShow(MAX_NUMBER_OF_TRACES * 2));
+    List<Trace> newTraces = generateTraces(5);
+
+    presenter.onNewTraces(newTraces);
+
+    verify(view).appendTraces(newTraces, 0);
+  }
+
+  @Test public void shouldReturnCurrentTracesNotAffectedByNewTraces() {
+    List<Trace> traces = generateTraces(MAX_NUMBER_OF_TRACES);
+    presenter.onNewTraces(traces);
+
+    List<Trace> currentTraces = presenter.getCurrentTraces();
+    presenter.onNewTraces(generateTraces(MAX_NUMBER_OF_TRACES));
+
+    assertEquals(traces, currentTraces);
+  }
+
+  private LynxConfig givenARetentionPolicy() {
+    LynxConfig lynxConfig = new LynxConfig().setMaxNumberOfTracesToShow(MAX_NUMBER_OF_TRACES)
+        .setRetainedTraceLevel(TraceLevel.WARNING)
+        .setMaxNumberOfRetainedTraces(5);
+    presenter.setLynxConfig(lynxConfig);
+    return lynxConfig;
+  }
+
+  private void givenAPresenterWithDiskHistory() throws Exception {
+    presenter = new LynxPresenter(lynx, view, MAX_NUMBER_OF_TRACES, temporaryFolder.newFolder());
+    presenter.setMaxDiskHistorySize(ANY_MAX_DISK_HISTORY_SIZE);
+  }
+
   private List<Trace> removeFirstTraces(int tracesToRemove, List<Trace> traces) {
     for (int i = 0; i < tracesToRemove; i++) {
       traces.remove(0);
@@ -246,27 +748,49 @@ public class LynxPresenterTest {
     return traces;
   }
 
-  private String generatePlainTracesToShare(List<Trace> traces) {
-    StringBuilder sb = new StringBuilder();
-    for (Trace trace : traces) {
-      String traceLevel = trace.getLevel().getValue();
-      String traceMessage = trace.getMessage();
-      sb.append(traceLevel);
-      sb.append("/ ");
-      sb.append(traceMessage);
-      sb.append("\n");
-    }
-    return sb.toString();
+  private void givenAPresenterWithTraceExporter() {
+    when(traceExporter.export(anyListOf(Trace.class), any(LynxConfig.class),
+        any(TraceExporter.Listener.class))).thenReturn(export);
+    presenter = new LynxPresenter(lynx, view, MAX_NUMBER_OF_TRACES, null, traceExporter);
+  }
+
+  @SuppressWarnings("unchecked") private List<Trace> getTracesExported() {
+    ArgumentCaptor<List> tracesCaptor = ArgumentCaptor.forClass(List.class);
+    verify(traceExporter).export(tracesCaptor.capture(), any(LynxConfig.class),
+        any(TraceExporter.Listener.class));
+    return new LinkedList<Trace>(tracesCaptor.getValue());
+  }
+
+  private TraceExporter.Listener getExportListener() {
+    ArgumentCaptor<TraceExporter.Listener> listenerCaptor =
+        ArgumentCaptor.forClass(TraceExporter.Listener.class);
+    verify(traceExporter).export(anyListOf(Trace.class), any(LynxConfig.class),
+        listenerCaptor.capture());
+    return listenerCaptor.getValue();
   }
 
   private void givenAPreviusLynxConfig() {
     when(lynx.getConfig()).thenReturn(new LynxConfig());
   }
 
+  private List<Trace> generateTimestampedTraces(int numberOfTraces) {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < numberOfTraces; i++) {
+      String date = String.format(Locale.US, "02-07 17:45:%02d.%03d", i / 10, i % 10 * 100);
+      traces.add(new Trace(TraceLevel.VERBOSE, date + " " + i, null, Trace.NO_PID,
+          ANY_FIRST_TRACE_ID + i));
+    }
+    return traces;
+  }
+
   private List<Trace> generateTraces(int numberOfTraces) {
+    return generateTraces(TraceLevel.VERBOSE, numberOfTraces);
+  }
+
+  private List<Trace> generateTraces(TraceLevel level, int numberOfTraces) {
     List<Trace> traces = new LinkedList<Trace>();
     for (int i = 0; i < numberOfTraces; i++) {
-      Trace dummyTrace = new Trace(TraceLevel.VERBOSE, String.valueOf(i));
+      Trace dummyTrace = new Trace(level, String.valueOf(i));
       traces.add(dummyTrace);
     }
     return traces;
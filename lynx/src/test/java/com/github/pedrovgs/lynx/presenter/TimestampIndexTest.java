@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.Locale;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class TimestampIndexTest {
+
+  private static final long ANY_REFERENCE_TIMESTAMP = Trace.parseTimestamp("02-07 23:00:00.000");
+
+  private TimestampIndex timestampIndex;
+
+  @Before public void setUp() {
+    timestampIndex = new TimestampIndex();
+  }
+
+  @Test public void shouldStoreOneSampleEverySamplingInterval() {
+    givenTracesPrintedEverySecond(200);
+
+    assertEquals(4, timestampIndex.size());
+  }
+
+  @Test public void shouldReturnTheTraceAfterTheLastSamplePrintedBeforeTheTimestamp() {
+    givenTracesPrintedEverySecond(200);
+
+    long firstCandidate = timestampIndex.findFirstCandidate(getTimestamp(150));
+
+    assertEquals(129, firstCandidate);
+  }
+
+  @Test public void shouldReturnMinValueIfNoSampleWasPrintedBeforeTheTimestamp() {
+    givenTracesPrintedEverySecond(200);
+
+    long firstCandidate = timestampIndex.findFirstCandidate(getTimestamp(0));
+
+    assertEquals(Long.MIN_VALUE, firstCandidate);
+  }
+
+  @Test public void shouldUseTheMaxTimestampIndexedToKeepTheSamplesSorted() {
+    timestampIndex.add(givenATracePrintedAt(100), 0);
+    timestampIndex.add(givenATracePrintedAt(50), TimestampIndex.SAMPLING_INTERVAL);
+
+    long firstCandidate = timestampIndex.findFirstCandidate(getTimestamp(80));
+
+    assertEquals(Long.MIN_VALUE, firstCandidate);
+  }
+
+  @Test public void shouldIgnoreTheTracesWithoutTimestamp() {
+    timestampIndex.add(new Trace(TraceLevel.INFO, "Any message"), 0);
+
+    assertEquals(0, timestampIndex.size());
+  }
+
+  @Test public void shouldKeepTheLastSampleBeforeTheSequenceNumbersRemoved() {
+    givenTracesPrintedEverySecond(200);
+
+    timestampIndex.removeUntil(100);
+
+    assertEquals(3, timestampIndex.size());
+    assertEquals(65, timestampIndex.findFirstCandidate(getTimestamp(100)));
+  }
+
+  @Test public void shouldParseLogcatDates() {
+    long timestamp = TimestampIndex.parseTime("02-07 17:45:33.014", Trace.NO_TIMESTAMP);
+
+    assertEquals(Trace.parseTimestamp("02-07 17:45:33.014"), timestamp);
+  }
+
+  @Test public void shouldParseTimesInTheDayOfTheReferenceTimestamp() {
+    assertEquals(Trace.parseTimestamp("02-07 17:45:00.000"),
+        TimestampIndex.parseTime("17:45", ANY_REFERENCE_TIMESTAMP));
+    assertEquals(Trace.parseTimestamp("02-07 17:45:33.000"),
+        TimestampIndex.parseTime("17:45:33", ANY_REFERENCE_TIMESTAMP));
+    assertEquals(Trace.parseTimestamp("02-07 17:45:33.014"),
+        TimestampIndex.parseTime(" 17:45:33.014 ", ANY_REFERENCE_TIMESTAMP));
+  }
+
+  @Test public void shouldNotParseTimesWithoutReferenceTimestamp() {
+    assertEquals(Trace.NO_TIMESTAMP, TimestampIndex.parseTime("17:45", Trace.NO_TIMESTAMP));
+  }
+
+  @Test public void shouldNotParseInvalidTimes() {
+    assertEquals(Trace.NO_TIMESTAMP, TimestampIndex.parseTime("17h45", ANY_REFERENCE_TIMESTAMP));
+    assertEquals(Trace.NO_TIMESTAMP,
+        TimestampIndex.parseTime("Any text that is not a time", ANY_REFERENCE_TIMESTAMP));
+  }
+
+  private void givenTracesPrintedEverySecond(int numberOfTraces) {
+    for (int i = 0; i < numberOfTraces; i++) {
+      timestampIndex.add(givenATracePrintedAt(i), i);
+    }
+  }
+
+  private Trace givenATracePrintedAt(int second) {
+    return new Trace(TraceLevel.INFO, getDate(second) + " Any message");
+  }
+
+  private long getTimestamp(int second) {
+    return Trace.parseTimestamp(getDate(second));
+  }
+
+  private String getDate(int second) {
+    return String.format(Locale.US, "02-07 17:%02d:%02d.000", second / 60, second % 60);
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class TraceHistoryTest {
+
+  private static final long ANY_MAX_SIZE_IN_BYTES = 1024 * 1024;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File directory;
+  private TraceHistory traceHistory;
+
+  @Before public void setUp() throws Exception {
+    directory = temporaryFolder.newFolder();
+    traceHistory = new TraceHistory(directory, ANY_MAX_SIZE_IN_BYTES, new DirectExecutor());
+  }
+
+  @Test public void shouldReturnAnEmptyListByDefault() {
+    List<Trace> traces = traceHistory.read(0, 10);
+
+    assertTrue(traces.isEmpty());
+  }
+
+  @Test public void shouldReadTheTracesAppendedBeforeSealingTheSegment() {
+    List<Trace> traces = generateTraces(0, 10);
+
+    append(traces);
+
+    assertEquals(traces, traceHistory.read(0, 10));
+  }
+
+  @Test public void shouldWriteSegmentFilesOnceTheSegmentIsFull() {
+    append(generateTraces(0, TraceHistory.SEGMENT_SIZE));
+
+    assertEquals(1, directory.listFiles().length);
+  }
+
+  @Test public void shouldReadTracesFromTheSegmentFilesAndTheOpenSegment() {
+    List<Trace> traces = generateTraces(0, TraceHistory.SEGMENT_SIZE * 2 + 10);
+
+    append(traces);
+
+    List<Trace> expectedTraces = traces.subList(TraceHistory.SEGMENT_SIZE - 5, traces.size());
+    assertEquals(expectedTraces, traceHistory.read(TraceHistory.SEGMENT_SIZE - 5, traces.size()));
+  }
+
+  @Test public void shouldKeepTraceLevelsAndNonAsciiMessages() {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < TraceHistory.SEGMENT_SIZE; i++) {
+      traces.add(new Trace(TraceLevel.values()[i % TraceLevel.values().length], "Gómez " + i));
+    }
+
+    append(traces);
+
+    assertEquals(traces, traceHistory.read(0, TraceHistory.SEGMENT_SIZE));
+  }
+
+  @Test public void shouldKeepTraceTagsAndPids() {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < TraceHistory.SEGMENT_SIZE; i++) {
+      String tag = i % 2 == 0 ? "Tag" + i : null;
+      traces.add(new Trace(TraceLevel.INFO, "Message " + i, tag, i));
+    }
+
+    append(traces);
+
+    List<Trace> tracesRead = traceHistory.read(0, TraceHistory.SEGMENT_SIZE);
+    for (int i = 0; i < traces.size(); i++) {
+      assertEquals(traces.get(i).getTag(), tracesRead.get(i).getTag());
+      assertEquals(traces.get(i).getPid(), tracesRead.get(i).getPid());
+    }
+  }
+
+  @Test public void shouldKeepTraceIds() {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < TraceHistory.SEGMENT_SIZE; i++) {
+      traces.add(new Trace(TraceLevel.INFO, "Message " + i, null, Trace.NO_PID, i * 3));
+    }
+
+    append(traces);
+
+    List<Trace> tracesRead = traceHistory.read(0, TraceHistory.SEGMENT_SIZE);
+    for (int i = 0; i < traces.size(); i++) {
+      assertEquals(traces.get(i).getId(), tracesRead.get(i).getId());
+    }
+  }
+
+  @Test public void shouldReturnJustTheMaxNumberOfTracesRequested() {
+    append(generateTraces(0, 20));
+
+    List<Trace> traces = traceHistory.read(5, 3);
+
+    assertEquals(generateTraces(5, 8), traces);
+  }
+
+  @Test public void shouldDeleteTheOldestSegmentsIfTheMaxSizeIsExceeded() {
+    append(generateTraces(0, TraceHistory.SEGMENT_SIZE));
+    long segmentSizeInBytes = directory.listFiles()[0].length();
+    traceHistory.setMaxSizeInBytes(segmentSizeInBytes * 2);
+
+    append(generateTraces(TraceHistory.SEGMENT_SIZE, TraceHistory.SEGMENT_SIZE * 3));
+
+    assertEquals(2, directory.listFiles().length);
+    assertEquals(TraceHistory.SEGMENT_SIZE, traceHistory.getFirstSequenceNumber());
+  }
+
+  @Test public void shouldSkipTheTracesDeletedOnRead() {
+    append(generateTraces(0, TraceHistory.SEGMENT_SIZE * 2));
+
+    traceHistory.setMaxSizeInBytes(directory.listFiles()[0].length());
+
+    List<Trace> traces = traceHistory.read(0, 1);
+    int firstTraceKept = TraceHistory.SEGMENT_SIZE;
+    assertEquals(generateTraces(firstTraceKept, firstTraceKept + 1), traces);
+  }
+
+  @Test public void shouldReadFromTheFirstTraceStoredAfterTheSequenceNumberIfThereAreGaps() {
+    List<Trace> traces = generateTraces(0, TraceHistory.SEGMENT_SIZE * 2 + 10);
+
+    appendWithEvenSequenceNumbers(traces);
+
+    int firstTrace = TraceHistory.SEGMENT_SIZE - 2;
+    assertEquals(traces.subList(firstTrace, firstTrace + 5),
+        traceHistory.read(firstTrace * 2 - 1, 5));
+    assertEquals(traces.size() * 2 - 1, traceHistory.getNextSequenceNumber());
+  }
+
+  @Test public void shouldCountTheTracesStoredBetweenTwoSequenceNumbersIfThereAreGaps() {
+    appendWithEvenSequenceNumbers(generateTraces(0, TraceHistory.SEGMENT_SIZE * 2 + 10));
+
+    int numberOfTraces = traceHistory.countTraces(1, TraceHistory.SEGMENT_SIZE * 2 + 21);
+
+    assertEquals(TraceHistory.SEGMENT_SIZE + 10, numberOfTraces);
+  }
+
+  @Test public void shouldSkipTracesForwardAndBackwardIfThereAreGaps() {
+    appendWithEvenSequenceNumbers(generateTraces(0, TraceHistory.SEGMENT_SIZE * 2 + 10));
+
+    assertEquals(10, traceHistory.skipTraces(5, 2));
+    assertEquals(2, traceHistory.skipTraces(5, -2));
+    assertEquals((TraceHistory.SEGMENT_SIZE + 1) * 2,
+        traceHistory.skipTraces(0, TraceHistory.SEGMENT_SIZE + 1));
+    assertEquals(TraceHistory.SEGMENT_SIZE * 2 - 2,
+        traceHistory.skipTraces(TraceHistory.SEGMENT_SIZE * 4, -TraceHistory.SEGMENT_SIZE - 1));
+  }
+
+  @Test public void shouldReturnTheFirstOrTheNextSequenceNumberIfThereAreNotEnoughTraces() {
+    appendWithEvenSequenceNumbers(generateTraces(0, 10));
+
+    assertEquals(0, traceHistory.skipTraces(6, -5));
+    assertEquals(traceHistory.getNextSequenceNumber(), traceHistory.skipTraces(6, 10));
+  }
+
+  @Test public void shouldDiscardEveryTraceAndDeleteTheSegmentFilesOnReset() {
+    append(generateTraces(0, TraceHistory.SEGMENT_SIZE + 10));
+
+    traceHistory.reset(50);
+
+    assertTrue(traceHistory.read(0, 10).isEmpty());
+    assertEquals(0, directory.listFiles().length);
+    assertEquals(50, traceHistory.getFirstSequenceNumber());
+    assertEquals(50, traceHistory.getNextSequenceNumber());
+  }
+
+  @Test public void shouldDeleteFilesWrittenByPreviousInstances() throws Exception {
+    append(generateTraces(0, TraceHistory.SEGMENT_SIZE));
+
+    new TraceHistory(directory, ANY_MAX_SIZE_IN_BYTES, new DirectExecutor());
+
+    assertEquals(0, directory.listFiles().length);
+  }
+
+  @Test public void shouldDeleteTheSegmentFilesOnClose() {
+    append(generateTraces(0, TraceHistory.SEGMENT_SIZE));
+
+    traceHistory.close();
+
+    assertEquals(0, directory.listFiles().length);
+  }
+
+  private void append(List<Trace> traces) {
+    for (Trace trace : traces) {
+      traceHistory.append(trace);
+    }
+  }
+
+  private void appendWithEvenSequenceNumbers(List<Trace> traces) {
+    for (int i = 0; i < traces.size(); i++) {
+      traceHistory.append(traces.get(i), i * 2);
+    }
+  }
+
+  private List<Trace> generateTraces(int initialValue, int finalValue) {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = initialValue; i < finalValue; i++) {
+      // Messages with the same length generate segment files with the same size.
+      traces.add(new Trace(TraceLevel.DEBUG, String.format("%06d", i)));
+    }
+    return traces;
+  }
+
+  private static class DirectExecutor implements Executor {
+
+    @Override public void execute(Runnable command) {
+      command.run();
+    }
+  }
+}
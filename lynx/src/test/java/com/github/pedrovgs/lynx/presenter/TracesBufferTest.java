@@ -18,10 +18,17 @@ package com.github.pedrovgs.lynx.presenter;
 
 import com.github.pedrovgs.lynx.model.Trace;
 import com.github.pedrovgs.lynx.model.TraceLevel;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
@@ -32,6 +39,10 @@ import static junit.framework.Assert.assertTrue;
 public class TracesBufferTest {
 
   private static final int ANY_BUFFER_SIZE = 20;
+  private static final String ANY_TAG = "AnyTag";
+  private static final int ANY_PID = 1234;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   private TraceBuffer traceBuffer;
 
@@ -134,10 +145,560 @@ public class TracesBufferTest {
     assertEquals(0, traceBuffer.getCurrentNumberOfTraces());
   }
 
+  @Test public void shouldKeepTheLastTracesAfterAddingMoreTracesThanTheBufferSizeSeveralTimes() {
+    for (int i = 0; i < 10; i++) {
+      traceBuffer.add(generateTraces(i * 7, (i + 1) * 7));
+    }
+
+    assertEquals(generateTraces(50, 70), traceBuffer.getTraces());
+  }
+
+  @Test public void shouldReturnARandomAccessListOfTraces() {
+    traceBuffer.add(generateTraces(30));
+
+    List<Trace> traces = traceBuffer.getTraces();
+
+    assertTrue(traces instanceof RandomAccess);
+    assertEquals("10", traces.get(0).getMessage());
+    assertEquals("29", traces.get(19).getMessage());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void shouldReturnAReadOnlyListOfTraces() {
+    traceBuffer.getTraces().add(new Trace(TraceLevel.DEBUG, "any trace"));
+  }
+
+  @Test public void shouldAssignConsecutiveSequenceNumbersToTheTracesAdded() {
+    traceBuffer.add(generateTraces(5));
+
+    assertEquals(0, traceBuffer.getSequenceNumber(0));
+    assertEquals(4, traceBuffer.getSequenceNumber(4));
+  }
+
+  @Test public void shouldKeepTheSequenceNumberOfTheTracesAfterDiscardingTraces() {
+    traceBuffer.add(generateTraces(30));
+
+    assertEquals(10, traceBuffer.getFirstSequenceNumber());
+    assertEquals(29, traceBuffer.getSequenceNumber(19));
+  }
+
+  @Test public void shouldNotReuseSequenceNumbersAfterClear() {
+    traceBuffer.add(generateTraces(5));
+
+    traceBuffer.clear();
+    traceBuffer.add(generateTraces(1));
+
+    assertEquals(5, traceBuffer.getSequenceNumber(0));
+  }
+
+  @Test public void shouldKeepTracesOrderIfBufferSizeIsIncreasedAfterDiscardingTraces() {
+    traceBuffer.add(generateTraces(30));
+
+    traceBuffer.setBufferSize(ANY_BUFFER_SIZE * 4);
+    traceBuffer.add(generateTraces(30, 40));
+
+    assertEquals(generateTraces(10, 40), traceBuffer.getTraces());
+  }
+
+  @Test public void shouldReadTheTracesDiscardedFromTheHistory() throws Exception {
+    traceBuffer.setHistory(givenATraceHistory());
+    List<Trace> traces = generateTraces(ANY_BUFFER_SIZE * 3);
+
+    traceBuffer.add(traces);
+
+    assertEquals(0, traceBuffer.getOldestSequenceNumber());
+    assertEquals(traces, traceBuffer.getTraces(0, traces.size()));
+    assertEquals(traces.subList(ANY_BUFFER_SIZE * 2, traces.size()), traceBuffer.getTraces());
+  }
+
+  @Test public void shouldReadTracesFromTheHistoryAndTheBuffer() throws Exception {
+    traceBuffer.setHistory(givenATraceHistory());
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE * 2));
+
+    List<Trace> traces = traceBuffer.getTraces(ANY_BUFFER_SIZE - 5, 10);
+
+    assertEquals(generateTraces(ANY_BUFFER_SIZE - 5, ANY_BUFFER_SIZE + 5), traces);
+  }
+
+  @Test public void shouldStoreTheTracesDiscardedReducingTheBufferSizeInTheHistory()
+      throws Exception {
+    traceBuffer.setHistory(givenATraceHistory());
+    List<Trace> traces = generateTraces(ANY_BUFFER_SIZE);
+    traceBuffer.add(traces);
+
+    traceBuffer.setBufferSize(5);
+
+    assertEquals(traces, traceBuffer.getTraces(0, ANY_BUFFER_SIZE));
+  }
+
+  @Test public void shouldDiscardTheHistoryOnClear() throws Exception {
+    traceBuffer.setHistory(givenATraceHistory());
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE * 2));
+
+    traceBuffer.clear();
+
+    assertEquals(ANY_BUFFER_SIZE * 2, traceBuffer.getOldestSequenceNumber());
+    assertTrue(traceBuffer.getTraces(0, ANY_BUFFER_SIZE).isEmpty());
+  }
+
+  @Test public void shouldFindTheFirstTracePrintedAtOrAfterATimestamp() {
+    traceBuffer.setBufferSize(1000);
+    traceBuffer.add(generateTimestampedTraces(300));
+    long timestamp = Trace.parseTimestamp("02-07 17:45:12.050");
+
+    long sequenceNumber = traceBuffer.findSequenceNumber(timestamp);
+
+    assertEquals(121, sequenceNumber);
+  }
+
+  @Test public void shouldFindTheTracesPrintedAtOrAfterATimestampStoredInTheHistory()
+      throws Exception {
+    traceBuffer.setHistory(givenATraceHistory());
+    List<Trace> traces = generateTimestampedTraces(300);
+    traceBuffer.add(traces);
+    long timestamp = Trace.parseTimestamp("02-07 17:45:12.050");
+
+    long sequenceNumber = traceBuffer.findSequenceNumber(timestamp);
+
+    assertEquals(121, sequenceNumber);
+    assertEquals(traces.get(121), traceBuffer.getTraces(121, 1).get(0));
+  }
+
+  @Test public void shouldReturnTheNextSequenceNumberIfEveryTraceWasPrintedBeforeATimestamp() {
+    traceBuffer.add(generateTimestampedTraces(10));
+    long timestamp = Trace.parseTimestamp("02-08 00:00:00.000");
+
+    long sequenceNumber = traceBuffer.findSequenceNumber(timestamp);
+
+    assertEquals(traceBuffer.getNextSequenceNumber(), sequenceNumber);
+  }
+
+  @Test public void shouldDiscardTheOldestTracesIfTheMaxSizeInBytesIsExceeded() {
+    traceBuffer.add(generateTraces(10));
+    long sizeOfFiveTraces = traceBuffer.getCurrentSizeInBytes() / 2;
+
+    traceBuffer.setMaxSizeInBytes(sizeOfFiveTraces);
+
+    assertEquals(generateTraces(5, 10), traceBuffer.getTraces());
+    assertEquals(sizeOfFiveTraces, traceBuffer.getCurrentSizeInBytes());
+  }
+
+  @Test public void shouldTrackTheSizeInBytesOfTheTracesAddedAndDiscarded() {
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+    long sizeInBytes = traceBuffer.getCurrentSizeInBytes();
+
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+
+    assertEquals(sizeInBytes, traceBuffer.getCurrentSizeInBytes());
+  }
+
+  @Test public void shouldKeepTheLastTraceEvenIfItExceedsTheMaxSizeInBytes() {
+    traceBuffer.setMaxSizeInBytes(1);
+
+    traceBuffer.add(generateTraces(5));
+
+    assertEquals(generateTraces(4, 5), traceBuffer.getTraces());
+  }
+
+  @Test public void shouldReturnZeroBytesAfterClear() {
+    traceBuffer.add(generateTraces(5));
+
+    traceBuffer.clear();
+
+    assertEquals(0, traceBuffer.getCurrentSizeInBytes());
+  }
+
+  @Test public void shouldKeepTheTracesDiscardedWithTheRetainedTraceLevel() {
+    traceBuffer.setRetentionPolicy(TraceLevel.WARNING, 5);
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    traceBuffer.add(Collections.singletonList(error));
+
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE * 2));
+
+    List<Trace> expectedTraces = new LinkedList<Trace>();
+    expectedTraces.add(error);
+    expectedTraces.addAll(generateTraces(ANY_BUFFER_SIZE, ANY_BUFFER_SIZE * 2));
+    assertEquals(expectedTraces, traceBuffer.getTraces());
+    assertEquals(1, traceBuffer.getNumberOfRetainedTraces());
+    assertEquals(0, traceBuffer.getSequenceNumber(0));
+    assertEquals(ANY_BUFFER_SIZE + 1, traceBuffer.getSequenceNumber(1));
+  }
+
+  @Test public void shouldStoreTheTracesDiscardedJustInTheHistoryIfThereIsAHistory()
+      throws Exception {
+    traceBuffer.setRetentionPolicy(TraceLevel.WARNING, 5);
+    traceBuffer.setHistory(givenATraceHistory());
+    List<Trace> errors = generateTraces(TraceLevel.ERROR, ANY_BUFFER_SIZE * 2);
+
+    traceBuffer.add(errors);
+
+    assertEquals(0, traceBuffer.getNumberOfRetainedTraces());
+    assertEquals(errors.subList(ANY_BUFFER_SIZE, ANY_BUFFER_SIZE * 2), traceBuffer.getTraces());
+    assertEquals(errors, traceBuffer.getTraces(0, errors.size()));
+  }
+
+  @Test public void shouldDiscardTheRetainedTracesOnceAHistoryIsConfigured() throws Exception {
+    traceBuffer.setRetentionPolicy(TraceLevel.WARNING, 5);
+    traceBuffer.add(generateTraces(TraceLevel.ERROR, ANY_BUFFER_SIZE * 2));
+
+    traceBuffer.setHistory(givenATraceHistory());
+
+    assertEquals(0, traceBuffer.getNumberOfRetainedTraces());
+  }
+
+  @Test public void shouldDiscardTheOldestRetainedTracesIfTheMaxNumberIsExceeded() {
+    traceBuffer.setRetentionPolicy(TraceLevel.WARNING, 2);
+    List<Trace> errors = generateTraces(TraceLevel.ERROR, 3);
+    traceBuffer.add(errors);
+
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+
+    assertEquals(2, traceBuffer.getNumberOfRetainedTraces());
+    assertEquals(errors.subList(1, 3), traceBuffer.getTraces().subList(0, 2));
+  }
+
+  @Test public void shouldNotRetainTracesWithALowerTraceLevel() {
+    traceBuffer.setRetentionPolicy(TraceLevel.ERROR, 5);
+    traceBuffer.add(generateTraces(TraceLevel.WARNING, 3));
+
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+
+    assertEquals(0, traceBuffer.getNumberOfRetainedTraces());
+  }
+
+  @Test public void shouldDiscardTheRetainedTracesOnClear() {
+    traceBuffer.setRetentionPolicy(TraceLevel.WARNING, 5);
+    traceBuffer.add(generateTraces(TraceLevel.ERROR, ANY_BUFFER_SIZE * 2));
+
+    traceBuffer.clear();
+
+    assertTrue(traceBuffer.getTraces().isEmpty());
+  }
+
+  @Test public void shouldNotReflectChangesInTheBufferInSnapshots() {
+    List<Trace> traces = generateTraces(ANY_BUFFER_SIZE);
+    traceBuffer.add(traces);
+
+    List<Trace> snapshot = traceBuffer.getSnapshot();
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE, ANY_BUFFER_SIZE * 3));
+
+    assertEquals(traces, snapshot);
+    assertEquals(generateTraces(ANY_BUFFER_SIZE * 2, ANY_BUFFER_SIZE * 3), traceBuffer.getTraces());
+  }
+
+  @Test public void shouldKeepSnapshotsAfterClear() {
+    List<Trace> traces = generateTraces(5);
+    traceBuffer.add(traces);
+
+    List<Trace> snapshot = traceBuffer.getSnapshot();
+    traceBuffer.clear();
+    traceBuffer.add(generateTraces(5, 10));
+
+    assertEquals(traces, snapshot);
+  }
+
+  @Test public void shouldIncludeTheRetainedTracesInSnapshots() {
+    traceBuffer.setRetentionPolicy(TraceLevel.WARNING, 5);
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    traceBuffer.add(Collections.singletonList(error));
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+
+    List<Trace> snapshot = traceBuffer.getSnapshot();
+    traceBuffer.clear();
+
+    assertEquals(ANY_BUFFER_SIZE + 1, snapshot.size());
+    assertEquals(error, snapshot.get(0));
+    assertTrue(snapshot instanceof RandomAccess);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void shouldNotAllowModifyingSnapshots() {
+    traceBuffer.add(generateTraces(5));
+
+    traceBuffer.getSnapshot().remove(0);
+  }
+
+  @Test public void shouldFindTheTracesWithALevelEqualOrHigherThanTheOneGiven() {
+    Trace debug = new Trace(TraceLevel.DEBUG, "debug");
+    Trace warning = new Trace(TraceLevel.WARNING, "warning");
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    Trace info = new Trace(TraceLevel.INFO, "info");
+    Trace wtf = new Trace(TraceLevel.WTF, "wtf");
+    traceBuffer.add(Arrays.asList(debug, error, warning, info, wtf));
+
+    List<Trace> traces = traceBuffer.findTraces(TraceLevel.WARNING, null, Trace.NO_PID);
+
+    assertEquals(Arrays.asList(error, warning, wtf), traces);
+  }
+
+  @Test public void shouldFindTheTracesMatchingTheTagAndThePidGiven() {
+    Trace first = new Trace(TraceLevel.INFO, "1", ANY_TAG, ANY_PID);
+    Trace second = new Trace(TraceLevel.INFO, "2", ANY_TAG, ANY_PID + 1);
+    Trace third = new Trace(TraceLevel.DEBUG, "3", ANY_TAG, ANY_PID);
+    Trace fourth = new Trace(TraceLevel.ERROR, "4", "OtherTag", ANY_PID);
+    Trace fifth = new Trace(TraceLevel.ERROR, "5", ANY_TAG, ANY_PID);
+    traceBuffer.add(Arrays.asList(first, second, third, fourth, fifth));
+
+    List<Trace> traces = traceBuffer.findTraces(TraceLevel.INFO, ANY_TAG, ANY_PID);
+
+    assertEquals(Arrays.asList(first, fifth), traces);
+  }
+
+  @Test public void shouldReturnAnEmptyListIfThereAreNoTracesWithTheTagGiven() {
+    traceBuffer.add(Arrays.asList(new Trace(TraceLevel.INFO, "1", ANY_TAG, ANY_PID)));
+
+    List<Trace> traces = traceBuffer.findTraces(TraceLevel.VERBOSE, "OtherTag", Trace.NO_PID);
+
+    assertTrue(traces.isEmpty());
+  }
+
+  @Test public void shouldNotFindTheTracesDiscardedFromTheBuffer() {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < ANY_BUFFER_SIZE * 2; i++) {
+      traces.add(new Trace(TraceLevel.INFO, String.valueOf(i), ANY_TAG, ANY_PID));
+    }
+    traceBuffer.add(traces);
+
+    List<Trace> tracesFound = traceBuffer.findTraces(TraceLevel.INFO, ANY_TAG, ANY_PID);
+
+    assertEquals(traces.subList(ANY_BUFFER_SIZE, ANY_BUFFER_SIZE * 2), tracesFound);
+  }
+
+  @Test public void shouldNotFindTracesAfterClear() {
+    traceBuffer.add(Arrays.asList(new Trace(TraceLevel.INFO, "1", ANY_TAG, ANY_PID)));
+
+    traceBuffer.clear();
+
+    assertTrue(traceBuffer.findTraces(TraceLevel.VERBOSE, null, Trace.NO_PID).isEmpty());
+    assertTrue(traceBuffer.findTraces(TraceLevel.VERBOSE, ANY_TAG, ANY_PID).isEmpty());
+  }
+
+  @Test public void shouldFindTheRetainedTracesBeforeTheTracesStoredInTheBuffer() {
+    traceBuffer.setRetentionPolicy(TraceLevel.ERROR, 5);
+    Trace retainedError = new Trace(TraceLevel.ERROR, "retained");
+    traceBuffer.add(Arrays.asList(retainedError));
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    traceBuffer.add(Arrays.asList(error));
+
+    List<Trace> traces = traceBuffer.findTraces(TraceLevel.ERROR, null, Trace.NO_PID);
+
+    assertEquals(Arrays.asList(retainedError, error), traces);
+  }
+
+  @Test public void shouldFindTheTracesContainingTheFilterIgnoringCase() {
+    Trace first = new Trace(TraceLevel.INFO, "Activity created");
+    Trace second = new Trace(TraceLevel.INFO, "Fragment attached");
+    Trace third = new Trace(TraceLevel.INFO, "Main ACTIVITY destroyed");
+    traceBuffer.add(Arrays.asList(first, second, third));
+
+    List<Trace> traces = traceBuffer.findTraces("activity");
+
+    assertEquals(Arrays.asList(first, third), traces);
+  }
+
+  @Test public void shouldFindTheTracesMatchingTheFilterAsRegularExpression() {
+    Trace first = new Trace(TraceLevel.INFO, "Request 200 OK");
+    Trace second = new Trace(TraceLevel.INFO, "Request 404 Not Found");
+    Trace third = new Trace(TraceLevel.INFO, "Response 500 Error");
+    traceBuffer.add(Arrays.asList(first, second, third));
+
+    List<Trace> traces = traceBuffer.findTraces("request [45]\\d+");
+
+    assertEquals(Arrays.asList(second), traces);
+  }
+
+  @Test public void shouldFindTheTracesMatchingAFilterShorterThanATrigram() {
+    Trace first = new Trace(TraceLevel.INFO, "ab");
+    Trace second = new Trace(TraceLevel.INFO, "cd");
+    traceBuffer.add(Arrays.asList(first, second));
+
+    List<Trace> traces = traceBuffer.findTraces("b");
+
+    assertEquals(Arrays.asList(first), traces);
+  }
+
+  @Test public void shouldFindTheTracesContainingAFilterThatIsNotAValidRegularExpression() {
+    Trace first = new Trace(TraceLevel.INFO, "Invalid [regexp");
+    traceBuffer.add(Arrays.asList(first, new Trace(TraceLevel.INFO, "Other trace")));
+
+    List<Trace> traces = traceBuffer.findTraces("[regexp");
+
+    assertEquals(Arrays.asList(first), traces);
+  }
+
+  @Test public void shouldNotFindTheTracesDiscardedFromTheBufferContainingTheFilter() {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < ANY_BUFFER_SIZE * 2; i++) {
+      traces.add(new Trace(TraceLevel.INFO, "Any message " + i));
+    }
+    traceBuffer.add(traces);
+
+    List<Trace> tracesFound = traceBuffer.findTraces("message");
+
+    assertEquals(traces.subList(ANY_BUFFER_SIZE, ANY_BUFFER_SIZE * 2), tracesFound);
+  }
+
+  @Test public void shouldNotFindTracesContainingTheFilterAfterClear() {
+    traceBuffer.add(Arrays.asList(new Trace(TraceLevel.INFO, "Any message")));
+
+    traceBuffer.clear();
+
+    assertTrue(traceBuffer.findTraces("message").isEmpty());
+  }
+
+  @Test public void shouldFindTheTracesMatchingTheFilterInTheLogcatLine() {
+    Trace first = new Trace(TraceLevel.DEBUG, "02-07 17:45:33.014 Any message");
+    Trace second = new Trace(TraceLevel.INFO, "02-07 17:45:33.014 Other message");
+    traceBuffer.add(Arrays.asList(first, second));
+
+    List<Trace> traces = traceBuffer.findTraces("014 d/any");
+
+    assertEquals(Arrays.asList(first), traces);
+  }
+
+  @Test public void shouldKeepTheSequenceNumbersOfTheTracesMatchingTheFilter() {
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+
+    traceBuffer.keepTracesMatching("1");
+
+    List<Trace> expectedTraces = generateTraces(1, 2);
+    expectedTraces.addAll(generateTraces(10, ANY_BUFFER_SIZE));
+    assertEquals(expectedTraces, traceBuffer.getTraces());
+    assertEquals(1, traceBuffer.getSequenceNumber(0));
+    assertEquals(10, traceBuffer.getSequenceNumber(1));
+    assertEquals(ANY_BUFFER_SIZE, traceBuffer.getNextSequenceNumber());
+  }
+
+  @Test public void shouldKeepTheSequenceNumbersOfTheTracesWithALevelEqualOrHigherThanTheOneGiven()
+      throws Exception {
+    traceBuffer.setHistory(givenATraceHistory());
+    Trace warning = new Trace(TraceLevel.WARNING, "warning");
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+    traceBuffer.add(Arrays.asList(warning, new Trace(TraceLevel.INFO, "info"), error));
+
+    traceBuffer.keepTracesMatching(TraceLevel.WARNING);
+
+    assertEquals(Arrays.asList(warning, error), traceBuffer.getTraces());
+    assertEquals(ANY_BUFFER_SIZE, traceBuffer.getSequenceNumber(0));
+    assertEquals(ANY_BUFFER_SIZE + 2, traceBuffer.getSequenceNumber(1));
+    assertEquals(generateTraces(3), traceBuffer.getTraces(0, 3));
+  }
+
+  @Test public void shouldAddTracesAfterTheTracesMatchingTheFilter() {
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE));
+    traceBuffer.keepTracesMatching("1");
+
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE, ANY_BUFFER_SIZE + 1));
+
+    int lastPosition = traceBuffer.getCurrentNumberOfTraces() - 1;
+    assertEquals(ANY_BUFFER_SIZE, traceBuffer.getSequenceNumber(lastPosition));
+    assertEquals(generateTraces(ANY_BUFFER_SIZE, ANY_BUFFER_SIZE + 1),
+        traceBuffer.getTraces(ANY_BUFFER_SIZE, 1));
+  }
+
+  @Test public void shouldKeepTheHistoryAfterKeepingTheTracesMatchingTheFilter()
+      throws Exception {
+    traceBuffer.setHistory(givenATraceHistory());
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE * 2));
+
+    traceBuffer.keepTracesMatching("3");
+
+    List<Trace> expectedTraces = generateTraces(ANY_BUFFER_SIZE);
+    expectedTraces.addAll(generateTraces(23, 24));
+    expectedTraces.addAll(generateTraces(30, ANY_BUFFER_SIZE * 2));
+    assertEquals(0, traceBuffer.getOldestSequenceNumber());
+    assertEquals(expectedTraces, traceBuffer.getTraces(0, ANY_BUFFER_SIZE * 2));
+    assertEquals(expectedTraces.size(), traceBuffer.countTraces(0, ANY_BUFFER_SIZE * 2));
+    assertEquals(ANY_BUFFER_SIZE - 1, traceBuffer.skipTraces(23, -1));
+    assertEquals(30, traceBuffer.skipTraces(ANY_BUFFER_SIZE - 1, 2));
+  }
+
+  @Test public void shouldKeepTheRetainedTracesAfterKeepingTheTracesMatchingTheFilter() {
+    traceBuffer.setRetentionPolicy(TraceLevel.WARNING, 5);
+    Trace error = new Trace(TraceLevel.ERROR, "error");
+    traceBuffer.add(Collections.singletonList(error));
+    traceBuffer.add(generateTraces(ANY_BUFFER_SIZE * 2));
+
+    traceBuffer.keepTracesMatching("3");
+
+    List<Trace> expectedTraces = new LinkedList<Trace>();
+    expectedTraces.add(error);
+    expectedTraces.addAll(generateTraces(23, 24));
+    expectedTraces.addAll(generateTraces(30, ANY_BUFFER_SIZE * 2));
+    assertEquals(expectedTraces, traceBuffer.getTraces());
+    assertEquals(1, traceBuffer.getNumberOfRetainedTraces());
+  }
+
+  @Test public void shouldCountTheTextIndexInTheSizeInBytesOnceATextIsSearched() {
+    traceBuffer.add(generateTraces(10, 20));
+    long sizeInBytesWithoutTextIndex = traceBuffer.getCurrentSizeInBytes();
+
+    traceBuffer.findTraces("any text");
+
+    assertTrue(traceBuffer.getCurrentSizeInBytes() > sizeInBytesWithoutTextIndex);
+  }
+
+  @Test public void shouldTrackTheSizeInBytesOfTheTextIndexWhileTracesAreAddedAndDiscarded() {
+    traceBuffer.findTraces("any text");
+    traceBuffer.add(generateTraces(10, 10 + ANY_BUFFER_SIZE));
+    long sizeInBytes = traceBuffer.getCurrentSizeInBytes();
+
+    traceBuffer.add(generateTraces(10, 10 + ANY_BUFFER_SIZE));
+
+    assertEquals(sizeInBytes, traceBuffer.getCurrentSizeInBytes());
+  }
+
+  @Test public void shouldNotCountTheTextIndexInTheSizeInBytesOnceReleased() {
+    traceBuffer.add(generateTraces(10, 20));
+    long sizeInBytesWithoutTextIndex = traceBuffer.getCurrentSizeInBytes();
+    traceBuffer.findTraces("any text");
+
+    traceBuffer.releaseTextIndex();
+
+    assertEquals(sizeInBytesWithoutTextIndex, traceBuffer.getCurrentSizeInBytes());
+  }
+
+  @Test public void shouldFindTheTracesAddedAfterReleasingTheTextIndex() {
+    traceBuffer.findTraces("any text");
+    traceBuffer.releaseTextIndex();
+    Trace trace = new Trace(TraceLevel.INFO, "Any text");
+
+    traceBuffer.add(Arrays.asList(trace, new Trace(TraceLevel.INFO, "Other trace")));
+
+    assertEquals(Arrays.asList(trace), traceBuffer.findTraces("any text"));
+  }
+
+  private List<Trace> generateTraces(TraceLevel traceLevel, int numberOfTraces) {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < numberOfTraces; i++) {
+      traces.add(new Trace(traceLevel, String.valueOf(i)));
+    }
+    return traces;
+  }
+
+  private TraceHistory givenATraceHistory() throws Exception {
+    return new TraceHistory(temporaryFolder.newFolder(), Long.MAX_VALUE, new Executor() {
+      @Override public void execute(Runnable command) {
+        command.run();
+      }
+    });
+  }
+
   private List<Trace> generateTraces(int numberOfTraces) {
     return generateTraces(0, numberOfTraces);
   }
 
+  private List<Trace> generateTimestampedTraces(int numberOfTraces) {
+    List<Trace> traces = new LinkedList<Trace>();
+    for (int i = 0; i < numberOfTraces; i++) {
+      String date = String.format(Locale.US, "02-07 17:45:%02d.%03d", i / 10, i % 10 * 100);
+      traces.add(new Trace(TraceLevel.DEBUG, date + " " + i));
+    }
+    return traces;
+  }
+
   private List<Trace> generateTraces(int initialValue, int finalValue) {
     List<Trace> traces = new LinkedList<Trace>();
     for (int i = initialValue; i < finalValue; i++) {
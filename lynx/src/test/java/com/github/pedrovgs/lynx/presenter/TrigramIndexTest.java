@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015 Pedro Vicente Gomez Sanchez.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.pedrovgs.lynx.presenter;
+
+import com.github.pedrovgs.lynx.model.Trace;
+import com.github.pedrovgs.lynx.model.TraceLevel;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Pedro Vicente Gómez Sánchez.
+ */
+public class TrigramIndexTest {
+
+  private TrigramIndex trigramIndex;
+
+  @Before public void setUp() {
+    trigramIndex = new TrigramIndex();
+  }
+
+  @Test public void shouldReturnTheTracesContainingTheLeastFrequentTrigramAsCandidates() {
+    trigramIndex.add(new Trace(TraceLevel.INFO, "Activity created"), 0);
+    trigramIndex.add(new Trace(TraceLevel.INFO, "Activity destroyed"), 1);
+    trigramIndex.add(new Trace(TraceLevel.INFO, "Fragment destroyed"), 2);
+
+    SequenceIndex candidates = trigramIndex.getCandidates("activity destroyed");
+
+    assertEquals(1, candidates.size());
+    assertEquals(1, candidates.get(0));
+  }
+
+  @Test public void shouldIndexEveryTraceJustOnceByTrigram() {
+    trigramIndex.add(new Trace(TraceLevel.INFO, "aaaaaa"), 0);
+
+    SequenceIndex candidates = trigramIndex.getCandidates("aaa");
+
+    assertEquals(1, candidates.size());
+  }
+
+  @Test public void shouldNotReturnCandidatesIfATrigramIsNotIndexed() {
+    trigramIndex.add(new Trace(TraceLevel.INFO, "Activity created"), 0);
+
+    SequenceIndex candidates = trigramIndex.getCandidates("fragment");
+
+    assertTrue(candidates.isEmpty());
+  }
+
+  @Test public void shouldNotReturnTheCandidatesRemoved() {
+    Trace trace = new Trace(TraceLevel.INFO, "Activity created");
+    trigramIndex.add(trace, 0);
+    trigramIndex.add(new Trace(TraceLevel.INFO, "Activity destroyed"), 1);
+
+    trigramIndex.remove(trace, 0);
+
+    SequenceIndex candidates = trigramIndex.getCandidates("activity");
+    assertEquals(1, candidates.size());
+    assertEquals(1, candidates.get(0));
+    assertTrue(trigramIndex.getCandidates("created").isEmpty());
+  }
+
+  @Test public void shouldReturnNullCandidatesIfTheTextIsShorterThanATrigram() {
+    trigramIndex.add(new Trace(TraceLevel.INFO, "Activity created"), 0);
+
+    assertNull(trigramIndex.getCandidates("ac"));
+  }
+
+  @Test public void shouldIndexTheLogcatLineIgnoringCase() {
+    trigramIndex.add(new Trace(TraceLevel.WARNING, "Activity created"), 0);
+
+    SequenceIndex candidates = trigramIndex.getCandidates("w/activity");
+
+    assertEquals(1, candidates.size());
+  }
+
+  @Test public void shouldReturnNullCandidatesIfTheTextHasNonAsciiCharacters() {
+    trigramIndex.add(new Trace(TraceLevel.INFO, "Conexi\u00f3n cerrada"), 0);
+
+    assertNull(trigramIndex.getCandidates("conexi\u00f3n"));
+  }
+
+  @Test public void shouldFindTheTracesIndexedAfterRemovingAndAddingManyTrigrams() {
+    int numberOfTraces = 1000;
+    for (int i = 0; i < numberOfTraces; i++) {
+      trigramIndex.add(new Trace(TraceLevel.INFO, "Trace " + i), i);
+    }
+
+    for (int i = 0; i < numberOfTraces / 2; i++) {
+      trigramIndex.remove(new Trace(TraceLevel.INFO, "Trace " + i), i);
+    }
+
+    for (int i = numberOfTraces / 2; i < numberOfTraces; i++) {
+      SequenceIndex candidates = trigramIndex.getCandidates("trace " + i);
+      assertTrue(candidates.get(0) >= numberOfTraces / 2);
+      assertTrue(contains(candidates, i));
+    }
+    assertTrue(trigramIndex.getCandidates("trace 1 ").isEmpty());
+  }
+
+  @Test public void shouldReturnTheWholeTextAsRequiredTextIfItHasNoSpecialCharacters() {
+    assertEquals("any text", TrigramIndex.getRequiredText("any text"));
+  }
+
+  @Test public void shouldReturnTheLongestTextRequiredByTheRegularExpression() {
+    assertEquals(" not found", TrigramIndex.getRequiredText("request [45]\\d+ not found"));
+  }
+
+  @Test public void shouldNotRequireTheOptionalCharacters() {
+    assertEquals("colo", TrigramIndex.getRequiredText("colou?r"));
+    assertEquals("ab", TrigramIndex.getRequiredText("abc*d"));
+    assertEquals("abc", TrigramIndex.getRequiredText("ab{2}abc"));
+  }
+
+  @Test public void shouldNotRequireTextInsideGroupsOrAlternatives() {
+    assertEquals("", TrigramIndex.getRequiredText("(activity)?"));
+    assertEquals("", TrigramIndex.getRequiredText("activity|fragment"));
+  }
+
+  private static boolean contains(SequenceIndex index, long sequenceNumber) {
+    for (int i = 0; i < index.size(); i++) {
+      if (index.get(i) == sequenceNumber) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -16,7 +16,6 @@
 
 package com.github.pedrovgs.lynx.renderer;
 
-import com.github.pedrovgs.lynx.LynxConfig;
 import com.github.pedrovgs.lynx.model.Trace;
 import com.github.pedrovgs.lynx.model.TraceLevel;
 import org.junit.Before;
@@ -30,12 +29,12 @@ import static org.junit.Assert.assertEquals;
 public class TraceRendererBuilderTest {
 
   private static final String ANY_TRACE_MESSAGE = "Any log trace";
-  private static final LynxConfig ANY_LYNX_CONFIG = new LynxConfig();
+  private static final float ANY_TEXT_SIZE_IN_PX = 24f;
 
   private TraceRendererBuilder traceRendererBuilder;
 
   @Before public void setUp() {
-    traceRendererBuilder = new TraceRendererBuilder(ANY_LYNX_CONFIG);
+    traceRendererBuilder = new TraceRendererBuilder(new TraceLayoutCache(ANY_TEXT_SIZE_IN_PX));
   }
 
   @Test public void shouldReturnAssertTraceRendererAsPrototypeIfTraceLevelEqualsToVerbose() {
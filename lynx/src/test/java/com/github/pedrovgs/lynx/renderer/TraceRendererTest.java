@@ -16,11 +16,10 @@
 
 package com.github.pedrovgs.lynx.renderer;
 
+import android.text.Layout;
 import android.view.LayoutInflater;
 import android.view.View;
-import android.widget.TextView;
 import com.github.pedrovgs.lynx.BuildConfig;
-import com.github.pedrovgs.lynx.LynxConfig;
 import com.github.pedrovgs.lynx.R;
 import com.github.pedrovgs.lynx.model.Trace;
 import com.github.pedrovgs.lynx.model.TraceLevel;
@@ -32,6 +31,8 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author Pedro Vicente Gómez Sánchez.
@@ -43,32 +44,61 @@ public class TraceRendererTest {
   private static final TraceLevel ANY_TRACE_LEVEL = TraceLevel.WTF;
   private static final String ANY_TRACE_MESSAGE =
       "02-08 19:54:30.145 Lynx﹕ WTF!!! My app is not working!!";
-  private static final LynxConfig ANY_LYNX_CONFIG = new LynxConfig();
+  private static final float ANY_TEXT_SIZE_IN_PX = 24f;
+  private static final int ANY_ROW_WIDTH = 480;
+  private static final int ANY_OTHER_ROW_WIDTH = 320;
 
   private TraceRenderer traceRenderer;
 
   @Before public void setUp() {
-    traceRenderer = new TraceRenderer(ANY_LYNX_CONFIG);
+    traceRenderer = new TraceRenderer(new TraceLayoutCache(ANY_TEXT_SIZE_IN_PX));
   }
 
   @Test public void shouldRenderFullTracePlusTraceLevelInformation() {
     Trace anyTrace = givenAnyTrace();
 
-    View view = renderTrace(anyTrace);
-    String traceRendered = ((TextView) view.findViewById(R.id.tv_trace)).getText().toString();
+    TraceRowView rowView = renderTrace(anyTrace);
+    String traceRendered = measure(rowView, ANY_ROW_WIDTH).getText().toString();
 
     String expectedTrace = " " + anyTrace.getLevel().getValue() + "  " + anyTrace.getMessage();
     assertEquals(expectedTrace, traceRendered);
   }
 
+  @Test public void shouldReuseTheLayoutOfTheTracesAlreadyRendered() {
+    TraceRowView rowView = renderTrace(givenAnyTrace());
+    Layout firstLayout = measure(rowView, ANY_ROW_WIDTH);
+
+    traceRenderer.onRecycle(givenAnyTrace());
+    traceRenderer.render();
+
+    assertSame(firstLayout, measure(rowView, ANY_ROW_WIDTH));
+  }
+
+  @Test public void shouldComputeTheLayoutAgainIfTheRowWidthChanges() {
+    TraceRowView rowView = renderTrace(givenAnyTrace());
+    Layout firstLayout = measure(rowView, ANY_ROW_WIDTH);
+
+    Layout layout = measure(rowView, ANY_OTHER_ROW_WIDTH);
+
+    assertNotSame(firstLayout, layout);
+    int padding = rowView.getPaddingLeft() + rowView.getPaddingRight();
+    assertEquals(ANY_OTHER_ROW_WIDTH - padding, layout.getWidth());
+  }
+
   private Trace givenAnyTrace() {
     return new Trace(ANY_TRACE_LEVEL, ANY_TRACE_MESSAGE);
   }
 
-  private View renderTrace(Trace anyTrace) {
+  private TraceRowView renderTrace(Trace anyTrace) {
     LayoutInflater layoutInflater = LayoutInflater.from(RuntimeEnvironment.application);
     traceRenderer.onCreate(anyTrace, layoutInflater, null);
     traceRenderer.render();
-    return traceRenderer.getRootView();
+    return (TraceRowView) traceRenderer.getRootView().findViewById(R.id.trv_trace);
+  }
+
+  private Layout measure(TraceRowView rowView, int width) {
+    rowView.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    return rowView.getTraceLayout();
   }
 }